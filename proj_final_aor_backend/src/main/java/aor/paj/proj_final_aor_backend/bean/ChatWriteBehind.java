@@ -0,0 +1,365 @@
+package aor.paj.proj_final_aor_backend.bean;
+
+import aor.paj.proj_final_aor_backend.util.ChatAppendLog;
+import aor.paj.proj_final_aor_backend.util.ChatLogEntry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Saves the project chat messages in batches, after they were acknowledged to the sender and pushed to the members.
+ * Each message is first written to a local append log, then a batch is saved when it reaches the batch size or
+ * when the flush window ends, with the notifications of the batch, in a single transaction.
+ * Batches are saved one at a time in the order the messages were received, so every project keeps its order.
+ * After a crash the messages of the log that were not saved are saved at startup.
+ * A message that cannot be saved on its own is moved to the dead letter file of the log, so it does not hold back the others.
+ * When too many messages wait to be saved, the new ones are rejected until the queue shrinks, saving them at once
+ * would put them ahead of the older messages of their project.
+ * It is only used with -Dmessages.chat.writeBehind=true, the log file is set with -Dmessages.chat.writeBehind.log.
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ChatWriteBehind {
+
+    private static final Logger logger = LogManager.getLogger(ChatWriteBehind.class);
+
+    /**
+     * Maximum length of the content of a message, the length of its column.
+     */
+    public static final int MAX_CONTENT_LENGTH = 1000;
+
+    private final boolean enabled = Boolean.getBoolean("messages.chat.writeBehind");
+
+    /**
+     * Maximum number of messages saved in each transaction, a full batch is saved without waiting for the window.
+     */
+    private final int batchSize = Integer.getInteger("messages.chat.writeBehind.batchSize", 200);
+
+    /**
+     * Time a message waits for others before its batch is saved.
+     */
+    private final long flushMillis = Long.getLong("messages.chat.writeBehind.flushMillis", 250L);
+
+    /**
+     * Time before a batch that failed is saved again.
+     */
+    private final long retryMillis = Long.getLong("messages.chat.writeBehind.retryMillis", 1000L);
+
+    /**
+     * Maximum number of messages waiting to be saved, the messages sent while the queue is full are rejected.
+     */
+    private final int maxPending = Integer.getInteger("messages.chat.writeBehind.maxPending", 10000);
+
+    /**
+     * Number of times in a row a batch fails on every message before its messages are moved to the dead letter file.
+     */
+    private final int maxAttempts = Integer.getInteger("messages.chat.writeBehind.maxAttempts", 30);
+
+    private final Path logFile = Paths.get(System.getProperty("messages.chat.writeBehind.log",
+            Paths.get(System.getProperty("jboss.server.data.dir", System.getProperty("java.io.tmpdir")), "chat-ingest.log").toString()));
+
+    @Resource
+    ManagedScheduledExecutorService scheduler;
+
+    @EJB
+    MessageBean messageBean;
+
+    private ChatAppendLog log;
+
+    /**
+     * Messages written to the log and not saved yet, in the order they were received.
+     */
+    private final Deque<ChatLogEntry> pending = new ArrayDeque<>();
+
+    /**
+     * True while a flush is scheduled, so a burst of messages schedules a single one.
+     */
+    private boolean scheduled;
+
+    /**
+     * True while a batch is being saved, so the batches never overlap.
+     */
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
+    /**
+     * Number of times in a row the first batch failed on every message, only used by the thread saving the batches.
+     */
+    private int failedAttempts;
+
+    /**
+     * Opens the log and saves the messages left in it by a crash.
+     */
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            log = new ChatAppendLog(logFile, Long.getLong("messages.chat.writeBehind.compactBytes", 8L * 1024 * 1024));
+            List<ChatLogEntry> recovered = log.readPending();
+            if (!recovered.isEmpty()) {
+                recover(recovered);
+            }
+            logger.info("Project chat messages are saved in batches, with the append log " + logFile);
+        } catch (IOException e) {
+            logger.error("Could not open the chat append log " + logFile + ", project chat messages are saved one by one", e);
+            log = null;
+        }
+    }
+
+    /**
+     * Queues the messages of the log that may not be saved, leaving out the ones already in the database.
+     */
+    private void recover(List<ChatLogEntry> recovered) throws IOException {
+        List<String> keys = new ArrayList<>();
+        for (ChatLogEntry entry : recovered) {
+            keys.add(entry.getKey());
+        }
+        Set<String> saved = messageBean.findIngestedKeys(keys);
+        long lastSeq = recovered.get(recovered.size() - 1).getSeq();
+        synchronized (pending) {
+            for (ChatLogEntry entry : recovered) {
+                if (!saved.contains(entry.getKey())) {
+                    pending.add(entry);
+                }
+            }
+        }
+        logger.info("Recovered " + (recovered.size() - saved.size()) + " project chat messages from the append log");
+        if (pending.isEmpty()) {
+            log.checkpoint(lastSeq);
+        } else {
+            flush();
+        }
+    }
+
+    /**
+     * Tells if the content of a message can be saved.
+     *
+     * @param content The content of the message.
+     * @return True if the content is not blank and fits its column.
+     */
+    public static boolean isValidContent(String content) {
+        return content != null && !content.isBlank() && content.length() <= MAX_CONTENT_LENGTH;
+    }
+
+    /**
+     * Tells if the messages are saved in batches.
+     *
+     * @return True if the append log is open.
+     */
+    public boolean isEnabled() {
+        return log != null;
+    }
+
+    /**
+     * Writes a message to the append log and queues it to be saved.
+     *
+     * @param projectId The id of the project.
+     * @param senderId  The id of the sender, a member of the project.
+     * @param content   The content of the message.
+     * @return The entry written, with its send timestamp, or null if it could not be written or the queue is full.
+     */
+    public ChatLogEntry accept(long projectId, long senderId, String content) {
+        if (!isValidContent(content)) {
+            logger.debug("Invalid content, the message is not queued");
+            return null;
+        }
+        ChatLogEntry entry;
+        boolean now;
+        boolean schedule;
+        // The pending lock is held while writing, so the queue has the order of the log
+        synchronized (pending) {
+            if (pending.size() >= maxPending) {
+                logger.warn(pending.size() + " project chat messages wait to be saved, rejecting the new one");
+                return null;
+            }
+            try {
+                entry = log.append(projectId, senderId, content);
+            } catch (IOException e) {
+                logger.error("Could not write to the chat append log " + logFile, e);
+                return null;
+            }
+            pending.add(entry);
+            now = pending.size() >= batchSize;
+            schedule = !scheduled;
+            scheduled = true;
+        }
+        if (now) {
+            scheduler.execute(this::flush);
+        } else if (schedule) {
+            scheduler.schedule(this::flush, flushMillis, TimeUnit.MILLISECONDS);
+        }
+        return entry;
+    }
+
+    /**
+     * Tells if the queue is full, so the new messages are rejected until the queued ones are saved.
+     *
+     * @return True if as many messages as allowed wait to be saved.
+     */
+    public boolean isFull() {
+        synchronized (pending) {
+            return pending.size() >= maxPending;
+        }
+    }
+
+    /**
+     * Saves the queued messages, batch after batch, until the queue is empty or a batch fails.
+     */
+    void flush() {
+        synchronized (pending) {
+            scheduled = false;
+        }
+        // A message queued while another thread was finishing is saved by this loop
+        while (hasPending() && flushing.compareAndSet(false, true)) {
+            try {
+                if (!drain()) {
+                    scheduler.schedule(this::flush, retryMillis, TimeUnit.MILLISECONDS);
+                    return;
+                }
+            } finally {
+                flushing.set(false);
+            }
+        }
+    }
+
+    /**
+     * Saves batches until the queue is empty.
+     * When a batch fails its messages are saved one by one, and the ones that fail are moved to the dead letter file.
+     *
+     * @return False if every message of a batch failed, its messages stay first in the queue.
+     */
+    private boolean drain() {
+        while (true) {
+            List<ChatLogEntry> batch = new ArrayList<>();
+            synchronized (pending) {
+                Iterator<ChatLogEntry> iterator = pending.iterator();
+                while (iterator.hasNext() && batch.size() < batchSize) {
+                    batch.add(iterator.next());
+                }
+            }
+            if (batch.isEmpty()) {
+                return true;
+            }
+            if (!save(batch)) {
+                return false;
+            }
+            synchronized (pending) {
+                for (int i = 0; i < batch.size(); i++) {
+                    pending.poll();
+                }
+            }
+            try {
+                log.checkpoint(batch.get(batch.size() - 1).getSeq());
+            } catch (IOException e) {
+                // The messages are saved, at worst they are found in the database when the log is replayed
+                logger.warn("Could not write the checkpoint of the chat append log " + logFile, e);
+            }
+        }
+    }
+
+    /**
+     * Saves a batch, or its messages one by one if it fails.
+     * The messages that cannot be saved are moved to the dead letter file, unless every message failed,
+     * which is rather the database that cannot be reached, until the batch failed too many times in a row.
+     *
+     * @return False if the batch must be saved again later.
+     */
+    private boolean save(List<ChatLogEntry> batch) {
+        List<ChatLogEntry> valid = new ArrayList<>();
+        for (ChatLogEntry entry : batch) {
+            if (isValidContent(entry.getContent())) {
+                valid.add(entry);
+            } else {
+                deadLetter(entry, "invalid content");
+            }
+        }
+        if (valid.isEmpty()) {
+            return true;
+        }
+        try {
+            messageBean.saveChatBatch(valid);
+            failedAttempts = 0;
+            return true;
+        } catch (RuntimeException e) {
+            logger.error("Could not save a batch of " + valid.size() + " project chat messages, saving them one by one", e);
+        }
+        List<ChatLogEntry> failed = new ArrayList<>();
+        for (ChatLogEntry entry : valid) {
+            try {
+                messageBean.saveChatBatch(List.of(entry));
+            } catch (RuntimeException e) {
+                logger.warn("Could not save the queued message " + entry.getKey() + ": " + e.getMessage());
+                failed.add(entry);
+            }
+        }
+        if (failed.size() == valid.size() && ++failedAttempts < maxAttempts) {
+            logger.error("Could not save any of " + valid.size() + " project chat messages, retrying in " + retryMillis + " ms");
+            return false;
+        }
+        failedAttempts = 0;
+        for (ChatLogEntry entry : failed) {
+            deadLetter(entry, "it could not be saved");
+        }
+        return true;
+    }
+
+    private void deadLetter(ChatLogEntry entry, String reason) {
+        try {
+            log.deadLetter(entry);
+            logger.error("Moved the queued message " + entry.getKey() + " of project " + entry.getProjectId() + " to the dead letter file, " + reason);
+        } catch (IOException e) {
+            logger.error("Could not move the queued message " + entry.getKey() + " of project " + entry.getProjectId()
+                    + " from user " + entry.getSenderId() + " to the dead letter file, it is lost: " + entry.getContent(), e);
+        }
+    }
+
+    private boolean hasPending() {
+        synchronized (pending) {
+            return !pending.isEmpty();
+        }
+    }
+
+    /**
+     * Saves the queued messages and closes the log, the messages that could not be saved are replayed at startup.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (log == null) {
+            return;
+        }
+        if (flushing.compareAndSet(false, true)) {
+            try {
+                drain();
+            } finally {
+                flushing.set(false);
+            }
+        }
+        try {
+            log.close();
+        } catch (IOException e) {
+            logger.warn("Could not close the chat append log " + logFile, e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package aor.paj.proj_final_aor_backend.bean;
+
+import aor.paj.proj_final_aor_backend.dao.LabDao;
+import aor.paj.proj_final_aor_backend.dao.ProjectDao;
+import aor.paj.proj_final_aor_backend.dao.SessionDao;
+import aor.paj.proj_final_aor_backend.dao.UserDao;
+import aor.paj.proj_final_aor_backend.dao.UserProjectDao;
+import aor.paj.proj_final_aor_backend.dto.Project;
+import aor.paj.proj_final_aor_backend.entity.LabEntity;
+import aor.paj.proj_final_aor_backend.entity.ProjectEntity;
+import aor.paj.proj_final_aor_backend.entity.SessionEntity;
+import aor.paj.proj_final_aor_backend.entity.UserEntity;
+import aor.paj.proj_final_aor_backend.entity.UserProjectEntity;
+import aor.paj.proj_final_aor_backend.util.enums.UserType;
+import aor.paj.proj_final_aor_backend.util.enums.UserTypeInProject;
+import aor.paj.proj_final_aor_backend.util.enums.Workplace;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Stateless;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.LocalDateTime;
+
+/**
+ * This class creates the users used by the websocket load test, see the proj_final_aor_loadtest module.
+ * It only runs when the server is started with -Dloadtest.users, usually with the loadtest profile and an in-memory database.
+ */
+@Stateless
+public class LoadTestBean {
+
+    private static final Logger logger = LogManager.getLogger(LoadTestBean.class);
+
+    /**
+     * Prefix of the emails and tokens of the load test users, the driver uses the same one.
+     */
+    public static final String PREFIX = "loadtest-";
+
+    /**
+     * Name of the project whose chat is used by the load test.
+     */
+    public static final String PROJECT_NAME = "Load test";
+
+    @EJB
+    UserDao userDao;
+    @EJB
+    SessionDao sessionDao;
+    @EJB
+    ProjectDao projectDao;
+    @EJB
+    UserProjectDao userProjectDao;
+    @EJB
+    LabDao labDao;
+    @EJB
+    UserBean userBean;
+
+    /**
+     * This method is responsible for creating the load test users, each one with an open session whose token is
+     * loadtest-{n}, and a project with the first users as members. Nothing is done if the users already exist.
+     *
+     * @param users          The number of users to create.
+     * @param projectMembers The number of users that are members of the load test project, the first one is its creator.
+     */
+    public void seed(int users, int projectMembers) {
+        if (userDao.findUserByEmail(PREFIX + 1 + "@example.com") != null) {
+            logger.info("Load test users already exist");
+            return;
+        }
+        logger.info("Creating " + users + " load test users, " + projectMembers + " of them in the project " + PROJECT_NAME);
+
+        LabEntity lab = labDao.findLabByName(Workplace.LISBOA.name());
+        // The same hash for everyone, hashing thousands of passwords would take minutes
+        String password = userBean.encryptPassword("Password1234%");
+
+        ProjectEntity project = new ProjectEntity();
+        project.setName(PROJECT_NAME);
+        project.setDescription("Project used by the websocket load test");
+        project.setKeywords("loadtest");
+        project.setStateId(Project.PLANNING);
+        project.setMaxMembers(Math.max(1, projectMembers));
+        project.setCreatedAt(LocalDateTime.now());
+        project.setLab(lab);
+        projectDao.persist(project);
+
+        // No queries inside the loop, each one would flush all the entities created so far
+        for (int i = 1; i <= users; i++) {
+            UserEntity user = new UserEntity();
+            user.setEmail(PREFIX + i + "@example.com");
+            user.setPassword(password);
+            user.setFirstName("Load");
+            user.setLastName("Test " + i);
+            user.setNickname(PREFIX + i);
+            user.setVisibilityState(true);
+            user.setActiveState(true);
+            user.setUserType(UserType.LOGGED_IN);
+            user.setLab(lab);
+            userDao.persist(user);
+
+            SessionEntity session = new SessionEntity();
+            session.setUser(user);
+            session.setToken(PREFIX + i);
+            session.setInitSession(LocalDateTime.now());
+            sessionDao.create(session);
+
+            if (i <= projectMembers) {
+                UserProjectEntity userProject = new UserProjectEntity();
+                userProject.setProject(project);
+                userProject.setUser(user);
+                userProject.setUserType(i == 1 ? UserTypeInProject.CREATOR : UserTypeInProject.COLLABORATOR);
+                userProject.setExited(false);
+                userProject.setApproved(true);
+                userProject.setJoinedAt(LocalDateTime.now());
+                userProjectDao.persist(userProject);
+            }
+        }
+        logger.info("Load test users created, project " + PROJECT_NAME + " has id " + project.getId());
+    }
+}
@@ -1,28 +1,37 @@
 package aor.paj.proj_final_aor_backend.bean;
 
 import aor.paj.proj_final_aor_backend.dao.*;
+import aor.paj.proj_final_aor_backend.dto.CursorPage;
 import aor.paj.proj_final_aor_backend.dto.Message;
 import aor.paj.proj_final_aor_backend.dto.MessageInfoUser;
+import aor.paj.proj_final_aor_backend.dto.ReadReceipt;
+import aor.paj.proj_final_aor_backend.entity.ConversationSummaryEntity;
 import aor.paj.proj_final_aor_backend.entity.MessageEntity;
 import aor.paj.proj_final_aor_backend.entity.ProjectEntity;
 import aor.paj.proj_final_aor_backend.entity.UserEntity;
 import aor.paj.proj_final_aor_backend.entity.UserProjectEntity;
+import aor.paj.proj_final_aor_backend.util.ChatLogEntry;
+import aor.paj.proj_final_aor_backend.util.PageCursor;
 import aor.paj.proj_final_aor_backend.util.enums.NotificationType;
 import aor.paj.proj_final_aor_backend.websocket.Notifier;
 import aor.paj.proj_final_aor_backend.websocket.WebsocketMessage;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static aor.paj.proj_final_aor_backend.util.enums.NotificationType.MESSAGE_RECEIVED;
@@ -39,11 +48,6 @@ public class MessageBean implements Serializable {
      * Logger for the MessageBean class.
      */
     private static final Logger logger = LogManager.getLogger(MessageBean.class);
-    private static final ObjectMapper mapper = new ObjectMapper();
-    static {
-        mapper.registerModule(new JavaTimeModule());
-    }
-
     /**
      * Data access object for messages.
      */
@@ -78,6 +82,26 @@ public class MessageBean implements Serializable {
 
     @EJB
     WebsocketMessage websocketMessage;
+    /**
+     * Data access object for the conversation summaries.
+     */
+    @EJB
+    ConversationSummaryDao conversationSummaryDao;
+    /**
+     * Data access object for the receivers of the notifications.
+     */
+    @EJB
+    NotificationRecipientDao notificationRecipientDao;
+    /**
+     * Keeps the unread counters of the users.
+     */
+    @EJB
+    UnreadCounterBean unreadCounterBean;
+    /**
+     * Saves the project chat messages in batches, when enabled.
+     */
+    @EJB
+    ChatWriteBehind chatWriteBehind;
 
 
     /**
@@ -122,6 +146,9 @@ public class MessageBean implements Serializable {
         messageEntity.setReadTimestamp(null);
         // Save the message in the database
         messageDao.createMessage(messageEntity);
+        // Keep the conversation list of both users up to date, in the same transaction as the message
+        conversationSummaryDao.recordMessage(user.getId(), receiver.getId(), messageEntity, false);
+        conversationSummaryDao.recordMessage(receiver.getId(), user.getId(), messageEntity, true);
 
         notificationBean.sendNotificationToOneUser(token, message.getReceiver().getId(), MESSAGE_RECEIVED);
 
@@ -129,13 +156,8 @@ public class MessageBean implements Serializable {
 
 
         // Send the message to the receiver
-        try {
-            String jsonMsg = mapper.writeValueAsString(convertMessageToDto(messageEntity));
-            websocketMessage.sendMessageTOUser(jsonMsg);
-            logger.debug("Notification sent to user with id: " + user.getId());
-        } catch (Exception e) {
-            logger.error("Erro ao serializar a mensagem: " + e.getMessage());
-        }
+        websocketMessage.sendMessageTOUser(convertMessageToDto(messageEntity));
+        logger.debug("Notification sent to user with id: " + user.getId());
 
         return true;
     }
@@ -178,6 +200,45 @@ public class MessageBean implements Serializable {
     }
 
 
+    /**
+     * This method is used to get a page of the messages between two users, newest first, with keyset pagination.
+     * @param token The token of the user who is requesting the messages. This is used to authenticate the user.
+     * @param id The id of the user with whom the messages are to be retrieved.
+     * @param cursor The position of the last message of the previous page, or PageCursor.FIRST.
+     * @param limit The maximum number of messages in the page.
+     * @return Returns the page of messages with the cursor of the next one, or null if a user was not found.
+     */
+    public CursorPage<Message> getMessagesBetweenTwoUsers(String token, long id, PageCursor cursor, int limit) {
+
+        // Find the user by token
+        UserEntity user1 = sessionDao.findUserByToken(token);
+        // Find the user by id
+        UserEntity user2 = userDao.findUserById(id);
+
+        // Check if the users exist
+        if (user1 == null || user2 == null) {
+            logger.error("User not found");
+            return null;
+        }
+
+        // One more message than the page tells if there is a next page
+        List<MessageEntity> messageEntities = messageDao.findMessagesBetweenUsersBefore(user1, user2, cursor, limit + 1);
+        boolean hasNext = messageEntities.size() > limit;
+
+        List<Message> messages = new ArrayList<>();
+        for (MessageEntity messageEntity : messageEntities.subList(0, Math.min(limit, messageEntities.size()))) {
+            messages.add(convertMessageToDto(messageEntity));
+        }
+
+        String nextCursor = null;
+        if (hasNext) {
+            MessageEntity last = messageEntities.get(limit - 1);
+            nextCursor = new PageCursor(last.getSendTimestamp(), last.getId()).encode();
+        }
+        return new CursorPage<>(messages, nextCursor);
+    }
+
+
     /**
      * This method is used to send a message to a chat group in a project.
      * @param token The token of the user who is sending the message. This is used to authenticate the user.
@@ -195,6 +256,18 @@ public class MessageBean implements Serializable {
             return false;
         }
 
+        //Check if the content can be saved, before the message is acknowledged
+        if (!ChatWriteBehind.isValidContent(content)) {
+            logger.debug("Invalid message content");
+            return false;
+        }
+
+        // Save in batches when enabled, the message is pushed now and saved a moment later.
+        // A message that is not queued is not saved at once either, it would go ahead of the queued ones of the project
+        if (chatWriteBehind.isEnabled()) {
+            return sendMessageToChatGroupWriteBehind(sender, project_id, content);
+        }
+
         //Check if the project exists
         ProjectEntity project = projectDao.findProjectById(project_id);
 
@@ -236,17 +309,100 @@ public class MessageBean implements Serializable {
         notificationBean.sendNotificationToProjectUsers(token, project_id, type, idPoject );
 
         //Send the message to the project
-        try {
-            String jsonMsg = mapper.writeValueAsString(convertMessageChatGroupToDTO(message));
-            websocketMessage.sendMessageToProject(jsonMsg, project_id);
-            logger.debug("Message sent to project with id: " + project_id);
-        } catch (JsonProcessingException e) {
-            logger.error("Error serializing the message: " + e.getMessage());
+        websocketMessage.sendMessageToProject(convertMessageChatGroupToDTO(message), project_id);
+        logger.debug("Message sent to project with id: " + project_id);
+        return true;
+
+    }
+
+
+    /**
+     * This method is used to send a message to a chat group in a project without waiting for it to be saved.
+     * The message is written to the chat append log, pushed to the members, and saved with its notifications in the next batch.
+     * @param sender The user who is sending the message.
+     * @param project_id The id of the project in which the message is to be sent.
+     * @param content The content of the message that is to be sent.
+     * @return Returns true if the message was accepted, false if the user is not in the project, the log could not be written or the queue is full.
+     */
+    private boolean sendMessageToChatGroupWriteBehind(UserEntity sender, long project_id, String content) {
+        //Check if the user is in the project
+        if (userProjectDao.findUserInProject(project_id, sender.getId()) == null) {
+            logger.debug("User not in project");
+            return false;
+        }
+        ChatLogEntry entry = chatWriteBehind.accept(project_id, sender.getId(), content);
+        if (entry == null) {
+            return false;
         }
+
+        // The message has no id until it is saved
+        Message messageDto = new Message();
+        messageDto.setContent(content);
+        messageDto.setSender(userBean.convertUserToDTOForMessage(sender));
+        messageDto.setSendTimestamp(entry.getSentAt());
+        messageDto.setReadStatus(false);
+        messageDto.setProjectId(project_id);
+        websocketMessage.sendMessageToProject(messageDto, project_id);
+        logger.debug("Message queued for project with id: " + project_id);
         return true;
+    }
+
+    /**
+     * This method is used to know if the project chat messages are rejected because too many wait to be saved.
+     * @return Returns true if the queue of the messages saved in batches is full.
+     */
+    public boolean isChatQueueFull() {
+        return chatWriteBehind.isEnabled() && chatWriteBehind.isFull();
+    }
+
+    /**
+     * This method is used to save a batch of project chat messages from the chat append log, in a single transaction.
+     * Each sender gets a single notification per project in the batch, the users see one notification for the burst anyway.
+     * Messages whose sender left the project are dropped.
+     * @param batch The entries of the log, in the order they were received.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void saveChatBatch(List<ChatLogEntry> batch) {
+        Map<Long, Set<Long>> senders = new LinkedHashMap<>();
+        Map<Long, UserEntity> senderEntities = new HashMap<>();
+        for (ChatLogEntry entry : batch) {
+            UserProjectEntity userProject = userProjectDao.findUserInProject(entry.getProjectId(), entry.getSenderId());
+            if (userProject == null) {
+                logger.warn("Dropping the queued message " + entry.getKey() + ", user " + entry.getSenderId() + " is not in project " + entry.getProjectId());
+                continue;
+            }
+            MessageEntity message = new MessageEntity();
+            message.setContent(entry.getContent());
+            message.setSender(userProject.getUser());
+            message.setReceiverGroup(userProject);
+            message.setSendTimestamp(entry.getSentAt());
+            message.setReadStatus(false);
+            message.setReadTimestamp(null);
+            message.setIngestKey(entry.getKey());
+            messageDao.createMessage(message);
+
+            senders.computeIfAbsent(entry.getProjectId(), id -> new LinkedHashSet<>()).add(entry.getSenderId());
+            senderEntities.put(entry.getSenderId(), userProject.getUser());
+        }
 
+        //Send the notifications of the batch to the users in the projects
+        String type = String.valueOf(NotificationType.MESSAGE_PROJECT);
+        for (Map.Entry<Long, Set<Long>> project : senders.entrySet()) {
+            for (Long senderId : project.getValue()) {
+                notificationBean.sendNotificationToProjectUsers(senderEntities.get(senderId), project.getKey(), type, project.getKey());
+            }
+        }
+        logger.debug("Saved a batch of " + batch.size() + " project chat messages");
     }
 
+    /**
+     * This method is used to find which entries of the chat append log were already saved.
+     * @param keys The keys of the entries.
+     * @return Returns the keys of the entries saved.
+     */
+    public Set<String> findIngestedKeys(List<String> keys) {
+        return messageDao.findIngestKeys(keys);
+    }
 
     /**
      * This method is used to get all the messages in the chat group of a project.
@@ -287,6 +443,60 @@ public class MessageBean implements Serializable {
         return messages;
     }
 
+    /**
+     * This method is used to get a page of the messages in the chat group of a project, with keyset pagination.
+     * With a since position it returns the messages sent after it, oldest first, to catch up with the chat.
+     * Otherwise it returns the messages sent before the given position, to scroll back, also oldest first.
+     * @param token The token of the user who is requesting the messages. This is used to authenticate the user.
+     * @param project_id The id of the project in which the messages are to be retrieved.
+     * @param before The position of the oldest message already shown, or PageCursor.FIRST for the latest messages.
+     * @param since The position of the newest message already shown, or null to scroll back.
+     * @param limit The maximum number of messages.
+     * @return Returns the page of messages, with the cursor to continue in the same direction and the cursor of the newest message.
+     */
+    public CursorPage<Message> getMessagesChatProject(String token, long project_id, PageCursor before, PageCursor since, int limit) {
+        UserEntity user = sessionDao.findUserByToken(token);
+        if (user == null) {
+            logger.debug("User not found");
+            return null;
+        }
+
+        //Check if the user is in the project
+        UserProjectEntity userProject = userProjectDao.findUserInProject(project_id, user.getId());
+        if (userProject == null) {
+            logger.debug("User not in project");
+            return null;
+        }
+
+        // One more message than the page tells if there are more
+        boolean catchUp = since != null;
+        List<MessageEntity> messageEntities = catchUp
+                ? messageDao.findProjectMessagesAfter(project_id, since, limit + 1)
+                : messageDao.findProjectMessagesBefore(project_id, before, limit + 1);
+        boolean hasMore = messageEntities.size() > limit;
+        messageEntities = new ArrayList<>(messageEntities.subList(0, Math.min(limit, messageEntities.size())));
+        if (!catchUp) {
+            Collections.reverse(messageEntities);
+        }
+
+        List<Message> messages = new ArrayList<>();
+        for (MessageEntity messageEntity : messageEntities) {
+            messages.add(convertMessageChatGroupToDTO(messageEntity));
+        }
+
+        String latestCursor = catchUp ? since.encode() : null;
+        String nextCursor = null;
+        if (!messageEntities.isEmpty()) {
+            MessageEntity oldest = messageEntities.get(0);
+            MessageEntity newest = messageEntities.get(messageEntities.size() - 1);
+            latestCursor = new PageCursor(newest.getSendTimestamp(), newest.getId()).encode();
+            if (hasMore) {
+                nextCursor = catchUp ? latestCursor : new PageCursor(oldest.getSendTimestamp(), oldest.getId()).encode();
+            }
+        }
+        return new CursorPage<>(messages, nextCursor, latestCursor);
+    }
+
     /**
      * This method is used to get the number of messages between two users.
      * @param token The token of the user who is requesting the messages. This is used to authenticate the user.
@@ -319,27 +529,36 @@ public class MessageBean implements Serializable {
             logger.debug("User not found ");
             return null;
         }
-        // If the user exists get the list of users with exchanged messages
-        List<UserEntity> listOfUsers = messageDao.findUsersWithExchangedMessages(user.getId());
+        // If the user exists get the conversations, the most recent first
+        List<ConversationSummaryEntity> conversations = conversationSummaryDao.findByOwner(user.getId());
 
         // Check if the list is empty
-        if(listOfUsers.isEmpty()){
+        if(conversations.isEmpty()){
             logger.info("No users found with exchanged messages");
             return null;
         }
 
+        // Find the names and photos of the other users, mostly from the cache
+        List<Long> peerIds = new ArrayList<>();
+        for (ConversationSummaryEntity conversation : conversations) {
+            peerIds.add(conversation.getPeerId());
+        }
+        Map<Long, MessageInfoUser> cards = userBean.getUserCards(peerIds);
 
-        // Convert the list of users to a list of messageInfoUser DTOs
+        // Convert the conversations to a list of messageInfoUser DTOs
         List<MessageInfoUser> users = new ArrayList<>();
-        if (listOfUsers != null && !listOfUsers.isEmpty()) {
-            for (UserEntity userEntity : listOfUsers) {
-                if (userEntity != null) {
-                    MessageInfoUser user1 = userBean.convertUserToDTOForMessage(userEntity);
-                    users.add(user1);
-                } else {
-                    logger.warn("Null UserEntity found in listOfUsers");
-                }
+        for (ConversationSummaryEntity conversation : conversations) {
+            MessageInfoUser card = cards.get(conversation.getPeerId());
+            if (card == null) {
+                logger.warn("User " + conversation.getPeerId() + " of a conversation not found");
+                continue;
             }
+            MessageInfoUser user1 = new MessageInfoUser(card.getId(), card.getFirstName(), card.getLastName(), card.getPhoto());
+            user1.setLastMessageId(conversation.getLastMessageId());
+            user1.setLastMessagePreview(conversation.getPreview());
+            user1.setLastMessageAt(conversation.getLastMessageAt());
+            user1.setUnreadCount(conversation.getUnreadCount());
+            users.add(user1);
         }
         // Return the list of users
         return users;
@@ -372,6 +591,10 @@ public class MessageBean implements Serializable {
             logger.error("User not receiver of message");
             return false;
         }
+        // Only a message read for the first time changes the unread messages of the conversation
+        if (!message.isReadStatus() && message.getSender() != null) {
+            conversationSummaryDao.decrementUnread(user.getId(), message.getSender().getId());
+        }
         // Mark the message as read
         message.setReadStatus(true);
         message.setReadTimestamp(LocalDateTime.now());
@@ -382,6 +605,97 @@ public class MessageBean implements Serializable {
     }
 
 
+    /**
+     * This method is used to mark as read, with a single update, the messages the user received from another user
+     * up to a position, and to tell the other user with a read receipt. Once no message from the other user is left unread,
+     * the notification about them is marked as read too, in the same transaction.
+     * @param token The token of the user who read the messages. This is used to authenticate the user.
+     * @param peerId The id of the user who sent the messages.
+     * @param upTo The position of the last message read, or PageCursor.FIRST for every message.
+     * @return Returns the read receipt, or null if a user was not found.
+     */
+    public ReadReceipt markConversationAsRead(String token, long peerId, PageCursor upTo) {
+        UserEntity user = sessionDao.findUserByToken(token);
+        if (user == null) {
+            logger.error("User not found");
+            return null;
+        }
+        UserEntity peer = userDao.findUserById(peerId);
+        if (peer == null || peer.getId() == user.getId()) {
+            logger.error("Peer not found");
+            return null;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        int read = messageDao.markReadUpTo(peer.getId(), user.getId(), upTo, now);
+
+        ReadReceipt receipt = new ReadReceipt();
+        receipt.setReaderId(user.getId());
+        receipt.setPeerId(peer.getId());
+        receipt.setUpTo(upTo == PageCursor.FIRST ? null : upTo.encode());
+        receipt.setReadAt(now);
+        if (read > 0) {
+            int unread = upTo == PageCursor.FIRST ? 0 : messageDao.countUnreadFrom(peer.getId(), user.getId());
+            conversationSummaryDao.setUnread(user.getId(), peer.getId(), unread);
+            if (unread == 0 && notificationRecipientDao.markReadAbout(user.getId(), NotificationType.MESSAGE_RECEIVED.toString(), peer.getId(), now) > 0) {
+                unreadCounterBean.conversationRead(user.getId());
+            }
+            websocketMessage.sendReadReceiptToUser(receipt);
+            logger.debug("User " + user.getId() + " read " + read + " messages from user " + peer.getId());
+        }
+        return receipt;
+    }
+
+    /**
+     * This method is used to move the position the user read the chat of a project up to, with a single update,
+     * and to tell the other members with a read receipt. The position never moves back.
+     * @param token The token of the user who read the messages. This is used to authenticate the user.
+     * @param project_id The id of the project.
+     * @param upTo The position of the last message read, or PageCursor.FIRST for the latest message.
+     * @return Returns the read receipt, or null if the user is not in the project.
+     */
+    public ReadReceipt markProjectChatAsRead(String token, long project_id, PageCursor upTo) {
+        UserEntity user = sessionDao.findUserByToken(token);
+        if (user == null) {
+            logger.error("User not found");
+            return null;
+        }
+        if (userProjectDao.findUserInProject(project_id, user.getId()) == null) {
+            logger.debug("User not in project");
+            return null;
+        }
+
+        ReadReceipt receipt = new ReadReceipt();
+        receipt.setReaderId(user.getId());
+        receipt.setProjectId(project_id);
+        receipt.setReadAt(LocalDateTime.now());
+
+        if (upTo == PageCursor.FIRST) {
+            List<MessageEntity> latest = messageDao.findProjectMessagesBefore(project_id, PageCursor.FIRST, 1);
+            if (latest.isEmpty()) {
+                return receipt;
+            }
+            upTo = new PageCursor(latest.get(0).getSendTimestamp(), latest.get(0).getId());
+        }
+        receipt.setUpTo(upTo.encode());
+        if (userProjectDao.markChatRead(project_id, user.getId(), upTo)) {
+            websocketMessage.sendReadReceiptToProject(receipt);
+        }
+        return receipt;
+    }
+
+    /**
+     * This method is used to create the conversation summaries of the direct messages sent before they existed.
+     * Called at startup, it does nothing once the summaries exist.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void migrateConversationSummaries() {
+        int created = conversationSummaryDao.createFromMessages();
+        if (created > 0) {
+            logger.info("Created " + created + " conversation summaries from the direct messages");
+        }
+    }
+
     /**
      * This method is used to convert a message entity to a message DTO.
      * @param messageEntity The message entity that is to be converted.
@@ -416,7 +730,9 @@ public class MessageBean implements Serializable {
         messageDto.setSendTimestamp(messageEntity.getSendTimestamp());
         messageDto.setReadStatus(messageEntity.isReadStatus());
         messageDto.setReadTimestamp(messageEntity.getReadTimestamp());
-        messageDto.setProjectId(messageEntity.getReceiverGroup().getProject().getId());
+        // The project id column avoids loading the group receiver, it is only missing on a message just persisted
+        Long projectId = messageEntity.getReceiverProjectId();
+        messageDto.setProjectId(projectId != null ? projectId : messageEntity.getReceiverGroup().getProject().getId());
         return messageDto;
 
     }
@@ -0,0 +1,204 @@
+package aor.paj.proj_final_aor_backend.bean;
+
+import aor.paj.proj_final_aor_backend.dao.MessageDao;
+import aor.paj.proj_final_aor_backend.dao.MessageTermDao;
+import aor.paj.proj_final_aor_backend.dao.SessionDao;
+import aor.paj.proj_final_aor_backend.dao.UserProjectDao;
+import aor.paj.proj_final_aor_backend.dto.CursorPage;
+import aor.paj.proj_final_aor_backend.dto.MessageSearchHit;
+import aor.paj.proj_final_aor_backend.entity.MessageEntity;
+import aor.paj.proj_final_aor_backend.entity.UserEntity;
+import aor.paj.proj_final_aor_backend.util.MessageTerms;
+import aor.paj.proj_final_aor_backend.util.SearchCursor;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class is responsible for the search of the direct and project messages a user can read.
+ * The messages are indexed by term when they are created, see MessageDao.createMessage,
+ * so a search reads the index entries of its terms instead of the content of every message.
+ */
+@Stateless
+public class MessageSearchBean implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger = LogManager.getLogger(MessageSearchBean.class);
+
+    /**
+     * Maximum number of terms of a search, the others are ignored.
+     */
+    private static final int MAX_TERMS = 8;
+
+    /**
+     * Number of characters of the content shown before the first term found.
+     */
+    private static final int SNIPPET_BEFORE = 40;
+
+    /**
+     * Maximum number of characters of a snippet.
+     */
+    private static final int SNIPPET_LENGTH = 160;
+
+    @EJB
+    SessionDao sessionDao;
+    @EJB
+    MessageDao messageDao;
+    @EJB
+    MessageTermDao messageTermDao;
+    @EJB
+    UserProjectDao userProjectDao;
+    @EJB
+    UserBean userBean;
+
+    /**
+     * Searches the direct messages sent or received by the user and the messages of the projects the user is in.
+     * The messages with more terms of the search come first, then the newest.
+     *
+     * @param token  The token of the user.
+     * @param query  The text to search.
+     * @param cursor The position of the last result already read.
+     * @param limit  The maximum number of results.
+     * @return The page of results, with the cursor of the next page, or null if the user is not found.
+     */
+    public CursorPage<MessageSearchHit> search(String token, String query, SearchCursor cursor, int limit) {
+        UserEntity user = sessionDao.findUserByToken(token);
+        if (user == null) {
+            logger.debug("User not found");
+            return null;
+        }
+
+        List<String> terms = new ArrayList<>(MessageTerms.of(query));
+        if (terms.isEmpty()) {
+            return new CursorPage<>(new ArrayList<>(), null);
+        }
+        if (terms.size() > MAX_TERMS) {
+            terms = terms.subList(0, MAX_TERMS);
+        }
+
+        List<Long> projectIds = userProjectDao.findActiveProjectIdsByUserId(user.getId());
+        // One more result than the page tells if there are more
+        List<Object[]> matches = messageTermDao.search(terms, user.getId(), projectIds, cursor, limit + 1);
+        boolean hasNext = matches.size() > limit;
+        if (hasNext) {
+            matches = matches.subList(0, limit);
+        }
+        if (matches.isEmpty()) {
+            return new CursorPage<>(new ArrayList<>(), null);
+        }
+
+        List<Long> ids = new ArrayList<>();
+        for (Object[] match : matches) {
+            ids.add((Long) match[0]);
+        }
+        Map<Long, MessageEntity> messages = new HashMap<>();
+        for (MessageEntity message : messageDao.findMessagesByIds(ids)) {
+            messages.put(message.getId(), message);
+        }
+
+        Set<String> termSet = Set.copyOf(terms);
+        List<MessageSearchHit> hits = new ArrayList<>();
+        for (Object[] match : matches) {
+            MessageEntity message = messages.get((Long) match[0]);
+            if (message != null) {
+                hits.add(convertToHit(message, ((Long) match[1]).intValue(), termSet));
+            }
+        }
+
+        String nextCursor = null;
+        if (hasNext) {
+            Object[] last = matches.get(matches.size() - 1);
+            nextCursor = new SearchCursor((Long) last[1], (Long) last[0]).encode();
+        }
+        return new CursorPage<>(hits, nextCursor);
+    }
+
+    /**
+     * Adds to the search index the messages after the last one indexed, used for the messages sent before the index existed.
+     * Called at startup in a loop, each batch in a transaction of its own.
+     *
+     * @param afterId    The ID of the last message already indexed.
+     * @param maxResults The maximum number of messages of the batch.
+     * @return The ID of the last message of the batch, or -1 if there were no more messages.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public long indexMessagesAfter(long afterId, int maxResults) {
+        List<MessageEntity> batch = messageDao.findMessagesAfterId(afterId, maxResults);
+        if (batch.isEmpty()) {
+            return -1;
+        }
+        for (MessageEntity message : batch) {
+            messageDao.indexMessage(message);
+        }
+        logger.info("Indexed " + batch.size() + " messages for the search, up to the message " + batch.get(batch.size() - 1).getId());
+        return batch.get(batch.size() - 1).getId();
+    }
+
+    /**
+     * Finds the ID of the last message in the search index.
+     *
+     * @return The ID, or 0 if the index is empty.
+     */
+    public long findLastIndexedMessageId() {
+        return messageTermDao.findLastMessageId();
+    }
+
+    /**
+     * Converts a message found by a search to a result.
+     *
+     * @param message The message.
+     * @param score   The number of terms of the search found in the message.
+     * @param terms   The terms of the search.
+     * @return The result.
+     */
+    private MessageSearchHit convertToHit(MessageEntity message, int score, Set<String> terms) {
+        MessageSearchHit hit = new MessageSearchHit();
+        hit.setId(message.getId());
+        hit.setSender(userBean.convertUserToDTOForMessage(message.getSender()));
+        hit.setReceiverId(message.getReceiver() != null ? message.getReceiver().getId() : null);
+        hit.setProjectId(message.getReceiverProjectId());
+        hit.setSendTimestamp(message.getSendTimestamp());
+        hit.setSnippet(snippet(message.getContent(), terms));
+        hit.setScore(score);
+        return hit;
+    }
+
+    /**
+     * Cuts the part of a content around the first term found in it.
+     *
+     * @param content The content of the message.
+     * @param terms   The terms of the search.
+     * @return The snippet, with "..." where the content was cut.
+     */
+    static String snippet(String content, Set<String> terms) {
+        if (content == null) {
+            return "";
+        }
+        int start = 0;
+        String normalized = MessageTerms.normalize(content);
+        // Positions in the normalized content are only valid in the content when both have the same length
+        if (normalized.length() == content.length()) {
+            int first = -1;
+            for (String term : terms) {
+                int position = normalized.indexOf(term);
+                if (position >= 0 && (first < 0 || position < first)) {
+                    first = position;
+                }
+            }
+            start = Math.max(0, first - SNIPPET_BEFORE);
+        }
+        int end = Math.min(content.length(), start + SNIPPET_LENGTH);
+        return (start > 0 ? "..." : "") + content.substring(start, end) + (end < content.length() ? "..." : "");
+    }
+}
@@ -1,20 +1,27 @@
 package aor.paj.proj_final_aor_backend.bean;
 
 import aor.paj.proj_final_aor_backend.dao.NotificationDao;
+import aor.paj.proj_final_aor_backend.dao.NotificationRecipientDao;
 import aor.paj.proj_final_aor_backend.dao.SessionDao;
 import aor.paj.proj_final_aor_backend.dao.UserDao;
+import aor.paj.proj_final_aor_backend.dto.CursorPage;
 import aor.paj.proj_final_aor_backend.dto.MessageInfoUser;
 import aor.paj.proj_final_aor_backend.dto.Notification;
+import aor.paj.proj_final_aor_backend.dto.UnreadCounters;
 
 import aor.paj.proj_final_aor_backend.entity.NotificationEntity;
+import aor.paj.proj_final_aor_backend.entity.NotificationRecipientEntity;
 import aor.paj.proj_final_aor_backend.entity.UserEntity;
+import aor.paj.proj_final_aor_backend.util.PageCursor;
+import aor.paj.proj_final_aor_backend.util.enums.NotificationDelivery;
 import aor.paj.proj_final_aor_backend.util.enums.NotificationType;
+import aor.paj.proj_final_aor_backend.util.enums.UserType;
 import aor.paj.proj_final_aor_backend.websocket.Notifier;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
 import jakarta.xml.bind.SchemaOutputResolver;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -22,7 +29,13 @@ import org.apache.logging.log4j.Logger;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * This class is responsible for handling the business logic for the Notification entity.
@@ -36,21 +49,20 @@ public class NotificationBean implements Serializable {
      * Logger for the MessageBean class.
      */
     private static final Logger logger = LogManager.getLogger(NotificationBean.class);
+
     /**
-     * ObjectMapper instance to serialize and deserialize objects.
+     * True to collapse new messages into the unread notification about the same conversation,
+     * set with -Dnotifications.aggregateMessages=false to create one notification per message.
      */
-    private static final ObjectMapper mapper = new ObjectMapper();
-
-    static {
-        mapper.registerModule(new JavaTimeModule());
-    }
-
+    private static final boolean AGGREGATE_MESSAGES = Boolean.parseBoolean(System.getProperty("notifications.aggregateMessages", "true"));
     /**
      * Object instance to interact with the database.
      */
     @EJB
     NotificationDao notificationDao;
     @EJB
+    NotificationRecipientDao notificationRecipientDao;
+    @EJB
     UserBean userBean;
     @EJB
     SessionDao sessionDao;
@@ -60,6 +72,10 @@ public class NotificationBean implements Serializable {
     UserDao userDao;
     @EJB
     Notifier notifier;
+    @EJB
+    UnreadCounterBean unreadCounterBean;
+    @EJB
+    NotificationPreferenceCache notificationPreferenceCache;
 
 
     /**
@@ -94,6 +110,13 @@ public class NotificationBean implements Serializable {
             return false;
         }
 
+        // Check how the user wants to receive the notifications
+        NotificationDelivery delivery = notificationPreferenceCache.get(user.getId(), 0);
+        if (delivery == NotificationDelivery.MUTED) {
+            logger.debug("Notifications muted by user with id: " + user.getId());
+            return true;
+        }
+
         //Create the notification
         Notification notification = new Notification();
         notification.setReadStatus(false);
@@ -101,44 +124,61 @@ public class NotificationBean implements Serializable {
         notification.setSender(userBean.convertUserToDTOForMessage(sender));
         notification.setType(NotificationType.valueOf(type.toString()));
         notification.setReceiver(userBean.convertUserToDTOForMessage(user));
+        //Direct messages are about the conversation with the sender
+        if (type == NotificationType.MESSAGE_RECEIVED) {
+            notification.setRelatedIDEntity(sender.getId());
+        }
 
+        //Collapse the notification into the one the user did not read yet about the same conversation
+        List<Long> receiverIds = Collections.singletonList(user.getId());
+        Long aggregateId = collapse(type, sender.getId(), notification.getRelatedIDEntity(), receiverIds, notification.getSendTimestamp()).get(user.getId());
+        NotificationRecipientEntity aggregate = aggregateId == null ? null
+                : notificationRecipientDao.findByUserAndNotifications(user.getId(), Collections.singletonList(aggregateId)).get(aggregateId);
+        if (aggregate != null) {
+            notification.setId(aggregateId);
+            notification.setCount(aggregate.getAggregateCount());
+            notification.setLastEventAt(aggregate.getLastEventAt());
+            notification.setSendTimestamp(aggregate.getNotification().getSendTimestamp());
+            if (delivery == NotificationDelivery.REAL_TIME) {
+                notifier.sendNotificationToUser(notification);
+            }
+            logger.debug("Notification " + aggregateId + " updated for user with id: " + user.getId());
+            return true;
+        }
 
         NotificationEntity notificationEntity = convertDtoTOEntity(notification, sender);
         //Persist the notification in the database
         notificationDao.create(notificationEntity);
 
-        //Add the notification to the user's list of notifications
-        user.getNotifications().add(notificationEntity);
-        notificationEntity.getUsers().add(user);
-
-        //Update the user in the database
-        userDao.updateUser(user);
+        //Add the user as recipient of the notification
+        unreadCounterBean.notificationSent(type, notification.getRelatedIDEntity(), receiverIds);
+        notificationRecipientDao.addRecipients(notificationEntity.getId(), receiverIds);
 
 
         notification.setId(notificationEntity.getId());
+        notification.setCount(notificationEntity.getAggregateCount());
+        notification.setLastEventAt(notificationEntity.getLastEventAt());
 
 
-        //Send the notification to the user
-        try {
-            String jsonMsg = mapper.writeValueAsString(notification);
-            notifier.sendNotificationToUser(jsonMsg);
-            logger.debug("Notification sent to user with id: " + user.getId());
-        } catch (Exception e) {
-            logger.error("Erro ao serializar a mensagem: " + e.getMessage());
+        //Send the notification to the user, unless the user only wants to see it in the list
+        if (delivery == NotificationDelivery.REAL_TIME) {
+            notifier.sendNotificationToUser(notification);
         }
+        logger.debug("Notification sent to user with id: " + user.getId());
 
         return true;
     }
 
     /**
      * Method to send a notification to all users.
+     * A single notification is created and shared by all the receivers, which are added with bulk inserts,
+     * and it is sent to the websockets with one broadcast.
      *
-     * @param token The token of the user sending the notification.
-     * @param type  The type of the notification.
-     * @return A list of notifications that were sent.
-     * @throws Exception If no user is found with the given token, if there are no users to send the notification to, or if no type is specified for the notification.
+     * @param token     The token of the user sending the notification.
+     * @param type      The type of the notification.
+     * @param projectId The id of the entity related with the notification.
+     * @return True if the notification was sent, false if the sender was not found or no type is specified.
      */
-
     public boolean sendNotificationToAllUsers(String token, NotificationType type, long projectId) {
 
         // Find the user sending the notification
@@ -150,64 +190,55 @@ public class NotificationBean implements Serializable {
             return false;
         }
 
-        // Find all users
-        List<UserEntity> users = userBean.getAllUsers();
-        if (users == null || users.isEmpty()) {
-            logger.error("No users to send notification to");
+        return sendNotificationToAllUsers(sender, type, projectId);
+    }
+
+    /**
+     * Method to send a notification from a user to all the other users, used by the notification outbox
+     * where the session of the sender may already be closed.
+     *
+     * @param sender    The user sending the notification.
+     * @param type      The type of the notification.
+     * @param projectId The id of the entity related with the notification.
+     * @return True if the notification was sent, false if no type is specified.
+     */
+    public boolean sendNotificationToAllUsers(UserEntity sender, NotificationType type, long projectId) {
 
-            return false;
-        }
         // Check if a type is specified for the notification
         if (type == null || type.toString().isEmpty()) {
             logger.error("No type specified for notification");
             return false;
         }
 
-        // Create a list to store the notifications that were sent
-        List<Notification> sentNotifications = new ArrayList<>();
-        for (UserEntity user : users) {
-            if (user.getId() != sender.getId()) {
-            try {
-
-
-                    logger.debug("Sending notification to user with id: " + user.getId());
-                    Notification notification = new Notification();
-                    notification.setReadStatus(false);
-                    notification.setSendTimestamp(LocalDateTime.now());
-                    notification.setSender(userBean.convertUserToDTOForMessage(sender));
-                    notification.setType(type);
-                    notification.setReceiver(userBean.convertUserToDTOForMessage(user));
-                    notification.setRelatedIDEntity(projectId);
-
-
-                    //Create the notification
-                    NotificationEntity notificationEntity = convertDtoTOEntity(notification, sender);
-                    //Persist the notification in the database
-                    notificationDao.create(notificationEntity);
-
-                    user.getNotifications().add(notificationEntity);
-                    notificationEntity.getUsers().add(user);
-
-                    userDao.updateUser(user);
-
-                    sentNotifications.add(notification);
-                    notification.setId(notificationEntity.getId());
-                    //Send the notification to the user
-                    try {
-                        String jsonMsg = mapper.writeValueAsString(notification);
-                        notifier.sendNotificationToAllExceptTheSender(jsonMsg);
-                        logger.debug("Notification sent to user with id: " + user.getId());
-                    } catch (Exception e) {
-                        logger.error("Erro ao serializar a mensagem: " + e.getMessage());
-                    }
+        // Find the ids of all the other active users, except the ones that muted the notifications
+        List<Long> receiverIds = userDao.findActiveUserIdsExcept(sender.getId());
+        Map<Long, NotificationDelivery> quietUsers = notificationPreferenceCache.getQuietUsers(projectId);
+        if (!quietUsers.isEmpty()) {
+            receiverIds = new ArrayList<>(receiverIds);
+            receiverIds.removeIf(id -> quietUsers.get(id) == NotificationDelivery.MUTED);
+        }
+        if (receiverIds.isEmpty()) {
+            logger.debug("No users to send notification to");
+            return true;
+        }
 
+        Notification notification = new Notification();
+        notification.setReadStatus(false);
+        notification.setSendTimestamp(LocalDateTime.now());
+        notification.setSender(userBean.convertUserToDTOForMessage(sender));
+        notification.setType(type);
+        notification.setRelatedIDEntity(projectId);
 
+        //Create the notification and add its receivers
+        NotificationEntity notificationEntity = convertDtoTOEntity(notification, sender);
+        notificationDao.create(notificationEntity);
+        unreadCounterBean.notificationSent(type, notification.getRelatedIDEntity(), receiverIds);
+        notificationRecipientDao.addRecipients(notificationEntity.getId(), receiverIds);
+        notification.setId(notificationEntity.getId());
 
-            } catch (Exception e) {
-                logger.error("Error sending notification to user with id: " + user.getId(), e);
-            }
-            }
-        }
+        //The notification is pushed to every user except the sender and the ones that do not want it in real time
+        notifier.sendNotificationToAllExcept(notification, quietUsers.keySet());
+        logger.debug("Notification " + notificationEntity.getId() + " sent to " + receiverIds.size() + " users");
 
         return true;
     }
@@ -215,6 +246,8 @@ public class NotificationBean implements Serializable {
 
     /**
      * Method to send a notification to all users in a project.
+     * A single notification is created and shared by all the users in the project, each one with its own read state.
+     * Messages are collapsed into the latest notification about the project for the users that did not read it.
      *
      * @param token      The token of the user sending the notification.
      * @param project_id The id of the project.
@@ -232,6 +265,20 @@ public class NotificationBean implements Serializable {
             return false;
         }
 
+        return sendNotificationToProjectUsers(sender, project_id, type, projectID);
+    }
+
+    /**
+     * Method to send a notification from a user to all the other users in a project, used by the notification outbox
+     * where the session of the sender may already be closed.
+     *
+     * @param sender     The user sending the notification.
+     * @param project_id The id of the project.
+     * @param type       The type of the notification.
+     * @param projectID  The id of the project.
+     * @return True if the notification was sent successfully, false otherwise.
+     */
+    public boolean sendNotificationToProjectUsers(UserEntity sender, long project_id, String type, long projectID) {
         // Find all users in the project
         List<UserEntity> usersProject = userProjectBean.getActiveUsersInProject(project_id);
 
@@ -247,40 +294,89 @@ public class NotificationBean implements Serializable {
             return false;
         }
 
-        // Create a list to store the notifications that were sent
-        List<Notification> sentNotifications = new ArrayList<>();
-
-        // Send the notification to each user in the project
+        // Find the ids of the users in the project, except the sender and the ones that muted the notifications
+        Map<Long, NotificationDelivery> quietUsers = notificationPreferenceCache.getQuietUsers(projectID);
+        List<Long> receiverIds = new ArrayList<>();
         for (UserEntity user : usersProject) {
-            System.out.println(user.getEmail());
-            if(user.getId() != sender.getId()) {
-                try {
+            if (user.getId() != sender.getId() && quietUsers.get(user.getId()) != NotificationDelivery.MUTED) {
+                receiverIds.add(user.getId());
+            }
+        }
+        if (receiverIds.isEmpty()) {
+            logger.debug("No users to send notification to");
+            return true;
+        }
 
-                    logger.debug("Sending notification to user with id: " + user.getId());
-                    Notification notification = new Notification();
-                    notification.setReadStatus(false);
-                    notification.setSendTimestamp(LocalDateTime.now());
-                    notification.setSender(userBean.convertUserToDTOForMessage(sender));
-                    notification.setType(NotificationType.valueOf(type));
-                    notification.setRelatedIDEntity(projectID);
+        try {
+            Notification notification = new Notification();
+            notification.setReadStatus(false);
+            notification.setSendTimestamp(LocalDateTime.now());
+            notification.setSender(userBean.convertUserToDTOForMessage(sender));
+            notification.setType(NotificationType.valueOf(type));
+            notification.setRelatedIDEntity(projectID);
+
+            //Collapse the notification into the ones the users did not read yet, only the others get a new one
+            Map<Long, Long> collapsed = collapse(notification.getType(), sender.getId(), projectID, receiverIds, notification.getSendTimestamp());
+            if (!collapsed.isEmpty()) {
+                receiverIds.removeAll(collapsed.keySet());
+                if (receiverIds.isEmpty()) {
+                    logger.debug("Notifications updated for the users in project " + project_id);
+                    return true;
+                }
+            }
 
-                    NotificationEntity notificationEntity = convertDtoTOEntity(notification, sender);
-                    notificationDao.create(notificationEntity);
+            //Create one notification shared by all the users in the project
+            NotificationEntity notificationEntity = convertDtoTOEntity(notification, sender);
+            notificationDao.create(notificationEntity);
+            unreadCounterBean.notificationSent(notification.getType(), projectID, receiverIds);
+            notificationRecipientDao.addRecipients(notificationEntity.getId(), receiverIds);
+            logger.debug("Notification " + notificationEntity.getId() + " sent to " + receiverIds.size() + " users in project " + project_id);
+        } catch (Exception e) {
+            logger.error("Error sending notification to users in project with id: " + project_id, e);
+            return false;
+        }
 
-                    user.getNotifications().add(notificationEntity);
-                    notificationEntity.getUsers().add(user);
+        return true;
+    }
 
-                    userDao.updateUser(user);
+    /**
+     * Method to collapse a new event into the notifications the receivers did not read yet, the latest unread one
+     * of each receiver with the same type and related entity (the peer for direct messages, the project
+     * for project chats), whoever sent it. The count, last event and last sender are changed only for those receivers.
+     * Only messages are collapsed, the other notifications are always created.
+     *
+     * @param type            The type of the notification.
+     * @param senderId        The id of the sender.
+     * @param relatedEntityId The id of the related entity.
+     * @param receiverIds     The ids of the receivers of the event.
+     * @param eventAt         The timestamp of the event.
+     * @return The id of the notification that got the event, by the id of each receiver that got it.
+     */
+    private Map<Long, Long> collapse(NotificationType type, long senderId, long relatedEntityId, List<Long> receiverIds, LocalDateTime eventAt) {
+        Map<Long, Long> collapsed = new HashMap<>();
+        if (!AGGREGATE_MESSAGES || (type != NotificationType.MESSAGE_RECEIVED && type != NotificationType.MESSAGE_PROJECT)) {
+            return collapsed;
+        }
 
-                    sentNotifications.add(notification);
+        // Receivers grouped by notification, usually they all share the latest one
+        Map<Long, List<Long>> receiversByNotification = new HashMap<>();
+        Map<Long, Long> aggregates = notificationRecipientDao.findAggregates(type.toString(), relatedEntityId, receiverIds);
+        for (Map.Entry<Long, Long> aggregate : aggregates.entrySet()) {
+            receiversByNotification.computeIfAbsent(aggregate.getValue(), id -> new ArrayList<>()).add(aggregate.getKey());
+        }
 
-                } catch (Exception e) {
-                    logger.error("Error sending notification to user with id: " + user.getId(), e);
-                }
+        for (Map.Entry<Long, List<Long>> entry : receiversByNotification.entrySet()) {
+            Collection<Long> userIds = entry.getValue();
+            int updated = notificationRecipientDao.addEvent(entry.getKey(), userIds, eventAt, senderId);
+            if (updated < userIds.size()) {
+                // Some receivers read the notification meanwhile, they get a new one
+                userIds = notificationRecipientDao.findUnreadRecipients(entry.getKey(), userIds);
+            }
+            for (Long userId : userIds) {
+                collapsed.put(userId, entry.getKey());
             }
         }
-
-        return true;
+        return collapsed;
     }
 
     /**
@@ -299,8 +395,8 @@ public class NotificationBean implements Serializable {
             return 0;
         }
 
-        // Find the number of unread notifications for the user
-        long notifications = notificationDao.findUnreadNotificationsByUserID(user.getId());
+        // Find the number of unread notifications for the user, kept up to date when notifications are sent or read
+        long notifications = unreadCounterBean.getCounters(user.getId()).getTotal();
 
         // Check if there are unread notifications
         if (notifications == 0) {
@@ -313,6 +409,26 @@ public class NotificationBean implements Serializable {
     }
 
 
+    /**
+     * Method to get the unread counters of a user, by kind of notification.
+     *
+     * @param token The token of the user.
+     * @return The unread counters of the user, or null if the user was not found.
+     */
+    public UnreadCounters getUnreadCounters(String token) {
+        // Find the user
+        UserEntity user = sessionDao.findUserByToken(token);
+
+        // Check if the user exists
+        if (user == null) {
+            logger.error("No user found with token: " + token);
+            return null;
+        }
+
+        return unreadCounterBean.getCounters(user.getId());
+    }
+
+
    public List<Notification> getUnreadNotificationList(String token){
         // Find the user
         UserEntity user = sessionDao.findUserByToken(token);
@@ -332,31 +448,8 @@ public class NotificationBean implements Serializable {
             return null;
         }
 
-        // Convert the notifications to DTOs
-        List<Notification> notificationList = new ArrayList<>();
-
-        for (NotificationEntity notificationEntity : notifications) {
-
-            Notification notification = new Notification();
-            notification.setId(notificationEntity.getId());
-            notification.setReadStatus(notificationEntity.isReadStatus());
-            notification.setSendTimestamp(notificationEntity.getSendTimestamp());
-            notification.setType(NotificationType.valueOf(notificationEntity.getType().toString()));
-            notification.setRelatedIDEntity(notificationEntity.getRelatedEntityId());
-            UserEntity senderEntity = new UserEntity();
-            senderEntity.setId(notificationEntity.getSender_id());
-            senderEntity.setFirstName(userDao.findUserById(notificationEntity.getSender_id()).getFirstName());
-            senderEntity.setLastName(userDao.findUserById(notificationEntity.getSender_id()).getLastName());
-            senderEntity.setPhoto(userDao.findUserById(notificationEntity.getSender_id()).getPhoto());
-
-
-            MessageInfoUser senderDto = userBean.convertUserToDTOForMessage(senderEntity);
-
-            notification.setSender(senderDto);
-            notificationList.add(notification);
-        }
-
-        return notificationList;
+        // Convert the notifications to DTOs, with the read state of the user
+        return convertEntitiesToDtos(notifications, user.getId());
    }
 
 
@@ -388,31 +481,42 @@ public class NotificationBean implements Serializable {
             return null;
         }
 
-        // Convert the notifications to DTOs
-        List<Notification> notificationList = new ArrayList<>();
-
-        for (NotificationEntity notificationEntity : notifications) {
-
-            Notification notification = new Notification();
-            notification.setId(notificationEntity.getId());
-            notification.setReadStatus(notificationEntity.isReadStatus());
-            notification.setSendTimestamp(notificationEntity.getSendTimestamp());
-            notification.setType(NotificationType.valueOf(notificationEntity.getType().toString()));
-            notification.setRelatedIDEntity(notificationEntity.getRelatedEntityId());
-            UserEntity senderEntity = new UserEntity();
-            senderEntity.setId(notificationEntity.getSender_id());
-            senderEntity.setFirstName(userDao.findUserById(notificationEntity.getSender_id()).getFirstName());
-            senderEntity.setLastName(userDao.findUserById(notificationEntity.getSender_id()).getLastName());
-            senderEntity.setPhoto(userDao.findUserById(notificationEntity.getSender_id()).getPhoto());
+        // Convert the notifications to DTOs, with the read state of the user
+        return convertEntitiesToDtos(notifications, userId);
+    }
 
+    /**
+     * Method to get a page of the notifications for a user, newest first, with keyset pagination.
+     *
+     * @param token  The token of the user requesting the notifications.
+     * @param userId The id of the user.
+     * @param cursor The position of the last notification of the previous page, or PageCursor.FIRST.
+     * @param limit  The maximum number of notifications in the page.
+     * @return The page of notifications with the cursor of the next one, or null if the user was not found.
+     */
+    public CursorPage<Notification> getNotificationsByUserId(String token, long userId, PageCursor cursor, int limit) {
+        // Find the user
+        UserEntity user = sessionDao.findUserByToken(token);
 
-            MessageInfoUser senderDto = userBean.convertUserToDTOForMessage(senderEntity);
+        // Check if the user exists
+        if (user == null) {
+            logger.error("No user found with token: " + token);
+            return null;
+        }
 
-            notification.setSender(senderDto);
-            notificationList.add(notification);
+        // One more notification than the page tells if there is a next page
+        List<NotificationEntity> notifications = notificationDao.findNotificationsByUserIDBefore(userId, cursor, limit + 1);
+        boolean hasNext = notifications.size() > limit;
+        if (hasNext) {
+            notifications = notifications.subList(0, limit);
         }
 
-        return notificationList;
+        String nextCursor = null;
+        if (hasNext) {
+            NotificationEntity last = notifications.get(limit - 1);
+            nextCursor = new PageCursor(last.getSendTimestamp(), last.getId()).encode();
+        }
+        return new CursorPage<>(convertEntitiesToDtos(notifications, userId), nextCursor);
     }
 
     /**
@@ -441,34 +545,103 @@ public class NotificationBean implements Serializable {
             return false;
         }
 
-        // Mark the notification as read
-        notification.setReadStatus(true);
-        notification.setReadTimestamp(LocalDateTime.now());
-        notificationDao.merge(notification);
-
+        // Mark the notification as read for this user
+        LocalDateTime now = LocalDateTime.now();
+        int updated = notificationRecipientDao.markRead(notificationId, user.getId(), now);
 
         // Check if the notification is a message to mark all messages as read
         String typeOfNotification = NotificationType.MESSAGE_RECEIVED.toString();
         String typeOfNotification2 = NotificationType.MESSAGE_PROJECT.toString();
 
         if (notification.getType().equals(typeOfNotification) || notification.getType().equals(typeOfNotification2)) {
-            // Fetch all notifications of both types
-            List<NotificationEntity> notificationEntityList1 = notificationDao.findNotificationsByUserIDandType(user.getId(), typeOfNotification);
-            List<NotificationEntity> notificationEntityList2 = notificationDao.findNotificationsByUserIDandType(user.getId(), typeOfNotification2);
-
-            // Mark all notifications of both types as read
-            for (NotificationEntity notificationEntity : notificationEntityList1) {
-                notificationEntity.setReadStatus(true);
-                notificationEntity.setReadTimestamp(LocalDateTime.now());
-                notificationDao.merge(notificationEntity);
-            }
+            notificationRecipientDao.markReadByTypes(user.getId(), List.of(typeOfNotification, typeOfNotification2), now);
+            unreadCounterBean.messagesRead(user.getId());
+        } else if (updated > 0) {
+            unreadCounterBean.notificationRead(user.getId());
+        }
+        return true;
+    }
 
-            for (NotificationEntity notificationEntity : notificationEntityList2) {
-                notificationEntity.setReadStatus(true);
-                notificationEntity.setReadTimestamp(LocalDateTime.now());
-                notificationDao.merge(notificationEntity);
-            }
+    /**
+     * Method to mark all the notifications of a user as read.
+     *
+     * @param token The token of the user.
+     * @return True if the notifications were marked as read, false if the user was not found.
+     */
+    public boolean markAllNotificationsAsRead(String token) {
+        // Find the user
+        UserEntity user = sessionDao.findUserByToken(token);
+
+        // Check if the user exists
+        if (user == null) {
+            logger.error("No user found with token: " + token);
+            return false;
         }
+
+        int updated = notificationRecipientDao.markAllRead(user.getId(), LocalDateTime.now());
+        unreadCounterBean.allRead(user.getId());
+        logger.debug(updated + " notifications marked as read for user with id: " + user.getId());
+        return true;
+    }
+
+    /**
+     * Method to bring the notifications created by older versions up to date.
+     * Copies their receivers to the recipients and fills their last event timestamp and the peer of the direct messages.
+     * Called at startup, it does nothing once they are up to date.
+     * It commits on its own, so the old receivers table can be dropped afterwards, see dropOldNotificationReceivers.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void migrateOldNotifications() {
+        int copied = notificationRecipientDao.copyFromUserNotifications();
+        if (copied > 0) {
+            logger.info("Copied " + copied + " notification receivers to the recipients");
+        }
+        int filled = notificationDao.fillLastEventAt();
+        if (filled > 0) {
+            logger.info("Filled the last event timestamp of " + filled + " notifications");
+        }
+        int peers = notificationDao.fillDirectMessagePeer();
+        if (peers > 0) {
+            logger.info("Filled the peer of " + peers + " direct message notifications");
+        }
+    }
+
+    /**
+     * Method to drop the table where the receivers of the notifications were kept before the recipients,
+     * which older versions updated together with the user row of every receiver.
+     * It is never run automatically, an administrator runs it once the migration was checked, and the table is
+     * only dropped if every one of its rows has a matching recipient.
+     * It runs in a transaction of its own because MySQL commits DDL statements.
+     *
+     * @param token The token of the administrator.
+     * @return True if the table was dropped or no longer exists, false if the user is not an administrator
+     * or some receivers were not copied to the recipients.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public boolean dropOldNotificationReceivers(String token) {
+        // Find the user
+        UserEntity user = sessionDao.findUserByToken(token);
+
+        // Only administrators can drop the table
+        if (user == null || user.getUserType() != UserType.ADMIN) {
+            logger.error("Only administrators can drop the old notification receivers");
+            return false;
+        }
+
+        if (!notificationRecipientDao.userNotificationsExist()) {
+            logger.info("The old user_notification table was already dropped");
+            return true;
+        }
+
+        // Every receiver must be in the recipients, otherwise dropping the table would lose it
+        long unmatched = notificationRecipientDao.countUnmatchedUserNotifications();
+        if (unmatched > 0) {
+            logger.error(unmatched + " rows of the old user_notification table have no notification recipient, the table was not dropped");
+            return false;
+        }
+
+        notificationRecipientDao.dropUserNotifications();
+        logger.info("Dropped the old user_notification table by user with id " + user.getId() + ", its receivers are in the notification recipients");
         return true;
     }
 
@@ -499,9 +672,82 @@ public class NotificationBean implements Serializable {
         notificationEntity.setSendTimestamp(notification.getSendTimestamp());
         notificationEntity.setType(notification.getType().toString());
         notificationEntity.setRelatedEntityId(notification.getRelatedIDEntity());
+        notificationEntity.setAggregateCount(1);
+        notificationEntity.setLastEventAt(notification.getSendTimestamp());
         notificationEntity.setSender_id(userBean.convertUserToDTOForMessage(sender).getId());
         return notificationEntity;
     }
 
+    /**
+     * Method to convert notification entities to DTOs, with the read state of a user.
+     * The senders and the read state are loaded once for all the notifications.
+     *
+     * @param notifications The notification entities.
+     * @param userId        The id of the user whose read state is returned.
+     * @return The notification DTOs, in the same order.
+     */
+    private List<Notification> convertEntitiesToDtos(List<NotificationEntity> notifications, long userId) {
+        List<Notification> notificationList = new ArrayList<>();
+        if (notifications.isEmpty()) {
+            return notificationList;
+        }
+        Map<Long, NotificationRecipientEntity> recipients = notificationRecipientDao.findByUserAndNotifications(userId, notificationIds(notifications));
+        Map<Long, MessageInfoUser> senders = userBean.getUserCards(senderIds(notifications, recipients.values()));
+
+        for (NotificationEntity notificationEntity : notifications) {
+
+            Notification notification = new Notification();
+            notification.setId(notificationEntity.getId());
+            NotificationRecipientEntity recipient = recipients.get(notificationEntity.getId());
+            notification.setReadStatus(recipient == null || recipient.getReadAt() != null);
+            notification.setSendTimestamp(notificationEntity.getSendTimestamp());
+            notification.setType(NotificationType.valueOf(notificationEntity.getType().toString()));
+            notification.setRelatedIDEntity(notificationEntity.getRelatedEntityId());
+            notification.setCount(recipient == null ? notificationEntity.getAggregateCount() : recipient.getAggregateCount());
+            notification.setLastEventAt(recipient == null || recipient.getLastEventAt() == null
+                    ? notificationEntity.getLastEventAt() : recipient.getLastEventAt());
+            //Collapsed messages show the sender of the last one
+            Long senderId = recipient == null || recipient.getLastSenderId() == null ? notificationEntity.getSender_id() : recipient.getLastSenderId();
+            notification.setSender(senders.get(senderId));
+            notificationList.add(notification);
+        }
+
+        return notificationList;
+    }
+
+    /**
+     * Method to get the ids of the senders of some notifications and of the last messages collapsed into them, without repetitions.
+     *
+     * @param notifications The notifications.
+     * @param recipients    The recipient rows of the user for the notifications.
+     * @return The ids of the senders.
+     */
+    private Set<Long> senderIds(List<NotificationEntity> notifications, Collection<NotificationRecipientEntity> recipients) {
+        Set<Long> ids = new HashSet<>();
+        for (NotificationEntity notificationEntity : notifications) {
+            ids.add(notificationEntity.getSender_id());
+        }
+        for (NotificationRecipientEntity recipient : recipients) {
+            if (recipient.getLastSenderId() != null) {
+                ids.add(recipient.getLastSenderId());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Method to get the ids of some notifications.
+     *
+     * @param notifications The notifications.
+     * @return The ids of the notifications.
+     */
+    private List<Long> notificationIds(List<NotificationEntity> notifications) {
+        List<Long> ids = new ArrayList<>();
+        for (NotificationEntity notificationEntity : notifications) {
+            ids.add(notificationEntity.getId());
+        }
+        return ids;
+    }
+
 
 }
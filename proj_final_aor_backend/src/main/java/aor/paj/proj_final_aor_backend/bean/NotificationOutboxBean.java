@@ -0,0 +1,184 @@
+package aor.paj.proj_final_aor_backend.bean;
+
+import aor.paj.proj_final_aor_backend.dao.NotificationOutboxDao;
+import aor.paj.proj_final_aor_backend.dao.UserDao;
+import aor.paj.proj_final_aor_backend.entity.NotificationOutboxEntity;
+import aor.paj.proj_final_aor_backend.entity.UserEntity;
+import aor.paj.proj_final_aor_backend.util.enums.NotificationAudience;
+import aor.paj.proj_final_aor_backend.util.enums.NotificationType;
+import aor.paj.proj_final_aor_backend.websocket.EventBus;
+import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * This class queues the notifications about project changes in the notification outbox and sends them later.
+ * Queuing joins the transaction of the change, so the notification exists only if the change is committed,
+ * and sending runs each entry in its own transaction, so a failure is retried without undoing the change.
+ * Before sending, the node claims the entry, so an entry is sent by one node only.
+ */
+@Stateless
+public class NotificationOutboxBean implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final Logger logger = LogManager.getLogger(NotificationOutboxBean.class);
+
+    /**
+     * Longest wait between two attempts to send an entry, in seconds.
+     */
+    private static final long MAX_RETRY_DELAY_SECONDS = 300;
+
+    /**
+     * How long a claim on an entry holds, in seconds, after it another node can send an entry whose node stopped.
+     */
+    private static final long CLAIM_SECONDS = Long.getLong("notifications.outbox.claimSeconds", 60);
+
+    @EJB
+    NotificationOutboxDao notificationOutboxDao;
+    @EJB
+    NotificationBean notificationBean;
+    @EJB
+    UserDao userDao;
+    @EJB
+    EventBus eventBus;
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    /**
+     * Default constructor for the NotificationOutboxBean class.
+     */
+    public NotificationOutboxBean() {
+    }
+
+    /**
+     * Queues a notification to all the users except the sender.
+     *
+     * @param senderId        The id of the user sending the notification.
+     * @param type            The type of the notification.
+     * @param relatedEntityId The id of the entity related with the notification.
+     */
+    public void enqueueToAllUsers(long senderId, NotificationType type, long relatedEntityId) {
+        enqueue(NotificationAudience.ALL_USERS, senderId, 0, type, relatedEntityId);
+    }
+
+    /**
+     * Queues a notification to the users in a project except the sender.
+     *
+     * @param senderId  The id of the user sending the notification.
+     * @param projectId The id of the project.
+     * @param type      The type of the notification.
+     */
+    public void enqueueToProjectUsers(long senderId, long projectId, NotificationType type) {
+        enqueue(NotificationAudience.PROJECT_USERS, senderId, projectId, type, projectId);
+    }
+
+    /**
+     * Finds the entries waiting to be sent, in the order they were queued.
+     *
+     * @param maxResults The maximum number of entries.
+     * @return The pending entries.
+     */
+    public List<NotificationOutboxEntity> findPending(int maxResults) {
+        return notificationOutboxDao.findPending(maxResults);
+    }
+
+    /**
+     * Claims an entry for this node, in a transaction of its own, so the claim is seen by the other nodes before sending.
+     *
+     * @param entryId The id of the entry.
+     * @return True if this node can send the entry, false if another node is sending it or it was already sent.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public boolean claim(long entryId) {
+        LocalDateTime now = LocalDateTime.now();
+        return notificationOutboxDao.claim(entryId, eventBus.getNodeId(), now, now.plusSeconds(CLAIM_SECONDS)) == 1;
+    }
+
+    /**
+     * Sends the notification of an entry and removes the entry, in a transaction of its own.
+     * An entry that cannot be sent, because the sender no longer exists, is removed as well.
+     * When the notification is not sent the transaction is rolled back and the entry is kept, to be retried.
+     *
+     * @param entryId The id of the entry.
+     * @return True if the entry was sent or discarded, false if the notification was not sent.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public boolean dispatch(long entryId) {
+        NotificationOutboxEntity entry = notificationOutboxDao.find(entryId);
+        if (entry == null) {
+            return true;
+        }
+
+        UserEntity sender = userDao.findUserById(entry.getSenderId());
+        boolean sent;
+        if (sender == null) {
+            logger.warn("Discarding notification " + entryId + " from the outbox, sender " + entry.getSenderId() + " not found");
+            sent = true;
+        } else if (NotificationAudience.valueOf(entry.getAudience()) == NotificationAudience.ALL_USERS) {
+            sent = notificationBean.sendNotificationToAllUsers(sender, NotificationType.valueOf(entry.getType()), entry.getRelatedEntityId());
+        } else {
+            sent = notificationBean.sendNotificationToProjectUsers(sender, entry.getProjectId(), entry.getType(), entry.getRelatedEntityId());
+        }
+
+        if (!sent) {
+            // Nothing the send wrote is kept, the entry is tried again
+            transactionRegistry.setRollbackOnly();
+            return false;
+        }
+        notificationOutboxDao.remove(entry);
+        return true;
+    }
+
+    /**
+     * Records a failed attempt to send an entry, in a transaction of its own.
+     * The entry is tried again after a delay that doubles with each attempt, until the attempts run out.
+     *
+     * @param entryId     The id of the entry.
+     * @param error       The error of the attempt.
+     * @param maxAttempts The maximum number of attempts.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void recordFailure(long entryId, String error, int maxAttempts) {
+        NotificationOutboxEntity entry = notificationOutboxDao.find(entryId);
+        if (entry == null) {
+            return;
+        }
+
+        int attempts = entry.getAttempts() + 1;
+        entry.setAttempts(attempts);
+        entry.setLastError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+        entry.setNextAttemptAt(LocalDateTime.now().plusSeconds(Math.min(MAX_RETRY_DELAY_SECONDS, 1L << Math.min(attempts, 20))));
+        // Any node can retry it
+        entry.setClaimedBy(null);
+        entry.setClaimedUntil(null);
+        if (attempts >= maxAttempts) {
+            entry.setFailed(true);
+            logger.error("Giving up on notification " + entryId + " from the outbox after " + attempts + " attempts: " + error);
+        }
+        notificationOutboxDao.merge(entry);
+    }
+
+    /**
+     * Writes an entry to the outbox, in the transaction of the caller.
+     */
+    private void enqueue(NotificationAudience audience, long senderId, long projectId, NotificationType type, long relatedEntityId) {
+        NotificationOutboxEntity entry = new NotificationOutboxEntity();
+        entry.setAudience(audience.toString());
+        entry.setSenderId(senderId);
+        entry.setProjectId(projectId);
+        entry.setType(type.toString());
+        entry.setRelatedEntityId(relatedEntityId);
+        entry.setCreatedAt(LocalDateTime.now());
+        notificationOutboxDao.persist(entry);
+        logger.debug("Notification " + type + " queued for " + audience + (projectId != 0 ? " of project " + projectId : ""));
+    }
+}
@@ -0,0 +1,120 @@
+package aor.paj.proj_final_aor_backend.bean;
+
+import aor.paj.proj_final_aor_backend.entity.NotificationOutboxEntity;
+import aor.paj.proj_final_aor_backend.util.enums.NotificationAudience;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sends the notifications queued in the notification outbox every 2 seconds, in the order they were queued.
+ * Each entry is sent in its own transaction and a failed one is retried later. Until it is sent, the entries
+ * after it that can reach the same users wait, so every user receives the notifications in order.
+ * Every node runs the dispatcher, an entry is claimed before it is sent and an entry claimed by another node
+ * makes the entries after it wait as well.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class NotificationOutboxDispatcher {
+
+    private static final Logger logger = LogManager.getLogger(NotificationOutboxDispatcher.class);
+
+    /**
+     * Entries read in each run, the rest is left for the next one.
+     */
+    private final int batchSize = Integer.getInteger("notifications.outbox.batchSize", 200);
+
+    /**
+     * Attempts to send an entry before giving up on it.
+     */
+    private final int maxAttempts = Integer.getInteger("notifications.outbox.maxAttempts", 8);
+
+    /**
+     * True while a run is sending, so a slow run of this node is not overlapped by the next timeout.
+     */
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @EJB
+    NotificationOutboxBean notificationOutboxBean;
+
+    /**
+     * Sends a batch of the pending entries.
+     */
+    @Schedule(hour = "*", minute = "*", second = "*/2", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void dispatch() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            dispatchBatch();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Sends the pending entries of one batch, skipping the ones queued after an entry that was not sent, or that
+     * another node is sending, to users they have in common. A notification to all users has users in common with every other one.
+     *
+     * @return The number of entries sent.
+     */
+    int dispatchBatch() {
+        List<NotificationOutboxEntity> entries = notificationOutboxBean.findPending(batchSize);
+        LocalDateTime now = LocalDateTime.now();
+        boolean allBlocked = false;
+        Set<Long> blockedProjects = new HashSet<>();
+        int sent = 0;
+
+        for (NotificationOutboxEntity entry : entries) {
+            boolean toAllUsers = NotificationAudience.valueOf(entry.getAudience()) == NotificationAudience.ALL_USERS;
+            boolean blocked = allBlocked || (toAllUsers ? !blockedProjects.isEmpty() : blockedProjects.contains(entry.getProjectId()));
+            boolean due = entry.getNextAttemptAt() == null || !entry.getNextAttemptAt().isAfter(now);
+
+            if (!blocked && due && !notificationOutboxBean.claim(entry.getId())) {
+                logger.debug("Notification " + entry.getId() + " from the outbox is being sent by another node");
+            } else if (!blocked && due) {
+                String error;
+                try {
+                    if (notificationOutboxBean.dispatch(entry.getId())) {
+                        sent++;
+                        continue;
+                    }
+                    error = "The notification was not sent";
+                    logger.warn("Notification " + entry.getId() + " from the outbox was not sent, it will be retried");
+                } catch (RuntimeException e) {
+                    error = e.getMessage();
+                    logger.warn("Error sending notification " + entry.getId() + " from the outbox, it will be retried", e);
+                }
+                notificationOutboxBean.recordFailure(entry.getId(), error, maxAttempts);
+                if (entry.getAttempts() + 1 >= maxAttempts) {
+                    continue;
+                }
+            }
+
+            // The entries after this one that reach the same users wait for it
+            if (toAllUsers) {
+                allBlocked = true;
+            } else {
+                blockedProjects.add(entry.getProjectId());
+            }
+        }
+
+        if (sent > 0) {
+            logger.debug("Sent " + sent + " notifications from the outbox");
+        }
+        return sent;
+    }
+}
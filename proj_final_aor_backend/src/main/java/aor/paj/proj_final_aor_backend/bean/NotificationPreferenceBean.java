@@ -0,0 +1,111 @@
+package aor.paj.proj_final_aor_backend.bean;
+
+import aor.paj.proj_final_aor_backend.dao.NotificationPreferenceDao;
+import aor.paj.proj_final_aor_backend.dao.SessionDao;
+import aor.paj.proj_final_aor_backend.dto.NotificationPreference;
+import aor.paj.proj_final_aor_backend.entity.NotificationPreferenceEntity;
+import aor.paj.proj_final_aor_backend.entity.UserEntity;
+import aor.paj.proj_final_aor_backend.util.enums.NotificationDelivery;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Stateless;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class manages the notification preferences of the users: real time, digest only or muted,
+ * for all their notifications or for the ones about a project.
+ */
+@Stateless
+public class NotificationPreferenceBean implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final Logger logger = LogManager.getLogger(NotificationPreferenceBean.class);
+
+    @EJB
+    NotificationPreferenceDao notificationPreferenceDao;
+    @EJB
+    NotificationPreferenceCache notificationPreferenceCache;
+    @EJB
+    SessionDao sessionDao;
+    @EJB
+    UserProjectBean userProjectBean;
+
+    /**
+     * Default constructor for the NotificationPreferenceBean class.
+     */
+    public NotificationPreferenceBean() {
+    }
+
+    /**
+     * Method to get the preferences of a user. Only the preferences that were changed are returned,
+     * without a preference for all the notifications they are received in real time.
+     *
+     * @param token The token of the user.
+     * @return The preferences, or null if the user was not found.
+     */
+    public List<NotificationPreference> getPreferences(String token) {
+        UserEntity user = sessionDao.findUserByToken(token);
+        if (user == null) {
+            logger.error("No user found with token: " + token);
+            return null;
+        }
+
+        List<NotificationPreference> preferences = new ArrayList<>();
+        for (NotificationPreferenceEntity entity : notificationPreferenceDao.findByUser(user.getId())) {
+            preferences.add(new NotificationPreference(entity.getProjectId(), entity.getDelivery()));
+        }
+        return preferences;
+    }
+
+    /**
+     * Method to change a preference of a user, for all the notifications (project 0) or for the ones about a project
+     * the user is in. Without delivery, the preference for the project is removed and the one of the user applies.
+     *
+     * @param token      The token of the user.
+     * @param preference The new preference.
+     * @return True if the preference was changed, false if the user was not found or is not in the project.
+     */
+    public boolean setPreference(String token, NotificationPreference preference) {
+        UserEntity user = sessionDao.findUserByToken(token);
+        if (user == null) {
+            logger.error("No user found with token: " + token);
+            return false;
+        }
+        if (preference == null || preference.getProjectId() < 0) {
+            logger.error("Invalid notification preference");
+            return false;
+        }
+        long projectId = preference.getProjectId();
+        if (projectId != 0 && !userProjectBean.userProjectExists(user.getId(), projectId)) {
+            logger.error("User with id " + user.getId() + " is not in project " + projectId);
+            return false;
+        }
+
+        // The preference of the user is stored only when it is not real time, the default
+        NotificationDelivery delivery = preference.getDelivery();
+        boolean remove = delivery == null || (projectId == 0 && delivery == NotificationDelivery.REAL_TIME);
+        NotificationPreferenceEntity entity = notificationPreferenceDao.findPreference(user.getId(), projectId);
+        if (remove) {
+            if (entity != null) {
+                notificationPreferenceDao.remove(entity);
+            }
+        } else if (entity == null) {
+            entity = new NotificationPreferenceEntity();
+            entity.setUserId(user.getId());
+            entity.setProjectId(projectId);
+            entity.setDelivery(delivery);
+            notificationPreferenceDao.persist(entity);
+        } else {
+            entity.setDelivery(delivery);
+            notificationPreferenceDao.merge(entity);
+        }
+
+        notificationPreferenceCache.put(user.getId(), projectId, remove ? null : delivery);
+        logger.info("Notification preference of user " + user.getId() + " for project " + projectId + " set to " + (remove ? "default" : delivery));
+        return true;
+    }
+}
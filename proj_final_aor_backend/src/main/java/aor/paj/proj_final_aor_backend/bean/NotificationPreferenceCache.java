@@ -0,0 +1,151 @@
+package aor.paj.proj_final_aor_backend.bean;
+
+import aor.paj.proj_final_aor_backend.dao.NotificationPreferenceDao;
+import aor.paj.proj_final_aor_backend.entity.NotificationPreferenceEntity;
+import aor.paj.proj_final_aor_backend.util.enums.NotificationDelivery;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory copy of the notification preferences, so the receivers of a notification are chosen without queries.
+ * Only the preferences that differ from real time exist, so all of them are kept. They are loaded on first use
+ * and again every minute, so the preferences changed on another node are applied here too.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class NotificationPreferenceCache {
+
+    private static final Logger logger = LogManager.getLogger(NotificationPreferenceCache.class);
+
+    @EJB
+    NotificationPreferenceDao notificationPreferenceDao;
+
+    /**
+     * Preferences of the users for all their notifications, by user.
+     */
+    private volatile Map<Long, NotificationDelivery> byUser;
+
+    /**
+     * Preferences of the users for the notifications about a project, by project and user.
+     */
+    private volatile Map<Long, Map<Long, NotificationDelivery>> byProject;
+
+    /**
+     * Returns how a user receives the notifications about a project, or all of them when the project is 0.
+     * The preference for the project wins over the preference of the user.
+     *
+     * @param userId    The ID of the user.
+     * @param projectId The ID of the project, 0 for the notifications not about a project.
+     * @return How the user receives the notifications.
+     */
+    public NotificationDelivery get(long userId, long projectId) {
+        ensureLoaded();
+        Map<Long, NotificationDelivery> projectPreferences = byProject.get(projectId);
+        NotificationDelivery delivery = projectPreferences == null ? null : projectPreferences.get(userId);
+        if (delivery == null) {
+            delivery = byUser.get(userId);
+        }
+        return delivery == null ? NotificationDelivery.REAL_TIME : delivery;
+    }
+
+    /**
+     * Returns the users that do not receive the notifications about a project in real time.
+     * It goes through the stored preferences only, not through the users, so it is cheap for any audience.
+     *
+     * @param projectId The ID of the project, 0 for the notifications not about a project.
+     * @return How those users receive the notifications, by user.
+     */
+    public Map<Long, NotificationDelivery> getQuietUsers(long projectId) {
+        ensureLoaded();
+        Map<Long, NotificationDelivery> quiet = new HashMap<>(byUser);
+        Map<Long, NotificationDelivery> projectPreferences = byProject.get(projectId);
+        if (projectPreferences != null) {
+            for (Map.Entry<Long, NotificationDelivery> entry : projectPreferences.entrySet()) {
+                if (entry.getValue() == NotificationDelivery.REAL_TIME) {
+                    quiet.remove(entry.getKey());
+                } else {
+                    quiet.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return quiet;
+    }
+
+    /**
+     * Changes a preference, after it was changed in the database.
+     *
+     * @param userId    The ID of the user.
+     * @param projectId The ID of the project, 0 for the preference of the user.
+     * @param delivery  The new preference, or null to remove it.
+     */
+    public void put(long userId, long projectId, NotificationDelivery delivery) {
+        ensureLoaded();
+        if (projectId == 0) {
+            if (delivery == null || delivery == NotificationDelivery.REAL_TIME) {
+                byUser.remove(userId);
+            } else {
+                byUser.put(userId, delivery);
+            }
+        } else if (delivery == null) {
+            Map<Long, NotificationDelivery> projectPreferences = byProject.get(projectId);
+            if (projectPreferences != null) {
+                projectPreferences.remove(userId);
+            }
+        } else {
+            byProject.computeIfAbsent(projectId, id -> new ConcurrentHashMap<>()).put(userId, delivery);
+        }
+    }
+
+    /**
+     * Loads the preferences from the database again.
+     */
+    @Schedule(hour = "*", minute = "*", persistent = false)
+    public void reload() {
+        load(notificationPreferenceDao.findAllPreferences());
+    }
+
+    /**
+     * Replaces the preferences in memory.
+     *
+     * @param preferences All the stored preferences.
+     */
+    void load(List<NotificationPreferenceEntity> preferences) {
+        Map<Long, NotificationDelivery> users = new ConcurrentHashMap<>();
+        Map<Long, Map<Long, NotificationDelivery>> projects = new ConcurrentHashMap<>();
+        for (NotificationPreferenceEntity preference : preferences) {
+            if (preference.getProjectId() == 0) {
+                users.put(preference.getUserId(), preference.getDelivery());
+            } else {
+                projects.computeIfAbsent(preference.getProjectId(), id -> new ConcurrentHashMap<>())
+                        .put(preference.getUserId(), preference.getDelivery());
+            }
+        }
+        // byUser is set last, it marks the preferences as loaded
+        byProject = projects;
+        byUser = users;
+        logger.debug("Loaded " + preferences.size() + " notification preferences");
+    }
+
+    /**
+     * Loads the preferences the first time they are needed.
+     */
+    private void ensureLoaded() {
+        if (byUser == null) {
+            synchronized (this) {
+                if (byUser == null) {
+                    reload();
+                }
+            }
+        }
+    }
+}
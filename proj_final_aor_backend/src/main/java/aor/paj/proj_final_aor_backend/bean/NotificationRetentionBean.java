@@ -0,0 +1,86 @@
+package aor.paj.proj_final_aor_backend.bean;
+
+import aor.paj.proj_final_aor_backend.dao.NotificationDao;
+import aor.paj.proj_final_aor_backend.dao.NotificationRecipientDao;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class removes the old notifications that every recipient already read.
+ * Each batch runs in its own transaction, so the tables are never locked for long.
+ */
+@Stateless
+public class NotificationRetentionBean implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @EJB
+    NotificationDao notificationDao;
+    @EJB
+    NotificationRecipientDao notificationRecipientDao;
+
+    /**
+     * Default constructor for the NotificationRetentionBean class.
+     */
+    public NotificationRetentionBean() {
+    }
+
+    /**
+     * Finds the months the next batch of expired notifications were created in, whose archive tables are needed.
+     *
+     * @param cutoff    The date before which read notifications expire.
+     * @param batchSize The maximum number of notifications in the batch.
+     * @return The months, as yyyyMM.
+     */
+    public Set<String> findExpiredMonths(LocalDateTime cutoff, int batchSize) {
+        return notificationDao.findExpiredByMonth(cutoff, batchSize).keySet();
+    }
+
+    /**
+     * Removes a batch of expired notifications, copying each one first to the archive tables of the month
+     * it was created in when archiving. Notifications of a month whose tables were not created are left for the next batch.
+     *
+     * @param cutoff    The date before which read notifications expire.
+     * @param batchSize The maximum number of notifications removed.
+     * @param months    The months whose archive tables exist, as yyyyMM, or null to delete without archiving.
+     * @return The number of notifications removed.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public int purgeBatch(LocalDateTime cutoff, int batchSize, Set<String> months) {
+        Map<String, List<Long>> byMonth = notificationDao.findExpiredByMonth(cutoff, batchSize);
+        List<Long> ids = new ArrayList<>();
+        for (Map.Entry<String, List<Long>> month : byMonth.entrySet()) {
+            if (months != null) {
+                if (!months.contains(month.getKey())) {
+                    continue;
+                }
+                notificationDao.archive(month.getValue(), month.getKey());
+            }
+            ids.addAll(month.getValue());
+        }
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        notificationRecipientDao.deleteByNotificationIds(ids);
+        return notificationDao.deleteByIds(ids);
+    }
+
+    /**
+     * Creates the archive tables of a month, in a transaction of its own because MySQL commits DDL statements.
+     *
+     * @param month The month, as yyyyMM.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void createArchiveTables(String month) {
+        notificationDao.createArchiveTables(month);
+    }
+}
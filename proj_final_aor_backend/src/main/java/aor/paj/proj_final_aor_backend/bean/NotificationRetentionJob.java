@@ -0,0 +1,87 @@
+package aor.paj.proj_final_aor_backend.bean;
+
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Removes every night the notifications read by all their recipients whose last event is older than the retention,
+ * so the notification queries only go through recent or unread notifications.
+ * With -Dnotifications.retention.archive=true they are copied first to one archive table per month of creation,
+ * notifications_archive_yyyyMM and notification_recipient_archive_yyyyMM, which can be dropped as a whole.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class NotificationRetentionJob {
+
+    private static final Logger logger = LogManager.getLogger(NotificationRetentionJob.class);
+
+    /**
+     * Days a read notification is kept, 0 keeps them forever.
+     */
+    private final int retentionDays = Integer.getInteger("notifications.retention.days", 90);
+
+    /**
+     * Notifications removed by each transaction.
+     */
+    private final int batchSize = Integer.getInteger("notifications.retention.batchSize", 1000);
+
+    /**
+     * Maximum batches in each run, the rest is left for the next night.
+     */
+    private final int maxBatches = Integer.getInteger("notifications.retention.maxBatches", 200);
+
+    private final boolean archive = Boolean.getBoolean("notifications.retention.archive");
+
+    @EJB
+    NotificationRetentionBean notificationRetentionBean;
+
+    /**
+     * Removes the expired notifications in batches.
+     */
+    @Schedule(hour = "3", minute = "30", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void purge() {
+        if (retentionDays <= 0) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        // Months whose archive tables were created in this run
+        Set<String> months = archive ? new HashSet<>() : null;
+
+        int removed = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            int count;
+            try {
+                if (archive) {
+                    for (String month : notificationRetentionBean.findExpiredMonths(cutoff, batchSize)) {
+                        if (months.add(month)) {
+                            notificationRetentionBean.createArchiveTables(month);
+                        }
+                    }
+                }
+                count = notificationRetentionBean.purgeBatch(cutoff, batchSize, months);
+            } catch (RuntimeException e) {
+                logger.error("Error removing expired notifications", e);
+                break;
+            }
+            removed += count;
+            if (count < batchSize) {
+                break;
+            }
+        }
+        if (removed > 0) {
+            logger.info((archive ? "Archived " : "Deleted ") + removed + " notifications read before " + cutoff);
+        }
+    }
+}
@@ -76,7 +76,7 @@ public class ProjectBean implements Serializable {
     private UserProjectBean userProjectBean;
 
     @EJB
-    private NotificationBean notificationBean;
+    private NotificationOutboxBean notificationOutboxBean;
     @EJB
     private SettingsBean settingsBean;
     @EJB
@@ -135,11 +135,11 @@ public class ProjectBean implements Serializable {
         // Set the existing LabEntity to the ProjectEntity
         projectEntity.setLab(labEntity);
 
-        userProjectBean.addUserToProject(creator, projectEntity, UserTypeInProject.CREATOR);
-        notificationBean.sendNotificationToAllUsers(token, NotificationType.NEW_PROJECT, projectEntity.getId());
-
+        // The project id only exists after persisting, and both the membership and the notification need it
         projectDao.persist(projectEntity);
 
+        userProjectBean.addUserToProject(creator, projectEntity, UserTypeInProject.CREATOR);
+        notificationOutboxBean.enqueueToAllUsers(creator.getId(), NotificationType.NEW_PROJECT, projectEntity.getId());
 
         taskBean.createFinalTaskOfProject(projectEntity, userBean.convertUserEntityToDto(creator) );
 
@@ -236,8 +236,7 @@ public class ProjectBean implements Serializable {
         activityBean.registerActivity(projectEntity, ProjectActivityType.EDIT_PROJECT_STATE, author, newState);
 
         projectDao.merge(projectEntity);
-        String type = String.valueOf(NotificationType.PROJECT_STATE_CHANGE);
-        notificationBean.sendNotificationToProjectUsers(token, id, type, projectEntity.getId());
+        notificationOutboxBean.enqueueToProjectUsers(author.getId(), projectEntity.getId(), NotificationType.PROJECT_STATE_CHANGE);
 
         logger.info("Project state updated to: " + stateId + " for project: " + projectEntity.getName() + " by user with id: " + author.getId());
         return true;
@@ -367,7 +366,7 @@ public class ProjectBean implements Serializable {
             activityBean.registerActivity(projectEntity, ProjectActivityType.ADDED_MEMBER, author, userEntity.getFirstName() + " " + userEntity.getLastName());
         }
 
-        notificationBean.sendNotificationToProjectUsers(token, projectId, String.valueOf(NotificationType.NEW_MEMBER), projectEntity.getId());
+        notificationOutboxBean.enqueueToProjectUsers(author.getId(), projectEntity.getId(), NotificationType.NEW_MEMBER);
 
         createWelcomeMessage(token, userId, projectEntity);
         logger.info("User with id: " + userEntity.getId() + " added to project: " + projectEntity.getName() + " by user with id: " + author.getId());
@@ -445,7 +444,7 @@ public class ProjectBean implements Serializable {
         projectDao.merge(projectEntity);
 
         activityBean.registerActivity(projectEntity, ProjectActivityType.ADDED_MEMBER, author, userDao.findUserById(userId).getFirstName() + " " + userDao.findUserById(userId).getLastName());
-        notificationBean.sendNotificationToProjectUsers(token, projectId, String.valueOf(NotificationType.NEW_MEMBER), projectEntity.getId());
+        notificationOutboxBean.enqueueToProjectUsers(author.getId(), projectEntity.getId(), NotificationType.NEW_MEMBER);
 
         logger.info("User with id: " + userId + " approved in project: " + projectEntity.getName() + " by user with id: " + author.getId());
 
@@ -488,7 +487,7 @@ public class ProjectBean implements Serializable {
         projectDao.merge(projectEntity);
 
         activityBean.registerActivity(projectEntity, ProjectActivityType.REMOVED_MEMBER, author, userDao.findUserById(userId).getFirstName() + " " + userDao.findUserById(userId).getLastName());
-        notificationBean.sendNotificationToProjectUsers(token, projectId, String.valueOf(NotificationType.MEMBER_EXIT), projectEntity.getId());
+        notificationOutboxBean.enqueueToProjectUsers(author.getId(), projectEntity.getId(), NotificationType.MEMBER_EXIT);
 
         logger.info("User with id: " + userId + " removed from project: " + projectEntity.getName() + " by user with id: " + author.getId());
 
@@ -29,6 +29,26 @@ public class StartupBean {
      */
     @EJB
     SettingsBean settingsBean;
+    /**
+     * LoadTestBean instance to create the load test users.
+     */
+    @EJB
+    LoadTestBean loadTestBean;
+    /**
+     * NotificationBean instance to migrate the old notifications.
+     */
+    @EJB
+    NotificationBean notificationBean;
+    /**
+     * MessageBean instance to create the summaries of the old conversations.
+     */
+    @EJB
+    MessageBean messageBean;
+    /**
+     * MessageSearchBean instance to index the old messages.
+     */
+    @EJB
+    MessageSearchBean messageSearchBean;
 
 
     /**
@@ -40,10 +60,30 @@ public class StartupBean {
         labBean.createAllLabs();
         userBean.createAdminUser();
         settingsBean.createDefaultSettings();
+        notificationBean.migrateOldNotifications();
+        messageBean.migrateConversationSummaries();
+        indexOldMessages();
+
+        // Only when started for the websocket load test, see the proj_final_aor_loadtest module
+        int loadTestUsers = Integer.getInteger("loadtest.users", 0);
+        if (loadTestUsers > 0) {
+            loadTestBean.seed(loadTestUsers, Integer.getInteger("loadtest.projectMembers", loadTestUsers));
+        }
 
 
 
     }
 
+    /**
+     * Adds to the search index the messages sent before it existed, in batches, resuming after the last one indexed.
+     */
+    private void indexOldMessages() {
+        int batchSize = Integer.getInteger("messages.search.indexBatchSize", 1000);
+        long lastId = messageSearchBean.findLastIndexedMessageId();
+        while (lastId >= 0) {
+            lastId = messageSearchBean.indexMessagesAfter(lastId, batchSize);
+        }
+    }
+
 
 }
@@ -3,7 +3,9 @@ package aor.paj.proj_final_aor_backend.bean;
 import aor.paj.proj_final_aor_backend.dao.ProjectDao;
 import aor.paj.proj_final_aor_backend.dao.UserProjectDao;
 import aor.paj.proj_final_aor_backend.dto.ProjectStatsDTO;
+import aor.paj.proj_final_aor_backend.dto.WebsocketStats;
 import aor.paj.proj_final_aor_backend.util.enums.Workplace;
+import aor.paj.proj_final_aor_backend.websocket.SessionRegistry;
 import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
 import org.apache.logging.log4j.LogManager;
@@ -25,6 +27,9 @@ public class StatisticsBean {
     @EJB
     private UserProjectDao userProjectDao;
 
+    @EJB
+    private SessionRegistry sessionRegistry;
+
     public StatisticsBean() {
     }
 
@@ -180,4 +185,8 @@ public class StatisticsBean {
         dto.setAverageNumberOfActiveMembers(averageNumberOfActiveMembers());
         return dto;
     }
-}
\ No newline at end of file
+
+    public WebsocketStats getWebsocketStatistics() {
+        return sessionRegistry.getStats();
+    }
+}
@@ -11,9 +11,6 @@ import aor.paj.proj_final_aor_backend.entity.TaskDependencyEntity;
 import aor.paj.proj_final_aor_backend.entity.TaskEntity;
 import aor.paj.proj_final_aor_backend.entity.UserEntity;
 import aor.paj.proj_final_aor_backend.websocket.WebsocketTask;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
 import org.apache.logging.log4j.LogManager;
@@ -36,15 +33,6 @@ public class TaskBean implements Serializable {
      * Logger for the TaskBean class.
      */
     private static Logger logger = LogManager.getLogger(TaskBean.class);
-    /**
-     * ObjectMapper instance to serialize and deserialize objects.
-     */
-    private static final ObjectMapper mapper = new ObjectMapper();
-
-    static {
-        mapper.registerModule(new JavaTimeModule());
-    }
-
     /**
      * TaskDao instance to interact with the database.
      */
@@ -143,13 +131,8 @@ public class TaskBean implements Serializable {
 
 
         // Send the task to the project by websocket
-        try {
-            String jsonTask = mapper.writeValueAsString(convertToDTO(taskEntity));
-            websocketTask.sendTaskToProject(jsonTask, projectId);
-            logger.debug("Task sent to project with id: " + projectId);
-        } catch (JsonProcessingException e) {
-            logger.error("Error serializing the task: " + e.getMessage());
-        }
+        websocketTask.sendTaskToProject(convertToDTO(taskEntity), projectId);
+        logger.debug("Task sent to project with id: " + projectId);
         return true;
     }
 
@@ -247,6 +230,7 @@ public class TaskBean implements Serializable {
 
         // Update the task in the database
         if (updated) {
+            taskEntity.setUpdatedAt(LocalDateTime.now());
             taskDao.merge(taskEntity);
             logger.info("Task updated successfully: " + taskEntity.getId());
         } else {
@@ -259,13 +243,8 @@ public class TaskBean implements Serializable {
         }
 
         // Send the task to the project by websocket
-        try {
-            String jsonTask = mapper.writeValueAsString(convertToDTO(taskEntity));
-            websocketTask.sendTaskToProject(jsonTask, projectId);
-            logger.debug("Task sent to project with id: " + projectId);
-        } catch (JsonProcessingException e) {
-            logger.error("Error serializing the task: " + e.getMessage());
-        }
+        websocketTask.sendTaskToProject(convertToDTO(taskEntity), projectId);
+        logger.debug("Task sent to project with id: " + projectId);
         return updated;
     }
 
@@ -353,17 +332,13 @@ public class TaskBean implements Serializable {
                     taskEntity.setStartDate(taskEntity.getConclusionDate());
                 }
             }
+            taskEntity.setUpdatedAt(LocalDateTime.now());
             //Persist the task in the database
             taskDao.merge(taskEntity);
             logger.info("Task status updated: " + taskEntity.getId());
             //Send the task to the project by websocket
-            try {
-                String jsonTask = mapper.writeValueAsString(convertToDTO(taskEntity));
-                websocketTask.sendTaskToProject(jsonTask, projectId);
-                logger.debug("Task sent to project with id: " + projectId);
-            } catch (JsonProcessingException e) {
-                logger.error("Error serializing the task: " + e.getMessage());
-            }
+            websocketTask.sendTaskToProject(convertToDTO(taskEntity), projectId);
+            logger.debug("Task sent to project with id: " + projectId);
             return true;
         }
     }
@@ -523,18 +498,14 @@ public class TaskBean implements Serializable {
         } else {
             //Set the task erased true
             taskEntity.setErased(true);
+            taskEntity.setUpdatedAt(LocalDateTime.now());
             //Persist the task in the database
             taskDao.merge(taskEntity);
             logger.info("Task erased: " + taskEntity.getId());
 
             //Send the task to the project by websocket
-            try {
-                String jsonTask = mapper.writeValueAsString(convertToDTO(taskEntity));
-                websocketTask.sendTaskToProject(jsonTask, projectId);
-                logger.debug("Task sent to project with id: " + projectId);
-            } catch (JsonProcessingException e) {
-                logger.error("Error serializing the task: " + e.getMessage());
-            }
+            websocketTask.sendTaskToProject(convertToDTO(taskEntity), projectId);
+            logger.debug("Task sent to project with id: " + projectId);
             return true;
         }
     }
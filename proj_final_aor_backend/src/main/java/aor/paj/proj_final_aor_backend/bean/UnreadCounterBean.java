@@ -0,0 +1,224 @@
+package aor.paj.proj_final_aor_backend.bean;
+
+import aor.paj.proj_final_aor_backend.dao.NotificationDao;
+import aor.paj.proj_final_aor_backend.dao.NotificationRecipientDao;
+import aor.paj.proj_final_aor_backend.dao.UnreadCounterDao;
+import aor.paj.proj_final_aor_backend.dto.UnreadCounters;
+import aor.paj.proj_final_aor_backend.entity.UnreadCounterEntity;
+import aor.paj.proj_final_aor_backend.util.enums.NotificationType;
+import aor.paj.proj_final_aor_backend.util.enums.UnreadCounterType;
+import aor.paj.proj_final_aor_backend.websocket.EventBus;
+import jakarta.annotation.Resource;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Stateless;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This class keeps the unread notification counters of the users.
+ * The counters are changed in the database and in the cache when notifications are sent or read,
+ * so the badge is read from memory instead of counting the notifications on every request.
+ * The cache is only changed after the transaction commits, and the other nodes are told to evict the changed users,
+ * so a rolled back change or a change made by another node never leaves a wrong badge in memory.
+ */
+@Stateless
+public class UnreadCounterBean implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger = LogManager.getLogger(UnreadCounterBean.class);
+
+    @EJB
+    UnreadCounterDao unreadCounterDao;
+    @EJB
+    NotificationDao notificationDao;
+    @EJB
+    NotificationRecipientDao notificationRecipientDao;
+    @EJB
+    UnreadCounterCache unreadCounterCache;
+    @EJB
+    EventBus eventBus;
+    @Resource
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    /**
+     * Default constructor for the UnreadCounterBean class.
+     */
+    public UnreadCounterBean() {
+    }
+
+    /**
+     * Returns the unread counters of a user, from the cache when possible.
+     * The counters of a user seen for the first time are counted and saved, when two requests do it
+     * at the same time the counters saved by the first one are used.
+     *
+     * @param userId The ID of the user.
+     * @return The counters of the user.
+     */
+    public UnreadCounters getCounters(long userId) {
+        UnreadCounters cached = unreadCounterCache.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+
+        UnreadCounterEntity entity = unreadCounterDao.findByUserId(userId);
+        if (entity == null) {
+            UnreadCounterEntity counted = notificationDao.countUnreadNotifications(userId);
+            if (unreadCounterDao.insertIfAbsent(counted)) {
+                entity = counted;
+            } else {
+                entity = unreadCounterDao.findByUserId(userId);
+                if (entity == null) {
+                    return toDto(counted);
+                }
+            }
+        }
+        UnreadCounters counters = toDto(entity);
+        unreadCounterCache.put(userId, counters);
+        return counters;
+    }
+
+    /**
+     * Counts a new notification for its receivers, called before the receivers are added to it.
+     * Messages are counted by conversation, so only the receivers without unread messages in the conversation are incremented.
+     *
+     * @param type            The type of the notification.
+     * @param relatedEntityId The ID of the related entity, the peer for direct messages or the project for project chats.
+     * @param receiverIds     The IDs of the receivers.
+     */
+    public void notificationSent(NotificationType type, long relatedEntityId, List<Long> receiverIds) {
+        UnreadCounterType counter = UnreadCounterType.of(type);
+        List<Long> userIds = receiverIds;
+        if (counter != UnreadCounterType.OTHER) {
+            Set<Long> withUnread = notificationRecipientDao.findUsersWithUnreadAbout(type.toString(), relatedEntityId, receiverIds);
+            if (!withUnread.isEmpty()) {
+                userIds = new ArrayList<>(receiverIds);
+                userIds.removeAll(withUnread);
+            }
+        }
+        unreadCounterDao.increment(counter, userIds);
+        List<Long> incremented = userIds;
+        afterCommit(incremented, () -> unreadCounterCache.increment(counter, incremented));
+    }
+
+    /**
+     * Uncounts a notification that is not a message, after the user read it.
+     *
+     * @param userId The ID of the user.
+     */
+    public void notificationRead(long userId) {
+        unreadCounterDao.decrementOther(userId);
+        afterCommit(Collections.singletonList(userId), () -> unreadCounterCache.decrementOther(userId));
+    }
+
+    /**
+     * Uncounts a conversation, after the user read the direct messages of a peer and its notification.
+     *
+     * @param userId The ID of the user.
+     */
+    public void conversationRead(long userId) {
+        unreadCounterDao.decrementDirectMessages(userId);
+        afterCommit(Collections.singletonList(userId), () -> unreadCounterCache.decrementDirectMessages(userId));
+    }
+
+    /**
+     * Clears the message counters, after the user read the message notifications.
+     *
+     * @param userId The ID of the user.
+     */
+    public void messagesRead(long userId) {
+        unreadCounterDao.clearMessages(userId);
+        afterCommit(Collections.singletonList(userId), () -> unreadCounterCache.clearMessages(userId));
+    }
+
+    /**
+     * Clears all the counters, after the user read all the notifications.
+     *
+     * @param userId The ID of the user.
+     */
+    public void allRead(long userId) {
+        unreadCounterDao.clearAll(userId);
+        afterCommit(Collections.singletonList(userId), () -> unreadCounterCache.clearAll(userId));
+    }
+
+    /**
+     * Counts the unread notifications of a flagged user again and fixes the counters if they drifted.
+     * The counters are only replaced if they did not change since they were read, otherwise they stay
+     * flagged and are counted again in the next run.
+     *
+     * @param userId The ID of the user.
+     * @return True if the counters were fixed, false if they were right, changed meanwhile or are not flagged.
+     */
+    public boolean reconcile(long userId) {
+        UnreadCounterEntity entity = unreadCounterDao.findByUserId(userId);
+        if (entity == null || !entity.isDirty()) {
+            return false;
+        }
+        UnreadCounters counted = toDto(notificationDao.countUnreadNotifications(userId));
+        if (!unreadCounterDao.reconcile(userId, entity.getVersion(), counted)) {
+            logger.debug("Unread counters of user " + userId + " changed while they were counted, trying again later");
+            return false;
+        }
+        if (counted.equals(toDto(entity))) {
+            return false;
+        }
+
+        logger.warn("Unread counters of user " + userId + " drifted, fixing them");
+        afterCommit(Collections.singletonList(userId), () -> unreadCounterCache.put(userId, counted));
+        return true;
+    }
+
+    /**
+     * Finds the IDs of the users whose counters are flagged to be counted again.
+     *
+     * @return The IDs of the users.
+     */
+    public List<Long> getDirtyUserIds() {
+        return unreadCounterDao.findDirtyUserIds();
+    }
+
+    /**
+     * Changes the cache once the current transaction commits and tells the other nodes to evict the users.
+     * Without a transaction the change is applied at once.
+     */
+    private void afterCommit(Collection<Long> userIds, Runnable cacheChange) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        if (transactionRegistry.getTransactionStatus() == Status.STATUS_NO_TRANSACTION) {
+            applyChange(userIds, cacheChange);
+            return;
+        }
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    applyChange(userIds, cacheChange);
+                }
+            }
+        });
+    }
+
+    private void applyChange(Collection<Long> userIds, Runnable cacheChange) {
+        cacheChange.run();
+        eventBus.publishToOtherNodes(UnreadCounterCache.CHANNEL, userIds);
+    }
+
+    private UnreadCounters toDto(UnreadCounterEntity entity) {
+        return new UnreadCounters(entity.getDirectMessages(), entity.getProjectMessages(), entity.getOther());
+    }
+}
@@ -0,0 +1,228 @@
+package aor.paj.proj_final_aor_backend.bean;
+
+import aor.paj.proj_final_aor_backend.dto.UnreadCounters;
+import aor.paj.proj_final_aor_backend.util.enums.UnreadCounterType;
+import aor.paj.proj_final_aor_backend.websocket.EventBus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Singleton;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory copy of the unread counters of the users, so the badge is answered without queries.
+ * The users are spread over stripes with their own lock, so users that receive notifications at the same time
+ * rarely wait for each other. Each stripe keeps the most recently used users, up to its share of the size.
+ * Only the users already cached are changed, the others are loaded from the database when they are needed.
+ * The other nodes tell this one which users they changed through the event bus, and those users are evicted.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class UnreadCounterCache {
+
+    private static final Logger logger = LogManager.getLogger(UnreadCounterCache.class);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Channel of the event bus where the nodes publish the IDs of the users whose counters changed.
+     */
+    public static final String CHANNEL = "cache:unreadCounters";
+
+    private static final int STRIPES = 32;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    /**
+     * Creates the cache with the size in the notifications.unreadCache.size system property, 10000 users by default.
+     */
+    public UnreadCounterCache() {
+        this(Integer.getInteger("notifications.unreadCache.size", 10000));
+    }
+
+    /**
+     * Creates the cache.
+     *
+     * @param size The maximum number of users kept.
+     */
+    public UnreadCounterCache(int size) {
+        int stripeSize = Math.max(1, size / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(stripeSize);
+        }
+    }
+
+    @EJB
+    EventBus eventBus;
+
+    /**
+     * Listens to the users changed by the other nodes.
+     */
+    @PostConstruct
+    public void init() {
+        eventBus.listen(CHANNEL, this::evictChanged);
+    }
+
+    /**
+     * Returns the counters of a user.
+     *
+     * @param userId The ID of the user.
+     * @return A copy of the counters, or null if the user is not cached.
+     */
+    public UnreadCounters get(long userId) {
+        Stripe stripe = stripeOf(userId);
+        synchronized (stripe) {
+            int[] counters = stripe.counters.get(userId);
+            return counters == null ? null : new UnreadCounters(counters[0], counters[1], counters[2]);
+        }
+    }
+
+    /**
+     * Stores the counters of a user.
+     *
+     * @param userId   The ID of the user.
+     * @param counters The counters.
+     */
+    public void put(long userId, UnreadCounters counters) {
+        Stripe stripe = stripeOf(userId);
+        synchronized (stripe) {
+            stripe.counters.put(userId, new int[]{counters.getDirectMessages(), counters.getProjectMessages(), counters.getOther()});
+        }
+    }
+
+    /**
+     * Increments a counter of the cached users.
+     *
+     * @param counter The counter to increment.
+     * @param userIds The IDs of the users.
+     */
+    public void increment(UnreadCounterType counter, Collection<Long> userIds) {
+        int index = counter.ordinal();
+        for (Long userId : userIds) {
+            Stripe stripe = stripeOf(userId);
+            synchronized (stripe) {
+                int[] counters = stripe.counters.get(userId);
+                if (counters != null) {
+                    counters[index]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Decrements the counter of the direct messages of a cached user.
+     *
+     * @param userId The ID of the user.
+     */
+    public void decrementDirectMessages(long userId) {
+        Stripe stripe = stripeOf(userId);
+        synchronized (stripe) {
+            int[] counters = stripe.counters.get(userId);
+            if (counters != null && counters[UnreadCounterType.DIRECT_MESSAGES.ordinal()] > 0) {
+                counters[UnreadCounterType.DIRECT_MESSAGES.ordinal()]--;
+            }
+        }
+    }
+
+    /**
+     * Decrements the counter of the other notifications of a cached user.
+     *
+     * @param userId The ID of the user.
+     */
+    public void decrementOther(long userId) {
+        Stripe stripe = stripeOf(userId);
+        synchronized (stripe) {
+            int[] counters = stripe.counters.get(userId);
+            if (counters != null && counters[UnreadCounterType.OTHER.ordinal()] > 0) {
+                counters[UnreadCounterType.OTHER.ordinal()]--;
+            }
+        }
+    }
+
+    /**
+     * Clears the message counters of a cached user.
+     *
+     * @param userId The ID of the user.
+     */
+    public void clearMessages(long userId) {
+        Stripe stripe = stripeOf(userId);
+        synchronized (stripe) {
+            int[] counters = stripe.counters.get(userId);
+            if (counters != null) {
+                counters[UnreadCounterType.DIRECT_MESSAGES.ordinal()] = 0;
+                counters[UnreadCounterType.PROJECT_MESSAGES.ordinal()] = 0;
+            }
+        }
+    }
+
+    /**
+     * Clears all the counters of a cached user.
+     *
+     * @param userId The ID of the user.
+     */
+    public void clearAll(long userId) {
+        Stripe stripe = stripeOf(userId);
+        synchronized (stripe) {
+            int[] counters = stripe.counters.get(userId);
+            if (counters != null) {
+                counters[0] = 0;
+                counters[1] = 0;
+                counters[2] = 0;
+            }
+        }
+    }
+
+    /**
+     * Removes users from the cache, so their counters are read again from the database.
+     *
+     * @param userIds The IDs of the users.
+     */
+    public void evict(Collection<Long> userIds) {
+        for (Long userId : userIds) {
+            Stripe stripe = stripeOf(userId);
+            synchronized (stripe) {
+                stripe.counters.remove(userId);
+            }
+        }
+    }
+
+    /**
+     * Evicts the users changed by another node, received as a JSON array of IDs.
+     */
+    private void evictChanged(String payload) {
+        try {
+            evict(List.of(objectMapper.readValue(payload, Long[].class)));
+        } catch (JsonProcessingException e) {
+            logger.error("Error reading the users with changed unread counters: " + payload, e);
+        }
+    }
+
+    private Stripe stripeOf(long userId) {
+        return stripes[(int) Math.floorMod(userId, (long) STRIPES)];
+    }
+
+    /**
+     * Part of the cache guarded by its own lock, the counters are indexed by the ordinal of the counter type.
+     */
+    private static class Stripe {
+        private final Map<Long, int[]> counters;
+
+        private Stripe(int size) {
+            this.counters = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest) {
+                    return size() > size;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package aor.paj.proj_final_aor_backend.bean;
+
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Counts the unread notifications again every 10 minutes to fix counters that drifted,
+ * for example when two messages from the same sender arrive at the same time.
+ * Only the users whose counters changed since they were last counted are counted again.
+ * Each user is fixed in its own transaction, so one failure does not undo the others.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class UnreadCounterReconciler {
+
+    private static final Logger logger = LogManager.getLogger(UnreadCounterReconciler.class);
+
+    @EJB
+    UnreadCounterBean unreadCounterBean;
+
+    /**
+     * Reconciles the counters of the users flagged as dirty.
+     */
+    @Schedule(hour = "*", minute = "*/10", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void reconcile() {
+        int fixed = 0;
+        for (Long userId : unreadCounterBean.getDirtyUserIds()) {
+            try {
+                if (unreadCounterBean.reconcile(userId)) {
+                    fixed++;
+                }
+            } catch (RuntimeException e) {
+                logger.error("Error reconciling the unread counters of user " + userId, e);
+            }
+        }
+        if (fixed > 0) {
+            logger.info("Fixed the unread counters of " + fixed + " users");
+        }
+    }
+}
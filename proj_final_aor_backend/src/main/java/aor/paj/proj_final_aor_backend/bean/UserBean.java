@@ -23,7 +23,11 @@ import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -75,6 +79,12 @@ public class UserBean implements Serializable {
     @EJB
     SettingsBean settingsBean;
 
+    /**
+     * UserCardCache instance to keep the names and photos of the users.
+     */
+    @EJB
+    UserCardCache userCardCache;
+
     /**
      * Default constructor for the UserBean class.
      */
@@ -311,6 +321,7 @@ public class UserBean implements Serializable {
 
         //Update the user in the database
         userDao.updateUser(userConfirm);
+        userCardCache.invalidate(userConfirm.getId());
 
         //Update the authentication in the database
         AuthenticationEntity authentication = authenticationDao.findAuthenticationLineByTokenConfirmation(token);
@@ -612,6 +623,7 @@ public class UserBean implements Serializable {
         try {
             //Update the user in the database
             userDao.updateUser(userEntity);
+            userCardCache.invalidate(userId);
             logger.info("User updated successfully: " + user.getId());
             return true;
         } catch (Exception e) {
@@ -825,6 +837,29 @@ public class UserBean implements Serializable {
         return user;
     }
 
+    /**
+     * This method is responsible for finding the id, name and photo of some users.
+     * The users that are not cached are loaded with a single query and cached.
+     *
+     * @param userIds The ids of the users.
+     * @return The users found, by id. Users that do not exist are left out.
+     */
+    public Map<Long, MessageInfoUser> getUserCards(Collection<Long> userIds) {
+        Map<Long, MessageInfoUser> cards = userCardCache.getAll(userIds);
+        if (cards.size() == userIds.size()) {
+            return cards;
+        }
+
+        Set<Long> missing = new HashSet<>(userIds);
+        missing.removeAll(cards.keySet());
+        List<MessageInfoUser> loaded = userDao.findUserCardsByIds(missing);
+        userCardCache.putAll(loaded);
+        for (MessageInfoUser card : loaded) {
+            cards.put(card.getId(), card);
+        }
+        return cards;
+    }
+
     /**
      * This method is responsible for converting a UserEntity object to a UserInfoInProject object.
      *
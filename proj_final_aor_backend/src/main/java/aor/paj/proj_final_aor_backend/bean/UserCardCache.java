@@ -0,0 +1,86 @@
+package aor.paj.proj_final_aor_backend.bean;
+
+import aor.paj.proj_final_aor_backend.dto.MessageInfoUser;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the id, name and photo of the most recently used users, shown next to notifications and messages.
+ * The cache is bounded, the least recently used user is dropped when it is full, and a user is removed
+ * whenever its profile is updated. The cards are copied in and out, so callers can change them freely.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class UserCardCache {
+
+    private final Map<Long, MessageInfoUser> cards;
+
+    /**
+     * Creates the cache with the size in the users.cardCache.size system property, 5000 users by default.
+     */
+    public UserCardCache() {
+        this(Integer.getInteger("users.cardCache.size", 5000));
+    }
+
+    /**
+     * Creates the cache.
+     *
+     * @param size The maximum number of users kept.
+     */
+    public UserCardCache(int size) {
+        int maxSize = Math.max(1, size);
+        this.cards = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, MessageInfoUser> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached cards of some users.
+     *
+     * @param userIds The IDs of the users.
+     * @return Copies of the cards found, by user ID.
+     */
+    public synchronized Map<Long, MessageInfoUser> getAll(Collection<Long> userIds) {
+        Map<Long, MessageInfoUser> found = new HashMap<>();
+        for (Long userId : userIds) {
+            MessageInfoUser card = cards.get(userId);
+            if (card != null) {
+                found.put(userId, copy(card));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Stores the cards of some users.
+     *
+     * @param userCards The cards to store.
+     */
+    public synchronized void putAll(Collection<MessageInfoUser> userCards) {
+        for (MessageInfoUser card : userCards) {
+            cards.put(card.getId(), copy(card));
+        }
+    }
+
+    /**
+     * Removes the card of a user, called when the user changes.
+     *
+     * @param userId The ID of the user.
+     */
+    public synchronized void invalidate(long userId) {
+        cards.remove(userId);
+    }
+
+    private MessageInfoUser copy(MessageInfoUser card) {
+        return new MessageInfoUser(card.getId(), card.getFirstName(), card.getLastName(), card.getPhoto());
+    }
+}
@@ -7,15 +7,23 @@ import aor.paj.proj_final_aor_backend.entity.ProjectEntity;
 import aor.paj.proj_final_aor_backend.entity.UserEntity;
 import aor.paj.proj_final_aor_backend.entity.UserProjectEntity;
 import aor.paj.proj_final_aor_backend.util.enums.UserTypeInProject;
+import aor.paj.proj_final_aor_backend.websocket.PresenceMonitor;
+import aor.paj.proj_final_aor_backend.websocket.SessionRegistry;
+import jakarta.annotation.Resource;
 import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -45,6 +53,18 @@ public class UserProjectBean implements Serializable {
     @EJB
     private ProjectBean projectBean;
 
+    // EJB injection for the registry of websocket sessions, kept in sync with the project members
+    @EJB
+    private SessionRegistry sessionRegistry;
+
+    // EJB injection for the online users of the other nodes
+    @EJB
+    private PresenceMonitor presenceMonitor;
+
+    // Registry of the current transaction, the session registry is only changed once the members are saved
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
     /**
      * Default constructor for UserProjectBean.
      */
@@ -95,6 +115,9 @@ public class UserProjectBean implements Serializable {
 
         // Persist the UserProjectEntity instance
         userProjectDao.persist(userProjectEntity);
+        if (userProjectEntity.isApproved()) {
+            afterCommit(() -> sessionRegistry.joinProject(userEntity.getId(), projectEntity.getId()));
+        }
         logger.info("User with ID '" + userEntity.getId() + "' added to Project with ID '" + projectEntity.getId() + "'");
         return true;
     }
@@ -119,6 +142,7 @@ public class UserProjectBean implements Serializable {
         userProjectEntity.setLeftAt(LocalDateTime.now());
 
         userProjectDao.merge(userProjectEntity);
+        afterCommit(() -> sessionRegistry.leaveProject(userId, projectId));
 
         logger.info("User with ID '" + userId + "' removed from Project with ID '" + projectId + "' by User with ID '");
         return true;
@@ -149,6 +173,7 @@ public class UserProjectBean implements Serializable {
         userProjectEntity.setUserType(userType);
         userProjectEntity.setJoinedAt(LocalDateTime.now());
         userProjectDao.merge(userProjectEntity);
+        afterCommit(() -> sessionRegistry.joinProject(userId, projectId));
         logger.info("User approved in Project");
         return true;
     }
@@ -352,6 +377,59 @@ public class UserProjectBean implements Serializable {
         return userProjects;
     }
 
+    /**
+     * Method to get the IDs of the projects where a user is an active member.
+     * @param userId The ID of the user.
+     * @return List with the IDs of the active projects of the user.
+     */
+    public List<Long> getActiveProjectIdsOfAUser(Long userId) {
+        return userProjectDao.findActiveProjectIdsByUserId(userId);
+    }
+
+    /**
+     * Method to get the IDs of the active members of a project that are online.
+     * The members connected to this node come from the open websocket sessions, without querying the database.
+     * With other nodes, the active members are read to find the ones online there, as of their last heartbeat.
+     * @param projectId The ID of the project.
+     * @return List with the IDs of the online members of the project.
+     */
+    public List<Long> getOnlineMembersOfAProject(long projectId) {
+        Set<Long> online = new LinkedHashSet<>(sessionRegistry.getProjectUsers(projectId));
+        Set<Long> otherNodes = presenceMonitor.getUsersOnlineInOtherNodes();
+        if (!otherNodes.isEmpty()) {
+            for (UserProjectEntity member : userProjectDao.findActiveUsersByProjectId(projectId)) {
+                if (otherNodes.contains(member.getUser().getId())) {
+                    online.add(member.getUser().getId());
+                }
+            }
+        }
+        return new ArrayList<>(online);
+    }
+
+    /**
+     * Changes the session registry once the current transaction commits, so a rollback leaves the project members as they were.
+     * Without a transaction the change is applied at once.
+     * @param change The change of the session registry.
+     */
+    private void afterCommit(Runnable change) {
+        if (transactionRegistry.getTransactionStatus() == Status.STATUS_NO_TRANSACTION) {
+            change.run();
+            return;
+        }
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    change.run();
+                }
+            }
+        });
+    }
+
     /**
      * Counts the number of projects associated with a specific user.
      * If the state parameter is 1, it counts all projects associated with the user.
@@ -0,0 +1,124 @@
+package aor.paj.proj_final_aor_backend.dao;
+
+import aor.paj.proj_final_aor_backend.entity.ConversationSummaryEntity;
+import aor.paj.proj_final_aor_backend.entity.MessageEntity;
+import jakarta.ejb.Stateless;
+
+import java.util.List;
+
+/**
+ * This class represents a Data Access Object (DAO) for ConversationSummaryEntity.
+ * The summaries are changed with update and upsert statements, so concurrent messages never overwrite each other.
+ */
+@Stateless
+public class ConversationSummaryDao extends AbstractDao<ConversationSummaryEntity> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Default constructor.
+     * Initializes the superclass with ConversationSummaryEntity class type
+     */
+    public ConversationSummaryDao() {
+        super(ConversationSummaryEntity.class);
+    }
+
+    /**
+     * Finds the conversations of a user, the most recent first.
+     *
+     * @param ownerId The ID of the user.
+     * @return The summaries of the conversations of the user.
+     */
+    public List<ConversationSummaryEntity> findByOwner(long ownerId) {
+        return em.createNamedQuery("ConversationSummary.findByOwner", ConversationSummaryEntity.class)
+                .setParameter("ownerId", ownerId)
+                .getResultList();
+    }
+
+    /**
+     * Records a message as the last one of the conversation of a user with another, creating the conversation if it is the first.
+     * The row is inserted or updated in a single statement, so the first two messages of a conversation sent at the same time
+     * do not both try to create it.
+     *
+     * @param ownerId The ID of the user that sees the conversation.
+     * @param peerId  The ID of the other user.
+     * @param message The message, already persisted.
+     * @param unread  True if the message was received by the owner and is not read yet.
+     */
+    public void recordMessage(long ownerId, long peerId, MessageEntity message, boolean unread) {
+        em.createNativeQuery("INSERT INTO conversation_summary (owner_id, peer_id, last_message_id, preview, last_message_at, unread_count) " +
+                        "VALUES (?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE last_message_id = VALUES(last_message_id), preview = VALUES(preview), " +
+                        "last_message_at = VALUES(last_message_at), unread_count = unread_count + VALUES(unread_count)")
+                .setParameter(1, ownerId)
+                .setParameter(2, peerId)
+                .setParameter(3, message.getId())
+                .setParameter(4, preview(message.getContent()))
+                .setParameter(5, message.getSendTimestamp())
+                .setParameter(6, unread ? 1 : 0)
+                .executeUpdate();
+    }
+
+    /**
+     * Decrements the unread messages of the conversation of a user with another.
+     *
+     * @param ownerId The ID of the user that read the message.
+     * @param peerId  The ID of the user that sent the message.
+     */
+    public void decrementUnread(long ownerId, long peerId) {
+        em.createNamedQuery("ConversationSummary.decrementUnread")
+                .setParameter("ownerId", ownerId)
+                .setParameter("peerId", peerId)
+                .executeUpdate();
+    }
+
+    /**
+     * Sets the unread messages of the conversation of a user with another, after many were read at once.
+     *
+     * @param ownerId The ID of the user that read the messages.
+     * @param peerId  The ID of the user that sent the messages.
+     * @param unread  The number of messages still unread.
+     */
+    public void setUnread(long ownerId, long peerId, int unread) {
+        em.createNamedQuery("ConversationSummary.setUnread")
+                .setParameter("unread", unread)
+                .setParameter("ownerId", ownerId)
+                .setParameter("peerId", peerId)
+                .executeUpdate();
+    }
+
+    /**
+     * Creates the summaries of the conversations from the direct messages, when the table is still empty.
+     * Used once, for the messages sent before the summaries existed.
+     *
+     * @return The number of summaries created.
+     */
+    public int createFromMessages() {
+        Long summaries = em.createNamedQuery("ConversationSummary.count", Long.class).getSingleResult();
+        if (summaries > 0) {
+            return 0;
+        }
+        return em.createNativeQuery("INSERT INTO conversation_summary (owner_id, peer_id, last_message_id, preview, last_message_at, unread_count) " +
+                        "SELECT p.owner_id, p.peer_id, m.id, SUBSTRING(m.content, 1, " + ConversationSummaryEntity.PREVIEW_LENGTH + "), m.sendTimestamp, " +
+                        "(SELECT COUNT(*) FROM messages u WHERE u.receiver_id = p.owner_id AND u.sender_id = p.peer_id AND u.readStatus = FALSE) " +
+                        "FROM (SELECT c.owner_id, c.peer_id, MAX(c.last_id) AS last_id FROM (" +
+                        "SELECT sender_id AS owner_id, receiver_id AS peer_id, MAX(id) AS last_id FROM messages WHERE receiver_id IS NOT NULL GROUP BY sender_id, receiver_id " +
+                        "UNION ALL " +
+                        "SELECT receiver_id AS owner_id, sender_id AS peer_id, MAX(id) AS last_id FROM messages WHERE receiver_id IS NOT NULL GROUP BY receiver_id, sender_id" +
+                        ") c GROUP BY c.owner_id, c.peer_id) p " +
+                        "JOIN messages m ON m.id = p.last_id")
+                .executeUpdate();
+    }
+
+    /**
+     * Cuts the content of a message to the length of the preview.
+     *
+     * @param content The content of the message.
+     * @return The preview.
+     */
+    private static String preview(String content) {
+        if (content == null) {
+            return "";
+        }
+        return content.length() <= ConversationSummaryEntity.PREVIEW_LENGTH ? content : content.substring(0, ConversationSummaryEntity.PREVIEW_LENGTH);
+    }
+}
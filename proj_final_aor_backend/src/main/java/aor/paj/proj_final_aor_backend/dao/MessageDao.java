@@ -1,9 +1,13 @@
 package aor.paj.proj_final_aor_backend.dao;
 
 import aor.paj.proj_final_aor_backend.entity.MessageEntity;
+import aor.paj.proj_final_aor_backend.entity.MessageTermEntity;
 import aor.paj.proj_final_aor_backend.entity.UserEntity;
+import aor.paj.proj_final_aor_backend.util.MessageTerms;
+import aor.paj.proj_final_aor_backend.util.PageCursor;
 import jakarta.ejb.Stateless;
 
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -48,6 +52,44 @@ public class MessageDao extends AbstractDao<MessageEntity> {
     }
 
 
+    /**
+     * Finds the messages between two users sent before a position, newest first.
+     * Each direction of the conversation is read on its own, so both are sought with the conversation index
+     * and every page costs the same, and the two are merged.
+     *
+     * @param user1      The first user.
+     * @param user2      The second user.
+     * @param cursor     The position of the last message of the previous page.
+     * @param maxResults The maximum number of messages.
+     * @return A list of messages between the two users.
+     */
+    public List<MessageEntity> findMessagesBetweenUsersBefore(UserEntity user1, UserEntity user2, PageCursor cursor, int maxResults) {
+        List<MessageEntity> messages = new ArrayList<>(findMessagesFromUserBefore(user1.getId(), user2.getId(), cursor, maxResults));
+        messages.addAll(findMessagesFromUserBefore(user2.getId(), user1.getId(), cursor, maxResults));
+        messages.sort(Comparator.comparing(MessageEntity::getSendTimestamp).thenComparingLong(MessageEntity::getId).reversed());
+        return messages.size() > maxResults ? new ArrayList<>(messages.subList(0, maxResults)) : messages;
+    }
+
+    /**
+     * Finds the messages sent by a user to another before a position, newest first.
+     *
+     * @param senderId   The ID of the sender.
+     * @param receiverId The ID of the receiver.
+     * @param cursor     The position of the last message of the previous page.
+     * @param maxResults The maximum number of messages.
+     * @return A list of messages from the sender to the receiver.
+     */
+    private List<MessageEntity> findMessagesFromUserBefore(long senderId, long receiverId, PageCursor cursor, int maxResults) {
+        return em.createNamedQuery("Message.findMessagesFromUserBefore", MessageEntity.class)
+                .setParameter("sender", senderId)
+                .setParameter("receiver", receiverId)
+                .setParameter("timestamp", cursor.getTimestamp())
+                .setParameter("id", cursor.getId())
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+
     /**
      * Finds the total number of messages between two users.
      *
@@ -101,6 +143,40 @@ public class MessageDao extends AbstractDao<MessageEntity> {
     }
 
 
+    /**
+     * Finds the messages of the chat of a project before a position, newest first, for scrolling back.
+     *
+     * @param projectId  The ID of the project.
+     * @param cursor     The position of the oldest message already read.
+     * @param maxResults The maximum number of messages.
+     * @return The messages, ordered by timestamp and ID, newest first.
+     */
+    public List<MessageEntity> findProjectMessagesBefore(long projectId, PageCursor cursor, int maxResults) {
+        return em.createNamedQuery("Message.findProjectMessagesBefore", MessageEntity.class)
+                .setParameter("projectId", projectId)
+                .setParameter("timestamp", cursor.getTimestamp())
+                .setParameter("id", cursor.getId())
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    /**
+     * Finds the messages of the chat of a project after a position, oldest first, for catching up.
+     *
+     * @param projectId  The ID of the project.
+     * @param cursor     The position of the newest message already read.
+     * @param maxResults The maximum number of messages.
+     * @return The messages, ordered by timestamp and ID, oldest first.
+     */
+    public List<MessageEntity> findProjectMessagesAfter(long projectId, PageCursor cursor, int maxResults) {
+        return em.createNamedQuery("Message.findProjectMessagesAfter", MessageEntity.class)
+                .setParameter("projectId", projectId)
+                .setParameter("timestamp", cursor.getTimestamp())
+                .setParameter("id", cursor.getId())
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
     /**
      * Finds a message by its ID.
      *
@@ -129,6 +205,106 @@ public class MessageDao extends AbstractDao<MessageEntity> {
      */
     public void createMessage(MessageEntity message) {
         em.persist(message);
+        indexMessage(message);
+    }
+
+    /**
+     * Method to add a message to the message search index, with an entry for each term and reader.
+     * A direct message is indexed for its sender and its receiver, a project message for its project.
+     *
+     * @param message the message, already persisted.
+     */
+    public void indexMessage(MessageEntity message) {
+        long projectId = 0;
+        if (message.getReceiverProjectId() != null) {
+            projectId = message.getReceiverProjectId();
+        } else if (message.getReceiverGroup() != null) {
+            projectId = message.getReceiverGroup().getProject().getId();
+        }
+        for (String term : MessageTerms.of(message.getContent())) {
+            if (projectId != 0) {
+                em.persist(new MessageTermEntity(term, 0, projectId, message.getId()));
+            } else {
+                em.persist(new MessageTermEntity(term, message.getSender().getId(), 0, message.getId()));
+                if (message.getReceiver() != null && message.getReceiver().getId() != message.getSender().getId()) {
+                    em.persist(new MessageTermEntity(term, message.getReceiver().getId(), 0, message.getId()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks as read, with a single update, the messages a user received from another up to a position.
+     *
+     * @param senderId   The ID of the user that sent the messages.
+     * @param receiverId The ID of the user that read the messages.
+     * @param cursor     The position of the last message read, included.
+     * @param readAt     When the messages were read.
+     * @return The number of messages marked as read.
+     */
+    public int markReadUpTo(long senderId, long receiverId, PageCursor cursor, LocalDateTime readAt) {
+        return em.createNamedQuery("Message.markReadUpTo")
+                .setParameter("readAt", readAt)
+                .setParameter("senderId", senderId)
+                .setParameter("receiverId", receiverId)
+                .setParameter("timestamp", cursor.getTimestamp())
+                .setParameter("id", cursor.getId())
+                .executeUpdate();
+    }
+
+    /**
+     * Counts the messages a user received from another and did not read.
+     *
+     * @param senderId   The ID of the user that sent the messages.
+     * @param receiverId The ID of the user that received the messages.
+     * @return The number of unread messages.
+     */
+    public int countUnreadFrom(long senderId, long receiverId) {
+        return em.createNamedQuery("Message.countUnreadFrom", Long.class)
+                .setParameter("senderId", senderId)
+                .setParameter("receiverId", receiverId)
+                .getSingleResult().intValue();
+    }
+
+    /**
+     * Finds which entries of the chat append log were already saved as messages.
+     *
+     * @param keys The keys of the entries.
+     * @return The keys of the entries saved.
+     */
+    public Set<String> findIngestKeys(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(em.createNamedQuery("Message.findIngestKeys", String.class)
+                .setParameter("keys", keys)
+                .getResultList());
+    }
+
+    /**
+     * Finds messages by their IDs.
+     *
+     * @param ids The IDs of the messages.
+     * @return The messages found, in no particular order.
+     */
+    public List<MessageEntity> findMessagesByIds(Collection<Long> ids) {
+        return em.createNamedQuery("Message.findByIds", MessageEntity.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * Finds the messages after an ID, in ID order, used to index the messages sent before the search index existed.
+     *
+     * @param afterId    The ID of the last message already read.
+     * @param maxResults The maximum number of messages.
+     * @return The messages, ordered by ID.
+     */
+    public List<MessageEntity> findMessagesAfterId(long afterId, int maxResults) {
+        return em.createNamedQuery("Message.findAfterId", MessageEntity.class)
+                .setParameter("id", afterId)
+                .setMaxResults(maxResults)
+                .getResultList();
     }
 
 
@@ -0,0 +1,58 @@
+package aor.paj.proj_final_aor_backend.dao;
+
+import aor.paj.proj_final_aor_backend.entity.MessageTermEntity;
+import aor.paj.proj_final_aor_backend.util.SearchCursor;
+import jakarta.ejb.Stateless;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * This class represents a Data Access Object (DAO) for MessageTermEntity, the message search index.
+ * The entries are added with the messages, see MessageDao.createMessage.
+ */
+@Stateless
+public class MessageTermDao extends AbstractDao<MessageTermEntity> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Default constructor.
+     * Initializes the superclass with MessageTermEntity class type
+     */
+    public MessageTermDao() {
+        super(MessageTermEntity.class);
+    }
+
+    /**
+     * Finds the messages a user can read with some of the terms, the ones with more terms first, then the newest.
+     *
+     * @param terms      The terms, see MessageTerms.
+     * @param userId     The ID of the user, for the direct messages.
+     * @param projectIds The IDs of the projects of the user, for the project messages.
+     * @param cursor     The position of the last result already read.
+     * @param maxResults The maximum number of results.
+     * @return For each message, its ID and the number of terms found in it.
+     */
+    public List<Object[]> search(Collection<String> terms, long userId, Collection<Long> projectIds, SearchCursor cursor, int maxResults) {
+        return em.createNamedQuery("MessageTerm.search", Object[].class)
+                .setParameter("terms", terms)
+                .setParameter("userId", userId)
+                // An empty list is not valid in the query, and no project has the ID -1
+                .setParameter("projectIds", projectIds.isEmpty() ? List.of(-1L) : projectIds)
+                .setParameter("score", cursor.getScore())
+                .setParameter("id", cursor.getId())
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    /**
+     * Finds the ID of the last message in the index.
+     *
+     * @return The ID, or 0 if the index is empty.
+     */
+    public long findLastMessageId() {
+        Long id = em.createNamedQuery("MessageTerm.findLastMessageId", Long.class).getSingleResult();
+        return id == null ? 0 : id;
+    }
+}
@@ -1,13 +1,19 @@
 package aor.paj.proj_final_aor_backend.dao;
 
 import aor.paj.proj_final_aor_backend.entity.NotificationEntity;
+import aor.paj.proj_final_aor_backend.entity.UnreadCounterEntity;
 import aor.paj.proj_final_aor_backend.entity.UserEntity;
+import aor.paj.proj_final_aor_backend.util.PageCursor;
 import jakarta.ejb.Stateless;
 import jakarta.persistence.NamedQuery;
 
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 
 /**
@@ -20,6 +26,11 @@ import java.util.List;
 public class NotificationDao extends AbstractDao<NotificationEntity> {
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Format of the month in the names of the archive tables.
+     */
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
     /**
      * Default constructor.
      * Initializes the superclass with NotificationEntity class type
@@ -39,6 +50,67 @@ public class NotificationDao extends AbstractDao<NotificationEntity> {
     }
 
 
+    /**
+     * Finds the notifications that every recipient read and whose last event is older than a date,
+     * by the month they were created in.
+     *
+     * @param cutoff     The date before which the notifications expire.
+     * @param maxResults The maximum number of notifications to find.
+     * @return The IDs of the expired notifications, oldest first, by month as yyyyMM.
+     */
+    public Map<String, List<Long>> findExpiredByMonth(LocalDateTime cutoff, int maxResults) {
+        List<Object[]> rows = em.createNamedQuery("Notification.findExpired", Object[].class)
+                .setParameter("cutoff", cutoff)
+                .setMaxResults(maxResults)
+                .getResultList();
+        Map<String, List<Long>> byMonth = new TreeMap<>();
+        for (Object[] row : rows) {
+            String month = ((LocalDateTime) row[1]).format(MONTH);
+            byMonth.computeIfAbsent(month, key -> new ArrayList<>()).add((Long) row[0]);
+        }
+        return byMonth;
+    }
+
+    /**
+     * Deletes some notifications.
+     * The recipients must be deleted before.
+     *
+     * @param ids The IDs of the notifications.
+     * @return The number of notifications deleted.
+     */
+    public int deleteByIds(Collection<Long> ids) {
+        return em.createNamedQuery("Notification.deleteByIds")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    /**
+     * Creates the archive tables of a month, if they do not exist yet.
+     * The statements are MySQL specific, archiving is off by default.
+     *
+     * @param month The month, as yyyyMM.
+     */
+    public void createArchiveTables(String month) {
+        em.createNativeQuery("CREATE TABLE IF NOT EXISTS notifications_archive_" + month + " LIKE notifications").executeUpdate();
+        em.createNativeQuery("CREATE TABLE IF NOT EXISTS notification_recipient_archive_" + month + " LIKE notification_recipient").executeUpdate();
+    }
+
+    /**
+     * Copies some notifications and their recipients to the archive tables of a month.
+     * The notifications must have been created in that month.
+     *
+     * @param ids   The IDs of the notifications.
+     * @param month The month, as yyyyMM.
+     */
+    public void archive(Collection<Long> ids, String month) {
+        em.createNativeQuery("INSERT INTO notifications_archive_" + month + " SELECT * FROM notifications WHERE id IN (:ids)")
+                .setParameter("ids", ids)
+                .executeUpdate();
+        em.createNativeQuery("INSERT INTO notification_recipient_archive_" + month + " SELECT * FROM notification_recipient WHERE notification_id IN (:ids)")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
     /**
      * Finds a NotificationEntity by its ID.
      *
@@ -59,6 +131,17 @@ public class NotificationDao extends AbstractDao<NotificationEntity> {
      * @return The total number of unread notifications for the user.
      */
     public long findUnreadNotificationsByUserID(long userId) {
+        UnreadCounterEntity counters = countUnreadNotifications(userId);
+        return counters.getDirectMessages() + counters.getProjectMessages() + counters.getOther();
+    }
+
+    /**
+     * Counts the unread notifications of a user, the messages are counted by sender.
+     *
+     * @param userId The ID of the user.
+     * @return The counters of the user, not persisted.
+     */
+    public UnreadCounterEntity countUnreadNotifications(long userId) {
         try {
             // Count all notifications of type  MESSAGE_RECEIVED
             Long countNonMessageReceived = em.createNamedQuery("Notification.countUnreadForTypeMessage", Long.class)
@@ -75,8 +158,12 @@ public class NotificationDao extends AbstractDao<NotificationEntity> {
                     .setParameter("userId", userId)
                     .getSingleResult();
 
-            // Sum the results and return the total count
-            return countNonMessageReceived.intValue() + countNonMessageReceivedProject.intValue() + countAllNotificationsExceptMessage.intValue();
+            UnreadCounterEntity counters = new UnreadCounterEntity();
+            counters.setUserId(userId);
+            counters.setDirectMessages(countNonMessageReceived.intValue());
+            counters.setProjectMessages(countNonMessageReceivedProject.intValue());
+            counters.setOther(countAllNotificationsExceptMessage.intValue());
+            return counters;
         } catch (Exception e) {
             throw new RuntimeException("Error counting notifications", e);
         }
@@ -90,26 +177,8 @@ public class NotificationDao extends AbstractDao<NotificationEntity> {
         List<NotificationEntity> notifications = new ArrayList<>();
 
         try {
-            // Initialize a list to combine all notifications before pagination
-            List<NotificationEntity> allNotifications = new ArrayList<>();
-
-            // Get notifications of type MESSAGE_RECEIVED
-            allNotifications.addAll(em.createNamedQuery("Notification.findLatestMessageReceivedByUserID", NotificationEntity.class)
-                    .setParameter("userId", userId)
-                    .getResultList());
-
-            // Get notifications of type MESSAGE_PROJECT
-            allNotifications.addAll(em.createNamedQuery("Notification.findLatestMessageReceivedByProject", NotificationEntity.class)
-                    .setParameter("userId", userId)
-                    .getResultList());
-
-            // Get notifications of all types except MESSAGE_RECEIVED and MESSAGE_PROJECT
-            allNotifications.addAll(em.createNamedQuery("Notification.findAllNotificationsExceptMessageReceived", NotificationEntity.class)
-                    .setParameter("userId", userId)
-                    .getResultList());
-
-            // Sort the notifications by their send timestamp in descending order
-            allNotifications.sort((n1, n2) -> n2.getSendTimestamp().compareTo(n1.getSendTimestamp()));
+            // Combine all notifications, sorted by the last event of the user, before pagination
+            List<NotificationEntity> allNotifications = findAllByLastEvent(userId);
             // Assign allNotifications to notifications to be returned
             notifications = allNotifications;
 
@@ -124,6 +193,39 @@ public class NotificationDao extends AbstractDao<NotificationEntity> {
     }
 
 
+    /**
+     * Finds the notifications of a user to list, the latest message notification of each conversation and all the others,
+     * sorted by the last event of the user in descending order, the one of the recipient when messages were collapsed.
+     *
+     * @param userId The ID of the user.
+     * @return The notifications of the user.
+     */
+    private List<NotificationEntity> findAllByLastEvent(long userId) {
+        List<Object[]> rows = new ArrayList<>();
+
+        // Get notifications of type MESSAGE_RECEIVED
+        rows.addAll(em.createNamedQuery("Notification.findLatestMessageReceivedByUserID", Object[].class)
+                .setParameter("userId", userId)
+                .getResultList());
+
+        // Get notifications of type MESSAGE_PROJECT
+        rows.addAll(em.createNamedQuery("Notification.findLatestMessageReceivedByProject", Object[].class)
+                .setParameter("userId", userId)
+                .getResultList());
+
+        // Get notifications of all types except MESSAGE_RECEIVED and MESSAGE_PROJECT
+        rows.addAll(em.createNamedQuery("Notification.findAllNotificationsExceptMessageReceived", Object[].class)
+                .setParameter("userId", userId)
+                .getResultList());
+
+        rows.sort((r1, r2) -> ((LocalDateTime) r2[1]).compareTo((LocalDateTime) r1[1]));
+        List<NotificationEntity> notifications = new ArrayList<>();
+        for (Object[] row : rows) {
+            notifications.add((NotificationEntity) row[0]);
+        }
+        return notifications;
+    }
+
     /**
      * Finds notifications for a user by their ID.
      *
@@ -137,26 +239,8 @@ public class NotificationDao extends AbstractDao<NotificationEntity> {
         List<NotificationEntity> notifications = new ArrayList<>();
 
         try {
-            // Initialize a list to combine all notifications before pagination
-            List<NotificationEntity> allNotifications = new ArrayList<>();
-
-            // Get notifications of type MESSAGE_RECEIVED
-            allNotifications.addAll(em.createNamedQuery("Notification.findLatestMessageReceivedByUserID", NotificationEntity.class)
-                    .setParameter("userId", userId)
-                    .getResultList());
-
-            // Get notifications of type MESSAGE_PROJECT
-            allNotifications.addAll(em.createNamedQuery("Notification.findLatestMessageReceivedByProject", NotificationEntity.class)
-                    .setParameter("userId", userId)
-                    .getResultList());
-
-            // Get notifications of all types except MESSAGE_RECEIVED and MESSAGE_PROJECT
-            allNotifications.addAll(em.createNamedQuery("Notification.findAllNotificationsExceptMessageReceived", NotificationEntity.class)
-                    .setParameter("userId", userId)
-                    .getResultList());
-
-            // Sort the notifications by their send timestamp in descending order
-            allNotifications.sort((n1, n2) -> n2.getSendTimestamp().compareTo(n1.getSendTimestamp()));
+            // Combine all notifications, sorted by the last event of the user, before pagination
+            List<NotificationEntity> allNotifications = findAllByLastEvent(userId);
 
             // Adjust indices to ensure pagination starts at page 1
             int fromIndex = (page - 1) * size;
@@ -174,6 +258,45 @@ public class NotificationDao extends AbstractDao<NotificationEntity> {
         return notifications;
     }
 
+    /**
+     * Finds the notifications for a user before a position, newest first, for keyset pagination.
+     * As in the pages by number, only the latest message notification of each sender is included.
+     * The notifications are paged by ID, which never changes, so a message collapsed into a notification
+     * between two pages does not move it. The query seeks to the position in the (user_id, notification_id)
+     * index of the recipients and stops after the page, however deep the page is.
+     *
+     * @param userId     The ID of the user.
+     * @param cursor     The position of the last notification of the previous page.
+     * @param maxResults The maximum number of notifications.
+     * @return The notifications, ordered by ID, newest first.
+     */
+    public List<NotificationEntity> findNotificationsByUserIDBefore(long userId, PageCursor cursor, int maxResults) {
+        return em.createNamedQuery("Notification.findBefore", NotificationEntity.class)
+                .setParameter("userId", userId)
+                .setParameter("id", cursor.getId())
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    /**
+     * Fills the last event timestamp of the notifications created before it existed.
+     *
+     * @return The number of notifications changed.
+     */
+    public int fillLastEventAt() {
+        return em.createNamedQuery("Notification.fillLastEventAt").executeUpdate();
+    }
+
+    /**
+     * Sets the sender as the related entity of the direct message notifications created without it, so they are
+     * collapsed and listed by conversation like the new ones.
+     *
+     * @return The number of notifications updated.
+     */
+    public int fillDirectMessagePeer() {
+        return em.createNamedQuery("Notification.fillDirectMessagePeer").executeUpdate();
+    }
+
     /**
      * Finds the total number of notifications for a user by their ID.
      *
@@ -0,0 +1,55 @@
+package aor.paj.proj_final_aor_backend.dao;
+
+import aor.paj.proj_final_aor_backend.entity.NotificationOutboxEntity;
+import jakarta.ejb.Stateless;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * This class represents a Data Access Object (DAO) for NotificationOutboxEntity.
+ */
+@Stateless
+public class NotificationOutboxDao extends AbstractDao<NotificationOutboxEntity> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Default constructor.
+     * Initializes the superclass with NotificationOutboxEntity class type
+     */
+    public NotificationOutboxDao() {
+        super(NotificationOutboxEntity.class);
+    }
+
+    /**
+     * Finds the entries that were not sent yet, in the order they were queued.
+     * Entries whose attempts ran out are not included.
+     *
+     * @param maxResults The maximum number of entries.
+     * @return The pending entries.
+     */
+    public List<NotificationOutboxEntity> findPending(int maxResults) {
+        return em.createNamedQuery("NotificationOutbox.findPending", NotificationOutboxEntity.class)
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    /**
+     * Claims an entry for a node, unless another node holds a claim on it that did not expire.
+     *
+     * @param id    The id of the entry.
+     * @param node  The id of the node.
+     * @param now   The current moment.
+     * @param until Until when the claim holds.
+     * @return The number of entries claimed, 0 if another node holds it or it no longer exists.
+     */
+    public int claim(long id, String node, LocalDateTime now, LocalDateTime until) {
+        return em.createNamedQuery("NotificationOutbox.claim")
+                .setParameter("id", id)
+                .setParameter("node", node)
+                .setParameter("now", now)
+                .setParameter("until", until)
+                .executeUpdate();
+    }
+}
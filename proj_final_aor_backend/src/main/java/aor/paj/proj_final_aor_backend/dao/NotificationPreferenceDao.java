@@ -0,0 +1,57 @@
+package aor.paj.proj_final_aor_backend.dao;
+
+import aor.paj.proj_final_aor_backend.entity.NotificationPreferenceEntity;
+import aor.paj.proj_final_aor_backend.entity.NotificationPreferenceId;
+import jakarta.ejb.Stateless;
+
+import java.util.List;
+
+/**
+ * This class represents a Data Access Object (DAO) for NotificationPreferenceEntity.
+ */
+@Stateless
+public class NotificationPreferenceDao extends AbstractDao<NotificationPreferenceEntity> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Default constructor.
+     * Initializes the superclass with NotificationPreferenceEntity class type
+     */
+    public NotificationPreferenceDao() {
+        super(NotificationPreferenceEntity.class);
+    }
+
+    /**
+     * Finds the preference of a user for a project.
+     *
+     * @param userId    The ID of the user.
+     * @param projectId The ID of the project, 0 for the preference of the user.
+     * @return The preference, or null if the user receives them in real time.
+     */
+    public NotificationPreferenceEntity findPreference(long userId, long projectId) {
+        return em.find(NotificationPreferenceEntity.class, new NotificationPreferenceId(userId, projectId));
+    }
+
+    /**
+     * Finds the preferences of a user.
+     *
+     * @param userId The ID of the user.
+     * @return The preferences, ordered by project.
+     */
+    public List<NotificationPreferenceEntity> findByUser(long userId) {
+        return em.createNamedQuery("NotificationPreference.findByUser", NotificationPreferenceEntity.class)
+                .setParameter("userId", userId)
+                .getResultList();
+    }
+
+    /**
+     * Finds the preferences of all the users, used to load them in memory.
+     *
+     * @return The preferences.
+     */
+    public List<NotificationPreferenceEntity> findAllPreferences() {
+        return em.createNamedQuery("NotificationPreference.findAll", NotificationPreferenceEntity.class)
+                .getResultList();
+    }
+}
@@ -0,0 +1,307 @@
+package aor.paj.proj_final_aor_backend.dao;
+
+import aor.paj.proj_final_aor_backend.entity.NotificationRecipientEntity;
+import jakarta.ejb.Stateless;
+import jakarta.persistence.Query;
+import org.hibernate.Session;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class represents a Data Access Object (DAO) for NotificationRecipientEntity.
+ * The read state of the notifications is changed with bulk updates, without loading the notifications.
+ */
+@Stateless
+public class NotificationRecipientDao extends AbstractDao<NotificationRecipientEntity> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Maximum number of rows written by each insert of recipients.
+     */
+    private static final int RECIPIENTS_PER_INSERT = 500;
+
+    /**
+     * Default constructor.
+     * Initializes the superclass with NotificationRecipientEntity class type
+     */
+    public NotificationRecipientDao() {
+        super(NotificationRecipientEntity.class);
+    }
+
+    /**
+     * Adds the recipients of a notification, as unread.
+     * The rows are inserted in multi-row statements, instead of loading and updating every user.
+     *
+     * @param notificationId The ID of the notification.
+     * @param userIds        The IDs of the recipients.
+     * @return The number of rows inserted.
+     */
+    public int addRecipients(long notificationId, List<Long> userIds) {
+        int inserted = 0;
+        for (int from = 0; from < userIds.size(); from += RECIPIENTS_PER_INSERT) {
+            List<Long> chunk = userIds.subList(from, Math.min(from + RECIPIENTS_PER_INSERT, userIds.size()));
+
+            StringBuilder sql = new StringBuilder("INSERT INTO notification_recipient (notification_id, user_id, aggregate_count) VALUES ");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "(?, ?, 1)" : ", (?, ?, 1)");
+            }
+            Query query = em.createNativeQuery(sql.toString());
+            int position = 1;
+            for (Long userId : chunk) {
+                query.setParameter(position++, notificationId);
+                query.setParameter(position++, userId);
+            }
+            inserted += query.executeUpdate();
+        }
+        return inserted;
+    }
+
+    /**
+     * Marks a notification of a user as read.
+     *
+     * @param notificationId The ID of the notification.
+     * @param userId         The ID of the user.
+     * @param readAt         The moment when it was read.
+     * @return The number of notifications marked as read, 0 if it was already read or the user did not receive it.
+     */
+    public int markRead(long notificationId, long userId, LocalDateTime readAt) {
+        return em.createNamedQuery("NotificationRecipient.markRead")
+                .setParameter("notificationId", notificationId)
+                .setParameter("userId", userId)
+                .setParameter("readAt", readAt)
+                .executeUpdate();
+    }
+
+    /**
+     * Marks all the notifications of a user as read.
+     *
+     * @param userId The ID of the user.
+     * @param readAt The moment when they were read.
+     * @return The number of notifications marked as read.
+     */
+    public int markAllRead(long userId, LocalDateTime readAt) {
+        return em.createNamedQuery("NotificationRecipient.markAllRead")
+                .setParameter("userId", userId)
+                .setParameter("readAt", readAt)
+                .executeUpdate();
+    }
+
+    /**
+     * Marks the notifications of a user with some types as read.
+     *
+     * @param userId The ID of the user.
+     * @param types  The types of the notifications.
+     * @param readAt The moment when they were read.
+     * @return The number of notifications marked as read.
+     */
+    public int markReadByTypes(long userId, Collection<String> types, LocalDateTime readAt) {
+        return em.createNamedQuery("NotificationRecipient.markReadByTypes")
+                .setParameter("userId", userId)
+                .setParameter("types", types)
+                .setParameter("readAt", readAt)
+                .executeUpdate();
+    }
+
+    /**
+     * Marks the notifications of a user with a type about an entity as read.
+     *
+     * @param userId          The ID of the user.
+     * @param type            The type of the notifications.
+     * @param relatedEntityId The ID of the entity, the peer for direct messages.
+     * @param readAt          The moment when they were read.
+     * @return The number of notifications marked as read.
+     */
+    public int markReadAbout(long userId, String type, long relatedEntityId, LocalDateTime readAt) {
+        return em.createNamedQuery("NotificationRecipient.markReadAbout")
+                .setParameter("userId", userId)
+                .setParameter("type", type)
+                .setParameter("relatedEntityId", relatedEntityId)
+                .setParameter("readAt", readAt)
+                .executeUpdate();
+    }
+
+    /**
+     * Finds which of some users have not read a notification.
+     *
+     * @param notificationId The ID of the notification.
+     * @param userIds        The IDs of the users.
+     * @return The IDs of the users that received the notification and did not read it.
+     */
+    public Set<Long> findUnreadRecipients(long notificationId, Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(em.createNamedQuery("NotificationRecipient.findUnreadRecipients", Long.class)
+                .setParameter("notificationId", notificationId)
+                .setParameter("userIds", userIds)
+                .getResultList());
+    }
+
+    /**
+     * Finds the latest unread notification of each user where a new message can be collapsed,
+     * the one of the same type and related entity, whoever sent it.
+     *
+     * @param type            The type of the notification.
+     * @param relatedEntityId The ID of the related entity, the peer for direct messages or the project for project chats.
+     * @param userIds         The IDs of the users.
+     * @return The ID of the notification of each user that has one.
+     */
+    public Map<Long, Long> findAggregates(String type, long relatedEntityId, Collection<Long> userIds) {
+        Map<Long, Long> aggregates = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return aggregates;
+        }
+        List<Object[]> rows = em.createNamedQuery("NotificationRecipient.findAggregates", Object[].class)
+                .setParameter("userIds", userIds)
+                .setParameter("type", type)
+                .setParameter("relatedEntityId", relatedEntityId)
+                .getResultList();
+        for (Object[] row : rows) {
+            aggregates.put((Long) row[0], (Long) row[1]);
+        }
+        return aggregates;
+    }
+
+    /**
+     * Collapses a new event into a notification for some users, incrementing their count and moving their last event
+     * timestamp and sender. The users that read the notification meanwhile are left unchanged.
+     *
+     * @param notificationId The ID of the notification.
+     * @param userIds        The IDs of the users.
+     * @param lastEventAt    The timestamp of the event.
+     * @param senderId       The ID of the sender of the event.
+     * @return The number of users that got the event.
+     */
+    public int addEvent(long notificationId, Collection<Long> userIds, LocalDateTime lastEventAt, long senderId) {
+        return em.createNamedQuery("NotificationRecipient.addEvent")
+                .setParameter("notificationId", notificationId)
+                .setParameter("userIds", userIds)
+                .setParameter("lastEventAt", lastEventAt)
+                .setParameter("senderId", senderId)
+                .executeUpdate();
+    }
+
+    /**
+     * Finds the recipient rows of a user for some notifications, with the read state and the collapsed events.
+     *
+     * @param userId          The ID of the user.
+     * @param notificationIds The IDs of the notifications.
+     * @return The recipient rows, by the ID of the notification.
+     */
+    public Map<Long, NotificationRecipientEntity> findByUserAndNotifications(long userId, Collection<Long> notificationIds) {
+        Map<Long, NotificationRecipientEntity> recipients = new HashMap<>();
+        if (notificationIds.isEmpty()) {
+            return recipients;
+        }
+        List<NotificationRecipientEntity> rows = em.createNamedQuery("NotificationRecipient.findByUserAndNotifications", NotificationRecipientEntity.class)
+                .setParameter("userId", userId)
+                .setParameter("notificationIds", notificationIds)
+                .getResultList();
+        for (NotificationRecipientEntity recipient : rows) {
+            recipients.put(recipient.getNotification().getId(), recipient);
+        }
+        return recipients;
+    }
+
+    /**
+     * Finds which of some users already have unread notifications of a type about a conversation.
+     *
+     * @param type            The type of the notifications.
+     * @param relatedEntityId The ID of the related entity, the peer for direct messages or the project for project chats.
+     * @param userIds         The IDs of the users.
+     * @return The IDs of the users with unread notifications.
+     */
+    public Set<Long> findUsersWithUnreadAbout(String type, long relatedEntityId, Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(em.createNamedQuery("NotificationRecipient.findUsersWithUnreadAbout", Long.class)
+                .setParameter("userIds", userIds)
+                .setParameter("type", type)
+                .setParameter("relatedEntityId", relatedEntityId)
+                .getResultList());
+    }
+
+    /**
+     * Deletes the recipients of some notifications.
+     *
+     * @param notificationIds The IDs of the notifications.
+     * @return The number of recipients deleted.
+     */
+    public int deleteByNotificationIds(Collection<Long> notificationIds) {
+        return em.createNamedQuery("NotificationRecipient.deleteByNotificationIds")
+                .setParameter("ids", notificationIds)
+                .executeUpdate();
+    }
+
+    /**
+     * Copies the receivers of the notifications created before the recipient table existed, with their read state.
+     * It only runs while the old user_notification table exists and the recipient table is empty.
+     *
+     * @return The number of recipients copied.
+     */
+    public int copyFromUserNotifications() {
+        if (!userNotificationsExist()) {
+            return 0;
+        }
+        Long recipients = em.createNamedQuery("NotificationRecipient.count", Long.class).getSingleResult();
+        if (recipients > 0) {
+            return 0;
+        }
+        return em.createNativeQuery("INSERT INTO notification_recipient (notification_id, user_id, aggregate_count, read_at) " +
+                "SELECT un.notification_id, un.receiver_id, 1, " +
+                "CASE WHEN n.readStatus = TRUE THEN COALESCE(n.readTimestamp, n.sendTimestamp) END " +
+                "FROM user_notification un JOIN notifications n ON n.id = un.notification_id")
+                .executeUpdate();
+    }
+
+    /**
+     * Counts the rows of the old user_notification table without a matching recipient,
+     * the receivers that would be lost if the table was dropped.
+     *
+     * @return The number of rows without a recipient.
+     */
+    public long countUnmatchedUserNotifications() {
+        return ((Number) em.createNativeQuery("SELECT COUNT(*) FROM user_notification un WHERE NOT EXISTS (" +
+                "SELECT 1 FROM notification_recipient r WHERE r.notification_id = un.notification_id AND r.user_id = un.receiver_id)")
+                .getSingleResult()).longValue();
+    }
+
+    /**
+     * Drops the old user_notification table.
+     * It must run in a transaction of its own, because MySQL commits DDL statements, and only after
+     * checking that every row has a matching recipient, see countUnmatchedUserNotifications.
+     */
+    public void dropUserNotifications() {
+        em.createNativeQuery("DROP TABLE user_notification").executeUpdate();
+    }
+
+    /**
+     * Checks if the old user_notification table still exists, it is no longer mapped and new databases do not have it.
+     *
+     * @return True if the table exists.
+     */
+    public boolean userNotificationsExist() {
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            // H2 keeps the names in upper case
+            for (String name : new String[]{"user_notification", "USER_NOTIFICATION"}) {
+                try (ResultSet tables = metaData.getTables(connection.getCatalog(), null, name, new String[]{"TABLE"})) {
+                    if (tables.next()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        });
+    }
+}
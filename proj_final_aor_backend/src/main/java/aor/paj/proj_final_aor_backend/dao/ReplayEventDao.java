@@ -0,0 +1,88 @@
+package aor.paj.proj_final_aor_backend.dao;
+
+import aor.paj.proj_final_aor_backend.entity.ReplayEventEntity;
+import jakarta.ejb.Stateless;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The ReplayEventDao class provides data access operations for the ReplayEventEntity.
+ * It extends the AbstractDao class, inheriting common data access operations.
+ */
+@Stateless
+public class ReplayEventDao extends AbstractDao<ReplayEventEntity> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Default constructor.
+     * Calls the superclass constructor with ReplayEventEntity class as the parameter.
+     */
+    public ReplayEventDao() {
+        super(ReplayEventEntity.class);
+    }
+
+    /**
+     * Saves a group of events in a single transaction.
+     *
+     * @param events the events to save
+     */
+    public void persistAll(List<ReplayEventEntity> events) {
+        for (ReplayEventEntity event : events) {
+            em.persist(event);
+        }
+    }
+
+    /**
+     * Finds the events of a user after a sequence number, in order.
+     *
+     * @param userId the id of the user
+     * @param seq    the last sequence number received by the user
+     * @return the events after the sequence number, or an empty list
+     */
+    public List<ReplayEventEntity> findAfterSeq(long userId, long seq) {
+        try {
+            return em.createNamedQuery("ReplayEvent.findAfterSeq", ReplayEventEntity.class)
+                    .setParameter("userId", userId)
+                    .setParameter("seq", seq)
+                    .getResultList();
+        } catch (Exception e) {
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Finds the highest sequence number saved for a user.
+     *
+     * @param userId the id of the user
+     * @return the highest sequence number, or 0 if there are no events
+     */
+    public long findMaxSeq(long userId) {
+        try {
+            Long max = em.createNamedQuery("ReplayEvent.findMaxSeq", Long.class)
+                    .setParameter("userId", userId)
+                    .getSingleResult();
+            return max == null ? 0 : max;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Deletes the events saved before a date.
+     *
+     * @param date the date
+     * @return the number of deleted events
+     */
+    public int deleteOlderThan(LocalDateTime date) {
+        try {
+            return em.createNamedQuery("ReplayEvent.deleteOlderThan")
+                    .setParameter("date", date)
+                    .executeUpdate();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package aor.paj.proj_final_aor_backend.dao;
+
+import aor.paj.proj_final_aor_backend.dto.UnreadCounters;
+import aor.paj.proj_final_aor_backend.entity.UnreadCounterEntity;
+import aor.paj.proj_final_aor_backend.util.enums.UnreadCounterType;
+import jakarta.ejb.Stateless;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.persistence.PersistenceException;
+
+import java.util.List;
+
+/**
+ * This class represents a Data Access Object (DAO) for UnreadCounterEntity.
+ * The counters are changed with update statements, so concurrent notifications never overwrite each other.
+ */
+@Stateless
+public class UnreadCounterDao extends AbstractDao<UnreadCounterEntity> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Maximum number of users changed by each update.
+     */
+    private static final int USERS_PER_UPDATE = 500;
+
+    /**
+     * Default constructor.
+     * Initializes the superclass with UnreadCounterEntity class type
+     */
+    public UnreadCounterDao() {
+        super(UnreadCounterEntity.class);
+    }
+
+    /**
+     * Finds the counters of a user.
+     *
+     * @param userId The ID of the user.
+     * @return The counters, or null if they were not created yet.
+     */
+    public UnreadCounterEntity findByUserId(long userId) {
+        return em.find(UnreadCounterEntity.class, userId);
+    }
+
+    /**
+     * Saves the counters of a user seen for the first time, unless another request already saved them.
+     * The insert runs in its own transaction, so a duplicate key only undoes this insert.
+     *
+     * @param counters The counters to save.
+     * @return True if the counters were saved, false if the user already had counters.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public boolean insertIfAbsent(UnreadCounterEntity counters) {
+        try {
+            em.persist(counters);
+            em.flush();
+            return true;
+        } catch (PersistenceException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Increments one of the counters of some users, the users without counters are ignored.
+     *
+     * @param counter The counter to increment.
+     * @param userIds The IDs of the users.
+     */
+    public void increment(UnreadCounterType counter, List<Long> userIds) {
+        for (int from = 0; from < userIds.size(); from += USERS_PER_UPDATE) {
+            em.createNamedQuery(counter.getIncrementQuery())
+                    .setParameter("userIds", userIds.subList(from, Math.min(from + USERS_PER_UPDATE, userIds.size())))
+                    .executeUpdate();
+        }
+    }
+
+    /**
+     * Decrements the counter of the direct messages of a user, after a conversation was read.
+     *
+     * @param userId The ID of the user.
+     */
+    public void decrementDirectMessages(long userId) {
+        em.createNamedQuery("UnreadCounter.decrementDirectMessages")
+                .setParameter("userId", userId)
+                .executeUpdate();
+    }
+
+    /**
+     * Decrements the counter of the other notifications of a user.
+     *
+     * @param userId The ID of the user.
+     */
+    public void decrementOther(long userId) {
+        em.createNamedQuery("UnreadCounter.decrementOther")
+                .setParameter("userId", userId)
+                .executeUpdate();
+    }
+
+    /**
+     * Clears the message counters of a user.
+     *
+     * @param userId The ID of the user.
+     */
+    public void clearMessages(long userId) {
+        em.createNamedQuery("UnreadCounter.clearMessages")
+                .setParameter("userId", userId)
+                .executeUpdate();
+    }
+
+    /**
+     * Clears all the counters of a user.
+     *
+     * @param userId The ID of the user.
+     */
+    public void clearAll(long userId) {
+        em.createNamedQuery("UnreadCounter.clearAll")
+                .setParameter("userId", userId)
+                .executeUpdate();
+    }
+
+    /**
+     * Replaces the counters of a user with the ones counted again, unless they changed since they were read.
+     *
+     * @param userId   The ID of the user.
+     * @param version  The version of the counters when they were read.
+     * @param counters The counters counted again.
+     * @return True if the counters were replaced, false if they changed meanwhile.
+     */
+    public boolean reconcile(long userId, long version, UnreadCounters counters) {
+        return em.createNamedQuery("UnreadCounter.reconcile")
+                .setParameter("directMessages", counters.getDirectMessages())
+                .setParameter("projectMessages", counters.getProjectMessages())
+                .setParameter("other", counters.getOther())
+                .setParameter("userId", userId)
+                .setParameter("version", version)
+                .executeUpdate() > 0;
+    }
+
+    /**
+     * Finds the IDs of the users whose counters are flagged to be counted again.
+     *
+     * @return The IDs of the users.
+     */
+    public List<Long> findDirtyUserIds() {
+        return em.createNamedQuery("UnreadCounter.findDirtyUserIds", Long.class).getResultList();
+    }
+}
@@ -1,9 +1,12 @@
 package aor.paj.proj_final_aor_backend.dao;
 
+import aor.paj.proj_final_aor_backend.dto.MessageInfoUser;
 import aor.paj.proj_final_aor_backend.entity.UserEntity;
 import jakarta.ejb.Stateless;
 import jakarta.persistence.NoResultException;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -66,6 +69,30 @@ public class UserDao extends AbstractDao<UserEntity> {
         }
     }
 
+    /**
+     * Method to find the ids of all active users except one.
+     * Only the ids are loaded, so it is cheap even with thousands of users.
+     *
+     * @param userId the id of the user to leave out.
+     * @return the ids of the active users.
+     */
+    public List<Long> findActiveUserIdsExcept(long userId) {
+        return em.createNamedQuery("User.findActiveUserIdsExcept", Long.class).setParameter("userId", userId).getResultList();
+    }
+
+    /**
+     * Method to find the id, name and photo of some users with a single query.
+     *
+     * @param ids the ids of the users.
+     * @return the cards of the users found.
+     */
+    public List<MessageInfoUser> findUserCardsByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return em.createNamedQuery("User.findCardsByIds", MessageInfoUser.class).setParameter("ids", ids).getResultList();
+    }
+
     /**
      * Method to find a user by their nickname.
      *
@@ -2,6 +2,7 @@ package aor.paj.proj_final_aor_backend.dao;
 
 import aor.paj.proj_final_aor_backend.entity.UserEntity;
 import aor.paj.proj_final_aor_backend.entity.UserProjectEntity;
+import aor.paj.proj_final_aor_backend.util.PageCursor;
 import jakarta.ejb.Stateless;
 
 import java.util.ArrayList;
@@ -84,6 +85,21 @@ public class UserProjectDao extends AbstractDao<UserProjectEntity>{
         }
     }
 
+    /**
+     * Finds the IDs of the projects where a user is an active member.
+     * This method uses a named query "UserProject.findActiveProjectIdsByUserId" to find the project IDs.
+     *
+     * @param id The ID of the user.
+     * @return A list with the IDs of the active projects of the user. Returns an empty list if no match is found or an exception occurs.
+     */
+    public List<Long> findActiveProjectIdsByUserId(Long id) {
+        try {
+            return em.createNamedQuery("UserProject.findActiveProjectIdsByUserId", Long.class).setParameter("id", id).getResultList();
+        } catch (Exception e) {
+            return new ArrayList<>();
+        }
+    }
+
     /**
      * Finds the UserProjectEntity instance associated with a specific project ID that represents the project creator.
      * This method uses a named query "UserProject.findProjectCreator" to find the UserProjectEntity instance.
@@ -115,6 +131,23 @@ public class UserProjectDao extends AbstractDao<UserProjectEntity>{
         }
     }
 
+    /**
+     * Moves the position a user read the chat of a project up to, it never moves back.
+     *
+     * @param projectId The ID of the project.
+     * @param userId The ID of the user.
+     * @param cursor The position of the last message read.
+     * @return True if the position moved.
+     */
+    public boolean markChatRead(long projectId, long userId, PageCursor cursor) {
+        return em.createNamedQuery("UserProject.markChatRead")
+                .setParameter("timestamp", cursor.getTimestamp())
+                .setParameter("id", cursor.getId())
+                .setParameter("projectId", projectId)
+                .setParameter("userId", userId)
+                .executeUpdate() > 0;
+    }
+
     /**
      * Finds all UserEntity instances associated with a specific project ID that are not approved.
      * This method uses a named query "UserProject.findUsersInProjectNotApproved" to find the UserEntity instances.
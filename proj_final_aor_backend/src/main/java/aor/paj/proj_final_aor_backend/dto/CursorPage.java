@@ -0,0 +1,63 @@
+package aor.paj.proj_final_aor_backend.dto;
+
+import java.util.List;
+
+/**
+ * A page of a list read with keyset pagination, with the cursor of the next page.
+ *
+ * @param <T> The type of the items.
+ */
+public class CursorPage<T> {
+
+    private List<T> items;
+    private String nextCursor;
+    private String latestCursor;
+
+    public CursorPage() {
+    }
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public CursorPage(List<T> items, String nextCursor, String latestCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.latestCursor = latestCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    /**
+     * Returns the cursor of the next page.
+     *
+     * @return The cursor, or null if this is the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Returns the cursor of the newest item, used to fetch the items added after it, when the list supports it.
+     *
+     * @return The cursor, or null if the list does not support it or there are no items.
+     */
+    public String getLatestCursor() {
+        return latestCursor;
+    }
+
+    public void setLatestCursor(String latestCursor) {
+        this.latestCursor = latestCursor;
+    }
+}
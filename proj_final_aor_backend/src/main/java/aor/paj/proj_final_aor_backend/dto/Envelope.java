@@ -0,0 +1,131 @@
+package aor.paj.proj_final_aor_backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+
+/**
+ * This class represents a frame of the multiplexed websocket protocol.
+ * It has the channel of the event, its type and the payload.
+ * Clients send envelopes of type "subscribe" or "unsubscribe" to choose the channels they listen to.
+ * Events sent to the client carry a sequence number, that only grows, used to resume after a reconnect.
+ */
+@XmlRootElement
+public class Envelope {
+
+    /**
+     * The sequence number of the event in the stream of the user, absent in replies and in client envelopes.
+     */
+    @XmlElement
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long seq;
+
+    /**
+     * The channel of the envelope, for example "notifications" or "project:1:chat".
+     */
+    @XmlElement
+    private String channel;
+
+    /**
+     * The type of the envelope, for example "notification", "message" or "subscribe".
+     */
+    @XmlElement
+    private String type;
+
+    /**
+     * The content of the envelope.
+     */
+    @XmlElement
+    private Object payload;
+
+    /**
+     * Default constructor of the class.
+     */
+    public Envelope() {
+    }
+
+    /**
+     * Constructor with all the fields of the envelope.
+     *
+     * @param channel the channel of the envelope.
+     * @param type    the type of the envelope.
+     * @param payload the content of the envelope.
+     */
+    public Envelope(String channel, String type, Object payload) {
+        this.channel = channel;
+        this.type = type;
+        this.payload = payload;
+    }
+
+    /**
+     * Gets the sequence number of the envelope.
+     *
+     * @return the sequence number of the envelope.
+     */
+    public Long getSeq() {
+        return seq;
+    }
+
+    /**
+     * Sets the sequence number of the envelope.
+     *
+     * @param seq the sequence number of the envelope.
+     */
+    public void setSeq(Long seq) {
+        this.seq = seq;
+    }
+
+    /**
+     * Gets the channel of the envelope.
+     *
+     * @return the channel of the envelope.
+     */
+    public String getChannel() {
+        return channel;
+    }
+
+    /**
+     * Sets the channel of the envelope.
+     *
+     * @param channel the channel of the envelope.
+     */
+    public void setChannel(String channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Gets the type of the envelope.
+     *
+     * @return the type of the envelope.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Sets the type of the envelope.
+     *
+     * @param type the type of the envelope.
+     */
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    /**
+     * Gets the content of the envelope.
+     *
+     * @return the content of the envelope.
+     */
+    public Object getPayload() {
+        return payload;
+    }
+
+    /**
+     * Sets the content of the envelope.
+     *
+     * @param payload the content of the envelope.
+     */
+    public void setPayload(Object payload) {
+        this.payload = payload;
+    }
+}
@@ -3,6 +3,8 @@ package aor.paj.proj_final_aor_backend.dto;
 import jakarta.xml.bind.annotation.XmlElement;
 import jakarta.xml.bind.annotation.XmlRootElement;
 
+import java.time.LocalDateTime;
+
 /**
  * This class is responsible for handling the business logic for the MessageInfoUser entity.
  * It is responsible for creating, deleting and associating MessageInfoUser to users.
@@ -33,9 +35,48 @@ public class MessageInfoUser {
     @XmlElement
     private String photo;
 
+    /**
+     * Id of the last message exchanged with the user, only in the conversation list.
+     */
+    @XmlElement
+    private Long lastMessageId;
+
+    /**
+     * Beginning of the last message exchanged with the user, only in the conversation list.
+     */
+    @XmlElement
+    private String lastMessagePreview;
+
+    /**
+     * When the last message exchanged with the user was sent, only in the conversation list.
+     */
+    @XmlElement
+    private LocalDateTime lastMessageAt;
+
+    /**
+     * Number of messages from the user that were not read, only in the conversation list.
+     */
+    @XmlElement
+    private int unreadCount;
+
     public MessageInfoUser() {
     }
 
+    /**
+     * Constructor with all the fields, used to load the users directly from a query.
+     *
+     * @param id        - The id of the user.
+     * @param firstName - The first name of the user.
+     * @param lastName  - The last name of the user.
+     * @param photo     - The photo of the user.
+     */
+    public MessageInfoUser(long id, String firstName, String lastName, String photo) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.photo = photo;
+    }
+
     /**
      * Getter for the 'id' field.
      *
@@ -108,4 +149,76 @@ public class MessageInfoUser {
     public void setPhoto(String photo) {
         this.photo = photo;
     }
+
+    /**
+     * Getter for the 'lastMessageId' field.
+     *
+     * @return Long - The id of the last message.
+     */
+    public Long getLastMessageId() {
+        return lastMessageId;
+    }
+
+    /**
+     * Setter for the 'lastMessageId' field.
+     *
+     * @param lastMessageId - The new value, the id of the last message.
+     */
+    public void setLastMessageId(Long lastMessageId) {
+        this.lastMessageId = lastMessageId;
+    }
+
+    /**
+     * Getter for the 'lastMessagePreview' field.
+     *
+     * @return String - The preview of the last message.
+     */
+    public String getLastMessagePreview() {
+        return lastMessagePreview;
+    }
+
+    /**
+     * Setter for the 'lastMessagePreview' field.
+     *
+     * @param lastMessagePreview - The new value, the preview of the last message.
+     */
+    public void setLastMessagePreview(String lastMessagePreview) {
+        this.lastMessagePreview = lastMessagePreview;
+    }
+
+    /**
+     * Getter for the 'lastMessageAt' field.
+     *
+     * @return LocalDateTime - The send timestamp of the last message.
+     */
+    public LocalDateTime getLastMessageAt() {
+        return lastMessageAt;
+    }
+
+    /**
+     * Setter for the 'lastMessageAt' field.
+     *
+     * @param lastMessageAt - The new value, the send timestamp of the last message.
+     */
+    public void setLastMessageAt(LocalDateTime lastMessageAt) {
+        this.lastMessageAt = lastMessageAt;
+    }
+
+    /**
+     * Getter for the 'unreadCount' field.
+     *
+     * @return int - The number of unread messages.
+     */
+    public int getUnreadCount() {
+        return unreadCount;
+    }
+
+    /**
+     * Setter for the 'unreadCount' field.
+     *
+     * @param unreadCount - The new value, the number of unread messages.
+     */
+    public void setUnreadCount(int unreadCount) {
+        this.unreadCount = unreadCount;
+    }
 }
@@ -0,0 +1,87 @@
+package aor.paj.proj_final_aor_backend.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * A message found by a search, with the part of its content around the first term found.
+ * Direct messages have a receiver, project messages a project.
+ */
+public class MessageSearchHit {
+
+    private long id;
+    private MessageInfoUser sender;
+    private Long receiverId;
+    private Long projectId;
+    private LocalDateTime sendTimestamp;
+    private String snippet;
+    private int score;
+
+    public MessageSearchHit() {
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public MessageInfoUser getSender() {
+        return sender;
+    }
+
+    public void setSender(MessageInfoUser sender) {
+        this.sender = sender;
+    }
+
+    public Long getReceiverId() {
+        return receiverId;
+    }
+
+    public void setReceiverId(Long receiverId) {
+        this.receiverId = receiverId;
+    }
+
+    public Long getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(Long projectId) {
+        this.projectId = projectId;
+    }
+
+    public LocalDateTime getSendTimestamp() {
+        return sendTimestamp;
+    }
+
+    public void setSendTimestamp(LocalDateTime sendTimestamp) {
+        this.sendTimestamp = sendTimestamp;
+    }
+
+    /**
+     * Returns the part of the content around the first term found.
+     *
+     * @return The snippet.
+     */
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public void setSnippet(String snippet) {
+        this.snippet = snippet;
+    }
+
+    /**
+     * Returns the number of terms of the search found in the message, the results with more terms come first.
+     *
+     * @return The score.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    public void setScore(int score) {
+        this.score = score;
+    }
+}
@@ -6,6 +6,8 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.xml.bind.annotation.XmlElement;
 import jakarta.xml.bind.annotation.XmlRootElement;
 
+import java.time.LocalDateTime;
+
 
 /**
  * This class represents a notification, which extends a TextEvent.
@@ -27,6 +29,17 @@ public class Notification extends TextEvent {
     @XmlElement
     private long relatedIDEntity;
 
+    /**
+     * The number of events collapsed into the notification.
+     */
+    @XmlElement
+    private int count;
+
+    /**
+     * The time of the last event collapsed into the notification.
+     */
+    @XmlElement
+    private LocalDateTime lastEventAt;
 
 
     /**
@@ -72,5 +85,41 @@ public class Notification extends TextEvent {
         this.relatedIDEntity = relatedIDEntity;
     }
 
+    /**
+     * Returns the number of events collapsed into the notification.
+     *
+     * @return the number of events.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Sets the number of events collapsed into the notification.
+     *
+     * @param count the number of events.
+     */
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    /**
+     * Returns the time of the last event collapsed into the notification.
+     *
+     * @return the time of the last event.
+     */
+    public LocalDateTime getLastEventAt() {
+        return lastEventAt;
+    }
+
+    /**
+     * Sets the time of the last event collapsed into the notification.
+     *
+     * @param lastEventAt the time of the last event.
+     */
+    public void setLastEventAt(LocalDateTime lastEventAt) {
+        this.lastEventAt = lastEventAt;
+    }
+
 
 }
@@ -0,0 +1,36 @@
+package aor.paj.proj_final_aor_backend.dto;
+
+import aor.paj.proj_final_aor_backend.util.enums.NotificationDelivery;
+
+/**
+ * How a user wants to receive notifications, for all of them (project 0) or for the ones about a project.
+ */
+public class NotificationPreference {
+
+    private long projectId;
+    private NotificationDelivery delivery;
+
+    public NotificationPreference() {
+    }
+
+    public NotificationPreference(long projectId, NotificationDelivery delivery) {
+        this.projectId = projectId;
+        this.delivery = delivery;
+    }
+
+    public long getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(long projectId) {
+        this.projectId = projectId;
+    }
+
+    public NotificationDelivery getDelivery() {
+        return delivery;
+    }
+
+    public void setDelivery(NotificationDelivery delivery) {
+        this.delivery = delivery;
+    }
+}
@@ -0,0 +1,64 @@
+package aor.paj.proj_final_aor_backend.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Tells the other side of a conversation, or the other members of a project chat, that a user read the messages
+ * up to a position. Direct conversations have the peer, project chats the project.
+ */
+public class ReadReceipt {
+
+    private long readerId;
+    private Long peerId;
+    private Long projectId;
+    private String upTo;
+    private LocalDateTime readAt;
+
+    public ReadReceipt() {
+    }
+
+    public long getReaderId() {
+        return readerId;
+    }
+
+    public void setReaderId(long readerId) {
+        this.readerId = readerId;
+    }
+
+    public Long getPeerId() {
+        return peerId;
+    }
+
+    public void setPeerId(Long peerId) {
+        this.peerId = peerId;
+    }
+
+    public Long getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(Long projectId) {
+        this.projectId = projectId;
+    }
+
+    /**
+     * Returns the cursor of the last message read, null when every message sent until readAt was read.
+     *
+     * @return The cursor.
+     */
+    public String getUpTo() {
+        return upTo;
+    }
+
+    public void setUpTo(String upTo) {
+        this.upTo = upTo;
+    }
+
+    public LocalDateTime getReadAt() {
+        return readAt;
+    }
+
+    public void setReadAt(LocalDateTime readAt) {
+        this.readAt = readAt;
+    }
+}
@@ -0,0 +1,107 @@
+package aor.paj.proj_final_aor_backend.dto;
+
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents a group of task changes of a project, sent together through the websocket.
+ * Each change has the id of the task and only the fields that changed since the previous batch,
+ * or every field of the task when the batch is whole.
+ */
+@XmlRootElement
+public class TaskBatch {
+
+    /**
+     * The id of the project of the tasks.
+     */
+    @XmlElement
+    private long projectId;
+
+    /**
+     * The changed fields of each task, always with the id of the task.
+     */
+    @XmlElement
+    private List<Map<String, Object>> tasks;
+
+    /**
+     * True if each change is the whole task, which replaces the task unless its update date is older.
+     */
+    @XmlElement
+    private boolean whole;
+
+    /**
+     * Default constructor of the class.
+     */
+    public TaskBatch() {
+    }
+
+    /**
+     * Constructor with all the fields of the batch.
+     *
+     * @param projectId the id of the project of the tasks.
+     * @param tasks     the changed fields of each task.
+     * @param whole     true if each change is the whole task.
+     */
+    public TaskBatch(long projectId, List<Map<String, Object>> tasks, boolean whole) {
+        this.projectId = projectId;
+        this.tasks = tasks;
+        this.whole = whole;
+    }
+
+    /**
+     * Gets the id of the project of the tasks.
+     *
+     * @return the id of the project.
+     */
+    public long getProjectId() {
+        return projectId;
+    }
+
+    /**
+     * Sets the id of the project of the tasks.
+     *
+     * @param projectId the id of the project.
+     */
+    public void setProjectId(long projectId) {
+        this.projectId = projectId;
+    }
+
+    /**
+     * Gets the changed fields of each task.
+     *
+     * @return the changes of the tasks.
+     */
+    public List<Map<String, Object>> getTasks() {
+        return tasks;
+    }
+
+    /**
+     * Sets the changed fields of each task.
+     *
+     * @param tasks the changes of the tasks.
+     */
+    public void setTasks(List<Map<String, Object>> tasks) {
+        this.tasks = tasks;
+    }
+
+    /**
+     * Tells if each change is the whole task.
+     *
+     * @return true if the changes are whole tasks.
+     */
+    public boolean isWhole() {
+        return whole;
+    }
+
+    /**
+     * Sets if each change is the whole task.
+     *
+     * @param whole true if the changes are whole tasks.
+     */
+    public void setWhole(boolean whole) {
+        this.whole = whole;
+    }
+}
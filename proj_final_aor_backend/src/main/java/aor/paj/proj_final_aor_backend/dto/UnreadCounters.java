@@ -0,0 +1,61 @@
+package aor.paj.proj_final_aor_backend.dto;
+
+/**
+ * Unread notification counters of a user, shown in the header badge.
+ */
+public class UnreadCounters {
+
+    private int directMessages;
+    private int projectMessages;
+    private int other;
+
+    public UnreadCounters() {
+    }
+
+    public UnreadCounters(int directMessages, int projectMessages, int other) {
+        this.directMessages = directMessages;
+        this.projectMessages = projectMessages;
+        this.other = other;
+    }
+
+    public int getDirectMessages() {
+        return directMessages;
+    }
+
+    public void setDirectMessages(int directMessages) {
+        this.directMessages = directMessages;
+    }
+
+    public int getProjectMessages() {
+        return projectMessages;
+    }
+
+    public void setProjectMessages(int projectMessages) {
+        this.projectMessages = projectMessages;
+    }
+
+    public int getOther() {
+        return other;
+    }
+
+    public void setOther(int other) {
+        this.other = other;
+    }
+
+    public int getTotal() {
+        return directMessages + projectMessages + other;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        UnreadCounters that = (UnreadCounters) o;
+        return directMessages == that.directMessages && projectMessages == that.projectMessages && other == that.other;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * directMessages + projectMessages) + other;
+    }
+}
@@ -0,0 +1,101 @@
+package aor.paj.proj_final_aor_backend.dto;
+
+/**
+ * Snapshot of the outbound websocket queues, used to watch for slow clients.
+ */
+public class WebsocketStats {
+
+    private int openSessions;
+    private long queuedMessages;
+    private int maxQueueDepth;
+    private long enqueued;
+    private long sent;
+    private long dropped;
+    private long coalesced;
+    private long failed;
+    private long evicted;
+    private long heapUsedBytes;
+
+    public WebsocketStats() {
+    }
+
+    public int getOpenSessions() {
+        return openSessions;
+    }
+
+    public void setOpenSessions(int openSessions) {
+        this.openSessions = openSessions;
+    }
+
+    public long getQueuedMessages() {
+        return queuedMessages;
+    }
+
+    public void setQueuedMessages(long queuedMessages) {
+        this.queuedMessages = queuedMessages;
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    public void setMaxQueueDepth(int maxQueueDepth) {
+        this.maxQueueDepth = maxQueueDepth;
+    }
+
+    public long getEnqueued() {
+        return enqueued;
+    }
+
+    public void setEnqueued(long enqueued) {
+        this.enqueued = enqueued;
+    }
+
+    public long getSent() {
+        return sent;
+    }
+
+    public void setSent(long sent) {
+        this.sent = sent;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    public void setDropped(long dropped) {
+        this.dropped = dropped;
+    }
+
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    public void setCoalesced(long coalesced) {
+        this.coalesced = coalesced;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public long getEvicted() {
+        return evicted;
+    }
+
+    public void setEvicted(long evicted) {
+        this.evicted = evicted;
+    }
+
+    public long getHeapUsedBytes() {
+        return heapUsedBytes;
+    }
+
+    public void setHeapUsedBytes(long heapUsedBytes) {
+        this.heapUsedBytes = heapUsedBytes;
+    }
+}
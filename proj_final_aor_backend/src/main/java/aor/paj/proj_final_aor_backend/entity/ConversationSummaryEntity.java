@@ -0,0 +1,110 @@
+package aor.paj.proj_final_aor_backend.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * This class represents the summary of the direct messages between a user (the owner) and another user (the peer),
+ * updated with every message sent or read, so the conversation list does not have to be derived from the messages.
+ * Each conversation has two rows, one for each of the users.
+ * It is mapped to the "conversation_summary" table in the database.
+ */
+@Entity
+@Table(name = "conversation_summary", indexes = {
+        @Index(name = "idx_conversation_summary_recent", columnList = "owner_id, last_message_at")
+})
+@IdClass(ConversationSummaryId.class)
+@NamedQuery(name = "ConversationSummary.findByOwner", query = "SELECT c FROM ConversationSummaryEntity c WHERE c.ownerId = :ownerId ORDER BY c.lastMessageAt DESC")
+@NamedQuery(name = "ConversationSummary.decrementUnread", query = "UPDATE ConversationSummaryEntity c SET c.unreadCount = c.unreadCount - 1 WHERE c.ownerId = :ownerId AND c.peerId = :peerId AND c.unreadCount > 0")
+@NamedQuery(name = "ConversationSummary.setUnread", query = "UPDATE ConversationSummaryEntity c SET c.unreadCount = :unread WHERE c.ownerId = :ownerId AND c.peerId = :peerId")
+@NamedQuery(name = "ConversationSummary.count", query = "SELECT COUNT(c) FROM ConversationSummaryEntity c")
+public class ConversationSummaryEntity implements Serializable {
+
+    // Unique identifier for serialization
+    private static final long serialVersionUID = 1L;
+
+    // Maximum length of the preview of the last message
+    public static final int PREVIEW_LENGTH = 100;
+
+    // Id of the user that sees the conversation
+    @Id
+    @Column(name = "owner_id", nullable = false, updatable = false)
+    private long ownerId;
+
+    // Id of the other user of the conversation
+    @Id
+    @Column(name = "peer_id", nullable = false, updatable = false)
+    private long peerId;
+
+    // Id of the last message, sent or received by the owner
+    @Column(name = "last_message_id", nullable = false)
+    private long lastMessageId;
+
+    // Beginning of the content of the last message
+    @Column(name = "preview", nullable = false, length = PREVIEW_LENGTH)
+    private String preview;
+
+    // When the last message was sent
+    @Column(name = "last_message_at", nullable = false)
+    private LocalDateTime lastMessageAt;
+
+    // Number of messages from the peer the owner did not read
+    @Column(name = "unread_count", nullable = false)
+    private int unreadCount;
+
+    /**
+     * Default constructor for the ConversationSummaryEntity class.
+     */
+    public ConversationSummaryEntity() {
+    }
+
+    public long getOwnerId() {
+        return ownerId;
+    }
+
+    public void setOwnerId(long ownerId) {
+        this.ownerId = ownerId;
+    }
+
+    public long getPeerId() {
+        return peerId;
+    }
+
+    public void setPeerId(long peerId) {
+        this.peerId = peerId;
+    }
+
+    public long getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public void setLastMessageId(long lastMessageId) {
+        this.lastMessageId = lastMessageId;
+    }
+
+    public String getPreview() {
+        return preview;
+    }
+
+    public void setPreview(String preview) {
+        this.preview = preview;
+    }
+
+    public LocalDateTime getLastMessageAt() {
+        return lastMessageAt;
+    }
+
+    public void setLastMessageAt(LocalDateTime lastMessageAt) {
+        this.lastMessageAt = lastMessageAt;
+    }
+
+    public int getUnreadCount() {
+        return unreadCount;
+    }
+
+    public void setUnreadCount(int unreadCount) {
+        this.unreadCount = unreadCount;
+    }
+}
@@ -0,0 +1,87 @@
+package aor.paj.proj_final_aor_backend.entity;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * This class represents a composite key for the ConversationSummary entity.
+ * It implements Serializable as it's used as a key in a Map.
+ */
+public class ConversationSummaryId implements Serializable {
+
+    // Owner ID part of the composite key
+    private long ownerId;
+
+    // Peer ID part of the composite key
+    private long peerId;
+
+    /**
+     * Default constructor for the ConversationSummaryId class.
+     */
+    public ConversationSummaryId() {
+    }
+
+    /**
+     * Constructor with the parts of the composite key.
+     * @param ownerId the owner ID part of the composite key.
+     * @param peerId the peer ID part of the composite key.
+     */
+    public ConversationSummaryId(long ownerId, long peerId) {
+        this.ownerId = ownerId;
+        this.peerId = peerId;
+    }
+
+    /**
+     * Getter for the owner ID part of the composite key.
+     * @return owner ID part of the composite key.
+     */
+    public long getOwnerId() {
+        return ownerId;
+    }
+
+    /**
+     * Setter for the owner ID part of the composite key.
+     * @param ownerId the new owner ID part of the composite key.
+     */
+    public void setOwnerId(long ownerId) {
+        this.ownerId = ownerId;
+    }
+
+    /**
+     * Getter for the peer ID part of the composite key.
+     * @return peer ID part of the composite key.
+     */
+    public long getPeerId() {
+        return peerId;
+    }
+
+    /**
+     * Setter for the peer ID part of the composite key.
+     * @param peerId the new peer ID part of the composite key.
+     */
+    public void setPeerId(long peerId) {
+        this.peerId = peerId;
+    }
+
+    /**
+     * Overridden equals method for the composite key.
+     * @param o the object to compare.
+     * @return true if the objects are equal, false otherwise.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ConversationSummaryId that = (ConversationSummaryId) o;
+        return ownerId == that.ownerId && peerId == that.peerId;
+    }
+
+    /**
+     * Overridden hashCode method for the composite key.
+     * @return the hash code of the composite key.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(ownerId, peerId);
+    }
+}
@@ -11,13 +11,26 @@ import java.time.LocalDateTime;
  * It contains various properties related to a message and their getter and setter methods.
  */
 @Entity
-@Table(name="messages")
+@Table(name="messages", indexes = {
+        @Index(name = "idx_messages_conversation", columnList = "sender_id, receiver_id, sendTimestamp, id"),
+        @Index(name = "idx_messages_project", columnList = "receiver_project_id, sendTimestamp, id"),
+        @Index(name = "idx_messages_ingest_key", columnList = "ingest_key")
+})
 
 //Querys for the MessageEntity class
-@NamedQuery(name = "Message.findMessagesBetweenUsers", query = "SELECT m FROM MessageEntity m WHERE (m.sender.id = :user1 AND m.receiver.id = :user2) OR (m.sender.id = :user2 AND m.receiver.id = :user1) ORDER BY m.sendTimestamp DESC")
+@NamedQuery(name = "Message.findMessagesBetweenUsers", query = "SELECT m FROM MessageEntity m WHERE (m.sender.id = :user1 AND m.receiver.id = :user2) OR (m.sender.id = :user2 AND m.receiver.id = :user1) ORDER BY m.sendTimestamp DESC, m.id DESC")
+@NamedQuery(name = "Message.findMessagesFromUserBefore", query = "SELECT m FROM MessageEntity m WHERE m.sender.id = :sender AND m.receiver.id = :receiver AND (m.sendTimestamp < :timestamp OR (m.sendTimestamp = :timestamp AND m.id < :id)) ORDER BY m.sendTimestamp DESC, m.id DESC")
 @NamedQuery(name = "Message.findSentMessagesUsers", query = "SELECT m.receiver FROM MessageEntity m WHERE m.sender.id =:id ORDER BY m.sendTimestamp DESC")
 @NamedQuery(name = "Message.findReceivedMessagesUsers", query = "SELECT m.sender FROM MessageEntity m WHERE m.receiver.id =:id ORDER BY m.sendTimestamp DESC")
 @NamedQuery(name= "Message.findMessagesByProject", query = "SELECT m FROM MessageEntity m WHERE m.receiverGroup.project.id = :projectId ORDER BY m.sendTimestamp ASC")
+@NamedQuery(name = "Message.findProjectMessagesBefore", query = "SELECT m FROM MessageEntity m WHERE m.receiverProjectId = :projectId AND (m.sendTimestamp < :timestamp OR (m.sendTimestamp = :timestamp AND m.id < :id)) ORDER BY m.sendTimestamp DESC, m.id DESC")
+@NamedQuery(name = "Message.findProjectMessagesAfter", query = "SELECT m FROM MessageEntity m WHERE m.receiverProjectId = :projectId AND (m.sendTimestamp > :timestamp OR (m.sendTimestamp = :timestamp AND m.id > :id)) ORDER BY m.sendTimestamp ASC, m.id ASC")
+
+@NamedQuery(name = "Message.markReadUpTo", query = "UPDATE MessageEntity m SET m.readStatus = true, m.readTimestamp = :readAt WHERE m.sender.id = :senderId AND m.receiver.id = :receiverId AND m.readStatus = false AND (m.sendTimestamp < :timestamp OR (m.sendTimestamp = :timestamp AND m.id <= :id))")
+@NamedQuery(name = "Message.countUnreadFrom", query = "SELECT COUNT(m) FROM MessageEntity m WHERE m.sender.id = :senderId AND m.receiver.id = :receiverId AND m.readStatus = false")
+@NamedQuery(name = "Message.findIngestKeys", query = "SELECT m.ingestKey FROM MessageEntity m WHERE m.ingestKey IN :keys")
+@NamedQuery(name = "Message.findByIds", query = "SELECT m FROM MessageEntity m WHERE m.id IN :ids")
+@NamedQuery(name = "Message.findAfterId", query = "SELECT m FROM MessageEntity m WHERE m.id > :id ORDER BY m.id")
 
 @NamedQuery(name="Message.findTotalMessagesBetweenTwoUsers",  query = "SELECT COUNT(m) FROM MessageEntity m WHERE (m.sender.id = :user1 AND m.receiver.id = :user2) OR (m.sender.id = :user2 AND m.receiver.id = :user1)")
 
@@ -88,6 +101,18 @@ public class MessageEntity implements Serializable {
     })
     private UserProjectEntity receiverGroup;
 
+    /**
+     * Id of the project of the group receiver, read only, so the chat of a project is read from the messages table alone
+     */
+    @Column(name = "receiver_project_id", insertable = false, updatable = false)
+    private Long receiverProjectId;
+
+    /**
+     * Key of the entry of the chat append log the message was saved from, null for messages saved when sent
+     */
+    @Column(name = "ingest_key", length = 36, updatable = false)
+    private String ingestKey;
+
     /**
      * Default constructor for the MessageEntity class.
      */
@@ -223,6 +248,38 @@ public class MessageEntity implements Serializable {
         this.receiverGroup = receiverGroup;
     }
 
+    /**
+     * Getter for the key of the entry of the chat append log the message was saved from.
+     * @return the key, or null if the message was saved when sent.
+     */
+    public String getIngestKey() {
+        return ingestKey;
+    }
+
+    /**
+     * Setter for the key of the entry of the chat append log the message was saved from.
+     * @param ingestKey the key.
+     */
+    public void setIngestKey(String ingestKey) {
+        this.ingestKey = ingestKey;
+    }
+
+    /**
+     * Getter for the id of the project of the group receiver.
+     * @return the id of the project, or null if the message has no group receiver or was not read from the database.
+     */
+    public Long getReceiverProjectId() {
+        return receiverProjectId;
+    }
+
+    /**
+     * Setter for the id of the project of the group receiver, only kept in memory, the column is written through the receiver group.
+     * @param receiverProjectId the id of the project.
+     */
+    public void setReceiverProjectId(Long receiverProjectId) {
+        this.receiverProjectId = receiverProjectId;
+    }
+
     /**
      * Getter for the subject of the message.
      * @return subject of the message.
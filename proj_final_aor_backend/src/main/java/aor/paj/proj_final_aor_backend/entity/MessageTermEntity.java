@@ -0,0 +1,98 @@
+package aor.paj.proj_final_aor_backend.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+
+/**
+ * This class represents an entry of the message search index, a term found in a message for someone who can read it.
+ * A direct message has entries for the sender and for the receiver, a project message one entry for the project,
+ * so a search only reads the entries of its terms for the user and the user's projects, in the primary key order.
+ * It is mapped to the "message_term" table in the database.
+ */
+@Entity
+@Table(name = "message_term")
+@IdClass(MessageTermId.class)
+@NamedQuery(name = "MessageTerm.search", query = "SELECT t.messageId, COUNT(t) FROM MessageTermEntity t " +
+        "WHERE t.term IN :terms AND ((t.userId = :userId AND t.projectId = 0) OR (t.userId = 0 AND t.projectId IN :projectIds)) " +
+        "GROUP BY t.messageId " +
+        "HAVING COUNT(t) < :score OR (COUNT(t) = :score AND t.messageId < :id) " +
+        "ORDER BY COUNT(t) DESC, t.messageId DESC")
+@NamedQuery(name = "MessageTerm.findLastMessageId", query = "SELECT MAX(t.messageId) FROM MessageTermEntity t")
+public class MessageTermEntity implements Serializable {
+
+    // Unique identifier for serialization
+    private static final long serialVersionUID = 1L;
+
+    // The term, see MessageTerms
+    @Id
+    @Column(name = "term", nullable = false, updatable = false, length = 40)
+    private String term;
+
+    // Id of the user that can read a direct message, 0 for project messages
+    @Id
+    @Column(name = "user_id", nullable = false, updatable = false)
+    private long userId;
+
+    // Id of the project of a project message, 0 for direct messages
+    @Id
+    @Column(name = "project_id", nullable = false, updatable = false)
+    private long projectId;
+
+    // Id of the message
+    @Id
+    @Column(name = "message_id", nullable = false, updatable = false)
+    private long messageId;
+
+    /**
+     * Default constructor for the MessageTermEntity class.
+     */
+    public MessageTermEntity() {
+    }
+
+    /**
+     * Constructor with all the fields.
+     * @param term the term.
+     * @param userId the id of the user that can read a direct message, 0 for project messages.
+     * @param projectId the id of the project of a project message, 0 for direct messages.
+     * @param messageId the id of the message.
+     */
+    public MessageTermEntity(String term, long userId, long projectId, long messageId) {
+        this.term = term;
+        this.userId = userId;
+        this.projectId = projectId;
+        this.messageId = messageId;
+    }
+
+    public String getTerm() {
+        return term;
+    }
+
+    public void setTerm(String term) {
+        this.term = term;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(long userId) {
+        this.userId = userId;
+    }
+
+    public long getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(long projectId) {
+        this.projectId = projectId;
+    }
+
+    public long getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(long messageId) {
+        this.messageId = messageId;
+    }
+}
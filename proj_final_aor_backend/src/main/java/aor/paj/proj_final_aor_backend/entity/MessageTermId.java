@@ -0,0 +1,83 @@
+package aor.paj.proj_final_aor_backend.entity;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * This class represents a composite key for the MessageTerm entity.
+ * It implements Serializable as it's used as a key in a Map.
+ */
+public class MessageTermId implements Serializable {
+
+    // Term part of the composite key
+    private String term;
+
+    // User ID part of the composite key, 0 for project messages
+    private long userId;
+
+    // Project ID part of the composite key, 0 for direct messages
+    private long projectId;
+
+    // Message ID part of the composite key
+    private long messageId;
+
+    /**
+     * Default constructor for the MessageTermId class.
+     */
+    public MessageTermId() {
+    }
+
+    public String getTerm() {
+        return term;
+    }
+
+    public void setTerm(String term) {
+        this.term = term;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(long userId) {
+        this.userId = userId;
+    }
+
+    public long getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(long projectId) {
+        this.projectId = projectId;
+    }
+
+    public long getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(long messageId) {
+        this.messageId = messageId;
+    }
+
+    /**
+     * Overridden equals method for the composite key.
+     * @param o the object to compare.
+     * @return true if the objects are equal, false otherwise.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MessageTermId that = (MessageTermId) o;
+        return userId == that.userId && projectId == that.projectId && messageId == that.messageId && Objects.equals(term, that.term);
+    }
+
+    /**
+     * Overridden hashCode method for the composite key.
+     * @return the hash code of the composite key.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(term, userId, projectId, messageId);
+    }
+}
@@ -5,44 +5,45 @@ import jakarta.persistence.*;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * This class represents a NotificationEntity in the system.
  * It contains various properties related to a notification and their getter and setter methods.
  */
 @Entity
-@Table(name="notifications")
+@Table(name="notifications", indexes = {
+        @Index(name = "idx_notifications_aggregate", columnList = "type, relatedEntityId"),
+        @Index(name = "idx_notifications_send_timestamp", columnList = "sendTimestamp")
+})
 @NamedQuery(name = "Notification.findLatestMessageReceivedByUserID", query =
-        "SELECT n FROM NotificationEntity n " +
-                "WHERE n.id IN (" +
+        "SELECT n, COALESCE(r.lastEventAt, n.sendTimestamp) FROM NotificationRecipientEntity r JOIN r.notification n " +
+                "WHERE r.user.id = :userId AND n.id IN (" +
                 "   SELECT MAX(n2.id) " +
                 "   FROM NotificationEntity n2 " +
-                "   JOIN n2.users u " +
-                "   WHERE u.id = :userId AND n2.type = 'MESSAGE_RECEIVED' " +
+                "   JOIN NotificationRecipientEntity r2 ON r2.notification = n2 " +
+                "   WHERE r2.user.id = :userId AND n2.type = 'MESSAGE_RECEIVED' " +
                 "   GROUP BY n2.sender_id" +
                 ") ORDER BY n.sendTimestamp DESC")
 
 @NamedQuery(name = "Notification.findLatestMessageReceivedByProject", query =
-        "SELECT n FROM NotificationEntity n " +
-                "WHERE n.id IN (" +
+        "SELECT n, COALESCE(r.lastEventAt, n.sendTimestamp) FROM NotificationRecipientEntity r JOIN r.notification n " +
+                "WHERE r.user.id = :userId AND n.id IN (" +
                 "   SELECT MAX(n2.id) " +
                 "   FROM NotificationEntity n2 " +
-                "   JOIN n2.users u " +
-                "   WHERE u.id = :userId AND n2.type = 'MESSAGE_PROJECT' " +
-                "   GROUP BY n2.sender_id" +
+                "   JOIN NotificationRecipientEntity r2 ON r2.notification = n2 " +
+                "   WHERE r2.user.id = :userId AND n2.type = 'MESSAGE_PROJECT' " +
+                "   GROUP BY n2.relatedEntityId" +
                 ") ORDER BY n.sendTimestamp DESC")
 
 
 
-@NamedQuery(name = "Notification.findAllNotificationsExceptMessageReceived", query = "SELECT n FROM NotificationEntity n JOIN n.users u WHERE u.id = :userId AND (n.type != 'MESSAGE_RECEIVED' AND n.type != 'MESSAGE_PROJECT')")
+@NamedQuery(name = "Notification.findAllNotificationsExceptMessageReceived", query = "SELECT n, COALESCE(r.lastEventAt, n.sendTimestamp) FROM NotificationEntity n JOIN NotificationRecipientEntity r ON r.notification = n WHERE r.user.id = :userId AND (n.type != 'MESSAGE_RECEIVED' AND n.type != 'MESSAGE_PROJECT')")
 
-@NamedQuery(name = "Notification.findUnreadNotificationsByUserID", query = "SELECT COUNT(n) FROM NotificationEntity n JOIN n.users u WHERE u.id = :id AND n.readStatus = false")
+@NamedQuery(name = "Notification.findUnreadNotificationsByUserID", query = "SELECT COUNT(n) FROM NotificationEntity n JOIN NotificationRecipientEntity r ON r.notification = n WHERE r.user.id = :id AND r.readAt IS NULL")
 
-@NamedQuery(name = "Notification.findNotificationsByUserIDandType", query = "SELECT n FROM NotificationEntity n JOIN n.users u WHERE u.id = :userId AND n.type = :type")
+@NamedQuery(name = "Notification.findNotificationsByUserIDandType", query = "SELECT n FROM NotificationEntity n JOIN NotificationRecipientEntity r ON r.notification = n WHERE r.user.id = :userId AND n.type = :type")
 
-@NamedQuery(name="Notification.finAllNotificationsDiferentFromMessageReceived", query = "SELECT n FROM NotificationEntity n JOIN n.users u WHERE u.id = :userId AND n.type != 'MESSAGE_RECEIVED'")
+@NamedQuery(name="Notification.finAllNotificationsDiferentFromMessageReceived", query = "SELECT n FROM NotificationEntity n JOIN NotificationRecipientEntity r ON r.notification = n WHERE r.user.id = :userId AND n.type != 'MESSAGE_RECEIVED'")
 
 
 @NamedQuery(name = "Notification.countLatestMessageReceivedByUserID", query =
@@ -50,21 +51,21 @@ import java.util.Set;
                 "WHERE n.id IN (" +
                 "   SELECT MAX(n2.id) " +
                 "   FROM NotificationEntity n2 " +
-                "   JOIN n2.users u " +
-                "   WHERE u.id = :userId AND n2.type = 'MESSAGE_RECEIVED' " +
+                "   JOIN NotificationRecipientEntity r ON r.notification = n2 " +
+                "   WHERE r.user.id = :userId AND n2.type = 'MESSAGE_RECEIVED' " +
                 "   GROUP BY n2.sender_id" +
                 ")")
 
-@NamedQuery(name = "Notification.countAllNotificationsExceptMessageReceived", query = "SELECT COUNT(n) FROM NotificationEntity n JOIN n.users u WHERE u.id = :userId AND (n.type != 'MESSAGE_RECEIVED' AND n.type != 'MESSAGE_PROJECT')")
+@NamedQuery(name = "Notification.countAllNotificationsExceptMessageReceived", query = "SELECT COUNT(n) FROM NotificationEntity n JOIN NotificationRecipientEntity r ON r.notification = n WHERE r.user.id = :userId AND (n.type != 'MESSAGE_RECEIVED' AND n.type != 'MESSAGE_PROJECT')")
 
 @NamedQuery(name = "Notification.countUnreadForTypeMessage", query =
         "SELECT COUNT(n) FROM NotificationEntity n " +
                 "WHERE n.id IN (" +
                 "   SELECT MAX(n2.id) " +
                 "   FROM NotificationEntity n2 " +
-                "   JOIN n2.users u " +
-                "   WHERE u.id = :userId AND n2.type = 'MESSAGE_RECEIVED' " +
-                "AND n2.readStatus = false" +
+                "   JOIN NotificationRecipientEntity r ON r.notification = n2 " +
+                "   WHERE r.user.id = :userId AND n2.type = 'MESSAGE_RECEIVED' " +
+                "   AND r.readAt IS NULL" +
                 "   GROUP BY n2.sender_id" +
                 ")")
 
@@ -73,15 +74,15 @@ import java.util.Set;
                 "WHERE n.id IN (" +
                 "   SELECT MAX(n2.id) " +
                 "   FROM NotificationEntity n2 " +
-                "   JOIN n2.users u " +
-                "   WHERE u.id = :userId AND n2.type = 'MESSAGE_PROJECT' " +
-                "AND n2.readStatus = false" +
-                "   GROUP BY n2.sender_id" +
+                "   JOIN NotificationRecipientEntity r ON r.notification = n2 " +
+                "   WHERE r.user.id = :userId AND n2.type = 'MESSAGE_PROJECT' " +
+                "   AND r.readAt IS NULL" +
+                "   GROUP BY n2.relatedEntityId" +
                 ")")
 
 
 
-@NamedQuery(name = "Notification.countUnreadNotifications", query = "SELECT COUNT(n) FROM NotificationEntity n JOIN n.users u WHERE u.id = :userId AND n.readStatus=false AND (n.type != 'MESSAGE_RECEIVED' AND n.type != 'MESSAGE_PROJECT')")
+@NamedQuery(name = "Notification.countUnreadNotifications", query = "SELECT COUNT(n) FROM NotificationEntity n JOIN NotificationRecipientEntity r ON r.notification = n WHERE r.user.id = :userId AND r.readAt IS NULL AND (n.type != 'MESSAGE_RECEIVED' AND n.type != 'MESSAGE_PROJECT')")
 
 
 @NamedQuery(
@@ -90,9 +91,9 @@ import java.util.Set;
                 "WHERE n.id IN (" +
                 "   SELECT MAX(n2.id) " +
                 "   FROM NotificationEntity n2 " +
-                "   JOIN n2.users u " +
-                "   WHERE u.id = :userId AND n2.type = 'MESSAGE_RECEIVED' " +
-                "   AND n2.readStatus = false " +
+                "   JOIN NotificationRecipientEntity r ON r.notification = n2 " +
+                "   WHERE r.user.id = :userId AND n2.type = 'MESSAGE_RECEIVED' " +
+                "   AND r.readAt IS NULL " +
                 "   AND n2.sendTimestamp > :timestamp " +
                 "   GROUP BY n2.sender_id" +
                 ")"
@@ -104,18 +105,31 @@ import java.util.Set;
                 "WHERE n.id IN (" +
                 "   SELECT MAX(n2.id) " +
                 "   FROM NotificationEntity n2 " +
-                "   JOIN n2.users u " +
-                "   WHERE u.id = :userId AND n2.type = 'MESSAGE_PROJECT' " +
-                "   AND n2.readStatus = false " +
+                "   JOIN NotificationRecipientEntity r ON r.notification = n2 " +
+                "   WHERE r.user.id = :userId AND n2.type = 'MESSAGE_PROJECT' " +
+                "   AND r.readAt IS NULL " +
                 "   AND n2.sendTimestamp > :timestamp " +
-                "   GROUP BY n2.sender_id" +
+                "   GROUP BY n2.relatedEntityId" +
                 ")"
 )
 @NamedQuery(
         name = "Notification.countUnreadNotificationsAndTime",
-        query = "SELECT COUNT(n) FROM NotificationEntity n WHERE n.id = :userId AND n.type NOT IN ('MESSAGE_RECEIVED', 'MESSAGE_PROJECT') AND n.sendTimestamp > :timestamp AND n.readStatus = false"
+        query = "SELECT COUNT(n) FROM NotificationEntity n JOIN NotificationRecipientEntity r ON r.notification = n WHERE r.user.id = :userId AND n.type NOT IN ('MESSAGE_RECEIVED', 'MESSAGE_PROJECT') AND n.sendTimestamp > :timestamp AND r.readAt IS NULL"
 )
 
+@NamedQuery(name = "Notification.findExpired", query = "SELECT n.id, n.sendTimestamp FROM NotificationEntity n WHERE n.sendTimestamp < :cutoff AND NOT EXISTS (SELECT r FROM NotificationRecipientEntity r WHERE r.notification = n AND (r.readAt IS NULL OR r.lastEventAt >= :cutoff)) ORDER BY n.id")
+@NamedQuery(name = "Notification.deleteByIds", query = "DELETE FROM NotificationEntity n WHERE n.id IN :ids")
+@NamedQuery(name = "Notification.findBefore", query =
+        "SELECT n FROM NotificationRecipientEntity r JOIN r.notification n " +
+                "WHERE r.user.id = :userId AND r.notification.id < :id " +
+                "AND (n.type NOT IN ('MESSAGE_RECEIVED', 'MESSAGE_PROJECT') OR n.id IN (" +
+                "   SELECT MAX(r2.notification.id) " +
+                "   FROM NotificationRecipientEntity r2 JOIN r2.notification n2 " +
+                "   WHERE r2.user.id = :userId AND n2.type IN ('MESSAGE_RECEIVED', 'MESSAGE_PROJECT') " +
+                "   GROUP BY n2.type, n2.relatedEntityId" +
+                ")) ORDER BY r.notification.id DESC")
+@NamedQuery(name = "Notification.fillLastEventAt", query = "UPDATE NotificationEntity n SET n.lastEventAt = n.sendTimestamp WHERE n.lastEventAt IS NULL")
+@NamedQuery(name = "Notification.fillDirectMessagePeer", query = "UPDATE NotificationEntity n SET n.relatedEntityId = n.sender_id WHERE n.type = 'MESSAGE_RECEIVED' AND n.relatedEntityId = 0")
 
 public class NotificationEntity implements Serializable {
 
@@ -136,7 +150,8 @@ public class NotificationEntity implements Serializable {
 
 
     /**
-     * Read status of the notification
+     * Read status of the notification, kept for the notifications created before the recipients.
+     * The read state of each user is in NotificationRecipientEntity.
      */
     @Column(name = "readStatus", nullable = false, unique = false, updatable = true)
     private boolean readStatus;
@@ -148,7 +163,7 @@ public class NotificationEntity implements Serializable {
     private LocalDateTime sendTimestamp;
 
     /**
-     * Read timestamp of the notification
+     * Read timestamp of the notification, kept for the notifications created before the recipients.
      */
     @Column(name = "readTimestamp")
     private LocalDateTime readTimestamp;
@@ -168,11 +183,17 @@ public class NotificationEntity implements Serializable {
 
 
     /**
-     * Many to many relationship with the UserEntity class
+     * Number of events of the notification when it was created, the events collapsed later are counted per recipient
+     */
+    @Column(name = "aggregate_count", nullable = false)
+    private int aggregateCount;
+
+    /**
+     * Timestamp of the event that created the notification, the later events are kept per recipient
      */
+    @Column(name = "last_event_at")
+    private LocalDateTime lastEventAt;
 
-    @ManyToMany(mappedBy = "notifications")
-    private Set<UserEntity> users = new HashSet<>();
 
 
 
@@ -281,19 +302,35 @@ public class NotificationEntity implements Serializable {
 
 
     /**
-     * Getter for the users of the notification.
-     * @return users of the notification.
+     * Getter for the number of events collapsed into the notification.
+     * @return number of events, at least 1.
+     */
+    public int getAggregateCount() {
+        return Math.max(1, aggregateCount);
+    }
+
+    /**
+     * Setter for the number of events collapsed into the notification.
+     * @param aggregateCount the new number of events.
+     */
+    public void setAggregateCount(int aggregateCount) {
+        this.aggregateCount = aggregateCount;
+    }
+
+    /**
+     * Getter for the timestamp of the last event, the send timestamp when it was not aggregated.
+     * @return timestamp of the last event.
      */
-    public Set<UserEntity> getUsers() {
-        return users;
+    public LocalDateTime getLastEventAt() {
+        return lastEventAt != null ? lastEventAt : sendTimestamp;
     }
 
     /**
-     * Setter for the users of the notification.
-     * @param users the new users of the notification.
+     * Setter for the timestamp of the last event.
+     * @param lastEventAt the new timestamp of the last event.
      */
-    public void setUsers(Set<UserEntity> users) {
-        this.users = users;
+    public void setLastEventAt(LocalDateTime lastEventAt) {
+        this.lastEventAt = lastEventAt;
     }
 
     /**
@@ -0,0 +1,189 @@
+package aor.paj.proj_final_aor_backend.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * This class represents a notification waiting to be sent, written in the same transaction as the change it is about.
+ * The dispatcher sends the pending entries in order and removes them, so a change is never undone by its notification
+ * and the request that made it does not wait for the notification to reach every receiver.
+ * A node claims an entry for a while before sending it, so the same entry is not sent by two nodes.
+ */
+@Entity
+@Table(name = "notification_outbox", indexes = {
+        @Index(name = "idx_notification_outbox_pending", columnList = "failed, id")
+})
+@NamedQuery(name = "NotificationOutbox.findPending", query = "SELECT o FROM NotificationOutboxEntity o WHERE o.failed = false ORDER BY o.id")
+@NamedQuery(name = "NotificationOutbox.claim", query = "UPDATE NotificationOutboxEntity o SET o.claimedBy = :node, o.claimedUntil = :until " +
+        "WHERE o.id = :id AND o.failed = false AND (o.claimedUntil IS NULL OR o.claimedUntil < :now OR o.claimedBy = :node)")
+public class NotificationOutboxEntity implements Serializable {
+
+    // Unique identifier for serialization
+    private static final long serialVersionUID = 1L;
+
+    // Id of the entry, in the order the notifications were queued
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false, unique = true, updatable = false)
+    private long id;
+
+    // Type of the notification
+    @Column(name = "type", nullable = false, updatable = false)
+    private String type;
+
+    // Who receives the notification
+    @Column(name = "audience", nullable = false, updatable = false)
+    private String audience;
+
+    // Id of the user that sends the notification
+    @Column(name = "sender_id", nullable = false, updatable = false)
+    private long senderId;
+
+    // Id of the project whose members receive the notification, 0 when it is sent to all users
+    @Column(name = "project_id", nullable = false, updatable = false)
+    private long projectId;
+
+    // Id of the entity the notification is about
+    @Column(name = "related_entity_id", nullable = false, updatable = false)
+    private long relatedEntityId;
+
+    // When the notification was queued
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // Number of failed attempts to send the notification
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    // When the notification can be sent again after a failed attempt, null if it never failed
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    // Error of the last failed attempt
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    // True when the attempts ran out, the entry is kept to be inspected but no longer sent
+    @Column(name = "failed", nullable = false)
+    private boolean failed;
+
+    // Node that is sending the notification, null if no node claimed it
+    @Column(name = "claimed_by")
+    private String claimedBy;
+
+    // Until when the claim holds, after it another node can claim the entry
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
+    /**
+     * Default constructor for the NotificationOutboxEntity class.
+     */
+    public NotificationOutboxEntity() {
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getAudience() {
+        return audience;
+    }
+
+    public void setAudience(String audience) {
+        this.audience = audience;
+    }
+
+    public long getSenderId() {
+        return senderId;
+    }
+
+    public void setSenderId(long senderId) {
+        this.senderId = senderId;
+    }
+
+    public long getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(long projectId) {
+        this.projectId = projectId;
+    }
+
+    public long getRelatedEntityId() {
+        return relatedEntityId;
+    }
+
+    public void setRelatedEntityId(long relatedEntityId) {
+        this.relatedEntityId = relatedEntityId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public void setFailed(boolean failed) {
+        this.failed = failed;
+    }
+
+    public String getClaimedBy() {
+        return claimedBy;
+    }
+
+    public void setClaimedBy(String claimedBy) {
+        this.claimedBy = claimedBy;
+    }
+
+    public LocalDateTime getClaimedUntil() {
+        return claimedUntil;
+    }
+
+    public void setClaimedUntil(LocalDateTime claimedUntil) {
+        this.claimedUntil = claimedUntil;
+    }
+}
@@ -0,0 +1,67 @@
+package aor.paj.proj_final_aor_backend.entity;
+
+import aor.paj.proj_final_aor_backend.util.enums.NotificationDelivery;
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+
+/**
+ * This class represents how a user wants to receive notifications, for all of them (project 0) or for the ones about a project.
+ * Only the preferences that differ from real time are stored, so the table stays small enough to be kept in memory.
+ * It is mapped to the "notification_preference" table in the database.
+ */
+@Entity
+@Table(name = "notification_preference")
+@IdClass(NotificationPreferenceId.class)
+@NamedQuery(name = "NotificationPreference.findAll", query = "SELECT p FROM NotificationPreferenceEntity p")
+@NamedQuery(name = "NotificationPreference.findByUser", query = "SELECT p FROM NotificationPreferenceEntity p WHERE p.userId = :userId ORDER BY p.projectId")
+public class NotificationPreferenceEntity implements Serializable {
+
+    // Unique identifier for serialization
+    private static final long serialVersionUID = 1L;
+
+    // Id of the user that owns the preference
+    @Id
+    @Column(name = "user_id", nullable = false, updatable = false)
+    private long userId;
+
+    // Id of the project the preference is about, 0 for all the notifications of the user
+    @Id
+    @Column(name = "project_id", nullable = false, updatable = false)
+    private long projectId;
+
+    // How the notifications are received, stored by position
+    @Enumerated(EnumType.ORDINAL)
+    @Column(name = "delivery", nullable = false)
+    private NotificationDelivery delivery;
+
+    /**
+     * Default constructor for the NotificationPreferenceEntity class.
+     */
+    public NotificationPreferenceEntity() {
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(long userId) {
+        this.userId = userId;
+    }
+
+    public long getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(long projectId) {
+        this.projectId = projectId;
+    }
+
+    public NotificationDelivery getDelivery() {
+        return delivery;
+    }
+
+    public void setDelivery(NotificationDelivery delivery) {
+        this.delivery = delivery;
+    }
+}
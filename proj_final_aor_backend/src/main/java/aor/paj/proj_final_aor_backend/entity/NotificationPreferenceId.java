@@ -0,0 +1,87 @@
+package aor.paj.proj_final_aor_backend.entity;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * This class represents a composite key for the NotificationPreference entity.
+ * It implements Serializable as it's used as a key in a Map.
+ */
+public class NotificationPreferenceId implements Serializable {
+
+    // User ID part of the composite key
+    private long userId;
+
+    // Project ID part of the composite key, 0 for the preference of the user
+    private long projectId;
+
+    /**
+     * Default constructor for the NotificationPreferenceId class.
+     */
+    public NotificationPreferenceId() {
+    }
+
+    /**
+     * Constructor with the parts of the composite key.
+     * @param userId the user ID part of the composite key.
+     * @param projectId the project ID part of the composite key.
+     */
+    public NotificationPreferenceId(long userId, long projectId) {
+        this.userId = userId;
+        this.projectId = projectId;
+    }
+
+    /**
+     * Getter for the user ID part of the composite key.
+     * @return user ID part of the composite key.
+     */
+    public long getUserId() {
+        return userId;
+    }
+
+    /**
+     * Setter for the user ID part of the composite key.
+     * @param userId the new user ID part of the composite key.
+     */
+    public void setUserId(long userId) {
+        this.userId = userId;
+    }
+
+    /**
+     * Getter for the project ID part of the composite key.
+     * @return project ID part of the composite key.
+     */
+    public long getProjectId() {
+        return projectId;
+    }
+
+    /**
+     * Setter for the project ID part of the composite key.
+     * @param projectId the new project ID part of the composite key.
+     */
+    public void setProjectId(long projectId) {
+        this.projectId = projectId;
+    }
+
+    /**
+     * Overridden equals method for the composite key.
+     * @param o the object to compare.
+     * @return true if the objects are equal, false otherwise.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        NotificationPreferenceId that = (NotificationPreferenceId) o;
+        return userId == that.userId && projectId == that.projectId;
+    }
+
+    /**
+     * Overridden hashCode method for the composite key.
+     * @return the hash code of the composite key.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId, projectId);
+    }
+}
@@ -0,0 +1,201 @@
+package aor.paj.proj_final_aor_backend.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * The NotificationRecipientEntity class represents a user that received a notification, and when the user read it.
+ * A notification sent to many users is stored once, with one recipient row per user, so the read state is kept per user.
+ * Messages collapsed into a notification are also counted per user, only for the users that did not read it yet,
+ * with the sender of the last one, since the messages of a conversation are collapsed whoever sent them.
+ * It is mapped to the "notification_recipient" table in the database.
+ */
+@Entity
+@Table(name = "notification_recipient", indexes = {
+        @Index(name = "idx_notification_recipient_user_read", columnList = "user_id, read_at"),
+        @Index(name = "idx_notification_recipient_user_notification", columnList = "user_id, notification_id")
+})
+@IdClass(NotificationRecipientId.class)
+
+// Named query to mark the notification of a user as read
+@NamedQuery(name = "NotificationRecipient.markRead", query = "UPDATE NotificationRecipientEntity r SET r.readAt = :readAt WHERE r.notification.id = :notificationId AND r.user.id = :userId AND r.readAt IS NULL")
+
+// Named query to mark all the notifications of a user as read
+@NamedQuery(name = "NotificationRecipient.markAllRead", query = "UPDATE NotificationRecipientEntity r SET r.readAt = :readAt WHERE r.user.id = :userId AND r.readAt IS NULL")
+
+// Named query to mark the notifications of a user with some types as read
+@NamedQuery(name = "NotificationRecipient.markReadAbout", query = "UPDATE NotificationRecipientEntity r SET r.readAt = :readAt WHERE r.user.id = :userId AND r.readAt IS NULL AND r.notification.id IN (SELECT n.id FROM NotificationEntity n WHERE n.type = :type AND n.relatedEntityId = :relatedEntityId)")
+@NamedQuery(name = "NotificationRecipient.markReadByTypes", query = "UPDATE NotificationRecipientEntity r SET r.readAt = :readAt WHERE r.user.id = :userId AND r.readAt IS NULL AND r.notification.id IN (SELECT n.id FROM NotificationEntity n WHERE n.type IN :types)")
+
+// Named query to find which of some users have not read a notification
+@NamedQuery(name = "NotificationRecipient.findUnreadRecipients", query = "SELECT r.user.id FROM NotificationRecipientEntity r WHERE r.notification.id = :notificationId AND r.readAt IS NULL AND r.user.id IN :userIds")
+
+// Named query to find the latest unread notification of each user where a new message of a conversation can be collapsed
+@NamedQuery(name = "NotificationRecipient.findAggregates", query = "SELECT r.user.id, MAX(r.notification.id) FROM NotificationRecipientEntity r WHERE r.user.id IN :userIds AND r.readAt IS NULL AND r.notification.type = :type AND r.notification.relatedEntityId = :relatedEntityId GROUP BY r.user.id")
+
+// Named query to collapse a new event into a notification, only for the users that did not read it yet
+@NamedQuery(name = "NotificationRecipient.addEvent", query = "UPDATE NotificationRecipientEntity r SET r.aggregateCount = r.aggregateCount + 1, r.lastEventAt = :lastEventAt, r.lastSenderId = :senderId WHERE r.notification.id = :notificationId AND r.user.id IN :userIds AND r.readAt IS NULL")
+
+// Named query to find the recipient rows of a user for some notifications
+@NamedQuery(name = "NotificationRecipient.findByUserAndNotifications", query = "SELECT r FROM NotificationRecipientEntity r WHERE r.user.id = :userId AND r.notification.id IN :notificationIds")
+
+// Named query to find which users already have unread notifications of a type about a conversation
+@NamedQuery(name = "NotificationRecipient.findUsersWithUnreadAbout", query = "SELECT DISTINCT r.user.id FROM NotificationRecipientEntity r WHERE r.user.id IN :userIds AND r.readAt IS NULL AND r.notification.type = :type AND r.notification.relatedEntityId = :relatedEntityId")
+
+// Named query to delete the recipients of some notifications
+@NamedQuery(name = "NotificationRecipient.deleteByNotificationIds", query = "DELETE FROM NotificationRecipientEntity r WHERE r.notification.id IN :ids")
+
+// Named query to count the recipients, used to know if the old receivers were already copied
+@NamedQuery(name = "NotificationRecipient.count", query = "SELECT COUNT(r) FROM NotificationRecipientEntity r")
+
+public class NotificationRecipientEntity implements Serializable {
+
+    // Serial version UID for serialization and deserialization
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Notification ID part of the composite key.
+     * It is a foreign key that references the id column in the notifications table.
+     */
+    @Id
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "notification_id", nullable = false)
+    private NotificationEntity notification;
+
+    /**
+     * User ID part of the composite key.
+     * It is a foreign key that references the id column in the user table.
+     */
+    @Id
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private UserEntity user;
+
+    /**
+     * Moment when the user read the notification, null while it is unread.
+     */
+    @Column(name = "read_at")
+    private LocalDateTime readAt;
+
+    /**
+     * Number of events the user got through the notification, 1 when nothing was collapsed into it.
+     */
+    @Column(name = "aggregate_count", nullable = false)
+    private int aggregateCount = 1;
+
+    /**
+     * Timestamp of the last event collapsed into the notification for the user, null when nothing was collapsed.
+     */
+    @Column(name = "last_event_at")
+    private LocalDateTime lastEventAt;
+
+    /**
+     * ID of the sender of the last event collapsed into the notification for the user, null when nothing was collapsed.
+     */
+    @Column(name = "last_sender_id")
+    private Long lastSenderId;
+
+    /**
+     * Default constructor for the NotificationRecipientEntity class.
+     */
+    public NotificationRecipientEntity() {
+    }
+
+    /**
+     * Getter for the notification.
+     * @return the notification.
+     */
+    public NotificationEntity getNotification() {
+        return notification;
+    }
+
+    /**
+     * Setter for the notification.
+     * @param notification the new notification.
+     */
+    public void setNotification(NotificationEntity notification) {
+        this.notification = notification;
+    }
+
+    /**
+     * Getter for the user that received the notification.
+     * @return the user.
+     */
+    public UserEntity getUser() {
+        return user;
+    }
+
+    /**
+     * Setter for the user that received the notification.
+     * @param user the new user.
+     */
+    public void setUser(UserEntity user) {
+        this.user = user;
+    }
+
+    /**
+     * Getter for the moment when the user read the notification.
+     * @return the read moment, or null if it is unread.
+     */
+    public LocalDateTime getReadAt() {
+        return readAt;
+    }
+
+    /**
+     * Setter for the moment when the user read the notification.
+     * @param readAt the new read moment.
+     */
+    public void setReadAt(LocalDateTime readAt) {
+        this.readAt = readAt;
+    }
+
+    /**
+     * Getter for the number of events the user got through the notification.
+     * @return the number of events, at least 1.
+     */
+    public int getAggregateCount() {
+        return Math.max(1, aggregateCount);
+    }
+
+    /**
+     * Setter for the number of events the user got through the notification.
+     * @param aggregateCount the new number of events.
+     */
+    public void setAggregateCount(int aggregateCount) {
+        this.aggregateCount = aggregateCount;
+    }
+
+    /**
+     * Getter for the timestamp of the last event collapsed into the notification for the user.
+     * @return the timestamp, or null if nothing was collapsed.
+     */
+    public LocalDateTime getLastEventAt() {
+        return lastEventAt;
+    }
+
+    /**
+     * Setter for the timestamp of the last event collapsed into the notification for the user.
+     * @param lastEventAt the new timestamp.
+     */
+    public void setLastEventAt(LocalDateTime lastEventAt) {
+        this.lastEventAt = lastEventAt;
+    }
+
+    /**
+     * Getter for the sender of the last event collapsed into the notification for the user.
+     * @return the ID of the sender, or null if nothing was collapsed.
+     */
+    public Long getLastSenderId() {
+        return lastSenderId;
+    }
+
+    /**
+     * Setter for the sender of the last event collapsed into the notification for the user.
+     * @param lastSenderId the new ID of the sender.
+     */
+    public void setLastSenderId(Long lastSenderId) {
+        this.lastSenderId = lastSenderId;
+    }
+}
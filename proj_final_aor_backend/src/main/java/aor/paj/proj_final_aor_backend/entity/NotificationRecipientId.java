@@ -0,0 +1,71 @@
+package aor.paj.proj_final_aor_backend.entity;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * This class represents a composite key for the NotificationRecipient entity.
+ * It implements Serializable as it's used as a key in a Map.
+ */
+public class NotificationRecipientId implements Serializable {
+
+    // Notification ID part of the composite key
+    private Long notification;
+
+    // User ID part of the composite key
+    private Long user;
+
+    /**
+     * Getter for the notification ID part of the composite key.
+     * @return notification ID part of the composite key.
+     */
+    public Long getNotification() {
+        return notification;
+    }
+
+    /**
+     * Setter for the notification ID part of the composite key.
+     * @param notification the new notification ID part of the composite key.
+     */
+    public void setNotification(Long notification) {
+        this.notification = notification;
+    }
+
+    /**
+     * Getter for the user ID part of the composite key.
+     * @return user ID part of the composite key.
+     */
+    public Long getUser() {
+        return user;
+    }
+
+    /**
+     * Setter for the user ID part of the composite key.
+     * @param user the new user ID part of the composite key.
+     */
+    public void setUser(Long user) {
+        this.user = user;
+    }
+
+    /**
+     * Overridden equals method for the composite key.
+     * @param o the object to compare.
+     * @return true if the objects are equal, false otherwise.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        NotificationRecipientId that = (NotificationRecipientId) o;
+        return Objects.equals(getNotification(), that.getNotification()) && Objects.equals(getUser(), that.getUser());
+    }
+
+    /**
+     * Overridden hashCode method for the composite key.
+     * @return the hash code of the composite key.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(getNotification(), getUser());
+    }
+}
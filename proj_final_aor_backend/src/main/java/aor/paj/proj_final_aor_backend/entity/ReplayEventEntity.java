@@ -0,0 +1,107 @@
+package aor.paj.proj_final_aor_backend.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * This class represents a websocket event kept for a user after it left the in-memory replay buffer.
+ * It is only used when the replay buffer spills to the database, so a client can resume after a redeploy.
+ */
+@Entity
+@Table(name = "replay_event", indexes = {
+        @Index(name = "idx_replay_event_user_seq", columnList = "user_id, seq", unique = true),
+        @Index(name = "idx_replay_event_created_at", columnList = "created_at")
+})
+@NamedQuery(name = "ReplayEvent.findAfterSeq", query = "SELECT r FROM ReplayEventEntity r WHERE r.userId = :userId AND r.seq > :seq ORDER BY r.seq")
+@NamedQuery(name = "ReplayEvent.findMaxSeq", query = "SELECT MAX(r.seq) FROM ReplayEventEntity r WHERE r.userId = :userId")
+@NamedQuery(name = "ReplayEvent.deleteOlderThan", query = "DELETE FROM ReplayEventEntity r WHERE r.createdAt < :date")
+public class ReplayEventEntity implements Serializable {
+
+    // Unique identifier for serialization
+    private static final long serialVersionUID = 1L;
+
+    // Unique identifier for the event
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false, unique = true, updatable = false)
+    private Long id;
+
+    // Id of the user that received the event
+    @Column(name = "user_id", nullable = false, updatable = false)
+    private long userId;
+
+    // Sequence number of the event in the stream of the user
+    @Column(name = "seq", nullable = false, updatable = false)
+    private long seq;
+
+    // Channel of the event
+    @Column(name = "channel", nullable = false, updatable = false)
+    private String channel;
+
+    // Envelope of the event, as JSON without the sequence number
+    @Lob
+    @Column(name = "body", nullable = false, updatable = false)
+    private String body;
+
+    // Date and time when the event was saved
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * Default constructor for the ReplayEventEntity class.
+     */
+    public ReplayEventEntity() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(long userId) {
+        this.userId = userId;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public void setChannel(String channel) {
+        this.channel = channel;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
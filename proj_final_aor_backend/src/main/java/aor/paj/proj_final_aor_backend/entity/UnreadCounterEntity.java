@@ -0,0 +1,108 @@
+package aor.paj.proj_final_aor_backend.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+
+/**
+ * This class represents the unread notification counters of a user, updated when notifications are sent or read.
+ * The messages are counted by conversation, as in the notification list, and the other notifications one by one.
+ * Counting messages by conversation depends on what was unread when the message arrived, and the other notifications can be
+ * read or created while they are changed, so every change flags the counters as dirty to be counted again.
+ * Every change increments the version, so a recount only replaces counters that did not change since they were read.
+ */
+@Entity
+@Table(name = "unread_counter", indexes = @Index(name = "idx_unread_counter_dirty", columnList = "dirty"))
+@NamedQuery(name = "UnreadCounter.incrementDirectMessages", query = "UPDATE UnreadCounterEntity c SET c.directMessages = c.directMessages + 1, c.dirty = true, c.version = c.version + 1 WHERE c.userId IN :userIds")
+@NamedQuery(name = "UnreadCounter.incrementProjectMessages", query = "UPDATE UnreadCounterEntity c SET c.projectMessages = c.projectMessages + 1, c.dirty = true, c.version = c.version + 1 WHERE c.userId IN :userIds")
+@NamedQuery(name = "UnreadCounter.incrementOther", query = "UPDATE UnreadCounterEntity c SET c.other = c.other + 1, c.dirty = true, c.version = c.version + 1 WHERE c.userId IN :userIds")
+@NamedQuery(name = "UnreadCounter.decrementDirectMessages", query = "UPDATE UnreadCounterEntity c SET c.directMessages = c.directMessages - 1, c.dirty = true, c.version = c.version + 1 WHERE c.userId = :userId AND c.directMessages > 0")
+@NamedQuery(name = "UnreadCounter.decrementOther", query = "UPDATE UnreadCounterEntity c SET c.other = c.other - 1, c.dirty = true, c.version = c.version + 1 WHERE c.userId = :userId AND c.other > 0")
+@NamedQuery(name = "UnreadCounter.clearMessages", query = "UPDATE UnreadCounterEntity c SET c.directMessages = 0, c.projectMessages = 0, c.dirty = true, c.version = c.version + 1 WHERE c.userId = :userId")
+@NamedQuery(name = "UnreadCounter.clearAll", query = "UPDATE UnreadCounterEntity c SET c.directMessages = 0, c.projectMessages = 0, c.other = 0, c.dirty = true, c.version = c.version + 1 WHERE c.userId = :userId")
+@NamedQuery(name = "UnreadCounter.reconcile", query = "UPDATE UnreadCounterEntity c SET c.directMessages = :directMessages, c.projectMessages = :projectMessages, c.other = :other, c.dirty = false, c.version = c.version + 1 WHERE c.userId = :userId AND c.version = :version")
+@NamedQuery(name = "UnreadCounter.findDirtyUserIds", query = "SELECT c.userId FROM UnreadCounterEntity c WHERE c.dirty = true ORDER BY c.userId")
+public class UnreadCounterEntity implements Serializable {
+
+    // Unique identifier for serialization
+    private static final long serialVersionUID = 1L;
+
+    // Id of the user that owns the counters
+    @Id
+    @Column(name = "user_id", nullable = false, unique = true, updatable = false)
+    private long userId;
+
+    // Number of senders with unread direct messages
+    @Column(name = "direct_messages", nullable = false)
+    private int directMessages;
+
+    // Number of senders with unread project chat messages
+    @Column(name = "project_messages", nullable = false)
+    private int projectMessages;
+
+    // Number of unread notifications that are not messages
+    @Column(name = "other", nullable = false)
+    private int other;
+
+    // True if the counters may have drifted and must be counted again
+    @Column(name = "dirty", nullable = false)
+    private boolean dirty;
+
+    // Incremented by every change of the counters
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    /**
+     * Default constructor for the UnreadCounterEntity class.
+     */
+    public UnreadCounterEntity() {
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(long userId) {
+        this.userId = userId;
+    }
+
+    public int getDirectMessages() {
+        return directMessages;
+    }
+
+    public void setDirectMessages(int directMessages) {
+        this.directMessages = directMessages;
+    }
+
+    public int getProjectMessages() {
+        return projectMessages;
+    }
+
+    public void setProjectMessages(int projectMessages) {
+        this.projectMessages = projectMessages;
+    }
+
+    public int getOther() {
+        return other;
+    }
+
+    public void setOther(int other) {
+        this.other = other;
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void setDirty(boolean dirty) {
+        this.dirty = dirty;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
@@ -20,6 +20,8 @@ import java.util.Set;
 @NamedQuery(name="User.findUserById", query = "SELECT u FROM UserEntity u WHERE u.id = :id")
 @NamedQuery(name = "User.findUserByEmail", query = "SELECT u FROM UserEntity u WHERE u.email = :email")
 @NamedQuery(name = "User.findAllActiveUsers", query = "SELECT u FROM UserEntity u WHERE u.activeState = true ORDER BY u.firstName")
+@NamedQuery(name = "User.findCardsByIds", query = "SELECT NEW aor.paj.proj_final_aor_backend.dto.MessageInfoUser(u.id, u.firstName, u.lastName, u.photo) FROM UserEntity u WHERE u.id IN :ids")
+@NamedQuery(name = "User.findActiveUserIdsExcept", query = "SELECT u.id FROM UserEntity u WHERE u.activeState = true AND u.id <> :userId")
 @NamedQuery(name="User.findUserByNameStartingWith", query = "SELECT u FROM UserEntity u WHERE u.id != :userId AND u.activeState=true AND (LOWER (u.firstName) LIKE LOWER (:prefix) OR LOWER (u.lastName) LIKE LOWER (:prefix)OR LOWER (u.nickname) LIKE LOWER (:prefix))")
 @NamedQuery(name = "User.findSkillsByUserId", query = "SELECT u.skills FROM UserEntity u WHERE u.id = :id")
 @NamedQuery(name = "User.findInterestsByUserId", query = "SELECT u.interests FROM UserEntity u WHERE u.id = :id")
@@ -111,17 +113,6 @@ public class UserEntity implements Serializable {
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL)
     private Set<UserSkillEntity> skills = new HashSet<>();
 
-    /**
-     * Notifications of the user.
-     */
-
-    @ManyToMany(fetch = FetchType.LAZY)
-    @JoinTable(
-            name = "user_notification",
-            joinColumns = @JoinColumn(name = "receiver_id", referencedColumnName = "id"),
-            inverseJoinColumns = @JoinColumn(name = "notification_id"))
-    private Set<NotificationEntity> notifications = new HashSet<>();
-
     /**
      * Messages sent by the user.
      */
@@ -166,7 +157,6 @@ public class UserEntity implements Serializable {
     public UserEntity() {
         this.interests = new HashSet<>();
         this.skills = new HashSet<>();
-        this.notifications = new HashSet<>();
         this.messagesSent = new HashSet<>();
         this.messagesReceived = new HashSet<>();
     }
@@ -324,21 +314,6 @@ public class UserEntity implements Serializable {
 
 
 
-    /**
-     * Getter for the messages sent.
-     * @return messages sent by the user.
-     */
-    public Set<NotificationEntity> getNotifications() {
-        return notifications;
-    }
-
-    /**
-     * Setter for the messages sent.
-     * @param notifications new messages sent by the user.
-     */
-    public void setNotifications(Set<NotificationEntity> notifications) {
-        this.notifications = notifications;
-    }
 
 
     /**
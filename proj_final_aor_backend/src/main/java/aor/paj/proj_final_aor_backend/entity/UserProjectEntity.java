@@ -47,6 +47,8 @@ import java.util.Set;
 @NamedQuery(name= "UserProject.findActiveProjectsFromAUserByUserIdOldest", query = "SELECT up FROM UserProjectEntity up WHERE up.user.id = :id  ORDER BY up.joinedAt ASC")
 @NamedQuery(name= "UserProject.findActiveProjectsFromAUserByUserIdState", query = "SELECT up FROM UserProjectEntity up WHERE up.user.id = :id ORDER BY up.project.stateId ASC")
 @NamedQuery(name = "UserProject.findUserProjectsByUserID", query = "SELECT up FROM UserProjectEntity up WHERE up.user.id = :id")
+@NamedQuery(name = "UserProject.findActiveProjectIdsByUserId", query = "SELECT up.project.id FROM UserProjectEntity up WHERE up.user.id = :id AND up.approved = true AND up.exited = false")
+@NamedQuery(name = "UserProject.markChatRead", query = "UPDATE UserProjectEntity up SET up.chatReadAt = :timestamp, up.chatReadMessageId = :id WHERE up.project.id = :projectId AND up.user.id = :userId AND (up.chatReadAt IS NULL OR up.chatReadAt < :timestamp OR (up.chatReadAt = :timestamp AND up.chatReadMessageId < :id))")
 public class UserProjectEntity implements Serializable {
 
     // Represents the project associated with this UserProjectEntity
@@ -84,6 +86,15 @@ public class UserProjectEntity implements Serializable {
     @Column(name="leftAt", nullable = true)
     private LocalDateTime leftAt;
 
+    // Represents the send timestamp of the last message of the project chat read by the user
+    // Project messages have a single read status, so each member keeps the position read up to
+    @Column(name="chat_read_at", nullable = true)
+    private LocalDateTime chatReadAt;
+
+    // Represents the id of the last message of the project chat read by the user, with chatReadAt
+    @Column(name="chat_read_message_id", nullable = true)
+    private Long chatReadMessageId;
+
     // Represents the messages received by the user in the project
     @OneToMany(mappedBy = "receiverGroup", fetch = FetchType.LAZY, cascade = {CascadeType.PERSIST, CascadeType.MERGE})
     private Set<MessageEntity> messagesReceived = new HashSet<>();
@@ -243,5 +254,41 @@ public class UserProjectEntity implements Serializable {
         this.leftAt = leftAt;
     }
 
+    /**
+     * Returns the send timestamp of the last message of the project chat read by the user.
+     *
+     * @return the send timestamp, or null if the user did not read the chat
+     */
+    public LocalDateTime getChatReadAt() {
+        return chatReadAt;
+    }
+
+    /**
+     * Sets the send timestamp of the last message of the project chat read by the user.
+     *
+     * @param chatReadAt the send timestamp
+     */
+    public void setChatReadAt(LocalDateTime chatReadAt) {
+        this.chatReadAt = chatReadAt;
+    }
+
+    /**
+     * Returns the id of the last message of the project chat read by the user.
+     *
+     * @return the id of the message, or null if the user did not read the chat
+     */
+    public Long getChatReadMessageId() {
+        return chatReadMessageId;
+    }
+
+    /**
+     * Sets the id of the last message of the project chat read by the user.
+     *
+     * @param chatReadMessageId the id of the message
+     */
+    public void setChatReadMessageId(Long chatReadMessageId) {
+        this.chatReadMessageId = chatReadMessageId;
+    }
+
 
 }
\ No newline at end of file
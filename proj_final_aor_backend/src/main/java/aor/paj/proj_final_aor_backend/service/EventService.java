@@ -0,0 +1,73 @@
+package aor.paj.proj_final_aor_backend.service;
+
+import aor.paj.proj_final_aor_backend.bean.UserBean;
+import aor.paj.proj_final_aor_backend.dto.User;
+import aor.paj.proj_final_aor_backend.websocket.SseHub;
+import jakarta.ejb.EJB;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Path("/events")
+public class EventService {
+
+    private static final Logger logger = LogManager.getLogger(EventService.class);
+
+    @EJB
+    private UserBean userBean;
+
+    @EJB
+    private SseHub sseHub;
+
+    /**
+     * Opens a server-sent events stream with the same envelopes sent through the websocket hub.
+     * EventSource can not send headers, so the token can also be given as a query parameter.
+     *
+     * @param sink        The sink of the stream.
+     * @param sse         The factory of the events.
+     * @param token       The token of the user, from the header.
+     * @param tokenParam  The token of the user, from the query.
+     * @param channels    The channels to subscribe, separated by commas.
+     * @param lastEventId The id of the last event received, sent by the browser when it reconnects.
+     */
+    @GET
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void stream(@Context SseEventSink sink, @Context Sse sse,
+                       @HeaderParam("token") String token, @QueryParam("token") String tokenParam,
+                       @QueryParam("channels") String channels, @HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER) String lastEventId) {
+        logger.info("Received request to open an event stream");
+
+        User user = userBean.getUserByToken(token != null ? token : tokenParam);
+        if (user == null) {
+            logger.error("User not found or unauthorized");
+            throw new NotAuthorizedException("User not found or unauthorized");
+        }
+
+        Long lastSeq = null;
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            try {
+                lastSeq = Long.parseLong(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring invalid Last-Event-ID: " + lastEventId);
+            }
+        }
+
+        List<String> channelList = new ArrayList<>();
+        if (channels != null) {
+            for (String channel : channels.split(",")) {
+                if (!channel.isBlank()) {
+                    channelList.add(channel.trim());
+                }
+            }
+        }
+        sseHub.open(user.getId(), sink, sse, channelList, lastSeq);
+    }
+}
@@ -1,11 +1,17 @@
 package aor.paj.proj_final_aor_backend.service;
 
 import aor.paj.proj_final_aor_backend.bean.MessageBean;
+import aor.paj.proj_final_aor_backend.bean.MessageSearchBean;
 import aor.paj.proj_final_aor_backend.bean.UserBean;
+import aor.paj.proj_final_aor_backend.dto.CursorPage;
 import aor.paj.proj_final_aor_backend.dto.Message;
 import aor.paj.proj_final_aor_backend.dto.MessageInfoUser;
+import aor.paj.proj_final_aor_backend.dto.MessageSearchHit;
+import aor.paj.proj_final_aor_backend.dto.ReadReceipt;
 import aor.paj.proj_final_aor_backend.dto.User;
 import aor.paj.proj_final_aor_backend.bean.UserBean;
+import aor.paj.proj_final_aor_backend.util.PageCursor;
+import aor.paj.proj_final_aor_backend.util.SearchCursor;
 import jakarta.ejb.EJB;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.transaction.Transactional;
@@ -29,6 +35,9 @@ public class MessageService {
     @EJB
     UserBean userBean;
 
+    @EJB
+    MessageSearchBean messageSearchBean;
+
 
     /**
      * This method is used to send a new message from one user to another.
@@ -94,6 +103,9 @@ public class MessageService {
      * @param token The token of the user trying to retrieve the messages.
      * @param user_id The id of the other user with whom the messages are exchanged.
      * @param page The page number for pagination. Default value is 0.
+     * @param cursor The cursor returned with the previous page, or empty for the first page. When present, the
+     *               messages are read with keyset pagination and returned in a page with the cursor of the next one.
+     * @param limit The number of messages in each page read with a cursor. Default value is 20, at most 50.
      * @param request The HTTP request.
      * @return Response The response of the operation, containing the list of all messages between the two users.
      */
@@ -105,6 +117,8 @@ public class MessageService {
     public Response getMessagesBetweenTwoUsers(@HeaderParam("token") String token,
                                                @PathParam("user_id") long user_id,
                                                @QueryParam("page") @DefaultValue("0") int page,
+                                               @QueryParam("cursor") String cursor,
+                                               @QueryParam("limit") @DefaultValue("20") int limit,
                                                @Context HttpServletRequest request) {
         //Get the user by token
         User user1 = userBean.getUserByToken(token);
@@ -115,6 +129,15 @@ public class MessageService {
             logger.error("IP Adress " + ip + "User not found");
             return Response.status(Response.Status.UNAUTHORIZED).entity("User not found").build();
         }
+        if (cursor != null) {
+            try {
+                CursorPage<Message> messagePage = messageBean.getMessagesBetweenTwoUsers(token, user_id, PageCursor.decode(cursor), Math.max(1, Math.min(limit, 50)));
+                return Response.status(Response.Status.OK).entity(messagePage).build();
+            } catch (IllegalArgumentException e) {
+                logger.error("IP Adress " + ip + e.getMessage());
+                return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+            }
+        }
         List<Message> messages = messageBean.getMessagesBetweenTwoUsers(token, user_id, page, 4);
         if (messages == null || messages.isEmpty()) {
             logger.error("IP Adress " + ip + "Messages not found");
@@ -130,6 +153,7 @@ public class MessageService {
      * If the user is not found, it returns a response with status UNAUTHORIZED.
      * If the user is found, it attempts to send the message to the chat group of the specified project.
      * If the message is sent successfully, it logs the success and returns a response with status CREATED.
+     * If too many messages wait to be saved, it returns a response with status SERVICE_UNAVAILABLE, to be sent again later.
      * If the message sending fails, it logs the failure and returns a response with status BAD_REQUEST.
      *
      * @param token The token of the user trying to send the message.
@@ -159,6 +183,9 @@ public class MessageService {
         if (sent) {
             logger.info("IP Adress: " + ip + "Message was sent sucessfully for project with the id: " + project_id + " by user with the id: " + user.getId() + " at " + LocalDateTime.now());
             return Response.status(Response.Status.CREATED).entity("Message sent successfully").build();
+        } else if (messageBean.isChatQueueFull()) {
+            logger.warn("IP Adress: " + ip + "Message rejected for project with the id: " + project_id + " by user with the id: " + user.getId() + ", too many messages wait to be saved");
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).header("Retry-After", 1).entity("Too many messages, try again later").build();
         } else {
             logger.error("IP Adress: " + ip + "Message not sent for project with the id: " + project_id + " by user with the id: " + user.getId() + " at " + LocalDateTime.now());
             return Response.status(Response.Status.BAD_REQUEST).entity("Failed to send message").build();
@@ -172,9 +199,14 @@ public class MessageService {
      * If the user is found, it retrieves all messages associated with the specified project from the database.
      * If no messages are found, it returns a response with status NOT_FOUND.
      * If messages are found, it logs the success and returns a response with status OK and the list of all messages associated with the project.
+     * When a before or since cursor is given, it returns a page of the messages instead, older than before to scroll back,
+     * or newer than since to catch up, an empty since cursor reads the chat from its beginning.
      *
      * @param token The token of the user trying to retrieve the messages.
      * @param project_id The id of the project whose messages are to be retrieved.
+     * @param before The cursor of the oldest message already shown, empty for the latest messages.
+     * @param since The cursor of the newest message already shown.
+     * @param limit The maximum number of messages of a page.
      * @param request The HTTP request.
      * @return Response The response of the operation, containing the list of all messages associated with the project.
      */
@@ -183,7 +215,11 @@ public class MessageService {
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)
     @Transactional
-    public Response getMessagesByProject(@HeaderParam("token") String token, @PathParam("project_id") long project_id, @Context HttpServletRequest request) {
+    public Response getMessagesByProject(@HeaderParam("token") String token, @PathParam("project_id") long project_id,
+                                         @QueryParam("before") String before,
+                                         @QueryParam("since") String since,
+                                         @QueryParam("limit") @DefaultValue("50") int limit,
+                                         @Context HttpServletRequest request) {
         // Get the user by token
         User user = userBean.getUserByToken(token);
         String ip = request.getRemoteAddr();
@@ -192,6 +228,20 @@ public class MessageService {
             logger.error("User not found");
             return Response.status(Response.Status.UNAUTHORIZED).entity("User not found").build();
         }
+        if (before != null || since != null) {
+            try {
+                PageCursor sinceCursor = since == null ? null : PageCursor.decode(since, PageCursor.START);
+                CursorPage<Message> messagePage = messageBean.getMessagesChatProject(token, project_id, PageCursor.decode(before), sinceCursor, Math.max(1, Math.min(limit, 100)));
+                if (messagePage == null) {
+                    logger.error("IP Adress " + ip + "User " + user.getId() + " is not in the project with the id: " + project_id);
+                    return Response.status(Response.Status.FORBIDDEN).entity("User not in project").build();
+                }
+                return Response.status(Response.Status.OK).entity(messagePage).build();
+            } catch (IllegalArgumentException e) {
+                logger.error("IP Adress " + ip + e.getMessage());
+                return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+            }
+        }
         List<Message> messages = messageBean.getMessagesChatPtoject(token, project_id);
         if (messages == null || messages.isEmpty()) {
             logger.error("IP Adress " + ip + "Messages not found for project with the id: " + project_id + " requested by user " + user.getId() + " at " + LocalDateTime.now());
@@ -202,6 +252,43 @@ public class MessageService {
     }
 
 
+    /**
+     * This method is used to search the direct messages of the authenticated user and the messages of the user's projects.
+     * It first logs the IP address of the request.
+     * If the user is not authenticated, it returns a response with status UNAUTHORIZED.
+     * If the cursor is not valid, it returns a response with status BAD_REQUEST.
+     * Otherwise it returns a response with status OK and a page of the messages found, the ones with more words of the search first.
+     *
+     * @param token The token of the user searching the messages.
+     * @param query The text to search.
+     * @param cursor The cursor of the page, empty for the first page.
+     * @param limit The maximum number of messages of the page.
+     * @param request The HTTP request.
+     * @return Response The response of the operation, containing the page of messages found.
+     */
+    @GET
+    @Path("/search")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response searchMessages(@HeaderParam("token") String token,
+                                   @QueryParam("q") String query,
+                                   @QueryParam("cursor") String cursor,
+                                   @QueryParam("limit") @DefaultValue("20") int limit,
+                                   @Context HttpServletRequest request) {
+        String ip = request.getRemoteAddr();
+        logger.info("Received request to search messages from IP: " + ip);
+        try {
+            CursorPage<MessageSearchHit> hits = messageSearchBean.search(token, query, SearchCursor.decode(cursor), Math.max(1, Math.min(limit, 50)));
+            if (hits == null) {
+                logger.error("IP Adress " + ip + "User not found");
+                return Response.status(Response.Status.UNAUTHORIZED).entity("User not found").build();
+            }
+            return Response.status(Response.Status.OK).entity(hits).build();
+        } catch (IllegalArgumentException e) {
+            logger.error("IP Adress " + ip + e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+    }
+
     //Get the list of users that the user logged sent or received messages
     /**
      * This method is used to retrieve all users with whom the authenticated user has exchanged messages.
@@ -266,6 +353,70 @@ public class MessageService {
         return Response.status(Response.Status.OK).entity(pageCount).build();
     }
 
+    /**
+     * This method is used to mark as read the messages the authenticated user received from another user, up to a cursor.
+     * The messages are marked with a single update and the other user receives a read receipt.
+     * If a user is not found, it returns a response with status NOT_FOUND.
+     * If the cursor is not valid, it returns a response with status BAD_REQUEST.
+     *
+     * @param token The token of the user who read the messages.
+     * @param user_id The id of the user who sent the messages.
+     * @param upTo The cursor of the last message read, empty for every message.
+     * @param request The HTTP request.
+     * @return Response The response of the operation, containing the read receipt.
+     */
+    @PUT
+    @Path("/{user_id}/read")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response markConversationAsRead(@HeaderParam("token") String token, @PathParam("user_id") long user_id,
+                                           @QueryParam("upTo") String upTo, @Context HttpServletRequest request) {
+        String ip = request.getRemoteAddr();
+        logger.info("Received request to mark the conversation with user " + user_id + " as read from IP: " + ip);
+        try {
+            ReadReceipt receipt = messageBean.markConversationAsRead(token, user_id, PageCursor.decode(upTo));
+            if (receipt == null) {
+                logger.error("IP Adress " + ip + "User not found");
+                return Response.status(Response.Status.NOT_FOUND).entity("User not found").build();
+            }
+            return Response.status(Response.Status.OK).entity(receipt).build();
+        } catch (IllegalArgumentException e) {
+            logger.error("IP Adress " + ip + e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+    }
+
+    /**
+     * This method is used to mark the chat of a project as read by the authenticated user, up to a cursor.
+     * The position is kept for the member with a single update and the other members receive a read receipt.
+     * If the user is not in the project, it returns a response with status FORBIDDEN.
+     * If the cursor is not valid, it returns a response with status BAD_REQUEST.
+     *
+     * @param token The token of the user who read the messages.
+     * @param project_id The id of the project.
+     * @param upTo The cursor of the last message read, empty for the latest message.
+     * @param request The HTTP request.
+     * @return Response The response of the operation, containing the read receipt.
+     */
+    @PUT
+    @Path("/project/{project_id}/read")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response markProjectChatAsRead(@HeaderParam("token") String token, @PathParam("project_id") long project_id,
+                                          @QueryParam("upTo") String upTo, @Context HttpServletRequest request) {
+        String ip = request.getRemoteAddr();
+        logger.info("Received request to mark the chat of project " + project_id + " as read from IP: " + ip);
+        try {
+            ReadReceipt receipt = messageBean.markProjectChatAsRead(token, project_id, PageCursor.decode(upTo));
+            if (receipt == null) {
+                logger.error("IP Adress " + ip + "User not in the project with the id: " + project_id);
+                return Response.status(Response.Status.FORBIDDEN).entity("User not in project").build();
+            }
+            return Response.status(Response.Status.OK).entity(receipt).build();
+        } catch (IllegalArgumentException e) {
+            logger.error("IP Adress " + ip + e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+    }
+
     /**
      * This method is used to mark a specific message as read.
      * It first logs the request to mark the message as read.
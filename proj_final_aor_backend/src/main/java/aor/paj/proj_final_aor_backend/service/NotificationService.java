@@ -1,10 +1,15 @@
 package aor.paj.proj_final_aor_backend.service;
 
 import aor.paj.proj_final_aor_backend.bean.NotificationBean;
+import aor.paj.proj_final_aor_backend.bean.NotificationPreferenceBean;
 import aor.paj.proj_final_aor_backend.bean.UserBean;
+import aor.paj.proj_final_aor_backend.dto.CursorPage;
 import aor.paj.proj_final_aor_backend.dto.Notification;
+import aor.paj.proj_final_aor_backend.dto.NotificationPreference;
+import aor.paj.proj_final_aor_backend.dto.UnreadCounters;
 import aor.paj.proj_final_aor_backend.dto.User;
 import aor.paj.proj_final_aor_backend.entity.UserEntity;
+import aor.paj.proj_final_aor_backend.util.PageCursor;
 import jakarta.ejb.EJB;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.ws.rs.*;
@@ -24,6 +29,8 @@ public class NotificationService {
     @EJB
     NotificationBean notificationBean;
     @EJB
+    NotificationPreferenceBean notificationPreferenceBean;
+    @EJB
     UserBean userBean;
 
 
@@ -38,6 +45,9 @@ public class NotificationService {
      * @param token The token of the user trying to retrieve the notifications.
      * @param userId The id of the user whose notifications are to be retrieved.
      * @param page The page number for pagination. Default value is 1.
+     * @param cursor The cursor returned with the previous page, or empty for the first page. When present, the
+     *               notifications are read with keyset pagination and returned in a page with the cursor of the next one.
+     * @param limit The number of notifications in each page read with a cursor. Default value is 6, at most 50.
      * @param request The HTTP request.
      * @return Response The response of the operation, containing the list of all notifications for the user or an error message.
      */
@@ -46,10 +56,23 @@ public class NotificationService {
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)
     public Response getNotifications(@HeaderParam("token") String token, @PathParam("userId") long userId,
-                                     @QueryParam("page") @DefaultValue("1") int page, @Context HttpServletRequest request) {
+                                     @QueryParam("page") @DefaultValue("1") int page,
+                                     @QueryParam("cursor") String cursor,
+                                     @QueryParam("limit") @DefaultValue("6") int limit,
+                                     @Context HttpServletRequest request) {
         String ip = request.getRemoteAddr();
         logger.debug("Received request to get notifications for user with id: " + userId);
         try {
+            if (cursor != null) {
+                CursorPage<Notification> notificationPage = notificationBean.getNotificationsByUserId(token, userId, PageCursor.decode(cursor), Math.max(1, Math.min(limit, 50)));
+                if (notificationPage != null) {
+                    logger.info("IP Address " + ip + ": Notifications retrieved successfully for user with id " + userId);
+                    return Response.status(Response.Status.OK).entity(notificationPage).build();
+                } else {
+                    logger.error("IP Address " + ip + ": Error retrieving notifications for user with id " + userId);
+                    return Response.status(Response.Status.BAD_REQUEST).entity("Error retrieving notifications").build();
+                }
+            }
             List<Notification> notifications = notificationBean.getNotificationsByUserId(token, userId, page, 6);
 
             if (notifications != null) {
@@ -59,12 +82,77 @@ public class NotificationService {
                 logger.error("IP Address " + ip + ": Error retrieving notifications for user with id " + userId);
                 return Response.status(Response.Status.BAD_REQUEST).entity("Error retrieving notifications").build();
             }
+        } catch (IllegalArgumentException e) {
+            logger.error("IP Address " + ip + ": " + e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
         } catch (Exception e) {
             logger.error("IP Address " + ip + ": Error retrieving notifications for user with id " + userId + ": " + e.getMessage());
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Error retrieving notifications: " + e.getMessage()).build();
         }
     }
 
+    /**
+     * This method is used to drop the table where older versions kept the receivers of the notifications.
+     * It is an operation of the administrators, run once after checking that the migration to the recipients is complete.
+     * The table is only dropped if every one of its rows has a matching recipient.
+     * If the operation is successful, it logs the success and returns a response with status OK and a success message.
+     * If the user is not an administrator or some receivers are missing, it logs the error and returns a response with status BAD_REQUEST and an error message.
+     *
+     * @param token The token of the administrator.
+     * @return Response The response of the operation.
+     */
+    @DELETE
+    @Path("/old-receivers")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response dropOldNotificationReceivers(@HeaderParam("token") String token) {
+        logger.info("Received request to drop the old notification receivers");
+        try {
+            boolean dropped = notificationBean.dropOldNotificationReceivers(token);
+
+            if (dropped) {
+                logger.info("Old notification receivers dropped successfully");
+                return Response.status(Response.Status.OK).entity("Old notification receivers dropped successfully").build();
+            } else {
+                logger.error("Error dropping the old notification receivers");
+                return Response.status(Response.Status.BAD_REQUEST).entity("Error dropping the old notification receivers").build();
+            }
+        } catch (Exception e) {
+            logger.error("Error dropping the old notification receivers: " + e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+    }
+
+    /**
+     * This method is used to mark all the notifications of the user as read.
+     * It marks them with a single update, whatever the number of notifications.
+     * If the operation is successful, it logs the success and returns a response with status OK and a success message.
+     * If the user is not found, it logs the error and returns a response with status BAD_REQUEST and an error message.
+     *
+     * @param token The token of the user trying to mark the notifications as read.
+     * @return Response The response of the operation.
+     */
+    @PUT
+    @Path("/read-all")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response markAllNotificationsAsRead(@HeaderParam("token") String token){
+        logger.info("Received request to mark all notifications as read");
+        try {
+            boolean updated = notificationBean.markAllNotificationsAsRead(token);
+
+            if(updated) {
+                logger.info("Notifications marked as read successfully");
+                return Response.status(Response.Status.OK).entity("Notifications marked as read successfully").build();
+            } else {
+                logger.error("Error marking notifications as read");
+                return Response.status(Response.Status.BAD_REQUEST).entity("Error marking notifications as read").build();
+            }
+        } catch (Exception e) {
+            logger.error("Error marking notifications as read: " + e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+    }
+
     /**
      * This method is used to mark a specific notification as read.
      * It first logs the request to mark the notification as read.
@@ -132,6 +220,83 @@ public class NotificationService {
         }
     }
 
+    /**
+     * This method is used to retrieve the notification preferences of the user.
+     * Only the preferences that were changed are returned, the others are real time.
+     * If the user is not found, it logs the error and returns a response with status UNAUTHORIZED and an error message.
+     *
+     * @param token The token of the user trying to retrieve the preferences.
+     * @return Response The response of the operation, containing the preferences or an error message.
+     */
+    @GET
+    @Path("/preferences")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getPreferences(@HeaderParam("token") String token) {
+        logger.info("Received request to get notification preferences");
+        List<NotificationPreference> preferences = notificationPreferenceBean.getPreferences(token);
+
+        if (preferences != null) {
+            return Response.status(Response.Status.OK).entity(preferences).build();
+        } else {
+            logger.error("Error retrieving notification preferences");
+            return Response.status(Response.Status.UNAUTHORIZED).entity("Invalid token").build();
+        }
+    }
+
+    /**
+     * This method is used to change a notification preference of the user, for all the notifications (project 0)
+     * or for the ones about a project: REAL_TIME, DIGEST (kept in the list but not pushed) or MUTED (not created).
+     * Without delivery, the preference for the project is removed and the one for all the notifications applies.
+     * If the user is not found or is not in the project, it logs the error and returns a response with status BAD_REQUEST and an error message.
+     *
+     * @param token      The token of the user trying to change the preference.
+     * @param preference The new preference.
+     * @return Response The response of the operation.
+     */
+    @PUT
+    @Path("/preferences")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response setPreference(@HeaderParam("token") String token, NotificationPreference preference) {
+        logger.info("Received request to change a notification preference");
+        boolean updated = notificationPreferenceBean.setPreference(token, preference);
+
+        if (updated) {
+            return Response.status(Response.Status.OK).entity("Notification preference updated").build();
+        } else {
+            logger.error("Error updating notification preference");
+            return Response.status(Response.Status.BAD_REQUEST).entity("Error updating notification preference").build();
+        }
+    }
+
+    /**
+     * This method is used to retrieve the unread counters of the user, by kind of notification.
+     * The counters are kept in memory, so the request does not count the notifications.
+     * If the user is not found, it logs the error and returns a response with status UNAUTHORIZED and an error message.
+     *
+     * @param token The token of the user trying to retrieve the unread counters.
+     * @return Response The response of the operation, containing the unread counters or an error message.
+     */
+    @GET
+    @Path("/unread/counters")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getUnreadCounters(@HeaderParam("token") String token){
+        logger.info("Received request to get unread counters");
+        try {
+            UnreadCounters counters = notificationBean.getUnreadCounters(token);
+
+            if(counters != null) {
+                return Response.status(Response.Status.OK).entity(counters).build();
+            } else {
+                logger.error("Error retrieving unread counters");
+                return Response.status(Response.Status.UNAUTHORIZED).entity("Invalid token").build();
+            }
+        } catch (Exception e) {
+            logger.error("Error retrieving unread counters: " + e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        }
+    }
+
     /**
      * This method is used to retrieve the total number of pages of notifications for a specific user.
      * It first logs the IP address of the request.
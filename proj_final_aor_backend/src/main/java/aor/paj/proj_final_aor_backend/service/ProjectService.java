@@ -80,6 +80,24 @@ public class ProjectService {
         return Response.status(Response.Status.OK).entity(projects).build();
     }
 
+    @GET
+    @Path("/{id}/online-members")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getOnlineMembers(@PathParam("id") long projectId, @HeaderParam("token") String token) {
+        logger.info("Received request to get the online members of project " + projectId);
+
+        User user = userBean.getUserByToken(token);
+        if (user == null) {
+            logger.error("User not found or unauthorized");
+            return Response.status(Response.Status.UNAUTHORIZED).entity("User not found or unauthorized").build();
+        }
+        if (!userProjectBean.userProjectExists(user.getId(), projectId)) {
+            logger.error("User " + user.getId() + " is not a member of project " + projectId);
+            return Response.status(Response.Status.FORBIDDEN).entity("User is not a member of the project").build();
+        }
+        return Response.status(Response.Status.OK).entity(userProjectBean.getOnlineMembersOfAProject(projectId)).build();
+    }
+
     @GET
     @Path("/{id}")
     @Produces(MediaType.APPLICATION_JSON)
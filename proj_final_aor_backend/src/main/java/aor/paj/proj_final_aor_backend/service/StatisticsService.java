@@ -44,6 +44,20 @@ public class StatisticsService {
         return Response.ok(statisticsBean.getProjectStatistics()).build();
     }
 
+    @GET
+    @Path("/websocket")
+    @Produces("application/json")
+    public Response getWebsocketStatistics(@HeaderParam("token") String token) {
+        logger.info("Received request to get websocket statistics");
+
+        User user = userBean.getUserByToken(token);
+        if (user == null || !user.getUserType().toString().equals("ADMIN")) {
+            logger.error("User not found or unauthorized");
+            return Response.status(Response.Status.UNAUTHORIZED).entity("User not found or unauthorized").build();
+        }
+        return Response.ok(statisticsBean.getWebsocketStatistics()).build();
+    }
+
     @GET
     @Path("/generate-pdf")
     @Produces("application/pdf")
@@ -0,0 +1,207 @@
+package aor.paj.proj_final_aor_backend.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Local file where the project chat messages are written, one JSON line each, before they are saved in the database.
+ * Every append is forced to the disk, so a message acknowledged to its sender survives a crash of the server.
+ * A checkpoint file keeps the sequence number of the last message saved, the messages after it are replayed at startup.
+ * The log is emptied when every message in it was saved and it grew past the compaction size.
+ * The messages that cannot be saved are moved to a dead letter file next to the log, which is never emptied.
+ */
+public class ChatAppendLog implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(ChatAppendLog.class);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    static {
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    private final Path file;
+    private final Path checkpointFile;
+    private final Path deadLetterFile;
+    private final long compactBytes;
+    private final FileChannel channel;
+
+    private long lastSeq;
+    private long checkpoint;
+
+    /**
+     * Opens the log, creating it if needed. A line left incomplete by a crash is removed.
+     *
+     * @param file         The file of the log, the checkpoint is kept next to it.
+     * @param compactBytes The size after which the log is emptied once every message in it was saved.
+     * @throws IOException If the log cannot be opened.
+     */
+    public ChatAppendLog(Path file, long compactBytes) throws IOException {
+        this.file = file;
+        this.checkpointFile = file.resolveSibling(file.getFileName() + ".checkpoint");
+        this.deadLetterFile = file.resolveSibling(file.getFileName() + ".dead");
+        this.compactBytes = compactBytes;
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.checkpoint = Files.exists(checkpointFile) ? Long.parseLong(Files.readString(checkpointFile).trim()) : 0;
+        this.lastSeq = checkpoint;
+        for (ChatLogEntry entry : readAll()) {
+            lastSeq = Math.max(lastSeq, entry.getSeq());
+        }
+        channel.position(channel.size());
+    }
+
+    /**
+     * Appends a message to the log and forces it to the disk.
+     * The send timestamp is taken under the same lock as the sequence number, so both have the same order.
+     *
+     * @param projectId The id of the project.
+     * @param senderId  The id of the sender.
+     * @param content   The content of the message.
+     * @return The entry written.
+     * @throws IOException If the message could not be written.
+     */
+    public synchronized ChatLogEntry append(long projectId, long senderId, String content) throws IOException {
+        ChatLogEntry entry = new ChatLogEntry(lastSeq + 1, UUID.randomUUID().toString(), projectId, senderId, content, LocalDateTime.now());
+        byte[] line = (objectMapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(line);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        lastSeq = entry.getSeq();
+        return entry;
+    }
+
+    /**
+     * Writes a message that cannot be saved to the dead letter file and forces it to the disk.
+     * The message keeps its key, so it can be saved by hand later without being saved twice.
+     *
+     * @param entry The entry of the log.
+     * @throws IOException If the message could not be written.
+     */
+    public synchronized void deadLetter(ChatLogEntry entry) throws IOException {
+        Files.writeString(deadLetterFile, objectMapper.writeValueAsString(entry) + "\n", StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+    }
+
+    /**
+     * Reads the messages moved to the dead letter file.
+     *
+     * @return The entries, in the order they were moved.
+     * @throws IOException If the file cannot be read.
+     */
+    public synchronized List<ChatLogEntry> readDeadLetters() throws IOException {
+        List<ChatLogEntry> entries = new ArrayList<>();
+        if (!Files.exists(deadLetterFile)) {
+            return entries;
+        }
+        for (String line : Files.readAllLines(deadLetterFile, StandardCharsets.UTF_8)) {
+            if (!line.isBlank()) {
+                entries.add(objectMapper.readValue(line, ChatLogEntry.class));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Reads the messages after the checkpoint, the ones that may not be saved in the database.
+     *
+     * @return The entries, in sequence order.
+     * @throws IOException If the log cannot be read.
+     */
+    public synchronized List<ChatLogEntry> readPending() throws IOException {
+        List<ChatLogEntry> pending = new ArrayList<>();
+        for (ChatLogEntry entry : readAll()) {
+            if (entry.getSeq() > checkpoint) {
+                pending.add(entry);
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Records that the messages up to a sequence number are saved, emptying the log when it holds no other message.
+     *
+     * @param seq The sequence number of the last message saved.
+     * @throws IOException If the checkpoint cannot be written.
+     */
+    public synchronized void checkpoint(long seq) throws IOException {
+        if (seq <= checkpoint) {
+            return;
+        }
+        Path temporary = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        Files.writeString(temporary, Long.toString(seq));
+        Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        checkpoint = seq;
+        if (seq == lastSeq && channel.size() > compactBytes) {
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(true);
+            logger.debug("Chat append log emptied up to the message " + seq);
+        }
+    }
+
+    /**
+     * Returns the sequence number of the last message saved in the database.
+     *
+     * @return The sequence number, 0 if none.
+     */
+    public synchronized long getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Reads every complete line of the log, cutting an incomplete last line.
+     */
+    private List<ChatLogEntry> readAll() throws IOException {
+        List<ChatLogEntry> entries = new ArrayList<>();
+        byte[] bytes = Files.readAllBytes(file);
+        int start = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                String line = new String(bytes, start, i - start, StandardCharsets.UTF_8);
+                try {
+                    entries.add(objectMapper.readValue(line, ChatLogEntry.class));
+                } catch (IOException e) {
+                    logger.warn("Skipping an invalid line of the chat append log " + file + ": " + e.getMessage());
+                }
+                start = i + 1;
+            }
+        }
+        if (start < bytes.length) {
+            logger.warn("Removing an incomplete line at the end of the chat append log " + file);
+            channel.truncate(start);
+        }
+        return entries;
+    }
+
+    /**
+     * Closes the log.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,77 @@
+package aor.paj.proj_final_aor_backend.util;
+
+import java.time.LocalDateTime;
+
+/**
+ * A message of a project chat written to the chat append log before it is saved in the database.
+ * The key is saved with the message, so a message replayed after a crash is not saved twice.
+ */
+public class ChatLogEntry {
+
+    private long seq;
+    private String key;
+    private long projectId;
+    private long senderId;
+    private String content;
+    private LocalDateTime sentAt;
+
+    public ChatLogEntry() {
+    }
+
+    public ChatLogEntry(long seq, String key, long projectId, long senderId, String content, LocalDateTime sentAt) {
+        this.seq = seq;
+        this.key = key;
+        this.projectId = projectId;
+        this.senderId = senderId;
+        this.content = content;
+        this.sentAt = sentAt;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public long getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(long projectId) {
+        this.projectId = projectId;
+    }
+
+    public long getSenderId() {
+        return senderId;
+    }
+
+    public void setSenderId(long senderId) {
+        this.senderId = senderId;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public LocalDateTime getSentAt() {
+        return sentAt;
+    }
+
+    public void setSentAt(LocalDateTime sentAt) {
+        this.sentAt = sentAt;
+    }
+}
@@ -0,0 +1,60 @@
+package aor.paj.proj_final_aor_backend.util;
+
+import java.text.Normalizer;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Splits the content of messages and search queries into the terms of the message search index.
+ * Terms are lower case words and numbers without accents, so "Reunião" and "reuniao" are the same term.
+ */
+public final class MessageTerms {
+
+    /**
+     * Shortest term kept, single letters match almost every message.
+     */
+    public static final int MIN_LENGTH = 2;
+
+    /**
+     * Longest term kept, longer words are cut.
+     */
+    public static final int MAX_LENGTH = 40;
+
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private MessageTerms() {
+    }
+
+    /**
+     * Finds the distinct terms of a text, in the order they first appear.
+     *
+     * @param text The text.
+     * @return The terms, empty if the text has none.
+     */
+    public static Set<String> of(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+        for (String word : SEPARATORS.split(normalize(text))) {
+            if (word.length() >= MIN_LENGTH) {
+                terms.add(word.length() > MAX_LENGTH ? word.substring(0, MAX_LENGTH) : word);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Lower cases a text and removes its accents, keeping one character for each character of the text
+     * when it has no combined letters, so positions found in it can be used in the original text.
+     *
+     * @param text The text.
+     * @return The normalized text.
+     */
+    public static String normalize(String text) {
+        return ACCENTS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,82 @@
+package aor.paj.proj_final_aor_backend.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a list ordered by timestamp and id, newest first, used for keyset pagination.
+ * The next page has the rows strictly before the position, so the database seeks to it with an index
+ * instead of skipping every row of the previous pages. Clients receive it as an opaque string.
+ */
+public final class PageCursor {
+
+    /**
+     * Position before every row, used for the first page.
+     */
+    public static final PageCursor FIRST = new PageCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    /**
+     * Position after no row, used to read a list from its beginning in ascending order.
+     */
+    public static final PageCursor START = new PageCursor(LocalDateTime.of(1000, 1, 1, 0, 0), 0);
+
+    private final LocalDateTime timestamp;
+    private final long id;
+
+    public PageCursor(LocalDateTime timestamp, long id) {
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Encodes the position as an opaque string.
+     *
+     * @return The cursor.
+     */
+    public String encode() {
+        String value = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor sent by a client, an empty cursor is the first page.
+     *
+     * @param cursor The cursor.
+     * @return The position.
+     * @throws IllegalArgumentException If the cursor is not valid.
+     */
+    public static PageCursor decode(String cursor) {
+        return decode(cursor, FIRST);
+    }
+
+    /**
+     * Decodes a cursor sent by a client.
+     *
+     * @param cursor The cursor.
+     * @param empty  The position of an empty cursor.
+     * @return The position.
+     * @throws IllegalArgumentException If the cursor is not valid.
+     */
+    public static PageCursor decode(String cursor, PageCursor empty) {
+        if (cursor == null || cursor.isEmpty()) {
+            return empty;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf('|');
+            return new PageCursor(LocalDateTime.parse(value.substring(0, separator)), Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
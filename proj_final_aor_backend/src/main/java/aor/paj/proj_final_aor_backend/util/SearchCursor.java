@@ -0,0 +1,62 @@
+package aor.paj.proj_final_aor_backend.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a list of search results ordered by score and id, best and newest first, used for keyset pagination.
+ * Clients receive it as an opaque string, like a PageCursor.
+ */
+public final class SearchCursor {
+
+    /**
+     * Position before every result, used for the first page.
+     */
+    public static final SearchCursor FIRST = new SearchCursor(Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private final long score;
+    private final long id;
+
+    public SearchCursor(long score, long id) {
+        this.score = score;
+        this.id = id;
+    }
+
+    public long getScore() {
+        return score;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Encodes the position as an opaque string.
+     *
+     * @return The cursor.
+     */
+    public String encode() {
+        String value = score + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor sent by a client, an empty cursor is the first page.
+     *
+     * @param cursor The cursor.
+     * @return The position.
+     * @throws IllegalArgumentException If the cursor is not valid.
+     */
+    public static SearchCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return FIRST;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf('|');
+            return new SearchCursor(Long.parseLong(value.substring(0, separator)), Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package aor.paj.proj_final_aor_backend.util.enums;
+
+/**
+ * Enum representing who receives an event published in the websocket event broker.
+ *
+ * <ul>
+ *   <li>USER: The sessions of a single user.</li>
+ *   <li>ALL_EXCEPT: The sessions of every user except one.</li>
+ *   <li>PROJECT: The sessions of the active members of a project.</li>
+ *   <li>NODES: The other nodes of the application, used to keep their caches in sync.</li>
+ * </ul>
+ */
+public enum EventTarget {
+
+    /**
+     * Represents the sessions of a single user.
+     */
+    USER,
+
+    /**
+     * Represents the sessions of every user except one.
+     */
+    ALL_EXCEPT,
+
+    /**
+     * Represents the sessions of the active members of a project.
+     */
+    PROJECT,
+
+    /**
+     * Represents the other nodes of the application, used to keep their caches in sync.
+     */
+    NODES
+}
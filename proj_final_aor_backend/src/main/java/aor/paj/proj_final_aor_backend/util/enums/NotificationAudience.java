@@ -0,0 +1,22 @@
+package aor.paj.proj_final_aor_backend.util.enums;
+
+/**
+ * Enum representing who receives a notification queued in the notification outbox.
+ *
+ * <ul>
+ *   <li>ALL_USERS: Every active user except the sender.</li>
+ *   <li>PROJECT_USERS: The active members of a project except the sender.</li>
+ * </ul>
+ */
+public enum NotificationAudience {
+
+    /**
+     * Represents every active user except the sender.
+     */
+    ALL_USERS,
+
+    /**
+     * Represents the active members of a project except the sender.
+     */
+    PROJECT_USERS
+}
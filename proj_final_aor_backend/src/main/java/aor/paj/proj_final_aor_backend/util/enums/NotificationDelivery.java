@@ -0,0 +1,29 @@
+package aor.paj.proj_final_aor_backend.util.enums;
+
+/**
+ * Enum representing how a user wants to receive notifications, for all of them or for the ones about a project.
+ * It is stored by its position, so new values must be added at the end.
+ *
+ * <ul>
+ *   <li>REAL_TIME: The notification is stored and pushed to the open sessions of the user, the default.</li>
+ *   <li>DIGEST: The notification is stored, the user sees it in the list, but it is not pushed.</li>
+ *   <li>MUTED: The notification is not created for the user.</li>
+ * </ul>
+ */
+public enum NotificationDelivery {
+
+    /**
+     * Represents notifications stored and pushed to the open sessions.
+     */
+    REAL_TIME,
+
+    /**
+     * Represents notifications stored but not pushed.
+     */
+    DIGEST,
+
+    /**
+     * Represents notifications that are not created.
+     */
+    MUTED
+}
@@ -0,0 +1,23 @@
+package aor.paj.proj_final_aor_backend.util.enums;
+
+/**
+ * Enum representing what a websocket session does when its outbound queue is full.
+ *
+ * <p>The policy is chosen with the system property {@code websocket.outbox.policy}:</p>
+ * <ul>
+ *   <li>DROP_OLDEST: The oldest pending message is discarded to make room for the new one.</li>
+ *   <li>COALESCE: A pending message with the same key is replaced by the new one, falling back to dropping the oldest.</li>
+ * </ul>
+ */
+public enum OutboundPolicy {
+
+    /**
+     * Represents discarding the oldest pending message.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Represents replacing a pending message that has the same key.
+     */
+    COALESCE
+}
@@ -0,0 +1,35 @@
+package aor.paj.proj_final_aor_backend.util.enums;
+
+/**
+ * Enum representing the websocket endpoints that clients can connect to.
+ *
+ * <p>Each endpoint keeps its own set of sessions in the session registry:</p>
+ * <ul>
+ *   <li>NOTIFIER: Sessions opened on the notifications endpoint.</li>
+ *   <li>MESSAGE: Sessions opened on the messages endpoint.</li>
+ *   <li>TASK: Sessions opened on the tasks endpoint.</li>
+ *   <li>HUB: Sessions opened on the multiplexed endpoint, that receive only the channels they subscribe.</li>
+ * </ul>
+ */
+public enum SocketType {
+
+    /**
+     * Represents a session opened on the notifications endpoint.
+     */
+    NOTIFIER,
+
+    /**
+     * Represents a session opened on the messages endpoint.
+     */
+    MESSAGE,
+
+    /**
+     * Represents a session opened on the tasks endpoint.
+     */
+    TASK,
+
+    /**
+     * Represents a session opened on the multiplexed endpoint.
+     */
+    HUB
+}
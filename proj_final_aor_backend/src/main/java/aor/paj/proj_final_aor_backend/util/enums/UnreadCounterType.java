@@ -0,0 +1,60 @@
+package aor.paj.proj_final_aor_backend.util.enums;
+
+/**
+ * Enum representing the unread notification counters kept for each user.
+ *
+ * <ul>
+ *   <li>DIRECT_MESSAGES: Senders with unread MESSAGE_RECEIVED notifications.</li>
+ *   <li>PROJECT_MESSAGES: Senders with unread MESSAGE_PROJECT notifications.</li>
+ *   <li>OTHER: Unread notifications of every other type.</li>
+ * </ul>
+ */
+public enum UnreadCounterType {
+
+    /**
+     * Represents the senders with unread direct messages.
+     */
+    DIRECT_MESSAGES("UnreadCounter.incrementDirectMessages"),
+
+    /**
+     * Represents the senders with unread project chat messages.
+     */
+    PROJECT_MESSAGES("UnreadCounter.incrementProjectMessages"),
+
+    /**
+     * Represents the unread notifications that are not messages.
+     */
+    OTHER("UnreadCounter.incrementOther");
+
+    private final String incrementQuery;
+
+    UnreadCounterType(String incrementQuery) {
+        this.incrementQuery = incrementQuery;
+    }
+
+    /**
+     * Returns the named query that increments this counter.
+     *
+     * @return The name of the query.
+     */
+    public String getIncrementQuery() {
+        return incrementQuery;
+    }
+
+    /**
+     * Returns the counter where a notification type is counted.
+     *
+     * @param type The type of the notification.
+     * @return The counter of the type.
+     */
+    public static UnreadCounterType of(NotificationType type) {
+        switch (type) {
+            case MESSAGE_RECEIVED:
+                return DIRECT_MESSAGES;
+            case MESSAGE_PROJECT:
+                return PROJECT_MESSAGES;
+            default:
+                return OTHER;
+        }
+    }
+}
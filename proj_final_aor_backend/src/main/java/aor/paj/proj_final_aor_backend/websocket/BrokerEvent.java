@@ -0,0 +1,112 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import aor.paj.proj_final_aor_backend.util.enums.EventTarget;
+import aor.paj.proj_final_aor_backend.util.enums.SocketType;
+
+import java.util.Set;
+
+/**
+ * An event published in the event broker.
+ * It carries the routing information and the payload already encoded as JSON, so any node
+ * can deliver it to its own sessions without knowing the class of the payload.
+ * An event without legacy type is only sent to the hub, and one without channel only to the old endpoint.
+ * An event to all users can leave out more users than its target, the ones that do not want it in real time.
+ * An event to the nodes is not sent to any session, it carries the node that published it so only the others handle it.
+ */
+public class BrokerEvent {
+
+    private EventTarget target;
+    private long targetId;
+    private SocketType legacyType;
+    private String channel;
+    private String type;
+    private String key;
+    private String payload;
+    private Set<Long> excludedUserIds;
+    private String origin;
+
+    public BrokerEvent() {
+    }
+
+    public BrokerEvent(EventTarget target, long targetId, SocketType legacyType, String channel, String type, String key, String payload) {
+        this.target = target;
+        this.targetId = targetId;
+        this.legacyType = legacyType;
+        this.channel = channel;
+        this.type = type;
+        this.key = key;
+        this.payload = payload;
+    }
+
+    public EventTarget getTarget() {
+        return target;
+    }
+
+    public void setTarget(EventTarget target) {
+        this.target = target;
+    }
+
+    public long getTargetId() {
+        return targetId;
+    }
+
+    public void setTargetId(long targetId) {
+        this.targetId = targetId;
+    }
+
+    public SocketType getLegacyType() {
+        return legacyType;
+    }
+
+    public void setLegacyType(SocketType legacyType) {
+        this.legacyType = legacyType;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public void setChannel(String channel) {
+        this.channel = channel;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public Set<Long> getExcludedUserIds() {
+        return excludedUserIds;
+    }
+
+    public void setExcludedUserIds(Set<Long> excludedUserIds) {
+        this.excludedUserIds = excludedUserIds;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public void setOrigin(String origin) {
+        this.origin = origin;
+    }
+}
@@ -0,0 +1,73 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+/**
+ * Names of the channels of the multiplexed websocket endpoint.
+ */
+public final class Channels {
+
+    /**
+     * Notifications of the connected user.
+     */
+    public static final String NOTIFICATIONS = "notifications";
+
+    /**
+     * Private messages of the connected user.
+     */
+    public static final String DM = "dm";
+
+    private static final String PROJECT_PREFIX = "project:";
+    private static final String CHAT_SUFFIX = ":chat";
+    private static final String TASKS_SUFFIX = ":tasks";
+
+    private Channels() {
+    }
+
+    /**
+     * Returns the channel of the chat of a project.
+     *
+     * @param projectId The id of the project.
+     * @return The name of the channel.
+     */
+    public static String projectChat(long projectId) {
+        return PROJECT_PREFIX + projectId + CHAT_SUFFIX;
+    }
+
+    /**
+     * Returns the channel of the tasks of a project.
+     *
+     * @param projectId The id of the project.
+     * @return The name of the channel.
+     */
+    public static String projectTasks(long projectId) {
+        return PROJECT_PREFIX + projectId + TASKS_SUFFIX;
+    }
+
+    /**
+     * Returns the id of the project of a project channel.
+     *
+     * @param channel The name of the channel.
+     * @return The id of the project, or null if it is not a valid project channel.
+     */
+    public static Long projectIdOf(String channel) {
+        if (channel == null || !channel.startsWith(PROJECT_PREFIX)
+                || !(channel.endsWith(CHAT_SUFFIX) || channel.endsWith(TASKS_SUFFIX))) {
+            return null;
+        }
+        String id = channel.substring(PROJECT_PREFIX.length(), channel.lastIndexOf(':'));
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks if a name is one of the known channels.
+     *
+     * @param channel The name of the channel.
+     * @return True if the channel exists, false otherwise.
+     */
+    public static boolean isValid(String channel) {
+        return NOTIFICATIONS.equals(channel) || DM.equals(channel) || projectIdOf(channel) != null;
+    }
+}
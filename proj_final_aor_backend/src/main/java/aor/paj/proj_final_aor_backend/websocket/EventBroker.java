@@ -0,0 +1,31 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import java.util.function.Consumer;
+
+/**
+ * Publish/subscribe channel shared by the nodes of the application.
+ * Every node publishes its websocket events to the broker and receives the events of all the
+ * nodes, including its own, delivering them only to its local sessions.
+ * Events of the same channel published by a node are received in the order they were published.
+ */
+public interface EventBroker {
+
+    /**
+     * Publishes an event to every node.
+     *
+     * @param event The event to publish.
+     */
+    void publish(BrokerEvent event);
+
+    /**
+     * Registers a listener for the events published by any node.
+     *
+     * @param listener The listener.
+     */
+    void subscribe(Consumer<BrokerEvent> listener);
+
+    /**
+     * Releases the threads and connections of the broker.
+     */
+    void close();
+}
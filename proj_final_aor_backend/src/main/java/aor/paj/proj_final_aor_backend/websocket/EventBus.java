@@ -0,0 +1,258 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import aor.paj.proj_final_aor_backend.util.enums.EventTarget;
+import aor.paj.proj_final_aor_backend.util.enums.SocketType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.websocket.Session;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Connects this node to the event broker and delivers the received events to the local sessions.
+ * The broker is chosen with -Dwebsocket.broker: "local" (default) keeps the events in this JVM,
+ * "socket" exchanges them with the nodes listed in -Dwebsocket.broker.peers (host:port, comma separated),
+ * listening on -Dwebsocket.broker.port.
+ * The same broker tells the other nodes when the data of their caches changed.
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class EventBus {
+
+    private static final Logger logger = LogManager.getLogger(EventBus.class);
+
+    /**
+     * Number of threads used to deliver the events, set with -Dwebsocket.broker.threads.
+     */
+    private final int threads = Integer.getInteger("websocket.broker.threads", 4);
+
+    @Resource
+    ManagedThreadFactory threadFactory;
+
+    @EJB
+    SessionRegistry sessionRegistry;
+
+    @EJB
+    ReplayBuffer replayBuffer;
+
+    /**
+     * Id of this node, so the events meant for the other nodes are ignored by the node that published them.
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * Listeners of the events sent to the other nodes, by channel.
+     */
+    private final Map<String, Consumer<String>> nodeListeners = new ConcurrentHashMap<>();
+
+    private EventBroker broker;
+
+    @PostConstruct
+    public void init() {
+        OrderedDispatcher dispatcher = new OrderedDispatcher(threads, threadFactory);
+        String type = System.getProperty("websocket.broker", "local");
+        if ("socket".equals(type)) {
+            try {
+                broker = new SocketEventBroker(Integer.getInteger("websocket.broker.port", 9750),
+                        parsePeers(System.getProperty("websocket.broker.peers", "")), dispatcher, threadFactory);
+            } catch (IOException e) {
+                logger.error("Error starting the socket event broker, using the local broker", e);
+            }
+        }
+        if (broker == null) {
+            broker = new LocalEventBroker(dispatcher);
+        }
+        broker.subscribe(this::deliver);
+        logger.info("Event broker started: " + broker.getClass().getSimpleName());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        broker.close();
+    }
+
+    /**
+     * Publishes an event to every node, including this one.
+     *
+     * @param event The event to publish.
+     */
+    public void publish(BrokerEvent event) {
+        if (event.getPayload() == null) {
+            return;
+        }
+        broker.publish(event);
+    }
+
+    /**
+     * Returns the id of this node, which the other nodes receive as the origin of its events.
+     *
+     * @return The id of the node.
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Tells if the events are exchanged with other nodes, whose sessions may have received events this node did not send.
+     *
+     * @return True if the broker is not the local one.
+     */
+    public boolean isDistributed() {
+        return !(broker instanceof LocalEventBroker);
+    }
+
+    /**
+     * Publishes an event to the other nodes, it is not sent to any session.
+     *
+     * @param channel The channel of the event, where the nodes listen.
+     * @param payload The event.
+     */
+    public void publishToOtherNodes(String channel, Object payload) {
+        BrokerEvent event = new BrokerEvent(EventTarget.NODES, 0, null, channel, null, null, FrameEncoder.toJson(payload));
+        event.setOrigin(nodeId);
+        publish(event);
+    }
+
+    /**
+     * Registers the listener of the events published by the other nodes in a channel.
+     *
+     * @param channel  The channel of the events.
+     * @param listener The listener, that receives the payload of the events.
+     */
+    public void listen(String channel, Consumer<String> listener) {
+        nodeListeners.put(channel, listener);
+    }
+
+    /**
+     * Delivers an event to the sessions of this node.
+     * The old endpoints get the bare payload. For the hub the envelope is serialized once, then each
+     * user with a stream gets it with its own sequence number, and the sessions that subscribed the
+     * channel receive it.
+     *
+     * @param event The event to deliver.
+     */
+    void deliver(BrokerEvent event) {
+        if (event.getTarget() == EventTarget.NODES) {
+            Consumer<String> listener = nodeListeners.get(event.getChannel());
+            if (listener != null && !nodeId.equals(event.getOrigin())) {
+                listener.accept(event.getPayload());
+            }
+            return;
+        }
+
+        Collection<Session> legacySessions = findSessions(event, event.getLegacyType());
+        if (!legacySessions.isEmpty()) {
+            sessionRegistry.send(legacySessions, OutboundFrame.text(event.getPayload()), event.getKey());
+        }
+
+        // Events without channel are only meant for the old endpoints
+        if (event.getChannel() == null) {
+            return;
+        }
+        String envelope = FrameEncoder.envelopeJson(event.getChannel(), event.getType(), event.getPayload());
+        if (envelope == null) {
+            return;
+        }
+        String key = event.getKey() == null ? null : event.getChannel() + ":" + event.getKey();
+        for (Long userId : findStreamUsers(event)) {
+            UserStream stream = replayBuffer.get(userId);
+            if (stream == null) {
+                continue;
+            }
+            // The stream lock keeps the order between live events and a replay of the same user
+            synchronized (stream) {
+                long seq = stream.append(event.getChannel(), envelope);
+                List<Session> subscribed = sessionRegistry.filterSubscribed(sessionRegistry.getSessions(SocketType.HUB, userId), event.getChannel());
+                Set<SseConnection> streams = sessionRegistry.getSseConnections(userId);
+                if (!subscribed.isEmpty() || !streams.isEmpty()) {
+                    OutboundFrame frame = FrameEncoder.withSeq(envelope, seq);
+                    sessionRegistry.send(subscribed, frame, key);
+                    for (SseConnection connection : streams) {
+                        if (connection.getChannels().contains(event.getChannel())) {
+                            connection.getOutbox().offer(frame, key);
+                        }
+                    }
+                }
+            }
+            replayBuffer.saveEvicted(stream);
+        }
+    }
+
+    /**
+     * Returns the ids of the users targeted by an event, connected or not, that may have a stream.
+     */
+    private Collection<Long> findStreamUsers(BrokerEvent event) {
+        switch (event.getTarget()) {
+            case USER:
+                return Collections.singletonList(event.getTargetId());
+            case ALL_EXCEPT:
+                List<Long> userIds = new ArrayList<>(replayBuffer.getUserIds());
+                userIds.remove(Long.valueOf(event.getTargetId()));
+                if (event.getExcludedUserIds() != null) {
+                    userIds.removeAll(event.getExcludedUserIds());
+                }
+                return userIds;
+            case PROJECT:
+                Set<Long> members = new HashSet<>(sessionRegistry.getProjectUsers(event.getTargetId()));
+                members.addAll(replayBuffer.getOfflineProjectUsers(event.getTargetId()));
+                return members;
+            default:
+                return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Returns the local sessions of an endpoint that are targeted by an event.
+     */
+    private Collection<Session> findSessions(BrokerEvent event, SocketType type) {
+        if (type == null) {
+            return Collections.emptyList();
+        }
+        switch (event.getTarget()) {
+            case USER:
+                return sessionRegistry.getSessions(type, event.getTargetId());
+            case ALL_EXCEPT:
+                return sessionRegistry.getAllSessionsExcept(type, event.getTargetId(), event.getExcludedUserIds());
+            case PROJECT:
+                return sessionRegistry.getProjectSessions(type, event.getTargetId());
+            default:
+                return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Parses a list of peers in the format host:port,host:port.
+     */
+    private static List<InetSocketAddress> parsePeers(String peers) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String peer : peers.split(",")) {
+            String trimmed = peer.trim();
+            int separator = trimmed.lastIndexOf(':');
+            if (separator > 0) {
+                addresses.add(new InetSocketAddress(trimmed.substring(0, separator), Integer.parseInt(trimmed.substring(separator + 1))));
+            }
+        }
+        return addresses;
+    }
+}
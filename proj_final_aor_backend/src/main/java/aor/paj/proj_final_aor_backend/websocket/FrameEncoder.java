@@ -0,0 +1,108 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import aor.paj.proj_final_aor_backend.dto.Envelope;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Map;
+
+/**
+ * Encodes the DTOs sent through the websockets into frames.
+ * This is the only place where websocket events are serialized.
+ */
+public final class FrameEncoder {
+
+    private static final Logger logger = LogManager.getLogger(FrameEncoder.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    static {
+        objectMapper.registerModule(new JavaTimeModule());
+    }
+
+    private FrameEncoder() {
+    }
+
+    /**
+     * Encodes a DTO as a JSON text frame.
+     *
+     * @param dto The object to encode.
+     * @return The frame, or null if the object could not be serialized.
+     */
+    public static OutboundFrame encode(Object dto) {
+        try {
+            return OutboundFrame.text(objectMapper.writeValueAsString(dto));
+        } catch (JsonProcessingException e) {
+            logger.error("Error serializing " + dto.getClass().getSimpleName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Serializes a DTO to JSON.
+     *
+     * @param dto The object to serialize.
+     * @return The JSON, or null if the object could not be serialized.
+     */
+    public static String toJson(Object dto) {
+        try {
+            return objectMapper.writeValueAsString(dto);
+        } catch (JsonProcessingException e) {
+            logger.error("Error serializing " + dto.getClass().getSimpleName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Converts a DTO to a map with the same fields and values it has in JSON.
+     *
+     * @param dto The object to convert.
+     * @return The fields of the object.
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> toMap(Object dto) {
+        return objectMapper.convertValue(dto, Map.class);
+    }
+
+    /**
+     * Serializes an envelope around a payload that is already JSON, without the sequence number.
+     * The result is shared by all the recipients, see {@link #withSeq(String, long)}.
+     *
+     * @param channel The channel of the envelope.
+     * @param type    The type of the envelope.
+     * @param payload The payload as JSON.
+     * @return The envelope as JSON, or null if it could not be serialized.
+     */
+    public static String envelopeJson(String channel, String type, String payload) {
+        return toJson(new Envelope(channel, type, payload == null ? null : new RawValue(payload)));
+    }
+
+    /**
+     * Adds a sequence number to an envelope serialized without it, copying only the text.
+     *
+     * @param envelopeJson The envelope as JSON, without the sequence number.
+     * @param seq          The sequence number.
+     * @return The frame.
+     */
+    public static OutboundFrame withSeq(String envelopeJson, long seq) {
+        return OutboundFrame.text("{\"seq\":" + seq + "," + envelopeJson.substring(1), seq);
+    }
+
+    /**
+     * Encodes a DTO as a binary frame with the UTF-8 bytes of its JSON.
+     *
+     * @param dto The object to encode.
+     * @return The frame, or null if the object could not be serialized.
+     */
+    public static OutboundFrame encodeBinary(Object dto) {
+        try {
+            return OutboundFrame.binary(objectMapper.writeValueAsBytes(dto));
+        } catch (JsonProcessingException e) {
+            logger.error("Error serializing " + dto.getClass().getSimpleName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+}
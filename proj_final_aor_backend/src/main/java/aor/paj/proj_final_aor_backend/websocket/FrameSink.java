@@ -0,0 +1,40 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * A connection of a client that can receive frames, a websocket session or a server-sent events stream.
+ * The outbox of the connection calls {@link #send} with one frame at a time.
+ */
+public interface FrameSink {
+
+    /**
+     * Returns an identifier of the connection, used in the logs.
+     *
+     * @return The identifier.
+     */
+    String getId();
+
+    /**
+     * Checks if the connection can still receive frames.
+     *
+     * @return True if the connection is open.
+     */
+    boolean isOpen();
+
+    /**
+     * Sends a frame without waiting for it to be written.
+     *
+     * @param frame      The frame to send.
+     * @param onComplete Called when the frame was sent, with null, or with the error that prevented it.
+     */
+    void send(OutboundFrame frame, Consumer<Throwable> onComplete);
+
+    /**
+     * Closes a client that cannot keep up with its frames.
+     *
+     * @throws IOException If the connection could not be closed.
+     */
+    void closeSlowConsumer() throws IOException;
+}
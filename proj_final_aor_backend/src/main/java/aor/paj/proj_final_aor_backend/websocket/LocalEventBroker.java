@@ -0,0 +1,43 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Event broker for a single node, the events never leave the JVM.
+ * Publishing returns immediately, the listeners are called on the thread of the channel.
+ */
+public class LocalEventBroker implements EventBroker {
+
+    private final OrderedDispatcher dispatcher;
+    private final List<Consumer<BrokerEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates the broker.
+     *
+     * @param dispatcher The dispatcher that keeps the order of each channel.
+     */
+    public LocalEventBroker(OrderedDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    @Override
+    public void publish(BrokerEvent event) {
+        dispatcher.dispatch(event.getChannel(), () -> {
+            for (Consumer<BrokerEvent> listener : listeners) {
+                listener.accept(event);
+            }
+        });
+    }
+
+    @Override
+    public void subscribe(Consumer<BrokerEvent> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void close() {
+        dispatcher.shutdown();
+    }
+}
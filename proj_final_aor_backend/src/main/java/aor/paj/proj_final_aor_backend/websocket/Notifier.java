@@ -6,11 +6,7 @@ import aor.paj.proj_final_aor_backend.bean.UserBean;
 import aor.paj.proj_final_aor_backend.dto.Message;
 import aor.paj.proj_final_aor_backend.dto.Notification;
 import aor.paj.proj_final_aor_backend.dto.User;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+import aor.paj.proj_final_aor_backend.util.enums.SocketType;
 import jakarta.ejb.EJB;
 import jakarta.ejb.Singleton;
 import jakarta.websocket.*;
@@ -21,12 +17,7 @@ import org.apache.logging.log4j.Logger;
 
 
 import java.io.IOException;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 
 
@@ -35,135 +26,100 @@ import java.util.stream.Collectors;
 public class Notifier {
 
     private static final Logger logger = LogManager.getLogger(Notifier.class);
-    private static final ObjectMapper objectMapper = new ObjectMapper();
-    private static final Map<String, Session> sessions = new ConcurrentHashMap<>();
-
-    static {
-        objectMapper.registerModule(new JavaTimeModule());
-    }
 
     @EJB
     UserBean userBean;
+    @EJB
+    SessionRegistry sessionRegistry;
+    @EJB
+    WebsocketHub websocketHub;
 
     @OnOpen
     public void onOpen(Session session, @PathParam("token") String token) {
         logger.info("A new WebSocket session is opened for client with token: " + token);
-        sessions.put(token, session);
-
-        // Defines a timeout for the session
-        session.setMaxIdleTimeout(24 * 60 * 60 * 1000);
-    }
-
-    public void sendNotificationToUser(String msg) {
-        try {
-            // Desserializar a mensagem em um objeto Notification
-            Notification notification = objectMapper.readValue(msg, Notification.class);
-
-            // Serializar o objeto Notification para JSON
-            String jsonNotification = objectMapper.writeValueAsString(notification);
-            logger.info("Notification JSON: " + jsonNotification);
 
-            for (Session session : sessions.values()) {
-                if (session.isOpen()) {
-                    try {
-                        // Recuperar o usuário pelo token da sessão
-                        User user = userBean.getUserByToken(session.getPathParameters().get("token"));
-
-
-                        // Verificar se o ID do usuário coincide com o ID do receptor da notificação
-                        if (user != null && user.getId()!=notification.getSender().getId()) {
-                            session.getBasicRemote().sendText(jsonNotification);
-                            logger.info("Notification sent to session: " + session.getId());
-                        }
-
-                    } catch (IOException e) {
-                        logger.error("Error sending notification to session " + session.getId(), e);
-                    }
-                }
-            }
-
-        } catch (IOException e) {
-            logger.error("Erro ao desserializar a mensagem: " + e.getMessage());
+        // Resolve the user once, the registry keeps the session indexed by the user id
+        User user = userBean.getUserByToken(token);
+        if (user == null) {
+            logger.warn("No user found with token: " + token + ", closing session " + session.getId());
+            closeSession(session);
+            return;
         }
+        sessionRegistry.register(SocketType.NOTIFIER, session, user.getId(), null);
     }
 
-    public void sendMessageTOUser(String msg) {
-        try {
-            // Desserializar a mensagem em um objeto Notification
-            Message message = objectMapper.readValue(msg, Message.class);
-
-            // Serializar o objeto Notification para JSON
-            String jsonMessage = objectMapper.writeValueAsString(message);
-            logger.info("Message JSON: " + jsonMessage);
-
-            for (Session session : sessions.values()) {
-                if (session.isOpen()) {
-                    try {
-                        // Recuperar o usuário pelo token da sessão
-                        User user = userBean.getUserByToken(session.getPathParameters().get("token"));
-
-
-                        // Verificar se o ID do usuário coincide com o ID do receptor da notificação
-                        if (user != null && user.getId()==(message.getReceiver().getId())) {
-                            session.getBasicRemote().sendText(jsonMessage);
-                            logger.info("Notification sent to session: " + session.getId());
-                        }
-
-                    } catch (IOException e) {
-                        logger.error("Error sending notification to session " + session.getId(), e);
-                    }
-                }
-            }
-
-        } catch (IOException e) {
-            logger.error("Erro ao desserializar a mensagem: " + e.getMessage());
+    /**
+     * Sends a notification to its receiver, or to every user except the sender when it has no receiver.
+     *
+     * @param notification The notification to send.
+     */
+    public void sendNotificationToUser(Notification notification) {
+        if (notification.getReceiver() != null) {
+            websocketHub.sendToUser(SocketType.NOTIFIER, Channels.NOTIFICATIONS, WebsocketHub.NOTIFICATION,
+                    notification.getReceiver().getId(), notification, null);
+        } else {
+            sendNotificationToAllExceptTheSender(notification);
         }
     }
 
+    /**
+     * Sends a message to the notification sessions of its receiver.
+     *
+     * @param message The message to send.
+     */
+    public void sendMessageTOUser(Message message) {
+        websocketHub.sendToUser(SocketType.NOTIFIER, Channels.NOTIFICATIONS, WebsocketHub.MESSAGE,
+                message.getReceiver().getId(), message, null);
+    }
 
-    public void sendNotificationToAllExceptTheSender(String msg) {
-        try {
-            // Desserializar a mensagem em um objeto Notification
-            Notification notification = objectMapper.readValue(msg, Notification.class);
-
-            // Serializar o objeto Notification para JSON
-            String jsonNotification = objectMapper.writeValueAsString(notification);
-            logger.info("Notification JSON: " + jsonNotification);
-
-
-            for (Session session : sessions.values()) {
-                if (session.isOpen()) {
-                    try {
-                        // Recuperar o usuário pelo token da sessão
-                        User user = userBean.getUserByToken(session.getPathParameters().get("token"));
-                        String userID = String.valueOf(user.getId());
-
-                        // Verificar se o ID do usuário não coincide com o ID do remetente da notificação
-                        if (user != null && user.getId() != notification.getSender().getId()) {
-                            session.getBasicRemote().sendText(jsonNotification);
-                            logger.info("Notification sent to session: " + session.getId());
-                        }
+    /**
+     * Sends a notification to every user except its sender, encoding it only once.
+     *
+     * @param notification The notification to send.
+     */
+    public void sendNotificationToAllExceptTheSender(Notification notification) {
+        sendNotificationToAllExcept(notification, null);
+    }
 
-                    } catch (IOException e) {
-                        logger.error("Error sending notification to session " + session.getId(), e);
-                    }
-                }
-            }
+    /**
+     * Sends a notification to every user except its sender and the users that do not want it in real time,
+     * encoding it only once.
+     *
+     * @param notification    The notification to send.
+     * @param excludedUserIds The ids of the other users that do not receive it, or null.
+     */
+    public void sendNotificationToAllExcept(Notification notification, Set<Long> excludedUserIds) {
+        websocketHub.sendToAllExcept(SocketType.NOTIFIER, Channels.NOTIFICATIONS, WebsocketHub.NOTIFICATION,
+                notification.getSender().getId(), excludedUserIds, notification);
+    }
 
-        } catch (IOException e) {
-            logger.error("Erro ao desserializar a mensagem: " + e.getMessage());
-        }
+    /**
+     * Answers to the heartbeat pings, marking the session as alive.
+     *
+     * @param pong    The pong received.
+     * @param session The session that received it.
+     */
+    @OnMessage
+    public void onPong(PongMessage pong, Session session) {
+        sessionRegistry.touch(session);
     }
 
     @OnClose
     public void onClose(Session session, CloseReason closeReason) {
         logger.warn("Session closed with reason " + closeReason.getCloseCode() + ": " + closeReason.getReasonPhrase());
+        sessionRegistry.unregister(SocketType.NOTIFIER, session);
+    }
 
-        List<String> sessionIdsToRemove = sessions.entrySet().stream()
-                .filter(entry -> entry.getValue().equals(session))
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
-
-        sessionIdsToRemove.forEach(sessions::remove);
+    /**
+     * Closes a session that could not be authenticated.
+     *
+     * @param session The session to close.
+     */
+    private void closeSession(Session session) {
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, "Invalid token"));
+        } catch (IOException e) {
+            logger.error("Error closing session " + session.getId(), e);
+        }
     }
 }
@@ -0,0 +1,59 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs tasks on a fixed set of single threaded executors, choosing the executor by the channel.
+ * Tasks of the same channel always run on the same thread, so they keep their order, while
+ * different channels are delivered in parallel.
+ */
+public class OrderedDispatcher {
+
+    private static final Logger logger = LogManager.getLogger(OrderedDispatcher.class);
+
+    private final ExecutorService[] stripes;
+
+    /**
+     * Creates the dispatcher.
+     *
+     * @param stripes       The number of threads.
+     * @param threadFactory The factory of the threads.
+     */
+    public OrderedDispatcher(int stripes, ThreadFactory threadFactory) {
+        this.stripes = new ExecutorService[Math.max(1, stripes)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = Executors.newSingleThreadExecutor(threadFactory);
+        }
+    }
+
+    /**
+     * Runs a task after the tasks of the same channel that were already dispatched.
+     *
+     * @param channel The channel of the task.
+     * @param task    The task to run.
+     */
+    public void dispatch(String channel, Runnable task) {
+        int stripe = Math.floorMod(channel == null ? 0 : channel.hashCode(), stripes.length);
+        stripes[stripe].execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.error("Error dispatching event of channel " + channel, e);
+            }
+        });
+    }
+
+    /**
+     * Stops the threads of the dispatcher.
+     */
+    public void shutdown() {
+        for (ExecutorService stripe : stripes) {
+            stripe.shutdown();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An event already encoded for the wire.
+ * A frame is immutable, so the same instance is shared by every session that receives the event
+ * and the event is serialized only once, whatever the number of recipients.
+ */
+public final class OutboundFrame {
+
+    private final String text;
+    private final byte[] binary;
+
+    /**
+     * Sequence number of the event in the stream of the user, or 0 when the frame has none.
+     */
+    private final long seq;
+
+    private OutboundFrame(String text, byte[] binary, long seq) {
+        this.text = text;
+        this.binary = binary;
+        this.seq = seq;
+    }
+
+    /**
+     * Creates a text frame.
+     *
+     * @param text The text of the frame.
+     * @return The frame.
+     */
+    public static OutboundFrame text(String text) {
+        return new OutboundFrame(text, null, 0);
+    }
+
+    /**
+     * Creates a text frame of an event of the stream of a user.
+     *
+     * @param text The text of the frame.
+     * @param seq  The sequence number of the event.
+     * @return The frame.
+     */
+    public static OutboundFrame text(String text, long seq) {
+        return new OutboundFrame(text, null, seq);
+    }
+
+    /**
+     * Creates a binary frame. The array must not be changed after the frame is created.
+     *
+     * @param bytes The content of the frame.
+     * @return The frame.
+     */
+    public static OutboundFrame binary(byte[] bytes) {
+        return new OutboundFrame(null, bytes, 0);
+    }
+
+    public boolean isBinary() {
+        return binary != null;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    /**
+     * Returns a read-only view of the binary content, each send needs its own position.
+     *
+     * @return A new buffer over the content of the frame.
+     */
+    public ByteBuffer getBinary() {
+        return ByteBuffer.wrap(binary).asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the size of the frame in bytes.
+     *
+     * @return The size of the frame.
+     */
+    public int size() {
+        return isBinary() ? binary.length : text.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    @Override
+    public String toString() {
+        return isBinary() ? "binary frame of " + binary.length + " bytes" : text;
+    }
+}
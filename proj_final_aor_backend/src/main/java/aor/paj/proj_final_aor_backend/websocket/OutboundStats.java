@@ -0,0 +1,41 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters shared by all the session outboxes.
+ * They are only incremented, the queue depth is computed from the outboxes when asked.
+ */
+public class OutboundStats {
+
+    final AtomicLong enqueued = new AtomicLong();
+    final AtomicLong sent = new AtomicLong();
+    final AtomicLong dropped = new AtomicLong();
+    final AtomicLong coalesced = new AtomicLong();
+    final AtomicLong failed = new AtomicLong();
+    final AtomicLong evicted = new AtomicLong();
+
+    public long getEnqueued() {
+        return enqueued.get();
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getEvicted() {
+        return evicted.get();
+    }
+}
@@ -0,0 +1,188 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import aor.paj.proj_final_aor_backend.util.enums.SocketType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Session;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the presence of the users up to date with heartbeats.
+ * Every 15 seconds each session gets a ping, which browsers answer with a pong on their own, and the sessions
+ * that did not answer for longer than the heartbeat timeout are closed. Closed tabs and dropped connections
+ * are removed from the registry within seconds, so the online users can be answered from memory.
+ * With other nodes, each node sends them its online users on every heartbeat, and the users of a node
+ * that stopped sending for longer than the heartbeat timeout are no longer online.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class PresenceMonitor {
+
+    private static final Logger logger = LogManager.getLogger(PresenceMonitor.class);
+
+    private static final ByteBuffer PING = ByteBuffer.allocate(0);
+
+    public static final String CHANNEL = "presence:users";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @EJB
+    SessionRegistry sessionRegistry;
+
+    @EJB
+    WebsocketHub websocketHub;
+
+    @EJB
+    EventBus eventBus;
+
+    /**
+     * Online users of the other nodes, by node.
+     */
+    private final Map<String, NodePresence> otherNodes = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        eventBus.listen(CHANNEL, this::receive);
+    }
+
+    /**
+     * Pings the open sessions and closes the ones that stopped answering.
+     */
+    @Schedule(hour = "*", minute = "*", second = "*/15", persistent = false)
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        for (SocketType type : SocketType.values()) {
+            for (Session session : sessionRegistry.getAllSessions(type)) {
+                if (now - sessionRegistry.getLastSeen(session) > sessionRegistry.getHeartbeatTimeoutMillis()) {
+                    evict(type, session);
+                    evicted++;
+                } else {
+                    ping(type, session);
+                }
+            }
+        }
+        if (evicted > 0) {
+            logger.info("Closed " + evicted + " sessions without heartbeat");
+        }
+        if (eventBus.isDistributed()) {
+            eventBus.publishToOtherNodes(CHANNEL, new NodePresence(eventBus.getNodeId(), sessionRegistry.getOnlineUserIds(), 0));
+        }
+    }
+
+    /**
+     * Returns the users online in the other nodes, according to the last heartbeat of each one.
+     *
+     * @return The ids of the users.
+     */
+    public Set<Long> getUsersOnlineInOtherNodes() {
+        long oldest = System.currentTimeMillis() - sessionRegistry.getHeartbeatTimeoutMillis();
+        Set<Long> userIds = new HashSet<>();
+        for (NodePresence presence : otherNodes.values()) {
+            if (presence.getReceivedAt() >= oldest) {
+                userIds.addAll(presence.getUsers());
+            }
+        }
+        return userIds;
+    }
+
+    /**
+     * Keeps the online users sent by another node.
+     */
+    void receive(String payload) {
+        try {
+            NodePresence presence = objectMapper.readValue(payload, NodePresence.class);
+            presence.setReceivedAt(System.currentTimeMillis());
+            otherNodes.put(presence.getNode(), presence);
+        } catch (JsonProcessingException e) {
+            logger.error("Error reading the online users of another node: " + payload, e);
+        }
+    }
+
+    /**
+     * Sends a ping to a session, a session that can not be written to is evicted.
+     */
+    private void ping(SocketType type, Session session) {
+        try {
+            session.getAsyncRemote().sendPing(PING.duplicate());
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Error sending ping to session " + session.getId() + ": " + e.getMessage());
+            evict(type, session);
+        }
+    }
+
+    /**
+     * Removes a dead session from the registry and closes it.
+     */
+    private void evict(SocketType type, Session session) {
+        CloseReason reason = new CloseReason(CloseReason.CloseCodes.GOING_AWAY, "Heartbeat timeout");
+        // Unregistering first, the close handshake never completes on a dead connection
+        if (type == SocketType.HUB) {
+            websocketHub.onClose(session, reason);
+        } else {
+            sessionRegistry.unregister(type, session);
+        }
+        try {
+            session.close(reason);
+        } catch (IOException e) {
+            logger.debug("Error closing session " + session.getId() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * The online users of a node, sent to the other nodes.
+     */
+    public static class NodePresence {
+        private String node;
+        private Set<Long> users;
+        private long receivedAt;
+
+        public NodePresence() {
+        }
+
+        public NodePresence(String node, Set<Long> users, long receivedAt) {
+            this.node = node;
+            this.users = users;
+            this.receivedAt = receivedAt;
+        }
+
+        public String getNode() {
+            return node;
+        }
+
+        public void setNode(String node) {
+            this.node = node;
+        }
+
+        public Set<Long> getUsers() {
+            return users;
+        }
+
+        public void setUsers(Set<Long> users) {
+            this.users = users;
+        }
+
+        public long getReceivedAt() {
+            return receivedAt;
+        }
+
+        public void setReceivedAt(long receivedAt) {
+            this.receivedAt = receivedAt;
+        }
+    }
+}
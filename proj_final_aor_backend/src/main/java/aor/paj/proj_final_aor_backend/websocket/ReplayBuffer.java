@@ -0,0 +1,235 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import aor.paj.proj_final_aor_backend.dao.ReplayEventDao;
+import aor.paj.proj_final_aor_backend.entity.ReplayEventEntity;
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the event streams of the users connected to the multiplexed endpoint.
+ * A stream lives while the user has hub sessions or event streams, and for a retention period after the last one
+ * is closed, so a client that reconnects with its last sequence number only gets what it missed.
+ * With -Dwebsocket.replay.spill=true the events that leave the memory are saved in the database,
+ * which lets clients resume after a redeploy.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ReplayBuffer {
+
+    private static final Logger logger = LogManager.getLogger(ReplayBuffer.class);
+
+    /**
+     * Number of events kept in memory per user, set with -Dwebsocket.replay.capacity.
+     */
+    private final int capacity = Integer.getInteger("websocket.replay.capacity", 512);
+
+    /**
+     * Minutes a stream is kept after the user disconnects, set with -Dwebsocket.replay.retentionMinutes.
+     */
+    private final long retentionMinutes = Long.getLong("websocket.replay.retentionMinutes", 10L);
+
+    /**
+     * Hours the spilled events are kept in the database, set with -Dwebsocket.replay.spillRetentionHours.
+     */
+    private final long spillRetentionHours = Long.getLong("websocket.replay.spillRetentionHours", 24L);
+
+    private final boolean spill = Boolean.getBoolean("websocket.replay.spill");
+
+    @EJB
+    ReplayEventDao replayEventDao;
+
+    private final Map<Long, UserStream> streams = new ConcurrentHashMap<>();
+
+    /**
+     * Ids of the disconnected users with a stream, indexed by their projects when they left.
+     */
+    private final Map<Long, Set<Long>> offlineByProject = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the stream of a user, creating it if needed, and marks the user as connected.
+     *
+     * @param userId The id of the user.
+     * @return The stream of the user.
+     */
+    public UserStream open(long userId) {
+        UserStream stream = streams.computeIfAbsent(userId,
+                id -> new UserStream(id, capacity, spill ? replayEventDao.findMaxSeq(id) : 0, spill));
+        removeFromOfflineIndex(stream);
+        stream.markOnline();
+        return stream;
+    }
+
+    /**
+     * Marks a user as disconnected, the stream keeps receiving events until the retention ends.
+     *
+     * @param userId     The id of the user.
+     * @param projectIds The projects of the user.
+     * @param channels   The channels subscribed by the last session of the user.
+     */
+    public void close(long userId, Set<Long> projectIds, Set<String> channels) {
+        UserStream stream = streams.get(userId);
+        if (stream == null) {
+            return;
+        }
+        stream.markOffline(projectIds, channels);
+        for (Long projectId : projectIds) {
+            offlineByProject.computeIfAbsent(projectId, id -> ConcurrentHashMap.newKeySet()).add(userId);
+        }
+    }
+
+    /**
+     * Returns the stream of a user.
+     *
+     * @param userId The id of the user.
+     * @return The stream, or null if the user has none.
+     */
+    public UserStream get(long userId) {
+        return streams.get(userId);
+    }
+
+    /**
+     * Returns the ids of all the users with a stream.
+     *
+     * @return The ids of the users.
+     */
+    public Set<Long> getUserIds() {
+        return Collections.unmodifiableSet(streams.keySet());
+    }
+
+    /**
+     * Returns the ids of the disconnected users with a stream that were members of a project.
+     *
+     * @param projectId The id of the project.
+     * @return The ids of the users.
+     */
+    public Set<Long> getOfflineProjectUsers(long projectId) {
+        Set<Long> userIds = offlineByProject.get(projectId);
+        return userIds == null ? Collections.emptySet() : userIds;
+    }
+
+    /**
+     * Returns the events of a user after a sequence number, from memory or from the database.
+     *
+     * @param stream The stream of the user.
+     * @param seq    The last sequence number received by the client.
+     * @return The missed events in order, or null if some of them are no longer available.
+     */
+    public List<UserStream.Entry> since(UserStream stream, long seq) {
+        List<UserStream.Entry> entries = stream.since(seq);
+        if (entries != null || !spill || seq > stream.getLastSeq()) {
+            return entries;
+        }
+
+        // Some events left the memory, look for them in the database
+        saveEvicted(stream);
+        List<UserStream.Entry> missed = new ArrayList<>();
+        long next = seq + 1;
+        for (ReplayEventEntity event : replayEventDao.findAfterSeq(stream.getUserId(), seq)) {
+            if (event.getSeq() != next) {
+                break;
+            }
+            missed.add(new UserStream.Entry(event.getSeq(), event.getChannel(), event.getBody()));
+            next++;
+        }
+        for (UserStream.Entry entry : stream.snapshot()) {
+            if (entry.getSeq() == next) {
+                missed.add(entry);
+                next++;
+            }
+        }
+        return next == stream.getLastSeq() + 1 ? missed : null;
+    }
+
+    /**
+     * Saves the events that left the memory of a stream, when spilling is enabled.
+     *
+     * @param stream The stream.
+     */
+    public void saveEvicted(UserStream stream) {
+        if (spill) {
+            save(stream.getUserId(), stream.drainEvicted());
+        }
+    }
+
+    /**
+     * Drops the streams of the users that did not come back during the retention period,
+     * and the spilled events that are too old.
+     */
+    @Schedule(hour = "*", minute = "*", persistent = false)
+    public void expire() {
+        long limit = System.currentTimeMillis() - retentionMinutes * 60 * 1000;
+        for (UserStream stream : streams.values()) {
+            if (!stream.isOnline() && stream.getOfflineSince() < limit) {
+                streams.remove(stream.getUserId());
+                removeFromOfflineIndex(stream);
+                if (spill) {
+                    saveEvicted(stream);
+                    save(stream.getUserId(), stream.snapshot());
+                }
+            }
+        }
+        if (spill) {
+            int deleted = replayEventDao.deleteOlderThan(LocalDateTime.now().minusHours(spillRetentionHours));
+            if (deleted > 0) {
+                logger.info("Deleted " + deleted + " old replay events");
+            }
+        }
+    }
+
+    /**
+     * Saves the events still in memory before the application stops, so clients can resume after a redeploy.
+     */
+    @PreDestroy
+    public void destroy() {
+        if (!spill) {
+            return;
+        }
+        for (UserStream stream : streams.values()) {
+            saveEvicted(stream);
+            save(stream.getUserId(), stream.snapshot());
+        }
+    }
+
+    private void save(long userId, List<UserStream.Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        List<ReplayEventEntity> events = new ArrayList<>();
+        for (UserStream.Entry entry : entries) {
+            ReplayEventEntity event = new ReplayEventEntity();
+            event.setUserId(userId);
+            event.setSeq(entry.getSeq());
+            event.setChannel(entry.getChannel());
+            event.setBody(entry.getBody());
+            events.add(event);
+        }
+        try {
+            replayEventDao.persistAll(events);
+        } catch (Exception e) {
+            logger.error("Error saving replay events of user " + userId, e);
+        }
+    }
+
+    private void removeFromOfflineIndex(UserStream stream) {
+        for (Long projectId : stream.getProjectIds()) {
+            offlineByProject.computeIfPresent(projectId, (id, users) -> {
+                users.remove(stream.getUserId());
+                return users.isEmpty() ? null : users;
+            });
+        }
+    }
+}
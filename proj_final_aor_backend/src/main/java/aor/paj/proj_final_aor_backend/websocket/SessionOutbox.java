@@ -0,0 +1,221 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import aor.paj.proj_final_aor_backend.util.enums.OutboundPolicy;
+import jakarta.websocket.Session;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Bounded queue of the frames waiting to be sent to one client connection.
+ * Messages are sent asynchronously, one at a time, so the thread that produces an event
+ * never waits for the network. When the queue is full the configured policy makes room for the
+ * new message, and a session that stays full for longer than the eviction timeout is closed.
+ */
+public class SessionOutbox {
+
+    private static final Logger logger = LogManager.getLogger(SessionOutbox.class);
+
+    private final FrameSink sink;
+    private final int highWaterMark;
+    private final OutboundPolicy policy;
+    private final long evictAfterMillis;
+    private final OutboundStats stats;
+
+    /**
+     * Pending messages, guarded by this outbox.
+     */
+    private final Deque<Pending> queue = new ArrayDeque<>();
+
+    /**
+     * True while a message is being sent, the async remote only accepts one at a time.
+     */
+    private boolean sending;
+
+    /**
+     * Moment when the queue reached the high-water mark, or 0 if it is below it.
+     */
+    private long fullSince;
+
+    private boolean closed;
+
+    /**
+     * Creates the outbox of a session.
+     *
+     * @param session          The session where the messages are sent.
+     * @param highWaterMark    The maximum number of pending messages.
+     * @param policy           What to do when the queue is full.
+     * @param evictAfterMillis How long the queue can stay full before the session is closed.
+     * @param stats            The counters to update.
+     */
+    public SessionOutbox(Session session, int highWaterMark, OutboundPolicy policy, long evictAfterMillis, OutboundStats stats) {
+        this(new WebsocketFrameSink(session), highWaterMark, policy, evictAfterMillis, stats);
+    }
+
+    /**
+     * Creates the outbox of a client connection.
+     *
+     * @param sink             The connection where the messages are sent.
+     * @param highWaterMark    The maximum number of pending messages.
+     * @param policy           What to do when the queue is full.
+     * @param evictAfterMillis How long the queue can stay full before the connection is closed.
+     * @param stats            The counters to update.
+     */
+    public SessionOutbox(FrameSink sink, int highWaterMark, OutboundPolicy policy, long evictAfterMillis, OutboundStats stats) {
+        this.sink = sink;
+        this.highWaterMark = Math.max(1, highWaterMark);
+        this.policy = policy;
+        this.evictAfterMillis = evictAfterMillis;
+        this.stats = stats;
+    }
+
+    /**
+     * Queues a frame to be sent.
+     *
+     * @param frame The frame to send.
+     * @param key   The key used to coalesce frames about the same thing, or null.
+     */
+    public void offer(OutboundFrame frame, String key) {
+        boolean evict = false;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            stats.enqueued.incrementAndGet();
+
+            if (policy == OutboundPolicy.COALESCE && key != null && replacePending(key, frame)) {
+                stats.coalesced.incrementAndGet();
+                return;
+            }
+
+            if (queue.size() >= highWaterMark) {
+                long now = System.currentTimeMillis();
+                if (fullSince == 0) {
+                    fullSince = now;
+                } else if (now - fullSince > evictAfterMillis) {
+                    evict = true;
+                }
+                if (!evict) {
+                    queue.pollFirst();
+                    stats.dropped.incrementAndGet();
+                }
+            }
+            if (!evict) {
+                queue.addLast(new Pending(frame, key));
+            }
+        }
+
+        if (evict) {
+            evict();
+        } else {
+            sendNext();
+        }
+    }
+
+    /**
+     * Returns the number of messages waiting to be sent.
+     *
+     * @return The number of pending messages.
+     */
+    public synchronized int getDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Discards the pending messages, called when the session is closed.
+     */
+    public synchronized void close() {
+        closed = true;
+        queue.clear();
+    }
+
+    /**
+     * Starts sending the next pending message, if there is one and no other send is in flight.
+     */
+    private void sendNext() {
+        Pending next;
+        synchronized (this) {
+            if (sending || closed) {
+                return;
+            }
+            next = queue.pollFirst();
+            if (next == null) {
+                return;
+            }
+            if (queue.size() < highWaterMark) {
+                fullSince = 0;
+            }
+            sending = true;
+        }
+
+        try {
+            sink.send(next.frame, this::onSent);
+        } catch (RuntimeException e) {
+            onSent(e);
+        }
+    }
+
+    /**
+     * Called when a send completes, successfully or not, to send the next message.
+     */
+    private void onSent(Throwable error) {
+        if (error == null) {
+            stats.sent.incrementAndGet();
+        } else {
+            stats.failed.incrementAndGet();
+            logger.error("Error sending to session " + sink.getId(), error);
+        }
+        synchronized (this) {
+            sending = false;
+        }
+        sendNext();
+    }
+
+    /**
+     * Replaces the frame of a pending message with the same key.
+     *
+     * @return True if a pending message was replaced.
+     */
+    private boolean replacePending(String key, OutboundFrame frame) {
+        Iterator<Pending> iterator = queue.descendingIterator();
+        while (iterator.hasNext()) {
+            Pending pending = iterator.next();
+            if (key.equals(pending.key)) {
+                pending.frame = frame;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Closes a session that could not keep up with its messages.
+     */
+    private void evict() {
+        close();
+        stats.evicted.incrementAndGet();
+        logger.warn("Closing slow session " + sink.getId() + ", outbound queue full for more than " + evictAfterMillis + " ms");
+        try {
+            sink.closeSlowConsumer();
+        } catch (IOException e) {
+            logger.error("Error closing session " + sink.getId(), e);
+        }
+    }
+
+    /**
+     * A message waiting to be sent.
+     */
+    private static class Pending {
+        private OutboundFrame frame;
+        private final String key;
+
+        private Pending(OutboundFrame frame, String key) {
+            this.frame = frame;
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,633 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import aor.paj.proj_final_aor_backend.dto.WebsocketStats;
+import aor.paj.proj_final_aor_backend.util.enums.OutboundPolicy;
+import aor.paj.proj_final_aor_backend.util.enums.SocketType;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import jakarta.websocket.Session;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class keeps the open websocket sessions indexed by user and by project.
+ * The user of a session is resolved once, when the session is opened, so sending an event
+ * only touches the sessions of the recipients and never goes to the database.
+ * Only the projects of users with at least one open session are indexed.
+ * Each session also gets a bounded outbox, so sending never blocks the caller on a slow client.
+ * Server-sent events streams are indexed in the same way, so their users count as online.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class SessionRegistry {
+
+    private static final Logger logger = LogManager.getLogger(SessionRegistry.class);
+
+    /**
+     * Key used to store the id of the user in the properties of the session.
+     */
+    public static final String USER_ID = "userId";
+
+    /**
+     * Key used to store the outbox in the properties of the session.
+     */
+    public static final String OUTBOX = "outbox";
+
+    /**
+     * Key used to store the channels subscribed by a session of the multiplexed endpoint.
+     */
+    public static final String CHANNELS = "channels";
+
+    /**
+     * Key of the user property with the last moment the client showed it is alive.
+     */
+    public static final String LAST_SEEN = "lastSeen";
+
+    /**
+     * Maximum number of pending messages per session, set with -Dwebsocket.outbox.highWaterMark.
+     */
+    private final int highWaterMark = Integer.getInteger("websocket.outbox.highWaterMark", 256);
+
+    /**
+     * How long a session can keep its queue full before being closed, set with -Dwebsocket.outbox.evictAfterMillis.
+     */
+    private final long evictAfterMillis = Long.getLong("websocket.outbox.evictAfterMillis", 10000L);
+
+    /**
+     * What to do when the queue of a session is full, set with -Dwebsocket.outbox.policy.
+     */
+    private final OutboundPolicy policy = OutboundPolicy.valueOf(System.getProperty("websocket.outbox.policy", OutboundPolicy.COALESCE.name()));
+
+    /**
+     * Time without pongs or messages after which a session is considered dead, set with -Dwebsocket.heartbeat.timeoutMillis.
+     * It is also the idle timeout of the sessions, the heartbeats keep the live ones busy.
+     */
+    private final long heartbeatTimeoutMillis = Long.getLong("websocket.heartbeat.timeoutMillis", 45000L);
+
+    private final OutboundStats stats = new OutboundStats();
+
+    /**
+     * Open sessions of each endpoint, indexed by the id of the user.
+     */
+    private final Map<SocketType, Map<Long, Set<Session>>> sessionsByUser = new EnumMap<>(SocketType.class);
+
+    /**
+     * Open server-sent events streams, indexed by the id of the user.
+     */
+    private final Map<Long, Set<SseConnection>> sseByUser = new ConcurrentHashMap<>();
+
+    /**
+     * Ids of the users with open sessions that are active members of each project.
+     */
+    private final Map<Long, Set<Long>> usersByProject = new ConcurrentHashMap<>();
+
+    /**
+     * Ids of the projects of each user with open sessions.
+     */
+    private final Map<Long, Set<Long>> projectsByUser = new ConcurrentHashMap<>();
+
+    /**
+     * Locks that serialize the changes to the sessions and projects of each user.
+     * Opening a session and joining its projects, and checking that a user went offline and dropping its projects,
+     * are done under the lock of the user, so a reconnect never loses the projects dropped by the last disconnect.
+     */
+    private final Object[] userLocks = new Object[64];
+
+    /**
+     * Default constructor for the SessionRegistry class.
+     */
+    public SessionRegistry() {
+        for (SocketType type : SocketType.values()) {
+            sessionsByUser.put(type, new ConcurrentHashMap<>());
+        }
+        for (int i = 0; i < userLocks.length; i++) {
+            userLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * Registers a new session of a user.
+     *
+     * @param type       The endpoint where the session was opened.
+     * @param session    The session to register.
+     * @param userId     The id of the user that owns the session.
+     * @param projectIds The ids of the projects where the user is an active member.
+     */
+    public void register(SocketType type, Session session, long userId, Collection<Long> projectIds) {
+        session.getUserProperties().put(USER_ID, userId);
+        session.getUserProperties().put(CHANNELS, ConcurrentHashMap.<String>newKeySet());
+        session.getUserProperties().put(OUTBOX, new SessionOutbox(session, highWaterMark, policy, evictAfterMillis, stats));
+        session.getUserProperties().put(LAST_SEEN, System.currentTimeMillis());
+        session.setMaxIdleTimeout(heartbeatTimeoutMillis);
+        synchronized (lockOf(userId)) {
+            sessionsByUser.get(type).computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(session);
+
+            if (projectIds != null) {
+                for (Long projectId : projectIds) {
+                    joinProject(userId, projectId);
+                }
+            }
+        }
+        logger.debug("Session " + session.getId() + " registered for user " + userId + " on " + type);
+    }
+
+    /**
+     * Removes a session from the registry.
+     * When the user has no more open sessions, the user is also removed from the project index.
+     *
+     * @param type    The endpoint where the session was opened.
+     * @param session The session to remove.
+     * @return True if the session was registered, false if it was already removed.
+     */
+    public boolean unregister(SocketType type, Session session) {
+        Long userId = getUserId(session);
+        if (userId == null) {
+            return false;
+        }
+        SessionOutbox outbox = getOutbox(session);
+        if (outbox != null) {
+            outbox.close();
+        }
+
+        boolean[] removed = {false};
+        sessionsByUser.get(type).computeIfPresent(userId, (id, sessions) -> {
+            removed[0] = sessions.remove(session);
+            return sessions.isEmpty() ? null : sessions;
+        });
+
+        dropProjectsIfOffline(userId);
+        logger.debug("Session " + session.getId() + " unregistered for user " + userId + " on " + type);
+        return removed[0];
+    }
+
+    /**
+     * Registers a new server-sent events stream of a user.
+     *
+     * @param connection The stream to register.
+     * @param projectIds The ids of the projects where the user is an active member.
+     */
+    public void registerSse(SseConnection connection, Collection<Long> projectIds) {
+        connection.setOutbox(new SessionOutbox(connection, highWaterMark, policy, evictAfterMillis, stats));
+        synchronized (lockOf(connection.getUserId())) {
+            sseByUser.computeIfAbsent(connection.getUserId(), id -> ConcurrentHashMap.newKeySet()).add(connection);
+
+            if (projectIds != null) {
+                for (Long projectId : projectIds) {
+                    joinProject(connection.getUserId(), projectId);
+                }
+            }
+        }
+        logger.debug("Stream " + connection.getId() + " registered for user " + connection.getUserId());
+    }
+
+    /**
+     * Removes a server-sent events stream from the registry.
+     *
+     * @param connection The stream to remove.
+     * @return True if the stream was registered.
+     */
+    public boolean unregisterSse(SseConnection connection) {
+        connection.getOutbox().close();
+        boolean[] removed = {false};
+        sseByUser.computeIfPresent(connection.getUserId(), (id, connections) -> {
+            removed[0] = connections.remove(connection);
+            return connections.isEmpty() ? null : connections;
+        });
+        dropProjectsIfOffline(connection.getUserId());
+        logger.debug("Stream " + connection.getId() + " unregistered for user " + connection.getUserId());
+        return removed[0];
+    }
+
+    /**
+     * Returns the open server-sent events streams of a user.
+     *
+     * @param userId The id of the user.
+     * @return The streams of the user, or an empty set.
+     */
+    public Set<SseConnection> getSseConnections(long userId) {
+        Set<SseConnection> connections = sseByUser.get(userId);
+        return connections == null ? Collections.emptySet() : connections;
+    }
+
+    /**
+     * Returns all the open server-sent events streams.
+     *
+     * @return The streams.
+     */
+    public List<SseConnection> getAllSseConnections() {
+        List<SseConnection> connections = new ArrayList<>();
+        for (Set<SseConnection> userConnections : sseByUser.values()) {
+            connections.addAll(userConnections);
+        }
+        return connections;
+    }
+
+    /**
+     * Checks if a user can subscribe a channel, project channels are only open to the members of the project.
+     *
+     * @param userId  The id of the user.
+     * @param channel The name of the channel.
+     * @return True if the user can subscribe the channel, false otherwise.
+     */
+    public boolean canSubscribe(long userId, String channel) {
+        if (!Channels.isValid(channel)) {
+            return false;
+        }
+        Long projectId = Channels.projectIdOf(channel);
+        return projectId == null || isProjectMember(userId, projectId);
+    }
+
+    /**
+     * Adds a user to the index of a project.
+     * Nothing is done if the user has no open sessions, the project is loaded when the user connects.
+     *
+     * @param userId    The id of the user.
+     * @param projectId The id of the project.
+     */
+    public void joinProject(long userId, long projectId) {
+        if (projectId == 0) {
+            return;
+        }
+        synchronized (lockOf(userId)) {
+            if (!isOnline(userId)) {
+                return;
+            }
+            projectsByUser.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(projectId);
+            usersByProject.computeIfAbsent(projectId, id -> ConcurrentHashMap.newKeySet()).add(userId);
+        }
+    }
+
+    /**
+     * Removes a user from the index of a project.
+     *
+     * @param userId    The id of the user.
+     * @param projectId The id of the project.
+     */
+    public void leaveProject(long userId, long projectId) {
+        synchronized (lockOf(userId)) {
+            projectsByUser.computeIfPresent(userId, (id, projects) -> {
+                projects.remove(projectId);
+                return projects;
+            });
+            removeFromProjectIndex(userId, projectId);
+        }
+    }
+
+    /**
+     * Subscribes a session to a channel.
+     *
+     * @param session The session.
+     * @param channel The name of the channel.
+     */
+    public void subscribe(Session session, String channel) {
+        Set<String> channels = getChannels(session);
+        if (channels != null) {
+            channels.add(channel);
+        }
+    }
+
+    /**
+     * Removes the subscription of a session to a channel.
+     *
+     * @param session The session.
+     * @param channel The name of the channel.
+     */
+    public void unsubscribe(Session session, String channel) {
+        Set<String> channels = getChannels(session);
+        if (channels != null) {
+            channels.remove(channel);
+        }
+    }
+
+    /**
+     * Returns the sessions, of a group, that are subscribed to a channel.
+     *
+     * @param sessions The sessions to filter.
+     * @param channel  The name of the channel.
+     * @return The subscribed sessions.
+     */
+    public List<Session> filterSubscribed(Collection<Session> sessions, String channel) {
+        List<Session> subscribed = new ArrayList<>();
+        for (Session session : sessions) {
+            Set<String> channels = getChannels(session);
+            if (channels != null && channels.contains(channel)) {
+                subscribed.add(session);
+            }
+        }
+        return subscribed;
+    }
+
+    /**
+     * Returns the channels subscribed by a session.
+     *
+     * @param session The session.
+     * @return A copy of the subscribed channels.
+     */
+    public Set<String> getSubscriptions(Session session) {
+        Set<String> channels = getChannels(session);
+        return channels == null ? Collections.emptySet() : new HashSet<>(channels);
+    }
+
+    /**
+     * Returns the projects of an online user.
+     *
+     * @param userId The id of the user.
+     * @return A copy of the ids of the projects.
+     */
+    public Set<Long> getUserProjects(long userId) {
+        Set<Long> projectIds = projectsByUser.get(userId);
+        return projectIds == null ? Collections.emptySet() : new HashSet<>(projectIds);
+    }
+
+    /**
+     * Checks if an online user is an active member of a project.
+     *
+     * @param userId    The id of the user.
+     * @param projectId The id of the project.
+     * @return True if the user is a member of the project, false otherwise.
+     */
+    public boolean isProjectMember(long userId, long projectId) {
+        Set<Long> projectIds = projectsByUser.get(userId);
+        return projectIds != null && projectIds.contains(projectId);
+    }
+
+    /**
+     * Queues a frame to be sent to a group of sessions, without waiting for it to be sent.
+     * The same frame is shared by all the sessions.
+     *
+     * @param sessions The sessions to send the frame to.
+     * @param frame    The frame to send.
+     * @param key      The key used to coalesce pending frames about the same thing, or null.
+     */
+    public void send(Collection<Session> sessions, OutboundFrame frame, String key) {
+        if (frame == null) {
+            return;
+        }
+        for (Session session : sessions) {
+            SessionOutbox outbox = getOutbox(session);
+            if (outbox != null && session.isOpen()) {
+                outbox.offer(frame, key);
+            }
+        }
+    }
+
+    /**
+     * Returns the counters of the outbound queues and their current depth.
+     *
+     * @return The websocket statistics.
+     */
+    public WebsocketStats getStats() {
+        WebsocketStats websocketStats = new WebsocketStats();
+        int openSessions = 0;
+        long queued = 0;
+        int maxDepth = 0;
+        for (Map<Long, Set<Session>> sessions : sessionsByUser.values()) {
+            for (Set<Session> userSessions : sessions.values()) {
+                for (Session session : userSessions) {
+                    SessionOutbox outbox = getOutbox(session);
+                    int depth = outbox == null ? 0 : outbox.getDepth();
+                    openSessions++;
+                    queued += depth;
+                    maxDepth = Math.max(maxDepth, depth);
+                }
+            }
+        }
+        for (SseConnection connection : getAllSseConnections()) {
+            int depth = connection.getOutbox().getDepth();
+            openSessions++;
+            queued += depth;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        websocketStats.setOpenSessions(openSessions);
+        websocketStats.setQueuedMessages(queued);
+        websocketStats.setMaxQueueDepth(maxDepth);
+        websocketStats.setEnqueued(stats.getEnqueued());
+        websocketStats.setSent(stats.getSent());
+        websocketStats.setDropped(stats.getDropped());
+        websocketStats.setCoalesced(stats.getCoalesced());
+        websocketStats.setFailed(stats.getFailed());
+        websocketStats.setEvicted(stats.getEvicted());
+        Runtime runtime = Runtime.getRuntime();
+        websocketStats.setHeapUsedBytes(runtime.totalMemory() - runtime.freeMemory());
+        return websocketStats;
+    }
+
+    /**
+     * Returns the open sessions of a user in an endpoint.
+     *
+     * @param type   The endpoint.
+     * @param userId The id of the user.
+     * @return The open sessions of the user, or an empty set.
+     */
+    public Set<Session> getSessions(SocketType type, long userId) {
+        Set<Session> sessions = sessionsByUser.get(type).get(userId);
+        return sessions == null ? Collections.emptySet() : sessions;
+    }
+
+    /**
+     * Returns the open sessions, in an endpoint, of the active members of a project.
+     *
+     * @param type      The endpoint.
+     * @param projectId The id of the project.
+     * @return The open sessions of the members of the project.
+     */
+    public List<Session> getProjectSessions(SocketType type, long projectId) {
+        Set<Long> userIds = usersByProject.get(projectId);
+        if (userIds == null) {
+            return Collections.emptyList();
+        }
+        List<Session> sessions = new ArrayList<>();
+        for (Long userId : userIds) {
+            sessions.addAll(getSessions(type, userId));
+        }
+        return sessions;
+    }
+
+    /**
+     * Returns the open sessions of an endpoint, except the ones of a user.
+     *
+     * @param type          The endpoint.
+     * @param excludedUserId The id of the user whose sessions are excluded.
+     * @return The open sessions of every other user.
+     */
+    public List<Session> getAllSessionsExcept(SocketType type, long excludedUserId) {
+        return getAllSessionsExcept(type, excludedUserId, null);
+    }
+
+    /**
+     * Returns the open sessions of an endpoint, except the ones of a user and of some others.
+     *
+     * @param type            The endpoint.
+     * @param excludedUserId  The id of the user whose sessions are excluded.
+     * @param excludedUserIds The ids of other users whose sessions are excluded, or null.
+     * @return The open sessions of every other user.
+     */
+    public List<Session> getAllSessionsExcept(SocketType type, long excludedUserId, Set<Long> excludedUserIds) {
+        List<Session> sessions = new ArrayList<>();
+        for (Map.Entry<Long, Set<Session>> entry : sessionsByUser.get(type).entrySet()) {
+            if (entry.getKey() != excludedUserId && (excludedUserIds == null || !excludedUserIds.contains(entry.getKey()))) {
+                sessions.addAll(entry.getValue());
+            }
+        }
+        return sessions;
+    }
+
+    /**
+     * Returns all the open sessions of an endpoint.
+     *
+     * @param type The endpoint.
+     * @return The sessions.
+     */
+    public List<Session> getAllSessions(SocketType type) {
+        List<Session> sessions = new ArrayList<>();
+        for (Set<Session> userSessions : sessionsByUser.get(type).values()) {
+            sessions.addAll(userSessions);
+        }
+        return sessions;
+    }
+
+    /**
+     * Records that the client of a session is alive, called for every pong and message received.
+     *
+     * @param session The session.
+     */
+    public void touch(Session session) {
+        session.getUserProperties().put(LAST_SEEN, System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the last moment the client of a session showed it is alive.
+     *
+     * @param session The session.
+     * @return The time in milliseconds, or 0 if the session was not registered.
+     */
+    public long getLastSeen(Session session) {
+        Object lastSeen = session.getUserProperties().get(LAST_SEEN);
+        return lastSeen instanceof Long ? (Long) lastSeen : 0;
+    }
+
+    /**
+     * Returns the time without pongs or messages after which a session is considered dead.
+     *
+     * @return The timeout in milliseconds.
+     */
+    public long getHeartbeatTimeoutMillis() {
+        return heartbeatTimeoutMillis;
+    }
+
+    /**
+     * Returns the ids of the users with open sessions that are active members of a project.
+     *
+     * @param projectId The id of the project.
+     * @return The ids of the users.
+     */
+    public Set<Long> getProjectUsers(long projectId) {
+        Set<Long> userIds = usersByProject.get(projectId);
+        return userIds == null ? Collections.emptySet() : Collections.unmodifiableSet(userIds);
+    }
+
+    /**
+     * Returns the ids of the users with at least one open session in any endpoint.
+     *
+     * @return The ids of the users.
+     */
+    public Set<Long> getOnlineUserIds() {
+        Set<Long> userIds = new HashSet<>(sseByUser.keySet());
+        for (Map<Long, Set<Session>> sessions : sessionsByUser.values()) {
+            userIds.addAll(sessions.keySet());
+        }
+        return userIds;
+    }
+
+    /**
+     * Checks if a user has at least one open session in any endpoint.
+     *
+     * @param userId The id of the user.
+     * @return True if the user has open sessions, false otherwise.
+     */
+    public boolean isOnline(long userId) {
+        for (Map<Long, Set<Session>> sessions : sessionsByUser.values()) {
+            if (sessions.containsKey(userId)) {
+                return true;
+            }
+        }
+        return sseByUser.containsKey(userId);
+    }
+
+    /**
+     * Returns the id of the user that owns a session.
+     *
+     * @param session The session.
+     * @return The id of the user, or null if the session was not registered.
+     */
+    public Long getUserId(Session session) {
+        Object userId = session.getUserProperties().get(USER_ID);
+        return userId instanceof Long ? (Long) userId : null;
+    }
+
+    /**
+     * Returns the outbox of a session.
+     *
+     * @param session The session.
+     * @return The outbox, or null if the session was not registered.
+     */
+    public SessionOutbox getOutbox(Session session) {
+        Object outbox = session.getUserProperties().get(OUTBOX);
+        return outbox instanceof SessionOutbox ? (SessionOutbox) outbox : null;
+    }
+
+    /**
+     * Returns the channels subscribed by a session.
+     */
+    @SuppressWarnings("unchecked")
+    private Set<String> getChannels(Session session) {
+        Object channels = session.getUserProperties().get(CHANNELS);
+        return channels instanceof Set ? (Set<String>) channels : null;
+    }
+
+    /**
+     * Removes a user from the project index once the user has no more open sessions or streams.
+     * The check and the removal hold the lock of the user, so a session opened meanwhile keeps its projects.
+     */
+    private void dropProjectsIfOffline(long userId) {
+        synchronized (lockOf(userId)) {
+            if (isOnline(userId)) {
+                return;
+            }
+            Set<Long> projectIds = projectsByUser.remove(userId);
+            if (projectIds != null) {
+                for (Long projectId : projectIds) {
+                    removeFromProjectIndex(userId, projectId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the lock that serializes the changes to the sessions and projects of a user.
+     */
+    private Object lockOf(long userId) {
+        return userLocks[(Long.hashCode(userId) & Integer.MAX_VALUE) % userLocks.length];
+    }
+
+    /**
+     * Removes a user from the set of users of a project, dropping the set when it becomes empty.
+     */
+    private void removeFromProjectIndex(long userId, long projectId) {
+        usersByProject.computeIfPresent(projectId, (id, users) -> {
+            users.remove(userId);
+            return users.isEmpty() ? null : users;
+        });
+    }
+}
@@ -0,0 +1,216 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+
+/**
+ * Event broker that connects the nodes with plain TCP sockets.
+ * Each node listens on a port and keeps one connection to each peer, events are written as one
+ * JSON object per line. A connection is written by a single thread and read by a single thread,
+ * so the events of a channel published by a node arrive at every peer in order.
+ * It is meant for a small number of nodes and for tests, an event is lost if a peer is down.
+ */
+public class SocketEventBroker implements EventBroker {
+
+    private static final Logger logger = LogManager.getLogger(SocketEventBroker.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final OrderedDispatcher dispatcher;
+    private final ThreadFactory threadFactory;
+    private final List<Consumer<BrokerEvent>> listeners = new CopyOnWriteArrayList<>();
+    private final List<Peer> peers = new ArrayList<>();
+    private final List<Socket> accepted = new CopyOnWriteArrayList<>();
+    private final ServerSocket serverSocket;
+    private volatile boolean closed;
+
+    /**
+     * Creates the broker and starts listening for the peers.
+     *
+     * @param port          The port where this node listens, 0 for any free port.
+     * @param peers         The addresses of the other nodes.
+     * @param dispatcher    The dispatcher that keeps the order of each channel.
+     * @param threadFactory The factory of the threads that read and write the connections.
+     * @throws IOException If the port cannot be opened.
+     */
+    public SocketEventBroker(int port, List<InetSocketAddress> peers, OrderedDispatcher dispatcher, ThreadFactory threadFactory) throws IOException {
+        this.dispatcher = dispatcher;
+        this.threadFactory = threadFactory;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        for (InetSocketAddress address : peers) {
+            this.peers.add(new Peer(address));
+        }
+        threadFactory.newThread(this::accept).start();
+        logger.info("Socket event broker listening on port " + getPort() + " with " + peers.size() + " peers");
+    }
+
+    /**
+     * Returns the port where this node listens.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void publish(BrokerEvent event) {
+        dispatchLocal(event);
+
+        String line;
+        try {
+            line = objectMapper.writeValueAsString(event);
+        } catch (IOException e) {
+            logger.error("Error serializing broker event: " + e.getMessage());
+            return;
+        }
+        for (Peer peer : peers) {
+            peer.send(line);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<BrokerEvent> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            logger.error("Error closing broker socket", e);
+        }
+        for (Socket socket : accepted) {
+            closeQuietly(socket);
+        }
+        for (Peer peer : peers) {
+            peer.close();
+        }
+        dispatcher.shutdown();
+    }
+
+    /**
+     * Accepts the connections of the peers, each one is read by its own thread.
+     */
+    private void accept() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                accepted.add(socket);
+                threadFactory.newThread(() -> read(socket)).start();
+            } catch (IOException e) {
+                if (!closed) {
+                    logger.error("Error accepting broker connection", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the events sent by a peer until the connection is closed.
+     */
+    private void read(Socket socket) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    dispatchLocal(objectMapper.readValue(line, BrokerEvent.class));
+                } catch (IOException e) {
+                    logger.error("Invalid broker event received: " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                logger.warn("Broker connection closed: " + e.getMessage());
+            }
+        } finally {
+            accepted.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * Delivers an event to the listeners of this node, on the thread of its channel.
+     */
+    private void dispatchLocal(BrokerEvent event) {
+        dispatcher.dispatch(event.getChannel(), () -> {
+            for (Consumer<BrokerEvent> listener : listeners) {
+                listener.accept(event);
+            }
+        });
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            logger.debug("Error closing socket: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Connection to another node, opened on the first send and reopened after an error.
+     */
+    private class Peer {
+        private final InetSocketAddress address;
+        private final ExecutorService writer;
+        private Socket socket;
+        private Writer out;
+
+        private Peer(InetSocketAddress address) {
+            this.address = address;
+            this.writer = Executors.newSingleThreadExecutor(threadFactory);
+        }
+
+        private void send(String line) {
+            writer.execute(() -> {
+                try {
+                    if (socket == null) {
+                        socket = new Socket(address.getAddress(), address.getPort());
+                        out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+                    }
+                    out.write(line);
+                    out.write('\n');
+                    out.flush();
+                } catch (IOException e) {
+                    logger.error("Error sending event to broker peer " + address + ": " + e.getMessage());
+                    disconnect();
+                }
+            });
+        }
+
+        private void disconnect() {
+            if (socket != null) {
+                closeQuietly(socket);
+            }
+            socket = null;
+            out = null;
+        }
+
+        private void close() {
+            writer.execute(this::disconnect);
+            writer.shutdown();
+        }
+    }
+}
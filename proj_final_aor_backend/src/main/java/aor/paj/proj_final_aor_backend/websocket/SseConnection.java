@@ -0,0 +1,91 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A server-sent events stream of a user, fed with the same frames as the hub sessions.
+ * The sequence number of each event is sent as the event id, so the browser resumes with Last-Event-ID.
+ */
+public class SseConnection implements FrameSink {
+
+    private static final AtomicLong ids = new AtomicLong();
+
+    private final String id = "sse-" + ids.incrementAndGet();
+    private final long userId;
+    private final SseEventSink sink;
+    private final Sse sse;
+    private final Set<String> channels = ConcurrentHashMap.newKeySet();
+    private SessionOutbox outbox;
+
+    /**
+     * Creates the connection.
+     *
+     * @param userId The id of the user.
+     * @param sink   The sink of the stream.
+     * @param sse    The factory of the events.
+     */
+    public SseConnection(long userId, SseEventSink sink, Sse sse) {
+        this.userId = userId;
+        this.sink = sink;
+        this.sse = sse;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !sink.isClosed();
+    }
+
+    @Override
+    public void send(OutboundFrame frame, Consumer<Throwable> onComplete) {
+        String data = frame.isBinary() ? StandardCharsets.UTF_8.decode(frame.getBinary()).toString() : frame.getText();
+        OutboundSseEvent.Builder event = sse.newEventBuilder().data(data);
+        if (frame.getSeq() > 0) {
+            event.id(Long.toString(frame.getSeq()));
+        }
+        sink.send(event.build()).whenComplete((result, error) -> onComplete.accept(error));
+    }
+
+    @Override
+    public void closeSlowConsumer() {
+        sink.close();
+    }
+
+    /**
+     * Sends a comment, which keeps proxies from closing an idle stream and detects closed clients.
+     *
+     * @return The result of the send.
+     */
+    public CompletionStage<?> ping() {
+        return sink.send(sse.newEventBuilder().comment("keepalive").build());
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public Set<String> getChannels() {
+        return channels;
+    }
+
+    public SessionOutbox getOutbox() {
+        return outbox;
+    }
+
+    public void setOutbox(SessionOutbox outbox) {
+        this.outbox = outbox;
+    }
+}
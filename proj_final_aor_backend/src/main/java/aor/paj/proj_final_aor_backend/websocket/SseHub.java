@@ -0,0 +1,129 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import aor.paj.proj_final_aor_backend.bean.UserProjectBean;
+import aor.paj.proj_final_aor_backend.dto.Envelope;
+import aor.paj.proj_final_aor_backend.util.enums.SocketType;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Opens and closes the server-sent events streams, for the clients that can not use websockets.
+ * A stream receives the same envelopes as a hub session, from the channels chosen when it is opened,
+ * and the sequence numbers are shared with the hub, so a client can move between both.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class SseHub {
+
+    private static final Logger logger = LogManager.getLogger(SseHub.class);
+
+    @EJB
+    SessionRegistry sessionRegistry;
+
+    @EJB
+    ReplayBuffer replayBuffer;
+
+    @EJB
+    UserProjectBean userProjectBean;
+
+    /**
+     * Opens a stream for a user, subscribed to the given channels, and sends the events missed since the last one.
+     *
+     * @param userId   The id of the user.
+     * @param sink     The sink of the stream.
+     * @param sse      The factory of the events.
+     * @param channels The channels to subscribe, channels the user can not subscribe are ignored.
+     * @param lastSeq  The sequence number of the last event the client received, or null.
+     */
+    public void open(long userId, SseEventSink sink, Sse sse, Collection<String> channels, Long lastSeq) {
+        SseConnection connection = new SseConnection(userId, sink, sse);
+        List<Long> projectIds = userProjectBean.getActiveProjectIdsOfAUser(userId);
+
+        // Registering and replaying under the stream lock, so no live event is sent in between
+        UserStream stream = replayBuffer.open(userId);
+        synchronized (stream) {
+            sessionRegistry.registerSse(connection, projectIds);
+            for (String channel : channels) {
+                if (sessionRegistry.canSubscribe(userId, channel)) {
+                    connection.getChannels().add(channel);
+                }
+            }
+            if (lastSeq != null) {
+                resume(connection, stream, lastSeq);
+            }
+        }
+        logger.info("Stream " + connection.getId() + " opened for user " + userId + " on channels " + connection.getChannels());
+    }
+
+    /**
+     * Closes a stream and keeps the events of the user for a while, if it has no more connections.
+     *
+     * @param connection The stream to close.
+     */
+    public void close(SseConnection connection) {
+        long userId = connection.getUserId();
+        Set<Long> projectIds = sessionRegistry.getUserProjects(userId);
+        if (!sessionRegistry.unregisterSse(connection)) {
+            return;
+        }
+        if (connection.isOpen()) {
+            connection.closeSlowConsumer();
+        }
+        if (sessionRegistry.getSessions(SocketType.HUB, userId).isEmpty() && sessionRegistry.getSseConnections(userId).isEmpty()) {
+            replayBuffer.close(userId, projectIds, connection.getChannels());
+        }
+    }
+
+    /**
+     * Pings the open streams every 30 seconds, closing the ones whose client has gone away.
+     * A server-sent events client can only be detected as gone when a write fails.
+     */
+    @Schedule(hour = "*", minute = "*", second = "*/30", persistent = false)
+    public void keepAlive() {
+        for (SseConnection connection : sessionRegistry.getAllSseConnections()) {
+            if (!connection.isOpen()) {
+                close(connection);
+                continue;
+            }
+            connection.ping().whenComplete((result, error) -> {
+                if (error != null) {
+                    logger.info("Stream " + connection.getId() + " of user " + connection.getUserId() + " is gone");
+                    close(connection);
+                }
+            });
+        }
+    }
+
+    /**
+     * Sends the events the stream missed, or asks the client to resync if they are no longer available.
+     * Must be called holding the lock of the stream.
+     */
+    private void resume(SseConnection connection, UserStream stream, long lastSeq) {
+        List<UserStream.Entry> missed = replayBuffer.since(stream, lastSeq);
+        if (missed == null) {
+            logger.info("Events after " + lastSeq + " of user " + stream.getUserId() + " are no longer available, asking for a resync");
+            Envelope resync = new Envelope(null, WebsocketHub.RESYNC, null);
+            resync.setSeq(stream.getLastSeq());
+            connection.getOutbox().offer(FrameEncoder.encode(resync), null);
+            return;
+        }
+
+        for (UserStream.Entry entry : missed) {
+            if (connection.getChannels().contains(entry.getChannel())) {
+                connection.getOutbox().offer(FrameEncoder.withSeq(entry.getBody(), entry.getSeq()), null);
+            }
+        }
+        logger.info("Replayed " + missed.size() + " events to stream " + connection.getId() + " after " + lastSeq);
+    }
+}
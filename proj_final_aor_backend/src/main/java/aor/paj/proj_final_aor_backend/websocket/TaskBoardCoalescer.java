@@ -0,0 +1,204 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import aor.paj.proj_final_aor_backend.dto.Task;
+import aor.paj.proj_final_aor_backend.dto.TaskBatch;
+import aor.paj.proj_final_aor_backend.util.enums.SocketType;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Singleton;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups the task updates of each project during a short window before sending them.
+ * Several updates of the same task in the window become one, and the hub sessions receive a single
+ * batch per project with only the fields that changed since the previous batch. The old task
+ * endpoint still receives full tasks, one per changed task, so its clients keep working.
+ * The window is set with -Dwebsocket.tasks.coalesceMillis.
+ * The last version sent of a task is forgotten when it is erased, and the buffer of a project is dropped when
+ * it has nothing left to compare, so only the projects with members online keep their tasks in memory.
+ * With other nodes the members may have received changes this node did not send, so the batches have whole tasks,
+ * which replace the task, and their update date tells the clients which one is the newest.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class TaskBoardCoalescer {
+
+    private static final Logger logger = LogManager.getLogger(TaskBoardCoalescer.class);
+
+    public static final String TASKS = "tasks";
+
+    private final long windowMillis = Long.getLong("websocket.tasks.coalesceMillis", 75L);
+
+    @Resource
+    ManagedScheduledExecutorService scheduler;
+
+    @EJB
+    WebsocketHub websocketHub;
+
+    @EJB
+    SessionRegistry sessionRegistry;
+
+    @EJB
+    EventBus eventBus;
+
+    private final Map<Long, ProjectBuffer> buffers = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a task update to the window of its project, starting the window if needed.
+     *
+     * @param projectId The id of the project.
+     * @param task      The updated task.
+     */
+    public void submit(long projectId, Task task) {
+        if (task.getId() == null) {
+            websocketHub.sendToProject(SocketType.TASK, Channels.projectTasks(projectId), WebsocketHub.TASK, projectId, task, null);
+            return;
+        }
+
+        boolean schedule;
+        while (true) {
+            ProjectBuffer buffer = buffers.computeIfAbsent(projectId, id -> new ProjectBuffer());
+            synchronized (buffer) {
+                // A buffer dropped by a flush in the meantime is replaced by a new one
+                if (buffer.dropped) {
+                    continue;
+                }
+                buffer.pending.put(task.getId(), task);
+                schedule = !buffer.scheduled;
+                buffer.scheduled = true;
+                break;
+            }
+        }
+        if (schedule) {
+            scheduler.schedule(() -> flush(projectId), windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sends the updates collected in the window of a project.
+     *
+     * @param projectId The id of the project.
+     */
+    void flush(long projectId) {
+        ProjectBuffer buffer = buffers.get(projectId);
+        if (buffer == null) {
+            return;
+        }
+        Map<Long, Task> pending;
+        synchronized (buffer) {
+            pending = buffer.pending;
+            buffer.pending = new LinkedHashMap<>();
+            buffer.scheduled = false;
+        }
+        // Diffing and publishing under the same lock keeps the batches of a project in order
+        synchronized (buffer.lastSent) {
+            if (!pending.isEmpty()) {
+                send(projectId, buffer, pending);
+            }
+
+            // Without members online there is no one to send only the changes to, the next batch has whole tasks
+            if (sessionRegistry.getProjectUsers(projectId).isEmpty()) {
+                buffer.lastSent.clear();
+            }
+            if (buffer.lastSent.isEmpty()) {
+                synchronized (buffer) {
+                    if (buffer.pending.isEmpty() && !buffer.scheduled) {
+                        buffer.dropped = true;
+                        buffers.remove(projectId, buffer);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends the changes of the updates of a window, called with the lock of the last versions sent.
+     *
+     * @param projectId The id of the project.
+     * @param buffer    The buffer of the project.
+     * @param pending   The updates of the window.
+     */
+    private void send(long projectId, ProjectBuffer buffer, Map<Long, Task> pending) {
+        // The last versions sent by this node are not the ones the clients have when other nodes send changes too
+        boolean whole = eventBus.isDistributed();
+        List<Map<String, Object>> changes = new ArrayList<>();
+        for (Task task : pending.values()) {
+            Map<String, Object> current = FrameEncoder.toMap(task);
+            // An erased task is sent once more and then forgotten
+            Map<String, Object> previous;
+            if (whole) {
+                previous = null;
+            } else if (Boolean.TRUE.equals(task.getErased())) {
+                previous = buffer.lastSent.remove(task.getId());
+            } else {
+                previous = buffer.lastSent.put(task.getId(), current);
+            }
+            Map<String, Object> changed = diff(previous, current);
+            if (changed.size() > 1) {
+                changes.add(changed);
+                websocketHub.sendToProject(SocketType.TASK, null, WebsocketHub.TASK, projectId, task, "task:" + task.getId());
+            }
+        }
+        if (!changes.isEmpty()) {
+            websocketHub.sendToProject(null, Channels.projectTasks(projectId), TASKS, projectId, new TaskBatch(projectId, changes, whole), null);
+            logger.debug("Sent " + changes.size() + " task changes of " + pending.size() + " updates to project " + projectId);
+        }
+    }
+
+    /**
+     * Returns the number of projects with a buffer, the ones with updates pending or last versions to compare.
+     *
+     * @return The number of projects.
+     */
+    int getBufferedProjects() {
+        return buffers.size();
+    }
+
+    /**
+     * Returns the id and the fields that are different between two versions of a task.
+     *
+     * @param previous The fields sent before, or null if the task was never sent.
+     * @param current  The current fields.
+     * @return The id of the task and the changed fields, a removed field has the value null.
+     */
+    static Map<String, Object> diff(Map<String, Object> previous, Map<String, Object> current) {
+        Map<String, Object> changed = new LinkedHashMap<>();
+        changed.put("id", current.get("id"));
+        for (Map.Entry<String, Object> entry : current.entrySet()) {
+            if (previous == null || !Objects.equals(previous.get(entry.getKey()), entry.getValue())) {
+                changed.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (previous != null) {
+            for (String key : previous.keySet()) {
+                if (!current.containsKey(key)) {
+                    changed.put(key, null);
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Updates waiting for the window of a project, and the last version sent of each task.
+     */
+    private static class ProjectBuffer {
+        private Map<Long, Task> pending = new LinkedHashMap<>();
+        private boolean scheduled;
+        private boolean dropped;
+        private final Map<Long, Map<String, Object>> lastSent = new HashMap<>();
+    }
+}
@@ -0,0 +1,176 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stream of the websocket events of one user, numbered with a sequence that only grows.
+ * The last events are kept in a bounded ring so a client that reconnects can get the ones it missed.
+ * The stream is also the lock that keeps appending, sending and replaying in order.
+ */
+public class UserStream {
+
+    private final long userId;
+    private final int capacity;
+    private final Deque<Entry> ring = new ArrayDeque<>();
+    private final List<Entry> evicted = new ArrayList<>();
+    private final boolean keepEvicted;
+    private long lastSeq;
+
+    /**
+     * Moment when the last hub session of the user was closed, or 0 while the user is connected.
+     */
+    private long offlineSince;
+
+    /**
+     * Projects and channels of the user when the last session was closed, used while the user is away.
+     */
+    private Set<Long> projectIds = Collections.emptySet();
+    private Set<String> channels = Collections.emptySet();
+
+    /**
+     * Creates the stream of a user.
+     *
+     * @param userId      The id of the user.
+     * @param capacity    The number of events kept in memory.
+     * @param lastSeq     The last sequence number already used.
+     * @param keepEvicted True to keep the events that leave the ring, so they can be saved.
+     */
+    public UserStream(long userId, int capacity, long lastSeq, boolean keepEvicted) {
+        this.userId = userId;
+        this.capacity = Math.max(1, capacity);
+        this.lastSeq = lastSeq;
+        this.keepEvicted = keepEvicted;
+    }
+
+    /**
+     * Adds an event to the stream.
+     *
+     * @param channel The channel of the event.
+     * @param body    The envelope of the event, as JSON without the sequence number.
+     * @return The sequence number of the event.
+     */
+    public synchronized long append(String channel, String body) {
+        Entry entry = new Entry(++lastSeq, channel, body);
+        ring.addLast(entry);
+        if (ring.size() > capacity) {
+            Entry oldest = ring.pollFirst();
+            if (keepEvicted) {
+                evicted.add(oldest);
+            }
+        }
+        return entry.seq;
+    }
+
+    /**
+     * Returns the events after a sequence number that are still in memory.
+     *
+     * @param seq The last sequence number received by the client.
+     * @return The events after the sequence number, or null if some of them already left the ring.
+     */
+    public synchronized List<Entry> since(long seq) {
+        if (seq > lastSeq) {
+            return null;
+        }
+        Entry first = ring.peekFirst();
+        long firstSeq = first == null ? lastSeq + 1 : first.seq;
+        if (seq + 1 < firstSeq) {
+            return null;
+        }
+        List<Entry> entries = new ArrayList<>();
+        for (Entry entry : ring) {
+            if (entry.seq > seq) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Returns all the events in memory.
+     *
+     * @return The events, oldest first.
+     */
+    public synchronized List<Entry> snapshot() {
+        return new ArrayList<>(ring);
+    }
+
+    /**
+     * Returns and forgets the events that left the ring since the last call.
+     *
+     * @return The evicted events.
+     */
+    public synchronized List<Entry> drainEvicted() {
+        if (evicted.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Entry> drained = new ArrayList<>(evicted);
+        evicted.clear();
+        return drained;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public synchronized long getLastSeq() {
+        return lastSeq;
+    }
+
+    public synchronized boolean isOnline() {
+        return offlineSince == 0;
+    }
+
+    public synchronized long getOfflineSince() {
+        return offlineSince;
+    }
+
+    public synchronized void markOnline() {
+        offlineSince = 0;
+    }
+
+    public synchronized void markOffline(Set<Long> projectIds, Set<String> channels) {
+        this.offlineSince = System.currentTimeMillis();
+        this.projectIds = projectIds;
+        this.channels = channels;
+    }
+
+    public synchronized Set<Long> getProjectIds() {
+        return projectIds;
+    }
+
+    public synchronized Set<String> getChannels() {
+        return channels;
+    }
+
+    /**
+     * An event of the stream.
+     */
+    public static final class Entry {
+        private final long seq;
+        private final String channel;
+        private final String body;
+
+        public Entry(long seq, String channel, String body) {
+            this.seq = seq;
+            this.channel = channel;
+            this.body = body;
+        }
+
+        public long getSeq() {
+            return seq;
+        }
+
+        public String getChannel() {
+            return channel;
+        }
+
+        public String getBody() {
+            return body;
+        }
+    }
+}
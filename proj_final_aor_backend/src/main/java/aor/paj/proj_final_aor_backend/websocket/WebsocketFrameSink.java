@@ -0,0 +1,43 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Session;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Sends frames to a websocket session with its async remote.
+ */
+public class WebsocketFrameSink implements FrameSink {
+
+    private final Session session;
+
+    public WebsocketFrameSink(Session session) {
+        this.session = session;
+    }
+
+    @Override
+    public String getId() {
+        return session.getId();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return session.isOpen();
+    }
+
+    @Override
+    public void send(OutboundFrame frame, Consumer<Throwable> onComplete) {
+        if (frame.isBinary()) {
+            session.getAsyncRemote().sendBinary(frame.getBinary(), result -> onComplete.accept(result.getException()));
+        } else {
+            session.getAsyncRemote().sendText(frame.getText(), result -> onComplete.accept(result.getException()));
+        }
+    }
+
+    @Override
+    public void closeSlowConsumer() throws IOException {
+        session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "Slow consumer"));
+    }
+}
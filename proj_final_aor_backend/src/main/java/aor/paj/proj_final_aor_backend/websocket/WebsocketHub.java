@@ -0,0 +1,282 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import aor.paj.proj_final_aor_backend.bean.UserBean;
+import aor.paj.proj_final_aor_backend.bean.UserProjectBean;
+import aor.paj.proj_final_aor_backend.dto.Envelope;
+import aor.paj.proj_final_aor_backend.dto.User;
+import aor.paj.proj_final_aor_backend.util.enums.EventTarget;
+import aor.paj.proj_final_aor_backend.util.enums.SocketType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Singleton;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.OnClose;
+import jakarta.websocket.OnMessage;
+import jakarta.websocket.OnOpen;
+import jakarta.websocket.PongMessage;
+import jakarta.websocket.Session;
+import jakarta.websocket.server.PathParam;
+import jakarta.websocket.server.ServerEndpoint;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Multiplexed websocket endpoint.
+ * A client opens a single socket and subscribes the channels it wants to listen to, every event is
+ * sent inside an envelope with its channel and type. This class is also the single place where
+ * events are published, the old endpoints delegate to it so their clients keep working during the migration.
+ * Events go through the event bus, so the users connected to other nodes also receive them.
+ *
+ * <p>Every event carries a sequence number of the stream of the user. A client that reconnects with
+ * {@code ?lastSeq=N} is subscribed again to the channels of its previous session and receives only
+ * the events it missed, or an envelope of type "resync" when they are no longer available.</p>
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@ServerEndpoint("/websocket/hub/{token}")
+public class WebsocketHub {
+
+    private static final Logger logger = LogManager.getLogger(WebsocketHub.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static final String NOTIFICATION = "notification";
+    public static final String MESSAGE = "message";
+    public static final String READ = "read";
+    public static final String TASK = "task";
+    public static final String SUBSCRIBE = "subscribe";
+    public static final String UNSUBSCRIBE = "unsubscribe";
+    public static final String SUBSCRIBED = "subscribed";
+    public static final String UNSUBSCRIBED = "unsubscribed";
+    public static final String ERROR = "error";
+    public static final String RESYNC = "resync";
+
+    @EJB
+    UserBean userBean;
+    @EJB
+    UserProjectBean userProjectBean;
+    @EJB
+    SessionRegistry sessionRegistry;
+    @EJB
+    EventBus eventBus;
+    @EJB
+    ReplayBuffer replayBuffer;
+
+    @OnOpen
+    public void onOpen(Session session, @PathParam("token") String token) {
+        logger.info("A new WebSocket hub session is opened for client with token: " + token);
+
+        User user = userBean.getUserByToken(token);
+        if (user == null) {
+            logger.warn("No user found with token: " + token + ", closing session " + session.getId());
+            try {
+                session.close(new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, "Invalid token"));
+            } catch (IOException e) {
+                logger.error("Error closing session " + session.getId(), e);
+            }
+            return;
+        }
+        List<Long> projectIds = userProjectBean.getActiveProjectIdsOfAUser(user.getId());
+        Long lastSeq = getLastSeq(session);
+
+        // Registering and replaying under the stream lock, so no live event is sent in between
+        UserStream stream = replayBuffer.open(user.getId());
+        synchronized (stream) {
+            Set<String> previousChannels = stream.getChannels();
+            sessionRegistry.register(SocketType.HUB, session, user.getId(), projectIds);
+            if (lastSeq != null) {
+                resume(session, stream, lastSeq, previousChannels);
+            }
+        }
+    }
+
+    /**
+     * Handles the envelopes sent by the client, used to subscribe and unsubscribe channels.
+     *
+     * @param session The session that sent the envelope.
+     * @param text    The envelope as JSON.
+     */
+    @OnMessage
+    public void onMessage(Session session, String text) {
+        sessionRegistry.touch(session);
+        Envelope envelope;
+        try {
+            envelope = objectMapper.readValue(text, Envelope.class);
+        } catch (IOException e) {
+            logger.warn("Invalid envelope received on session " + session.getId() + ": " + e.getMessage());
+            reply(session, new Envelope(null, ERROR, "Invalid envelope"));
+            return;
+        }
+
+        String channel = envelope.getChannel();
+        if (SUBSCRIBE.equals(envelope.getType())) {
+            if (!canSubscribe(session, channel)) {
+                logger.warn("Session " + session.getId() + " is not allowed to subscribe " + channel);
+                reply(session, new Envelope(channel, ERROR, "Channel not allowed"));
+                return;
+            }
+            sessionRegistry.subscribe(session, channel);
+            reply(session, new Envelope(channel, SUBSCRIBED, null));
+        } else if (UNSUBSCRIBE.equals(envelope.getType())) {
+            sessionRegistry.unsubscribe(session, channel);
+            reply(session, new Envelope(channel, UNSUBSCRIBED, null));
+        } else {
+            reply(session, new Envelope(channel, ERROR, "Unknown type " + envelope.getType()));
+        }
+    }
+
+    /**
+     * Answers to the heartbeat pings, marking the session as alive.
+     *
+     * @param pong    The pong received.
+     * @param session The session that received it.
+     */
+    @OnMessage
+    public void onPong(PongMessage pong, Session session) {
+        sessionRegistry.touch(session);
+    }
+
+    @OnClose
+    public void onClose(Session session, CloseReason closeReason) {
+        logger.warn("Session closed with reason " + closeReason.getCloseCode() + ": " + closeReason.getReasonPhrase());
+        Long userId = sessionRegistry.getUserId(session);
+        if (userId == null) {
+            return;
+        }
+        Set<String> channels = sessionRegistry.getSubscriptions(session);
+        Set<Long> projectIds = sessionRegistry.getUserProjects(userId);
+        // Sessions evicted by the heartbeat are closed here first, and again by the container
+        if (!sessionRegistry.unregister(SocketType.HUB, session)) {
+            return;
+        }
+
+        // The stream keeps collecting events for a while, in case the client comes back
+        if (sessionRegistry.getSessions(SocketType.HUB, userId).isEmpty() && sessionRegistry.getSseConnections(userId).isEmpty()) {
+            replayBuffer.close(userId, projectIds, channels);
+        }
+    }
+
+    /**
+     * Subscribes a reconnected session to its previous channels and sends the events it missed.
+     * Must be called holding the lock of the stream.
+     */
+    private void resume(Session session, UserStream stream, long lastSeq, Set<String> channels) {
+        for (String channel : channels) {
+            if (canSubscribe(session, channel)) {
+                sessionRegistry.subscribe(session, channel);
+            }
+        }
+
+        List<UserStream.Entry> missed = replayBuffer.since(stream, lastSeq);
+        if (missed == null) {
+            logger.info("Events after " + lastSeq + " of user " + stream.getUserId() + " are no longer available, asking for a resync");
+            Envelope resync = new Envelope(null, RESYNC, null);
+            resync.setSeq(stream.getLastSeq());
+            reply(session, resync);
+            return;
+        }
+
+        List<Session> target = List.of(session);
+        Set<String> subscribed = sessionRegistry.getSubscriptions(session);
+        for (UserStream.Entry entry : missed) {
+            if (subscribed.contains(entry.getChannel())) {
+                sessionRegistry.send(target, FrameEncoder.withSeq(entry.getBody(), entry.getSeq()), null);
+            }
+        }
+        logger.info("Replayed " + missed.size() + " events to user " + stream.getUserId() + " after " + lastSeq);
+    }
+
+    /**
+     * Reads the lastSeq query parameter of a session.
+     */
+    private Long getLastSeq(Session session) {
+        List<String> values = session.getRequestParameterMap().get("lastSeq");
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(values.get(0));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Sends an event to a user.
+     *
+     * @param legacyType The old endpoint that also receives the event.
+     * @param channel    The channel of the event.
+     * @param type       The type of the event.
+     * @param userId     The id of the user.
+     * @param payload    The event.
+     * @param key        The key used to coalesce pending events, or null.
+     */
+    public void sendToUser(SocketType legacyType, String channel, String type, long userId, Object payload, String key) {
+        eventBus.publish(new BrokerEvent(EventTarget.USER, userId, legacyType, channel, type, key, FrameEncoder.toJson(payload)));
+    }
+
+    /**
+     * Sends an event to every user except one.
+     *
+     * @param legacyType     The old endpoint that also receives the event.
+     * @param channel        The channel of the event.
+     * @param type           The type of the event.
+     * @param excludedUserId The id of the user that does not receive the event.
+     * @param payload        The event.
+     */
+    public void sendToAllExcept(SocketType legacyType, String channel, String type, long excludedUserId, Object payload) {
+        sendToAllExcept(legacyType, channel, type, excludedUserId, null, payload);
+    }
+
+    /**
+     * Sends an event to every user except one and some others.
+     *
+     * @param legacyType      The old endpoint that also receives the event.
+     * @param channel         The channel of the event.
+     * @param type            The type of the event.
+     * @param excludedUserId  The id of the user that does not receive the event.
+     * @param excludedUserIds The ids of other users that do not receive the event, or null.
+     * @param payload         The event.
+     */
+    public void sendToAllExcept(SocketType legacyType, String channel, String type, long excludedUserId, Set<Long> excludedUserIds, Object payload) {
+        BrokerEvent event = new BrokerEvent(EventTarget.ALL_EXCEPT, excludedUserId, legacyType, channel, type, null, FrameEncoder.toJson(payload));
+        if (excludedUserIds != null && !excludedUserIds.isEmpty()) {
+            event.setExcludedUserIds(excludedUserIds);
+        }
+        eventBus.publish(event);
+    }
+
+    /**
+     * Sends an event to the members of a project.
+     *
+     * @param legacyType The old endpoint that also receives the event, or null for hub sessions only.
+     * @param channel    The channel of the event, or null for the old endpoint only.
+     * @param type       The type of the event.
+     * @param projectId  The id of the project.
+     * @param payload    The event.
+     * @param key        The key used to coalesce pending events, or null.
+     */
+    public void sendToProject(SocketType legacyType, String channel, String type, long projectId, Object payload, String key) {
+        eventBus.publish(new BrokerEvent(EventTarget.PROJECT, projectId, legacyType, channel, type, key, FrameEncoder.toJson(payload)));
+    }
+
+    /**
+     * Checks if a session can subscribe a channel.
+     */
+    private boolean canSubscribe(Session session, String channel) {
+        Long userId = sessionRegistry.getUserId(session);
+        return userId != null && sessionRegistry.canSubscribe(userId, channel);
+    }
+
+    /**
+     * Sends an envelope to a single session.
+     */
+    private void reply(Session session, Envelope envelope) {
+        sessionRegistry.send(List.of(session), FrameEncoder.encode(envelope), null);
+    }
+}
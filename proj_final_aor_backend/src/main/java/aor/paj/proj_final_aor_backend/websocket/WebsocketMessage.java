@@ -3,14 +3,16 @@ package aor.paj.proj_final_aor_backend.websocket;
 import aor.paj.proj_final_aor_backend.bean.UserBean;
 import aor.paj.proj_final_aor_backend.bean.UserProjectBean;
 import aor.paj.proj_final_aor_backend.dto.Message;
+import aor.paj.proj_final_aor_backend.dto.ReadReceipt;
 import aor.paj.proj_final_aor_backend.dto.User;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import aor.paj.proj_final_aor_backend.util.enums.SocketType;
 import jakarta.ejb.EJB;
 import jakarta.ejb.Singleton;
 import jakarta.websocket.CloseReason;
 import jakarta.websocket.OnClose;
+import jakarta.websocket.OnMessage;
 import jakarta.websocket.OnOpen;
+import jakarta.websocket.PongMessage;
 import jakarta.websocket.Session;
 import jakarta.websocket.server.PathParam;
 import jakarta.websocket.server.ServerEndpoint;
@@ -18,115 +20,106 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 @Singleton
 @ServerEndpoint("/websocket/message/{token}")
 public class WebsocketMessage {
 
     private static final Logger logger = LogManager.getLogger(Notifier.class);
-    private static final ObjectMapper objectMapper = new ObjectMapper();
-    private static final Map<String, Session> sessions = new ConcurrentHashMap<>();
-
-    static {
-        objectMapper.registerModule(new JavaTimeModule());
-    }
 
     @EJB
     UserBean userBean;
     @EJB
     UserProjectBean userProjectBean;
+    @EJB
+    SessionRegistry sessionRegistry;
+    @EJB
+    WebsocketHub websocketHub;
 
     @OnOpen
     public void onOpen(Session session, @PathParam("token") String token) {
         logger.info("A new WebSocket session is opened for client with token: " + token);
-        sessions.put(token, session);
 
-        // Defines a timeout for the session
-        session.setMaxIdleTimeout(24 * 60 * 60 * 1000);
-    }
-
-
-    public void sendMessageTOUser(String msg) {
-        try {
-            // Desserializar a mensagem em um objeto Message
-            Message message = objectMapper.readValue(msg, Message.class);
-
-            // Serializar o objeto Notification para JSON
-            String jsonMessage = objectMapper.writeValueAsString(message);
-            logger.info("Message JSON: " + jsonMessage);
-
-            for (Session session : sessions.values()) {
-                if (session.isOpen()) {
-                    try {
-                        // Recuperar o usuário pelo token da sessão
-                        User user = userBean.getUserByToken(session.getPathParameters().get("token"));
-
-
-                        // Verificar se o ID do usuário coincide com o ID do receptor da notificação
-                        if (user != null && user.getId()==(message.getReceiver().getId())) {
-                            session.getBasicRemote().sendText(jsonMessage);
-                            logger.info("Notification sent to session: " + session.getId());
-                        }
-
-                    } catch (IOException e) {
-                        logger.error("Error sending notification to session " + session.getId(), e);
-                    }
-                }
-            }
-
-        } catch (IOException e) {
-            logger.error("Erro ao desserializar a mensagem: " + e.getMessage());
+        // Resolve the user and the projects once, the registry keeps the session indexed by them
+        User user = userBean.getUserByToken(token);
+        if (user == null) {
+            logger.warn("No user found with token: " + token + ", closing session " + session.getId());
+            closeSession(session);
+            return;
         }
+        sessionRegistry.register(SocketType.MESSAGE, session, user.getId(), userProjectBean.getActiveProjectIdsOfAUser(user.getId()));
     }
 
-    public void sendMessageToProject(String msg, long project_id) {
-        try {
-            // Desserializar a mensagem em um objeto Message
-            Message message = objectMapper.readValue(msg, Message.class);
-
-            // Serializar o objeto Notification para JSON
-            String jsonMessage = objectMapper.writeValueAsString(message);
-            logger.info("Message JSON: " + jsonMessage);
-
-            for (Session session : sessions.values()) {
-                if (session.isOpen()) {
-                    try {
-                        // Recuperar o usuário pelo token da sessão
-                        User user = userBean.getUserByToken(session.getPathParameters().get("token"));
-
 
-                        // Verificar se o ID do usuário coincide com o ID do receptor da notificação
-                        if (user != null && userProjectBean.isUserInAProject(user.getId(), project_id)) {
-                            session.getBasicRemote().sendText(jsonMessage);
-                            logger.info("Message sent to session: " + session.getId());
-                        }
+    /**
+     * Sends a private message to the sessions of its receiver.
+     *
+     * @param message The message to send.
+     */
+    public void sendMessageTOUser(Message message) {
+        websocketHub.sendToUser(SocketType.MESSAGE, Channels.DM, WebsocketHub.MESSAGE,
+                message.getReceiver().getId(), message, null);
+    }
 
-                    } catch (IOException e) {
-                        logger.error("Error sending notification to session " + session.getId(), e);
-                    }
-                }
-            }
+    /**
+     * Sends a message of the chat of a project to the sessions of its members, encoding it only once.
+     *
+     * @param message    The message to send.
+     * @param project_id The id of the project.
+     */
+    public void sendMessageToProject(Message message, long project_id) {
+        websocketHub.sendToProject(SocketType.MESSAGE, Channels.projectChat(project_id), WebsocketHub.MESSAGE,
+                project_id, message, null);
+    }
 
-        } catch (IOException e) {
-            logger.error("Erro ao desserializar a mensagem: " + e.getMessage());
-        }
+    /**
+     * Sends a read receipt of a direct conversation to the sender of the messages that were read.
+     * Only hub sessions receive it, the clients of this endpoint only expect messages.
+     *
+     * @param receipt The receipt, with the sender as the peer.
+     */
+    public void sendReadReceiptToUser(ReadReceipt receipt) {
+        websocketHub.sendToUser(null, Channels.DM, WebsocketHub.READ, receipt.getPeerId(), receipt, null);
     }
 
+    /**
+     * Sends a read receipt of the chat of a project to its members, replacing a pending receipt of the same reader.
+     * Only hub sessions receive it, the clients of this endpoint only expect messages.
+     *
+     * @param receipt The receipt, with the project.
+     */
+    public void sendReadReceiptToProject(ReadReceipt receipt) {
+        websocketHub.sendToProject(null, Channels.projectChat(receipt.getProjectId()), WebsocketHub.READ,
+                receipt.getProjectId(), receipt, WebsocketHub.READ + ":" + receipt.getReaderId());
+    }
 
+    /**
+     * Answers to the heartbeat pings, marking the session as alive.
+     *
+     * @param pong    The pong received.
+     * @param session The session that received it.
+     */
+    @OnMessage
+    public void onPong(PongMessage pong, Session session) {
+        sessionRegistry.touch(session);
+    }
 
     @OnClose
     public void onClose(Session session, CloseReason closeReason) {
         logger.warn("Session closed with reason " + closeReason.getCloseCode() + ": " + closeReason.getReasonPhrase());
+        sessionRegistry.unregister(SocketType.MESSAGE, session);
+    }
 
-        List<String> sessionIdsToRemove = sessions.entrySet().stream()
-                .filter(entry -> entry.getValue().equals(session))
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
-
-        sessionIdsToRemove.forEach(sessions::remove);
+    /**
+     * Closes a session that could not be authenticated.
+     *
+     * @param session The session to close.
+     */
+    private void closeSession(Session session) {
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, "Invalid token"));
+        } catch (IOException e) {
+            logger.error("Error closing session " + session.getId(), e);
+        }
     }
 }
@@ -0,0 +1,143 @@
+package aor.paj.proj_final_aor_backend.bean;
+
+import aor.paj.proj_final_aor_backend.util.ChatAppendLog;
+import aor.paj.proj_final_aor_backend.util.ChatLogEntry;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ChatWriteBehindTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private ManagedScheduledExecutorService scheduler;
+
+    @Mock
+    private MessageBean messageBean;
+
+    private Path file;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        file = directory.resolve("chat.log");
+        System.setProperty("messages.chat.writeBehind", "true");
+        System.setProperty("messages.chat.writeBehind.log", file.toString());
+        System.setProperty("messages.chat.writeBehind.maxPending", "2");
+        System.setProperty("messages.chat.writeBehind.maxAttempts", "2");
+    }
+
+    @AfterEach
+    public void cleanup() {
+        System.clearProperty("messages.chat.writeBehind");
+        System.clearProperty("messages.chat.writeBehind.log");
+        System.clearProperty("messages.chat.writeBehind.maxPending");
+        System.clearProperty("messages.chat.writeBehind.maxAttempts");
+    }
+
+    private ChatWriteBehind start() {
+        ChatWriteBehind chatWriteBehind = new ChatWriteBehind();
+        chatWriteBehind.scheduler = scheduler;
+        chatWriteBehind.messageBean = messageBean;
+        chatWriteBehind.init();
+        return chatWriteBehind;
+    }
+
+    @Test
+    public void accept_rejectsInvalidContent() {
+        ChatWriteBehind chatWriteBehind = start();
+
+        assertNull(chatWriteBehind.accept(5L, 1L, " "));
+        assertNull(chatWriteBehind.accept(5L, 1L, "a".repeat(ChatWriteBehind.MAX_CONTENT_LENGTH + 1)));
+        assertNotNull(chatWriteBehind.accept(5L, 1L, "a".repeat(ChatWriteBehind.MAX_CONTENT_LENGTH)));
+    }
+
+    @Test
+    public void accept_returnsNull_whenTheQueueIsFull() {
+        ChatWriteBehind chatWriteBehind = start();
+
+        assertNotNull(chatWriteBehind.accept(5L, 1L, "one"));
+        assertNotNull(chatWriteBehind.accept(5L, 1L, "two"));
+        assertTrue(chatWriteBehind.isFull());
+        assertNull(chatWriteBehind.accept(5L, 1L, "three"));
+
+        chatWriteBehind.flush();
+
+        assertFalse(chatWriteBehind.isFull());
+        assertNotNull(chatWriteBehind.accept(5L, 1L, "four"));
+    }
+
+    @Test
+    public void flush_movesTheMessageThatFailsToTheDeadLetterFile_andSavesTheOthers() throws Exception {
+        ChatWriteBehind chatWriteBehind = start();
+        chatWriteBehind.accept(5L, 1L, "one");
+        ChatLogEntry bad = chatWriteBehind.accept(5L, 1L, "bad");
+        doThrow(new IllegalStateException("constraint")).when(messageBean).saveChatBatch(argThat(batch -> batch.contains(bad)));
+        clearInvocations(scheduler);
+
+        chatWriteBehind.flush();
+
+        verify(messageBean).saveChatBatch(argThat(batch -> batch.size() == 1 && batch.get(0).getContent().equals("one")));
+        verify(scheduler, never()).schedule(any(Runnable.class), anyLong(), any());
+        chatWriteBehind.shutdown();
+        try (ChatAppendLog log = new ChatAppendLog(file, 1024 * 1024)) {
+            assertTrue(log.readPending().isEmpty());
+            List<ChatLogEntry> dead = log.readDeadLetters();
+            assertEquals(1, dead.size());
+            assertEquals(bad.getKey(), dead.get(0).getKey());
+        }
+    }
+
+    @Test
+    public void flush_retriesTheBatch_whenEveryMessageFails_untilTheLastAttempt() throws Exception {
+        ChatWriteBehind chatWriteBehind = start();
+        chatWriteBehind.accept(5L, 1L, "one");
+        doThrow(new IllegalStateException("database down")).when(messageBean).saveChatBatch(anyList());
+        clearInvocations(scheduler);
+
+        chatWriteBehind.flush();
+
+        verify(scheduler).schedule(any(Runnable.class), anyLong(), any());
+
+        chatWriteBehind.flush();
+
+        verify(scheduler, times(1)).schedule(any(Runnable.class), anyLong(), any());
+        chatWriteBehind.shutdown();
+        try (ChatAppendLog log = new ChatAppendLog(file, 1024 * 1024)) {
+            assertTrue(log.readPending().isEmpty());
+            assertEquals(1, log.readDeadLetters().size());
+        }
+    }
+
+    @Test
+    public void init_movesInvalidMessagesOfTheLogToTheDeadLetterFile() throws Exception {
+        try (ChatAppendLog log = new ChatAppendLog(file, 1024 * 1024)) {
+            log.append(5L, 1L, "");
+            log.append(5L, 1L, "valid");
+        }
+        when(messageBean.findIngestedKeys(anyList())).thenReturn(Set.of());
+
+        ChatWriteBehind chatWriteBehind = start();
+
+        verify(messageBean).saveChatBatch(argThat(batch -> batch.size() == 1 && batch.get(0).getContent().equals("valid")));
+        chatWriteBehind.shutdown();
+        try (ChatAppendLog log = new ChatAppendLog(file, 1024 * 1024)) {
+            assertTrue(log.readPending().isEmpty());
+            assertEquals("", log.readDeadLetters().get(0).getContent());
+        }
+    }
+}
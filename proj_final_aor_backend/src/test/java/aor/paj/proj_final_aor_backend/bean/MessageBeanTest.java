@@ -0,0 +1,276 @@
+package aor.paj.proj_final_aor_backend.bean;
+
+import aor.paj.proj_final_aor_backend.dao.ConversationSummaryDao;
+import aor.paj.proj_final_aor_backend.dao.MessageDao;
+import aor.paj.proj_final_aor_backend.dao.NotificationRecipientDao;
+import aor.paj.proj_final_aor_backend.dao.SessionDao;
+import aor.paj.proj_final_aor_backend.dao.UserDao;
+import aor.paj.proj_final_aor_backend.dao.UserProjectDao;
+import aor.paj.proj_final_aor_backend.dto.CursorPage;
+import aor.paj.proj_final_aor_backend.dto.Message;
+import aor.paj.proj_final_aor_backend.dto.MessageInfoUser;
+import aor.paj.proj_final_aor_backend.dto.ReadReceipt;
+import aor.paj.proj_final_aor_backend.entity.ConversationSummaryEntity;
+import aor.paj.proj_final_aor_backend.entity.MessageEntity;
+import aor.paj.proj_final_aor_backend.entity.UserEntity;
+import aor.paj.proj_final_aor_backend.entity.UserProjectEntity;
+import aor.paj.proj_final_aor_backend.util.ChatLogEntry;
+import aor.paj.proj_final_aor_backend.util.PageCursor;
+import aor.paj.proj_final_aor_backend.util.enums.NotificationType;
+import aor.paj.proj_final_aor_backend.websocket.WebsocketMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class MessageBeanTest {
+
+    @InjectMocks
+    private MessageBean messageBean;
+
+    @Mock
+    private MessageDao messageDao;
+
+    @Mock
+    private SessionDao sessionDao;
+
+    @Mock
+    private UserProjectDao userProjectDao;
+
+    @Mock
+    private UserBean userBean;
+
+    @Mock
+    private ConversationSummaryDao conversationSummaryDao;
+
+    @Mock
+    private UserDao userDao;
+
+    @Mock
+    private WebsocketMessage websocketMessage;
+
+    @Mock
+    private ChatWriteBehind chatWriteBehind;
+
+    @Mock
+    private NotificationBean notificationBean;
+
+    @Mock
+    private NotificationRecipientDao notificationRecipientDao;
+
+    @Mock
+    private UnreadCounterBean unreadCounterBean;
+
+    private final LocalDateTime now = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        UserEntity user = new UserEntity();
+        user.setId(1L);
+        when(sessionDao.findUserByToken("token")).thenReturn(user);
+        when(userProjectDao.findUserInProject(5L, 1L)).thenReturn(new UserProjectEntity());
+    }
+
+    private MessageEntity message(long id, int minute) {
+        MessageEntity message = new MessageEntity();
+        message.setId(id);
+        message.setSendTimestamp(now.plusMinutes(minute));
+        message.setReceiverProjectId(5L);
+        return message;
+    }
+
+    @Test
+    public void testGetMessagesChatProjectScrollsBackOldestFirst() {
+        when(messageDao.findProjectMessagesBefore(5L, PageCursor.FIRST, 3))
+                .thenReturn(List.of(message(3, 3), message(2, 2), message(1, 1)));
+
+        CursorPage<Message> page = messageBean.getMessagesChatProject("token", 5L, PageCursor.FIRST, null, 2);
+
+        assertEquals(2, page.getItems().size());
+        assertEquals(2L, page.getItems().get(0).getId());
+        assertEquals(3L, page.getItems().get(1).getId());
+        assertEquals(new PageCursor(now.plusMinutes(2), 2).encode(), page.getNextCursor());
+        assertEquals(new PageCursor(now.plusMinutes(3), 3).encode(), page.getLatestCursor());
+    }
+
+    @Test
+    public void testGetMessagesChatProjectCatchUpWithoutNewMessagesKeepsCursor() {
+        PageCursor since = new PageCursor(now, 9);
+        when(messageDao.findProjectMessagesAfter(5L, since, 51)).thenReturn(List.of());
+
+        CursorPage<Message> page = messageBean.getMessagesChatProject("token", 5L, PageCursor.FIRST, since, 50);
+
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+        assertEquals(since.encode(), page.getLatestCursor());
+        verify(messageDao, never()).findProjectMessagesBefore(anyLong(), any(), anyInt());
+    }
+
+    @Test
+    public void testGetListOfUsersWithExchangeMessagesFromSummaries() {
+        ConversationSummaryEntity conversation = new ConversationSummaryEntity();
+        conversation.setOwnerId(1L);
+        conversation.setPeerId(7L);
+        conversation.setLastMessageId(42L);
+        conversation.setPreview("See you");
+        conversation.setLastMessageAt(now);
+        conversation.setUnreadCount(3);
+        when(conversationSummaryDao.findByOwner(1L)).thenReturn(List.of(conversation));
+        when(userBean.getUserCards(List.of(7L))).thenReturn(Map.of(7L, new MessageInfoUser(7L, "Ana", "Silva", "photo")));
+
+        List<MessageInfoUser> users = messageBean.getListOfUsersWithExchangeMessages("token");
+
+        assertEquals(1, users.size());
+        assertEquals("Ana", users.get(0).getFirstName());
+        assertEquals(42L, users.get(0).getLastMessageId());
+        assertEquals("See you", users.get(0).getLastMessagePreview());
+        assertEquals(3, users.get(0).getUnreadCount());
+        verify(messageDao, never()).findUsersWithExchangedMessages(anyLong());
+    }
+
+    @Test
+    public void testMarkMessageAsReadDecrementsUnreadOnlyOnce() {
+        UserEntity sender = new UserEntity();
+        sender.setId(7L);
+        UserEntity receiver = new UserEntity();
+        receiver.setId(1L);
+        MessageEntity message = message(10, 0);
+        message.setSender(sender);
+        message.setReceiver(receiver);
+        when(messageDao.findMessageById(10L)).thenReturn(message);
+
+        assertTrue(messageBean.markMessageAsRead("token", 10L));
+        assertTrue(messageBean.markMessageAsRead("token", 10L));
+
+        verify(conversationSummaryDao, times(1)).decrementUnread(1L, 7L);
+    }
+
+    @Test
+    public void testMarkConversationAsReadUpdatesOnceAndSendsReceipt() {
+        UserEntity peer = new UserEntity();
+        peer.setId(7L);
+        when(userDao.findUserById(7L)).thenReturn(peer);
+        PageCursor upTo = new PageCursor(now, 30);
+        when(messageDao.markReadUpTo(eq(7L), eq(1L), eq(upTo), any())).thenReturn(25);
+        when(messageDao.countUnreadFrom(7L, 1L)).thenReturn(2);
+
+        ReadReceipt receipt = messageBean.markConversationAsRead("token", 7L, upTo);
+
+        assertEquals(1L, receipt.getReaderId());
+        assertEquals(7L, receipt.getPeerId());
+        assertEquals(upTo.encode(), receipt.getUpTo());
+        verify(conversationSummaryDao).setUnread(1L, 7L, 2);
+        verify(websocketMessage).sendReadReceiptToUser(receipt);
+        verify(messageDao, never()).updateMessage(any());
+        verifyNoInteractions(notificationRecipientDao, unreadCounterBean);
+    }
+
+    @Test
+    public void testMarkConversationAsReadMarksTheNotificationOfThePeerWhenAllIsRead() {
+        UserEntity peer = new UserEntity();
+        peer.setId(7L);
+        when(userDao.findUserById(7L)).thenReturn(peer);
+        when(messageDao.markReadUpTo(eq(7L), eq(1L), eq(PageCursor.FIRST), any())).thenReturn(4);
+        when(notificationRecipientDao.markReadAbout(eq(1L), eq(NotificationType.MESSAGE_RECEIVED.toString()), eq(7L), any())).thenReturn(1);
+
+        assertNotNull(messageBean.markConversationAsRead("token", 7L, PageCursor.FIRST));
+
+        verify(conversationSummaryDao).setUnread(1L, 7L, 0);
+        verify(unreadCounterBean).conversationRead(1L);
+    }
+
+    @Test
+    public void testMarkConversationAsReadWithoutUnreadMessagesSendsNoReceipt() {
+        UserEntity peer = new UserEntity();
+        peer.setId(7L);
+        when(userDao.findUserById(7L)).thenReturn(peer);
+        when(messageDao.markReadUpTo(eq(7L), eq(1L), eq(PageCursor.FIRST), any())).thenReturn(0);
+
+        assertNotNull(messageBean.markConversationAsRead("token", 7L, PageCursor.FIRST));
+
+        verifyNoInteractions(websocketMessage, conversationSummaryDao);
+    }
+
+    @Test
+    public void testMarkProjectChatAsReadUpToTheLatestMessage() {
+        when(messageDao.findProjectMessagesBefore(5L, PageCursor.FIRST, 1)).thenReturn(List.of(message(12, 4)));
+        when(userProjectDao.markChatRead(eq(5L), eq(1L), any())).thenReturn(true);
+
+        ReadReceipt receipt = messageBean.markProjectChatAsRead("token", 5L, PageCursor.FIRST);
+
+        assertEquals(5L, receipt.getProjectId());
+        assertEquals(new PageCursor(now.plusMinutes(4), 12).encode(), receipt.getUpTo());
+        verify(websocketMessage).sendReadReceiptToProject(receipt);
+    }
+
+    @Test
+    public void testSendMessageToChatGroupWriteBehindPushesWithoutSaving() {
+        when(chatWriteBehind.isEnabled()).thenReturn(true);
+        when(chatWriteBehind.accept(5L, 1L, "hello")).thenReturn(new ChatLogEntry(1, "key", 5L, 1L, "hello", now));
+
+        assertTrue(messageBean.sendMessageToChatGroup("token", 5L, "hello"));
+
+        verify(websocketMessage).sendMessageToProject(any(Message.class), eq(5L));
+        verify(messageDao, never()).createMessage(any());
+        verifyNoInteractions(notificationBean);
+    }
+
+    @Test
+    public void testSendMessageToChatGroupWriteBehindRejectsWithoutSaving_whenTheQueueIsFull() {
+        when(chatWriteBehind.isEnabled()).thenReturn(true);
+        when(chatWriteBehind.accept(5L, 1L, "hello")).thenReturn(null);
+        when(chatWriteBehind.isFull()).thenReturn(true);
+
+        assertFalse(messageBean.sendMessageToChatGroup("token", 5L, "hello"));
+
+        assertTrue(messageBean.isChatQueueFull());
+        verify(messageDao, never()).createMessage(any());
+        verifyNoInteractions(websocketMessage, notificationBean);
+    }
+
+    @Test
+    public void testSendMessageToChatGroupRejectsContentTooLong() {
+        when(chatWriteBehind.isEnabled()).thenReturn(true);
+
+        assertFalse(messageBean.sendMessageToChatGroup("token", 5L, "a".repeat(1001)));
+
+        verify(chatWriteBehind, never()).accept(anyLong(), anyLong(), any());
+        verifyNoInteractions(websocketMessage);
+        verify(messageDao, never()).createMessage(any());
+    }
+
+    @Test
+    public void testSaveChatBatchNotifiesOncePerSenderAndProject() {
+        UserEntity sender = new UserEntity();
+        sender.setId(1L);
+        UserProjectEntity userProject = new UserProjectEntity();
+        userProject.setUser(sender);
+        when(userProjectDao.findUserInProject(5L, 1L)).thenReturn(userProject);
+        List<ChatLogEntry> batch = List.of(
+                new ChatLogEntry(1, "a", 5L, 1L, "one", now),
+                new ChatLogEntry(2, "b", 5L, 1L, "two", now),
+                new ChatLogEntry(3, "c", 5L, 1L, "three", now));
+
+        messageBean.saveChatBatch(batch);
+
+        verify(messageDao, times(3)).createMessage(any());
+        verify(notificationBean, times(1)).sendNotificationToProjectUsers(sender, 5L, "MESSAGE_PROJECT", 5L);
+    }
+
+    @Test
+    public void testGetMessagesChatProjectUserNotInProject() {
+        when(userProjectDao.findUserInProject(5L, 1L)).thenReturn(null);
+
+        assertNull(messageBean.getMessagesChatProject("token", 5L, PageCursor.FIRST, null, 20));
+        verifyNoInteractions(messageDao);
+    }
+}
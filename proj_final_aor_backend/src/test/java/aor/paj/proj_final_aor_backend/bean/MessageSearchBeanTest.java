@@ -0,0 +1,98 @@
+package aor.paj.proj_final_aor_backend.bean;
+
+import aor.paj.proj_final_aor_backend.dao.MessageDao;
+import aor.paj.proj_final_aor_backend.dao.MessageTermDao;
+import aor.paj.proj_final_aor_backend.dao.SessionDao;
+import aor.paj.proj_final_aor_backend.dao.UserProjectDao;
+import aor.paj.proj_final_aor_backend.dto.CursorPage;
+import aor.paj.proj_final_aor_backend.dto.MessageSearchHit;
+import aor.paj.proj_final_aor_backend.entity.MessageEntity;
+import aor.paj.proj_final_aor_backend.entity.UserEntity;
+import aor.paj.proj_final_aor_backend.util.SearchCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class MessageSearchBeanTest {
+
+    @InjectMocks
+    private MessageSearchBean messageSearchBean;
+
+    @Mock
+    private SessionDao sessionDao;
+
+    @Mock
+    private MessageDao messageDao;
+
+    @Mock
+    private MessageTermDao messageTermDao;
+
+    @Mock
+    private UserProjectDao userProjectDao;
+
+    @Mock
+    private UserBean userBean;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        UserEntity user = new UserEntity();
+        user.setId(1L);
+        when(sessionDao.findUserByToken("token")).thenReturn(user);
+        when(userProjectDao.findActiveProjectIdsByUserId(1L)).thenReturn(List.of(5L));
+    }
+
+    private MessageEntity message(long id, String content) {
+        MessageEntity message = new MessageEntity();
+        message.setId(id);
+        message.setContent(content);
+        message.setSendTimestamp(LocalDateTime.of(2024, 6, 1, 12, 0));
+        message.setReceiverProjectId(5L);
+        return message;
+    }
+
+    @Test
+    public void testSearchKeepsRankOrderAndReturnsNextCursor() {
+        when(messageTermDao.search(eq(List.of("budget", "report")), eq(1L), eq(List.of(5L)), eq(SearchCursor.FIRST), eq(3)))
+                .thenReturn(List.of(new Object[]{9L, 2L}, new Object[]{4L, 1L}, new Object[]{3L, 1L}));
+        when(messageDao.findMessagesByIds(List.of(9L, 4L)))
+                .thenReturn(List.of(message(4L, "budget approved"), message(9L, "Budget report sent")));
+
+        CursorPage<MessageSearchHit> page = messageSearchBean.search("token", "Budget report", SearchCursor.FIRST, 2);
+
+        assertEquals(2, page.getItems().size());
+        assertEquals(9L, page.getItems().get(0).getId());
+        assertEquals(2, page.getItems().get(0).getScore());
+        assertEquals(4L, page.getItems().get(1).getId());
+        assertEquals(new SearchCursor(1L, 4L).encode(), page.getNextCursor());
+    }
+
+    @Test
+    public void testSearchWithoutTermsDoesNotReadTheIndex() {
+        CursorPage<MessageSearchHit> page = messageSearchBean.search("token", " ?! ", SearchCursor.FIRST, 20);
+
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+        verifyNoInteractions(messageTermDao);
+    }
+
+    @Test
+    public void testSnippetStartsNearTheFirstTerm() {
+        String content = "x".repeat(100) + " the meeting moved to friday";
+
+        String snippet = MessageSearchBean.snippet(content, Set.of("meeting"));
+
+        assertTrue(snippet.startsWith("..."));
+        assertTrue(snippet.contains("meeting moved to friday"));
+    }
+}
@@ -0,0 +1,491 @@
+package aor.paj.proj_final_aor_backend.bean;
+
+import aor.paj.proj_final_aor_backend.dao.NotificationDao;
+import aor.paj.proj_final_aor_backend.dao.NotificationRecipientDao;
+import aor.paj.proj_final_aor_backend.dao.SessionDao;
+import aor.paj.proj_final_aor_backend.dao.UserDao;
+import aor.paj.proj_final_aor_backend.dto.CursorPage;
+import aor.paj.proj_final_aor_backend.dto.MessageInfoUser;
+import aor.paj.proj_final_aor_backend.dto.Notification;
+import aor.paj.proj_final_aor_backend.dto.UnreadCounters;
+import aor.paj.proj_final_aor_backend.entity.NotificationEntity;
+import aor.paj.proj_final_aor_backend.entity.NotificationRecipientEntity;
+import aor.paj.proj_final_aor_backend.entity.UserEntity;
+import aor.paj.proj_final_aor_backend.util.PageCursor;
+import aor.paj.proj_final_aor_backend.util.enums.NotificationDelivery;
+import aor.paj.proj_final_aor_backend.util.enums.NotificationType;
+import aor.paj.proj_final_aor_backend.util.enums.UserType;
+import aor.paj.proj_final_aor_backend.websocket.Notifier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class NotificationBeanTest {
+
+    @InjectMocks
+    private NotificationBean notificationBean;
+
+    @Mock
+    private NotificationDao notificationDao;
+
+    @Mock
+    private NotificationRecipientDao notificationRecipientDao;
+
+    @Mock
+    private SessionDao sessionDao;
+
+    @Mock
+    private UserDao userDao;
+
+    @Mock
+    private UserBean userBean;
+
+    @Mock
+    private Notifier notifier;
+
+    @Mock
+    private UnreadCounterBean unreadCounterBean;
+
+    @Mock
+    private UserProjectBean userProjectBean;
+
+    @Mock
+    private NotificationPreferenceCache notificationPreferenceCache;
+
+    private UserEntity sender;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        sender = new UserEntity();
+        sender.setId(1L);
+        MessageInfoUser senderInfo = new MessageInfoUser();
+        senderInfo.setId(1L);
+        when(sessionDao.findUserByToken("token")).thenReturn(sender);
+        when(userBean.convertUserToDTOForMessage(sender)).thenReturn(senderInfo);
+        when(notificationPreferenceCache.get(anyLong(), anyLong())).thenReturn(NotificationDelivery.REAL_TIME);
+    }
+
+    @Test
+    public void sendNotificationToAllUsers_createsOneNotificationForAllReceivers() {
+        when(userDao.findActiveUserIdsExcept(1L)).thenReturn(List.of(2L, 3L, 4L));
+        doAnswer(invocation -> {
+            invocation.<NotificationEntity>getArgument(0).setId(10L);
+            return null;
+        }).when(notificationDao).create(any(NotificationEntity.class));
+
+        boolean result = notificationBean.sendNotificationToAllUsers("token", NotificationType.NEW_PROJECT, 5L);
+
+        assertTrue(result);
+        verify(notificationDao, times(1)).create(any(NotificationEntity.class));
+        verify(notificationRecipientDao).addRecipients(10L, List.of(2L, 3L, 4L));
+        verify(unreadCounterBean).notificationSent(NotificationType.NEW_PROJECT, 5L, List.of(2L, 3L, 4L));
+        verify(userDao, never()).updateUser(any(UserEntity.class));
+
+        ArgumentCaptor<Notification> sent = ArgumentCaptor.forClass(Notification.class);
+        verify(notifier, times(1)).sendNotificationToAllExcept(sent.capture(), anySet());
+        assertEquals(10L, sent.getValue().getId());
+        assertNull(sent.getValue().getReceiver());
+        assertEquals(5L, sent.getValue().getRelatedIDEntity());
+    }
+
+    @Test
+    public void sendNotificationToAllUsers_sendsNothing_whenThereAreNoOtherUsers() {
+        when(userDao.findActiveUserIdsExcept(1L)).thenReturn(Collections.emptyList());
+
+        boolean result = notificationBean.sendNotificationToAllUsers("token", NotificationType.NEW_PROJECT, 5L);
+
+        assertTrue(result);
+        verify(notificationDao, never()).create(any(NotificationEntity.class));
+        verify(notifier, never()).sendNotificationToAllExcept(any(Notification.class), anySet());
+    }
+
+    @Test
+    public void sendNotificationToAllUsers_leavesOutMutedUsers_andPushesOnlyInRealTime() {
+        when(userDao.findActiveUserIdsExcept(1L)).thenReturn(List.of(2L, 3L, 4L));
+        when(notificationPreferenceCache.getQuietUsers(5L)).thenReturn(Map.of(2L, NotificationDelivery.MUTED, 3L, NotificationDelivery.DIGEST));
+        doAnswer(invocation -> {
+            invocation.<NotificationEntity>getArgument(0).setId(10L);
+            return null;
+        }).when(notificationDao).create(any(NotificationEntity.class));
+
+        boolean result = notificationBean.sendNotificationToAllUsers("token", NotificationType.NEW_PROJECT, 5L);
+
+        assertTrue(result);
+        verify(notificationRecipientDao).addRecipients(10L, List.of(3L, 4L));
+        verify(unreadCounterBean).notificationSent(NotificationType.NEW_PROJECT, 5L, List.of(3L, 4L));
+        verify(notifier).sendNotificationToAllExcept(any(Notification.class), eq(Set.of(2L, 3L)));
+    }
+
+    @Test
+    public void sendNotificationToOneUser_createsNothing_whenUserMutedNotifications() {
+        when(userDao.findUserById(2L)).thenReturn(user(2L));
+        when(notificationPreferenceCache.get(2L, 0L)).thenReturn(NotificationDelivery.MUTED);
+
+        boolean result = notificationBean.sendNotificationToOneUser("token", 2L, NotificationType.MESSAGE_RECEIVED);
+
+        assertTrue(result);
+        verify(notificationDao, never()).create(any(NotificationEntity.class));
+        verify(notifier, never()).sendNotificationToUser(any(Notification.class));
+    }
+
+    @Test
+    public void sendNotificationToOneUser_doesNotPush_whenUserWantsDigest() {
+        when(userDao.findUserById(2L)).thenReturn(user(2L));
+        when(notificationPreferenceCache.get(2L, 0L)).thenReturn(NotificationDelivery.DIGEST);
+
+        boolean result = notificationBean.sendNotificationToOneUser("token", 2L, NotificationType.MESSAGE_RECEIVED);
+
+        assertTrue(result);
+        verify(notificationDao).create(any(NotificationEntity.class));
+        verify(notifier, never()).sendNotificationToUser(any(Notification.class));
+    }
+
+    @Test
+    public void sendNotificationToAllUsers_returnsFalse_whenSenderIsNotFound() {
+        boolean result = notificationBean.sendNotificationToAllUsers("invalid", NotificationType.NEW_PROJECT, 5L);
+
+        assertFalse(result);
+        verify(notificationDao, never()).create(any(NotificationEntity.class));
+    }
+
+    @Test
+    public void sendNotificationToOneUser_collapsesIntoUnreadNotification() {
+        UserEntity receiver = new UserEntity();
+        receiver.setId(2L);
+        when(userDao.findUserById(2L)).thenReturn(receiver);
+        when(notificationRecipientDao.findAggregates("MESSAGE_RECEIVED", 1L, List.of(2L))).thenReturn(Map.of(2L, 10L));
+        when(notificationRecipientDao.addEvent(eq(10L), eq(List.of(2L)), any(LocalDateTime.class), eq(1L))).thenReturn(1);
+        when(notificationRecipientDao.findByUserAndNotifications(2L, List.of(10L))).thenReturn(Map.of(10L, recipient(notification(10L, 1L), 2L, 4, null)));
+
+        boolean result = notificationBean.sendNotificationToOneUser("token", 2L, NotificationType.MESSAGE_RECEIVED);
+
+        assertTrue(result);
+        verify(notificationRecipientDao).addEvent(eq(10L), eq(List.of(2L)), any(LocalDateTime.class), eq(1L));
+        verify(notificationDao, never()).create(any(NotificationEntity.class));
+        verify(unreadCounterBean, never()).notificationSent(any(), anyLong(), anyList());
+        ArgumentCaptor<Notification> sent = ArgumentCaptor.forClass(Notification.class);
+        verify(notifier).sendNotificationToUser(sent.capture());
+        assertEquals(10L, sent.getValue().getId());
+        assertEquals(4, sent.getValue().getCount());
+    }
+
+    @Test
+    public void sendNotificationToOneUser_createsNotificationAboutTheSender_whenLatestWasRead() {
+        UserEntity receiver = new UserEntity();
+        receiver.setId(2L);
+        when(userDao.findUserById(2L)).thenReturn(receiver);
+        when(notificationRecipientDao.findAggregates("MESSAGE_RECEIVED", 1L, List.of(2L))).thenReturn(Collections.emptyMap());
+
+        boolean result = notificationBean.sendNotificationToOneUser("token", 2L, NotificationType.MESSAGE_RECEIVED);
+
+        assertTrue(result);
+        verify(notificationRecipientDao, never()).addEvent(anyLong(), anyCollection(), any(LocalDateTime.class), anyLong());
+        ArgumentCaptor<NotificationEntity> created = ArgumentCaptor.forClass(NotificationEntity.class);
+        verify(notificationDao).create(created.capture());
+        assertEquals(1L, created.getValue().getRelatedEntityId());
+        verify(notificationRecipientDao).addRecipients(anyLong(), eq(List.of(2L)));
+    }
+
+    @Test
+    public void sendNotificationToProjectUsers_createsNotificationOnlyForUsersThatReadTheLatest() {
+        when(userProjectBean.getActiveUsersInProject(5L)).thenReturn(List.of(sender, user(2L), user(3L)));
+        when(notificationRecipientDao.findAggregates("MESSAGE_PROJECT", 5L, List.of(2L, 3L))).thenReturn(Map.of(2L, 10L));
+        when(notificationRecipientDao.addEvent(eq(10L), eq(List.of(2L)), any(LocalDateTime.class), eq(1L))).thenReturn(1);
+
+        boolean result = notificationBean.sendNotificationToProjectUsers("token", 5L, "MESSAGE_PROJECT", 5L);
+
+        assertTrue(result);
+        verify(notificationRecipientDao).addEvent(eq(10L), eq(List.of(2L)), any(LocalDateTime.class), eq(1L));
+        verify(notificationDao, times(1)).create(any(NotificationEntity.class));
+        verify(notificationRecipientDao).addRecipients(anyLong(), eq(List.of(3L)));
+        verify(unreadCounterBean).notificationSent(NotificationType.MESSAGE_PROJECT, 5L, List.of(3L));
+    }
+
+    @Test
+    public void sendNotificationToProjectUsers_collapsesEachReceiverIntoItsOwnUnreadNotification() {
+        when(userProjectBean.getActiveUsersInProject(5L)).thenReturn(List.of(sender, user(2L), user(3L)));
+        when(notificationRecipientDao.findAggregates("MESSAGE_PROJECT", 5L, List.of(2L, 3L))).thenReturn(Map.of(2L, 10L, 3L, 11L));
+        when(notificationRecipientDao.addEvent(anyLong(), anyCollection(), any(LocalDateTime.class), anyLong())).thenReturn(1);
+
+        boolean result = notificationBean.sendNotificationToProjectUsers("token", 5L, "MESSAGE_PROJECT", 5L);
+
+        assertTrue(result);
+        verify(notificationRecipientDao).addEvent(eq(10L), eq(List.of(2L)), any(LocalDateTime.class), eq(1L));
+        verify(notificationRecipientDao).addEvent(eq(11L), eq(List.of(3L)), any(LocalDateTime.class), eq(1L));
+        verify(notificationDao, never()).create(any(NotificationEntity.class));
+        verify(unreadCounterBean, never()).notificationSent(any(), anyLong(), anyList());
+    }
+
+    @Test
+    public void sendNotificationToProjectUsers_createsNotification_forAUserThatReadTheAggregateMeanwhile() {
+        when(userProjectBean.getActiveUsersInProject(5L)).thenReturn(List.of(sender, user(2L), user(3L)));
+        when(notificationRecipientDao.findAggregates("MESSAGE_PROJECT", 5L, List.of(2L, 3L))).thenReturn(Map.of(2L, 10L, 3L, 10L));
+        // User 3 read the notification after it was found, so only user 2 got the event
+        when(notificationRecipientDao.addEvent(eq(10L), anyCollection(), any(LocalDateTime.class), eq(1L))).thenReturn(1);
+        when(notificationRecipientDao.findUnreadRecipients(eq(10L), anyCollection())).thenReturn(Set.of(2L));
+
+        boolean result = notificationBean.sendNotificationToProjectUsers("token", 5L, "MESSAGE_PROJECT", 5L);
+
+        assertTrue(result);
+        verify(notificationDao, times(1)).create(any(NotificationEntity.class));
+        verify(notificationRecipientDao).addRecipients(anyLong(), eq(List.of(3L)));
+        verify(unreadCounterBean).notificationSent(NotificationType.MESSAGE_PROJECT, 5L, List.of(3L));
+    }
+
+    @Test
+    public void getNotificationsByUserId_loadsSendersOnceForThePage() {
+        when(notificationDao.findNotificationsByUserID(1L, 1, 6)).thenReturn(List.of(notification(10L, 2L), notification(11L, 2L), notification(12L, 3L)));
+        when(userBean.getUserCards(Set.of(2L, 3L))).thenReturn(Map.of(
+                2L, new MessageInfoUser(2L, "Rui", "Costa", null),
+                3L, new MessageInfoUser(3L, "Eva", "Lopes", null)));
+        when(notificationRecipientDao.findByUserAndNotifications(1L, List.of(10L, 11L, 12L))).thenReturn(Map.of(
+                10L, recipient(notification(10L, 2L), 1L, 1, LocalDateTime.now()),
+                12L, recipient(notification(12L, 3L), 1L, 3, null)));
+
+        List<Notification> notifications = notificationBean.getNotificationsByUserId("token", 1L, 1, 6);
+
+        assertEquals(3, notifications.size());
+        assertEquals("Rui", notifications.get(1).getSender().getFirstName());
+        assertEquals("Eva", notifications.get(2).getSender().getFirstName());
+        assertTrue(notifications.get(0).isReadStatus());
+        assertFalse(notifications.get(2).isReadStatus());
+        assertEquals(3, notifications.get(2).getCount());
+        verify(userBean, times(1)).getUserCards(anyCollection());
+        verify(userDao, never()).findUserById(anyLong());
+    }
+
+    @Test
+    public void sendNotificationToProjectUsers_collapsesMessagesOfAnotherSender_intoTheChatNotification() {
+        UserEntity other = user(4L);
+        when(sessionDao.findUserByToken("other")).thenReturn(other);
+        when(userProjectBean.getActiveUsersInProject(5L)).thenReturn(List.of(other, user(2L)));
+        when(notificationRecipientDao.findAggregates("MESSAGE_PROJECT", 5L, List.of(2L))).thenReturn(Map.of(2L, 10L));
+        when(notificationRecipientDao.addEvent(eq(10L), eq(List.of(2L)), any(LocalDateTime.class), eq(4L))).thenReturn(1);
+
+        boolean result = notificationBean.sendNotificationToProjectUsers("other", 5L, "MESSAGE_PROJECT", 5L);
+
+        assertTrue(result);
+        verify(notificationRecipientDao).addEvent(eq(10L), eq(List.of(2L)), any(LocalDateTime.class), eq(4L));
+        verify(notificationDao, never()).create(any(NotificationEntity.class));
+    }
+
+    @Test
+    public void getNotificationsByUserId_showsTheSenderOfTheLastCollapsedMessage() {
+        when(notificationDao.findNotificationsByUserID(1L, 1, 6)).thenReturn(List.of(notification(10L, 2L)));
+        NotificationRecipientEntity recipient = recipient(notification(10L, 2L), 1L, 2, null);
+        recipient.setLastSenderId(3L);
+        when(notificationRecipientDao.findByUserAndNotifications(1L, List.of(10L))).thenReturn(Map.of(10L, recipient));
+        when(userBean.getUserCards(Set.of(2L, 3L))).thenReturn(Map.of(
+                2L, new MessageInfoUser(2L, "Rui", "Costa", null),
+                3L, new MessageInfoUser(3L, "Eva", "Lopes", null)));
+
+        List<Notification> notifications = notificationBean.getNotificationsByUserId("token", 1L, 1, 6);
+
+        assertEquals("Eva", notifications.get(0).getSender().getFirstName());
+        assertEquals(2, notifications.get(0).getCount());
+    }
+
+    @Test
+    public void getNotificationsByUserId_returnsCursorOfLastNotification_whenThereIsANextPage() {
+        NotificationEntity newest = notification(12L, 2L);
+        NotificationEntity last = notification(11L, 2L);
+        when(notificationDao.findNotificationsByUserIDBefore(1L, PageCursor.FIRST, 3)).thenReturn(new ArrayList<>(List.of(newest, last, notification(10L, 2L))));
+
+        CursorPage<Notification> page = notificationBean.getNotificationsByUserId("token", 1L, PageCursor.FIRST, 2);
+
+        assertEquals(2, page.getItems().size());
+        PageCursor next = PageCursor.decode(page.getNextCursor());
+        assertEquals(11L, next.getId());
+        assertEquals(last.getSendTimestamp(), next.getTimestamp());
+    }
+
+    @Test
+    public void getNotificationsByUserId_doesNotSkipAnAggregate_thatGetsAMessageBetweenPages() {
+        LocalDateTime start = LocalDateTime.now().minusHours(1);
+        List<NotificationEntity> stored = new ArrayList<>();
+        for (long id = 14; id >= 10; id--) {
+            NotificationEntity notification = notification(id, 2L);
+            notification.setSendTimestamp(start.plusMinutes(id));
+            stored.add(notification);
+        }
+        // The store answers as the query, by ID newest first, only before the cursor
+        when(notificationDao.findNotificationsByUserIDBefore(eq(1L), any(PageCursor.class), anyInt())).thenAnswer(invocation -> {
+            PageCursor cursor = invocation.getArgument(1);
+            List<NotificationEntity> page = new ArrayList<>();
+            for (NotificationEntity notification : stored) {
+                if (notification.getId() < cursor.getId() && page.size() < invocation.<Integer>getArgument(2)) {
+                    page.add(notification);
+                }
+            }
+            return page;
+        });
+        NotificationRecipientEntity aggregate = recipient(stored.get(3), 1L, 1, null);
+        when(notificationRecipientDao.findByUserAndNotifications(eq(1L), anyCollection())).thenReturn(Map.of(11L, aggregate));
+
+        CursorPage<Notification> first = notificationBean.getNotificationsByUserId("token", 1L, PageCursor.FIRST, 2);
+
+        // A new message is collapsed into notification 11, which is on the next page
+        aggregate.setAggregateCount(2);
+        aggregate.setLastEventAt(LocalDateTime.now());
+
+        CursorPage<Notification> second = notificationBean.getNotificationsByUserId("token", 1L, PageCursor.decode(first.getNextCursor()), 2);
+        CursorPage<Notification> third = notificationBean.getNotificationsByUserId("token", 1L, PageCursor.decode(second.getNextCursor()), 2);
+
+        List<Long> ids = new ArrayList<>();
+        for (CursorPage<Notification> page : List.of(first, second, third)) {
+            for (Notification notification : page.getItems()) {
+                ids.add(notification.getId());
+            }
+        }
+        assertEquals(List.of(14L, 13L, 12L, 11L, 10L), ids);
+        assertEquals(2, second.getItems().get(1).getCount());
+        assertNull(third.getNextCursor());
+    }
+
+    @Test
+    public void getNotificationsByUserId_returnsNoCursor_onTheLastPage() {
+        when(notificationDao.findNotificationsByUserIDBefore(1L, PageCursor.FIRST, 3)).thenReturn(new ArrayList<>(List.of(notification(10L, 2L))));
+
+        CursorPage<Notification> page = notificationBean.getNotificationsByUserId("token", 1L, PageCursor.FIRST, 2);
+
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void getUnreadNotifications_readsTheCounters() {
+        when(unreadCounterBean.getCounters(1L)).thenReturn(new UnreadCounters(1, 2, 3));
+
+        long result = notificationBean.getUnreadNotifications("token");
+
+        assertEquals(6, result);
+        verify(notificationDao, never()).findUnreadNotificationsByUserID(anyLong());
+    }
+
+    @Test
+    public void markNotificationAsRead_marksOnlyThatNotification_whenItIsNotAMessage() {
+        NotificationEntity notification = new NotificationEntity();
+        notification.setId(10L);
+        notification.setType(NotificationType.NEW_PROJECT.toString());
+        when(notificationDao.findNotificationById(10L)).thenReturn(notification);
+        when(notificationRecipientDao.markRead(eq(10L), eq(1L), any(LocalDateTime.class))).thenReturn(1);
+
+        boolean result = notificationBean.markNotificationAsRead("token", 10L);
+
+        assertTrue(result);
+        verify(notificationRecipientDao).markRead(eq(10L), eq(1L), any(LocalDateTime.class));
+        verify(notificationRecipientDao, never()).markReadByTypes(anyLong(), anyCollection(), any(LocalDateTime.class));
+        verify(unreadCounterBean).notificationRead(1L);
+        verify(notificationDao, never()).merge(any(NotificationEntity.class));
+    }
+
+    @Test
+    public void markNotificationAsRead_marksAllMessagesWithOneUpdate_whenItIsAMessage() {
+        NotificationEntity notification = new NotificationEntity();
+        notification.setId(10L);
+        notification.setType(NotificationType.MESSAGE_RECEIVED.toString());
+        when(notificationDao.findNotificationById(10L)).thenReturn(notification);
+
+        boolean result = notificationBean.markNotificationAsRead("token", 10L);
+
+        assertTrue(result);
+        verify(notificationRecipientDao).markReadByTypes(eq(1L),
+                eq(List.of(NotificationType.MESSAGE_RECEIVED.toString(), NotificationType.MESSAGE_PROJECT.toString())),
+                any(LocalDateTime.class));
+        verify(notificationDao, never()).findNotificationsByUserIDandType(anyLong(), anyString());
+        verify(unreadCounterBean).messagesRead(1L);
+        verify(notificationDao, never()).merge(any(NotificationEntity.class));
+    }
+
+    @Test
+    public void markAllNotificationsAsRead_marksAllWithOneUpdate() {
+        boolean result = notificationBean.markAllNotificationsAsRead("token");
+
+        assertTrue(result);
+        verify(notificationRecipientDao, times(1)).markAllRead(eq(1L), any(LocalDateTime.class));
+        verify(unreadCounterBean).allRead(1L);
+    }
+
+    @Test
+    public void markAllNotificationsAsRead_returnsFalse_whenUserIsNotFound() {
+        boolean result = notificationBean.markAllNotificationsAsRead("invalid");
+
+        assertFalse(result);
+        verify(notificationRecipientDao, never()).markAllRead(anyLong(), any(LocalDateTime.class));
+    }
+
+    @Test
+    public void dropOldNotificationReceivers_dropsTheTable_whenEveryReceiverHasARecipient() {
+        UserEntity admin = user(9L);
+        admin.setUserType(UserType.ADMIN);
+        when(sessionDao.findUserByToken("admin")).thenReturn(admin);
+        when(notificationRecipientDao.userNotificationsExist()).thenReturn(true);
+        when(notificationRecipientDao.countUnmatchedUserNotifications()).thenReturn(0L);
+
+        boolean result = notificationBean.dropOldNotificationReceivers("admin");
+
+        assertTrue(result);
+        verify(notificationRecipientDao).dropUserNotifications();
+    }
+
+    @Test
+    public void dropOldNotificationReceivers_keepsTheTable_whenSomeReceiversHaveNoRecipient() {
+        UserEntity admin = user(9L);
+        admin.setUserType(UserType.ADMIN);
+        when(sessionDao.findUserByToken("admin")).thenReturn(admin);
+        when(notificationRecipientDao.userNotificationsExist()).thenReturn(true);
+        when(notificationRecipientDao.countUnmatchedUserNotifications()).thenReturn(3L);
+
+        boolean result = notificationBean.dropOldNotificationReceivers("admin");
+
+        assertFalse(result);
+        verify(notificationRecipientDao, never()).dropUserNotifications();
+    }
+
+    @Test
+    public void dropOldNotificationReceivers_returnsFalse_whenUserIsNotAnAdministrator() {
+        boolean result = notificationBean.dropOldNotificationReceivers("token");
+
+        assertFalse(result);
+        verify(notificationRecipientDao, never()).countUnmatchedUserNotifications();
+        verify(notificationRecipientDao, never()).dropUserNotifications();
+    }
+
+    private NotificationEntity notification(long id, long senderId) {
+        NotificationEntity notification = new NotificationEntity();
+        notification.setId(id);
+        notification.setSender_id(senderId);
+        notification.setType(NotificationType.NEW_PROJECT.toString());
+        notification.setSendTimestamp(LocalDateTime.now());
+        return notification;
+    }
+
+    private NotificationRecipientEntity recipient(NotificationEntity notification, long userId, int count, LocalDateTime readAt) {
+        NotificationRecipientEntity recipient = new NotificationRecipientEntity();
+        recipient.setNotification(notification);
+        recipient.setUser(user(userId));
+        recipient.setAggregateCount(count);
+        recipient.setReadAt(readAt);
+        return recipient;
+    }
+
+    private UserEntity user(long id) {
+        UserEntity user = new UserEntity();
+        user.setId(id);
+        return user;
+    }
+}
@@ -0,0 +1,122 @@
+package aor.paj.proj_final_aor_backend.bean;
+
+import aor.paj.proj_final_aor_backend.dao.NotificationOutboxDao;
+import aor.paj.proj_final_aor_backend.dao.UserDao;
+import aor.paj.proj_final_aor_backend.entity.NotificationOutboxEntity;
+import aor.paj.proj_final_aor_backend.entity.UserEntity;
+import aor.paj.proj_final_aor_backend.util.enums.NotificationAudience;
+import aor.paj.proj_final_aor_backend.websocket.EventBus;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class NotificationOutboxBeanTest {
+
+    @InjectMocks
+    private NotificationOutboxBean notificationOutboxBean;
+
+    @Mock
+    private NotificationOutboxDao notificationOutboxDao;
+
+    @Mock
+    private NotificationBean notificationBean;
+
+    @Mock
+    private UserDao userDao;
+
+    @Mock
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    @Mock
+    private EventBus eventBus;
+
+    private NotificationOutboxEntity entry;
+
+    private UserEntity sender;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        entry = new NotificationOutboxEntity();
+        entry.setId(1L);
+        entry.setSenderId(2L);
+        entry.setProjectId(5L);
+        entry.setRelatedEntityId(5L);
+        entry.setAudience(NotificationAudience.PROJECT_USERS.toString());
+        entry.setType("NEW_MEMBER");
+        sender = new UserEntity();
+        sender.setId(2L);
+        when(notificationOutboxDao.find(1L)).thenReturn(entry);
+        when(userDao.findUserById(2L)).thenReturn(sender);
+    }
+
+    @Test
+    public void dispatch_removesTheEntry_whenTheNotificationIsSent() {
+        when(notificationBean.sendNotificationToProjectUsers(sender, 5L, "NEW_MEMBER", 5L)).thenReturn(true);
+
+        assertTrue(notificationOutboxBean.dispatch(1L));
+
+        verify(notificationOutboxDao).remove(entry);
+        verify(transactionRegistry, never()).setRollbackOnly();
+    }
+
+    @Test
+    public void dispatch_keepsTheEntry_andRollsBack_whenTheNotificationIsNotSent() {
+        when(notificationBean.sendNotificationToProjectUsers(sender, 5L, "NEW_MEMBER", 5L)).thenReturn(false);
+
+        assertFalse(notificationOutboxBean.dispatch(1L));
+
+        verify(notificationOutboxDao, never()).remove(any());
+        verify(transactionRegistry).setRollbackOnly();
+    }
+
+    @Test
+    public void dispatch_discardsTheEntry_whenTheSenderNoLongerExists() {
+        when(userDao.findUserById(2L)).thenReturn(null);
+
+        assertTrue(notificationOutboxBean.dispatch(1L));
+
+        verify(notificationOutboxDao).remove(entry);
+        verifyNoInteractions(notificationBean);
+    }
+
+    @Test
+    public void claim_claimsTheEntryForThisNode_untilTheClaimExpires() {
+        when(eventBus.getNodeId()).thenReturn("node-a");
+        when(notificationOutboxDao.claim(eq(1L), eq("node-a"), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(1);
+
+        assertTrue(notificationOutboxBean.claim(1L));
+
+        verify(notificationOutboxDao).claim(eq(1L), eq("node-a"), any(LocalDateTime.class),
+                argThat(until -> until.isAfter(LocalDateTime.now().plusSeconds(30))));
+    }
+
+    @Test
+    public void claim_returnsFalse_whenAnotherNodeHoldsTheEntry() {
+        when(eventBus.getNodeId()).thenReturn("node-a");
+        when(notificationOutboxDao.claim(anyLong(), anyString(), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(0);
+
+        assertFalse(notificationOutboxBean.claim(1L));
+    }
+
+    @Test
+    public void recordFailure_releasesTheClaim() {
+        entry.setClaimedBy("node-a");
+        entry.setClaimedUntil(LocalDateTime.now().plusMinutes(1));
+
+        notificationOutboxBean.recordFailure(1L, "database down", 8);
+
+        assertNull(entry.getClaimedBy());
+        assertNull(entry.getClaimedUntil());
+        assertEquals(1, entry.getAttempts());
+        verify(notificationOutboxDao).merge(entry);
+    }
+}
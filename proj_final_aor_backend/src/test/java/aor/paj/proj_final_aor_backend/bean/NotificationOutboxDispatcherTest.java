@@ -0,0 +1,109 @@
+package aor.paj.proj_final_aor_backend.bean;
+
+import aor.paj.proj_final_aor_backend.entity.NotificationOutboxEntity;
+import aor.paj.proj_final_aor_backend.util.enums.NotificationAudience;
+import jakarta.ejb.EJBException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class NotificationOutboxDispatcherTest {
+
+    @InjectMocks
+    private NotificationOutboxDispatcher dispatcher;
+
+    @Mock
+    private NotificationOutboxBean notificationOutboxBean;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        when(notificationOutboxBean.claim(anyLong())).thenReturn(true);
+        when(notificationOutboxBean.dispatch(anyLong())).thenReturn(true);
+    }
+
+    @Test
+    public void dispatchBatch_sendsPendingEntriesInOrder() {
+        when(notificationOutboxBean.findPending(anyInt())).thenReturn(List.of(entry(1L, 5L), entry(2L, 6L), entry(3L, 0L)));
+
+        int sent = dispatcher.dispatchBatch();
+
+        assertEquals(3, sent);
+        InOrder order = inOrder(notificationOutboxBean);
+        order.verify(notificationOutboxBean).dispatch(1L);
+        order.verify(notificationOutboxBean).dispatch(2L);
+        order.verify(notificationOutboxBean).dispatch(3L);
+    }
+
+    @Test
+    public void dispatchBatch_holdsLaterEntriesForTheSameUsers_whenAnEntryFails() {
+        when(notificationOutboxBean.findPending(anyInt())).thenReturn(List.of(entry(1L, 5L), entry(2L, 5L), entry(3L, 6L), entry(4L, 0L)));
+        doThrow(new EJBException("database down")).when(notificationOutboxBean).dispatch(1L);
+
+        int sent = dispatcher.dispatchBatch();
+
+        assertEquals(1, sent);
+        verify(notificationOutboxBean).recordFailure(eq(1L), eq("database down"), anyInt());
+        verify(notificationOutboxBean, never()).dispatch(2L);
+        verify(notificationOutboxBean).dispatch(3L);
+        verify(notificationOutboxBean, never()).dispatch(4L);
+    }
+
+    @Test
+    public void dispatchBatch_recordsFailure_whenTheNotificationIsNotSent() {
+        when(notificationOutboxBean.findPending(anyInt())).thenReturn(List.of(entry(1L, 5L), entry(2L, 5L), entry(3L, 6L)));
+        when(notificationOutboxBean.dispatch(1L)).thenReturn(false);
+
+        int sent = dispatcher.dispatchBatch();
+
+        assertEquals(1, sent);
+        verify(notificationOutboxBean).recordFailure(eq(1L), anyString(), anyInt());
+        verify(notificationOutboxBean, never()).dispatch(2L);
+        verify(notificationOutboxBean).dispatch(3L);
+    }
+
+    @Test
+    public void dispatchBatch_holdsLaterEntriesForTheSameUsers_whenAnotherNodeClaimedAnEntry() {
+        when(notificationOutboxBean.findPending(anyInt())).thenReturn(List.of(entry(1L, 5L), entry(2L, 5L), entry(3L, 6L)));
+        when(notificationOutboxBean.claim(1L)).thenReturn(false);
+
+        int sent = dispatcher.dispatchBatch();
+
+        assertEquals(1, sent);
+        verify(notificationOutboxBean, never()).dispatch(1L);
+        verify(notificationOutboxBean, never()).dispatch(2L);
+        verify(notificationOutboxBean, never()).recordFailure(anyLong(), any(), anyInt());
+        verify(notificationOutboxBean).dispatch(3L);
+    }
+
+    @Test
+    public void dispatchBatch_waitsForRetry_whenEntryIsNotDue() {
+        NotificationOutboxEntity retried = entry(1L, 5L);
+        retried.setAttempts(1);
+        retried.setNextAttemptAt(LocalDateTime.now().plusMinutes(1));
+        when(notificationOutboxBean.findPending(anyInt())).thenReturn(List.of(retried, entry(2L, 5L)));
+
+        int sent = dispatcher.dispatchBatch();
+
+        assertEquals(0, sent);
+        verify(notificationOutboxBean, never()).dispatch(anyLong());
+    }
+
+    private NotificationOutboxEntity entry(long id, long projectId) {
+        NotificationOutboxEntity entry = new NotificationOutboxEntity();
+        entry.setId(id);
+        entry.setProjectId(projectId);
+        entry.setAudience((projectId == 0 ? NotificationAudience.ALL_USERS : NotificationAudience.PROJECT_USERS).toString());
+        entry.setType("NEW_MEMBER");
+        return entry;
+    }
+}
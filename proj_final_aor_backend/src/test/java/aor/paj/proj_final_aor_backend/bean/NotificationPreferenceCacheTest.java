@@ -0,0 +1,66 @@
+package aor.paj.proj_final_aor_backend.bean;
+
+import aor.paj.proj_final_aor_backend.dao.NotificationPreferenceDao;
+import aor.paj.proj_final_aor_backend.entity.NotificationPreferenceEntity;
+import aor.paj.proj_final_aor_backend.util.enums.NotificationDelivery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class NotificationPreferenceCacheTest {
+
+    @InjectMocks
+    private NotificationPreferenceCache cache;
+
+    @Mock
+    private NotificationPreferenceDao notificationPreferenceDao;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        when(notificationPreferenceDao.findAllPreferences()).thenReturn(List.of(
+                preference(1L, 0L, NotificationDelivery.MUTED),
+                preference(1L, 7L, NotificationDelivery.REAL_TIME),
+                preference(2L, 7L, NotificationDelivery.DIGEST)));
+    }
+
+    @Test
+    public void get_prefersTheProjectPreference_overTheUserPreference() {
+        assertEquals(NotificationDelivery.REAL_TIME, cache.get(1L, 7L));
+        assertEquals(NotificationDelivery.MUTED, cache.get(1L, 8L));
+        assertEquals(NotificationDelivery.DIGEST, cache.get(2L, 7L));
+        assertEquals(NotificationDelivery.REAL_TIME, cache.get(3L, 7L));
+        verify(notificationPreferenceDao, times(1)).findAllPreferences();
+    }
+
+    @Test
+    public void getQuietUsers_returnsTheUsersThatAreNotRealTime() {
+        assertEquals(Map.of(2L, NotificationDelivery.DIGEST), cache.getQuietUsers(7L));
+        assertEquals(Map.of(1L, NotificationDelivery.MUTED), cache.getQuietUsers(8L));
+    }
+
+    @Test
+    public void put_removesTheUserPreference_whenItIsRealTime() {
+        cache.put(1L, 0L, NotificationDelivery.REAL_TIME);
+        cache.put(3L, 8L, NotificationDelivery.MUTED);
+
+        assertEquals(NotificationDelivery.REAL_TIME, cache.get(1L, 8L));
+        assertEquals(Map.of(3L, NotificationDelivery.MUTED), cache.getQuietUsers(8L));
+    }
+
+    private NotificationPreferenceEntity preference(long userId, long projectId, NotificationDelivery delivery) {
+        NotificationPreferenceEntity preference = new NotificationPreferenceEntity();
+        preference.setUserId(userId);
+        preference.setProjectId(projectId);
+        preference.setDelivery(delivery);
+        return preference;
+    }
+}
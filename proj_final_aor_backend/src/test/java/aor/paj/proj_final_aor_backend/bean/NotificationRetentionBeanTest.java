@@ -0,0 +1,101 @@
+package aor.paj.proj_final_aor_backend.bean;
+
+import aor.paj.proj_final_aor_backend.dao.NotificationDao;
+import aor.paj.proj_final_aor_backend.dao.NotificationRecipientDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class NotificationRetentionBeanTest {
+
+    @InjectMocks
+    private NotificationRetentionBean notificationRetentionBean;
+
+    @Mock
+    private NotificationDao notificationDao;
+
+    @Mock
+    private NotificationRecipientDao notificationRecipientDao;
+
+    private final LocalDateTime cutoff = LocalDateTime.now().minusDays(90);
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    public void purgeBatch_archivesThenDeletesRecipientsBeforeNotifications() {
+        when(notificationDao.findExpiredByMonth(cutoff, 100)).thenReturn(Map.of("202610", List.of(1L, 2L)));
+        when(notificationDao.deleteByIds(List.of(1L, 2L))).thenReturn(2);
+
+        int removed = notificationRetentionBean.purgeBatch(cutoff, 100, Set.of("202610"));
+
+        assertEquals(2, removed);
+        InOrder order = inOrder(notificationDao, notificationRecipientDao);
+        order.verify(notificationDao).archive(List.of(1L, 2L), "202610");
+        order.verify(notificationRecipientDao).deleteByNotificationIds(List.of(1L, 2L));
+        order.verify(notificationDao).deleteByIds(List.of(1L, 2L));
+    }
+
+    @Test
+    public void purgeBatch_archivesEachNotificationInTheTablesOfItsMonth() {
+        Map<String, List<Long>> byMonth = new TreeMap<>(Map.of("202607", List.of(1L), "202608", List.of(2L, 3L)));
+        when(notificationDao.findExpiredByMonth(cutoff, 100)).thenReturn(byMonth);
+        when(notificationDao.deleteByIds(List.of(1L, 2L, 3L))).thenReturn(3);
+
+        int removed = notificationRetentionBean.purgeBatch(cutoff, 100, Set.of("202607", "202608"));
+
+        assertEquals(3, removed);
+        verify(notificationDao).archive(List.of(1L), "202607");
+        verify(notificationDao).archive(List.of(2L, 3L), "202608");
+    }
+
+    @Test
+    public void purgeBatch_leavesTheNotificationsOfAMonthWithoutTables() {
+        Map<String, List<Long>> byMonth = new TreeMap<>(Map.of("202607", List.of(1L), "202608", List.of(2L)));
+        when(notificationDao.findExpiredByMonth(cutoff, 100)).thenReturn(byMonth);
+        when(notificationDao.deleteByIds(List.of(1L))).thenReturn(1);
+
+        int removed = notificationRetentionBean.purgeBatch(cutoff, 100, Set.of("202607"));
+
+        assertEquals(1, removed);
+        verify(notificationDao, never()).archive(anyCollection(), eq("202608"));
+        verify(notificationRecipientDao).deleteByNotificationIds(List.of(1L));
+    }
+
+    @Test
+    public void purgeBatch_doesNotArchive_whenNoMonthIsGiven() {
+        when(notificationDao.findExpiredByMonth(cutoff, 100)).thenReturn(Map.of("202610", List.of(1L)));
+        when(notificationDao.deleteByIds(List.of(1L))).thenReturn(1);
+
+        int removed = notificationRetentionBean.purgeBatch(cutoff, 100, null);
+
+        assertEquals(1, removed);
+        verify(notificationDao, never()).archive(anyCollection(), anyString());
+    }
+
+    @Test
+    public void purgeBatch_doesNothing_whenNothingExpired() {
+        when(notificationDao.findExpiredByMonth(cutoff, 100)).thenReturn(Collections.emptyMap());
+
+        int removed = notificationRetentionBean.purgeBatch(cutoff, 100, null);
+
+        assertEquals(0, removed);
+        verify(notificationRecipientDao, never()).deleteByNotificationIds(anyCollection());
+        verify(notificationDao, never()).deleteByIds(anyCollection());
+    }
+}
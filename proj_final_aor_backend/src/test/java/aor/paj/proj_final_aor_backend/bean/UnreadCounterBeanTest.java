@@ -0,0 +1,180 @@
+package aor.paj.proj_final_aor_backend.bean;
+
+import aor.paj.proj_final_aor_backend.dao.NotificationDao;
+import aor.paj.proj_final_aor_backend.dao.NotificationRecipientDao;
+import aor.paj.proj_final_aor_backend.dao.UnreadCounterDao;
+import aor.paj.proj_final_aor_backend.dto.UnreadCounters;
+import aor.paj.proj_final_aor_backend.entity.UnreadCounterEntity;
+import aor.paj.proj_final_aor_backend.util.enums.NotificationType;
+import aor.paj.proj_final_aor_backend.util.enums.UnreadCounterType;
+import aor.paj.proj_final_aor_backend.websocket.EventBus;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class UnreadCounterBeanTest {
+
+    @InjectMocks
+    private UnreadCounterBean unreadCounterBean;
+
+    @Mock
+    private UnreadCounterDao unreadCounterDao;
+
+    @Mock
+    private NotificationDao notificationDao;
+
+    @Mock
+    private NotificationRecipientDao notificationRecipientDao;
+
+    @Mock
+    private EventBus eventBus;
+
+    @Mock
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    @Spy
+    private UnreadCounterCache unreadCounterCache = new UnreadCounterCache(100);
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionRegistry.getTransactionStatus()).thenReturn(Status.STATUS_NO_TRANSACTION);
+        when(unreadCounterDao.insertIfAbsent(any(UnreadCounterEntity.class))).thenReturn(true);
+    }
+
+    @Test
+    public void getCounters_countsOnce_thenAnswersFromCache() {
+        when(notificationDao.countUnreadNotifications(1L)).thenReturn(counters(1L, 1, 0, 2));
+
+        UnreadCounters first = unreadCounterBean.getCounters(1L);
+        UnreadCounters second = unreadCounterBean.getCounters(1L);
+
+        assertEquals(new UnreadCounters(1, 0, 2), first);
+        assertEquals(first, second);
+        verify(notificationDao, times(1)).countUnreadNotifications(1L);
+        verify(unreadCounterDao, times(1)).insertIfAbsent(any(UnreadCounterEntity.class));
+    }
+
+    @Test
+    public void getCounters_usesTheSavedCounters_whenAnotherRequestSavedThemFirst() {
+        when(notificationDao.countUnreadNotifications(1L)).thenReturn(counters(1L, 1, 0, 2));
+        when(unreadCounterDao.insertIfAbsent(any(UnreadCounterEntity.class))).thenReturn(false);
+        when(unreadCounterDao.findByUserId(1L)).thenReturn(null, counters(1L, 2, 0, 2));
+
+        UnreadCounters counters = unreadCounterBean.getCounters(1L);
+
+        assertEquals(new UnreadCounters(2, 0, 2), counters);
+        assertEquals(counters, unreadCounterCache.get(1L));
+    }
+
+    @Test
+    public void notificationSent_countsMessagesOncePerConversation() {
+        unreadCounterCache.put(2L, new UnreadCounters(1, 0, 0));
+        unreadCounterCache.put(3L, new UnreadCounters(0, 0, 0));
+        when(notificationRecipientDao.findUsersWithUnreadAbout("MESSAGE_RECEIVED", 1L, List.of(2L, 3L)))
+                .thenReturn(Set.of(2L));
+
+        unreadCounterBean.notificationSent(NotificationType.MESSAGE_RECEIVED, 1L, List.of(2L, 3L));
+
+        verify(unreadCounterDao).increment(UnreadCounterType.DIRECT_MESSAGES, List.of(3L));
+        assertEquals(new UnreadCounters(1, 0, 0), unreadCounterCache.get(2L));
+        assertEquals(new UnreadCounters(1, 0, 0), unreadCounterCache.get(3L));
+    }
+
+    @Test
+    public void notificationSent_changesTheCacheOnlyAfterCommit() {
+        unreadCounterCache.put(2L, new UnreadCounters(0, 0, 0));
+        when(transactionRegistry.getTransactionStatus()).thenReturn(Status.STATUS_ACTIVE);
+
+        unreadCounterBean.notificationSent(NotificationType.NEW_MEMBER, 1L, List.of(2L));
+
+        ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+        verify(transactionRegistry).registerInterposedSynchronization(synchronization.capture());
+        assertEquals(new UnreadCounters(0, 0, 0), unreadCounterCache.get(2L));
+        verify(eventBus, never()).publishToOtherNodes(any(), any());
+
+        synchronization.getValue().afterCompletion(Status.STATUS_COMMITTED);
+
+        assertEquals(new UnreadCounters(0, 0, 1), unreadCounterCache.get(2L));
+        verify(eventBus).publishToOtherNodes(UnreadCounterCache.CHANNEL, List.of(2L));
+    }
+
+    @Test
+    public void notificationSent_leavesTheCache_whenRolledBack() {
+        unreadCounterCache.put(2L, new UnreadCounters(0, 0, 0));
+        when(transactionRegistry.getTransactionStatus()).thenReturn(Status.STATUS_ACTIVE);
+
+        unreadCounterBean.notificationSent(NotificationType.NEW_MEMBER, 1L, List.of(2L));
+
+        ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+        verify(transactionRegistry).registerInterposedSynchronization(synchronization.capture());
+        synchronization.getValue().afterCompletion(Status.STATUS_ROLLEDBACK);
+
+        assertEquals(new UnreadCounters(0, 0, 0), unreadCounterCache.get(2L));
+        verify(eventBus, never()).publishToOtherNodes(any(), any());
+    }
+
+    @Test
+    public void reconcile_fixesDriftedCounters() {
+        UnreadCounterEntity saved = counters(1L, 5, 0, 0);
+        saved.setDirty(true);
+        saved.setVersion(3L);
+        when(unreadCounterDao.findByUserId(1L)).thenReturn(saved);
+        when(notificationDao.countUnreadNotifications(1L)).thenReturn(counters(1L, 1, 0, 0));
+        when(unreadCounterDao.reconcile(1L, 3L, new UnreadCounters(1, 0, 0))).thenReturn(true);
+
+        boolean fixed = unreadCounterBean.reconcile(1L);
+
+        assertTrue(fixed);
+        verify(unreadCounterDao).reconcile(1L, 3L, new UnreadCounters(1, 0, 0));
+        assertEquals(new UnreadCounters(1, 0, 0), unreadCounterCache.get(1L));
+    }
+
+    @Test
+    public void reconcile_keepsTheCounters_whenTheyChangedWhileCounting() {
+        UnreadCounterEntity saved = counters(1L, 5, 0, 0);
+        saved.setDirty(true);
+        saved.setVersion(3L);
+        when(unreadCounterDao.findByUserId(1L)).thenReturn(saved);
+        when(notificationDao.countUnreadNotifications(1L)).thenReturn(counters(1L, 1, 0, 0));
+        when(unreadCounterDao.reconcile(1L, 3L, new UnreadCounters(1, 0, 0))).thenReturn(false);
+
+        boolean fixed = unreadCounterBean.reconcile(1L);
+
+        assertFalse(fixed);
+        assertNull(unreadCounterCache.get(1L));
+    }
+
+    @Test
+    public void reconcile_skipsCountersThatAreNotDirty() {
+        when(unreadCounterDao.findByUserId(1L)).thenReturn(counters(1L, 5, 0, 0));
+
+        boolean fixed = unreadCounterBean.reconcile(1L);
+
+        assertFalse(fixed);
+        verify(notificationDao, never()).countUnreadNotifications(anyLong());
+        verify(unreadCounterDao, never()).reconcile(anyLong(), anyLong(), any());
+    }
+
+    private UnreadCounterEntity counters(long userId, int directMessages, int projectMessages, int other) {
+        UnreadCounterEntity entity = new UnreadCounterEntity();
+        entity.setUserId(userId);
+        entity.setDirectMessages(directMessages);
+        entity.setProjectMessages(projectMessages);
+        entity.setOther(other);
+        return entity;
+    }
+}
@@ -0,0 +1,78 @@
+package aor.paj.proj_final_aor_backend.bean;
+
+import aor.paj.proj_final_aor_backend.dto.UnreadCounters;
+import aor.paj.proj_final_aor_backend.util.enums.UnreadCounterType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UnreadCounterCacheTest {
+
+    @Test
+    public void increment_changesOnlyCachedUsers() {
+        UnreadCounterCache cache = new UnreadCounterCache(100);
+        cache.put(1L, new UnreadCounters(0, 0, 0));
+
+        cache.increment(UnreadCounterType.OTHER, List.of(1L, 2L));
+
+        assertEquals(new UnreadCounters(0, 0, 1), cache.get(1L));
+        assertNull(cache.get(2L));
+    }
+
+    @Test
+    public void clearMessages_keepsOtherNotifications() {
+        UnreadCounterCache cache = new UnreadCounterCache(100);
+        cache.put(1L, new UnreadCounters(2, 3, 4));
+
+        cache.clearMessages(1L);
+        cache.decrementOther(1L);
+
+        assertEquals(new UnreadCounters(0, 0, 3), cache.get(1L));
+    }
+
+    @Test
+    public void decrementOther_neverGoesBelowZero() {
+        UnreadCounterCache cache = new UnreadCounterCache(100);
+        cache.put(1L, new UnreadCounters(1, 0, 0));
+
+        cache.decrementOther(1L);
+
+        assertEquals(new UnreadCounters(1, 0, 0), cache.get(1L));
+    }
+
+    @Test
+    public void decrementDirectMessages_changesOnlyDirectMessages() {
+        UnreadCounterCache cache = new UnreadCounterCache(100);
+        cache.put(1L, new UnreadCounters(1, 2, 3));
+
+        cache.decrementDirectMessages(1L);
+        cache.decrementDirectMessages(1L);
+
+        assertEquals(new UnreadCounters(0, 2, 3), cache.get(1L));
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsedUser_whenStripeIsFull() {
+        // One user per stripe, users 1 and 33 share a stripe
+        UnreadCounterCache cache = new UnreadCounterCache(32);
+        cache.put(1L, new UnreadCounters(1, 0, 0));
+        cache.put(33L, new UnreadCounters(2, 0, 0));
+
+        assertNull(cache.get(1L));
+        assertEquals(new UnreadCounters(2, 0, 0), cache.get(33L));
+    }
+
+    @Test
+    public void evict_removesOnlyTheGivenUsers() {
+        UnreadCounterCache cache = new UnreadCounterCache(100);
+        cache.put(1L, new UnreadCounters(1, 0, 0));
+        cache.put(2L, new UnreadCounters(0, 1, 0));
+
+        cache.evict(List.of(1L));
+
+        assertNull(cache.get(1L));
+        assertEquals(new UnreadCounters(0, 1, 0), cache.get(2L));
+    }
+}
@@ -2,6 +2,8 @@ package aor.paj.proj_final_aor_backend.bean;
 
 import aor.paj.proj_final_aor_backend.dao.AuthenticationDao;
 import aor.paj.proj_final_aor_backend.dao.UserDao;
+import aor.paj.proj_final_aor_backend.dto.MessageInfoUser;
+import aor.paj.proj_final_aor_backend.dto.User;
 import aor.paj.proj_final_aor_backend.entity.UserEntity;
 import aor.paj.proj_final_aor_backend.util.EmailServiceHelper;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,6 +13,11 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -27,6 +34,8 @@ class UserBeanTest {
     AuthenticationDao authenticationDao;
     @Mock
     EmailServiceHelper emailServiceHelper;
+    @Mock
+    UserCardCache userCardCache;
 
 
     @BeforeEach
@@ -228,4 +237,35 @@ class UserBeanTest {
         verify(userDao, times(1)).updateUser(any(UserEntity.class));
     }
 
+
+    @Test
+    void getUserCards_loadsOnlyMissingUsers_withOneQuery() {
+        Map<Long, MessageInfoUser> cached = new HashMap<>();
+        cached.put(1L, new MessageInfoUser(1L, "Ana", "Silva", null));
+        when(userCardCache.getAll(Set.of(1L, 2L, 3L))).thenReturn(cached);
+        List<MessageInfoUser> loaded = List.of(new MessageInfoUser(2L, "Rui", "Costa", null), new MessageInfoUser(3L, "Eva", "Lopes", null));
+        when(userDao.findUserCardsByIds(Set.of(2L, 3L))).thenReturn(loaded);
+
+        Map<Long, MessageInfoUser> cards = userBean.getUserCards(Set.of(1L, 2L, 3L));
+
+        assertEquals(3, cards.size());
+        assertEquals("Rui", cards.get(2L).getFirstName());
+        verify(userDao, times(1)).findUserCardsByIds(Set.of(2L, 3L));
+        verify(userDao, never()).findUserById(anyLong());
+        verify(userCardCache).putAll(loaded);
+    }
+
+    @Test
+    void updateUser_invalidatesTheUserCard() {
+        UserEntity userEntity = new UserEntity();
+        userEntity.setId(1L);
+        when(userDao.findUserById(1L)).thenReturn(userEntity);
+        User user = new User();
+        user.setFirstName("Ana");
+
+        boolean result = userBean.updateUser(user, 1L);
+
+        assertTrue(result);
+        verify(userCardCache).invalidate(1L);
+    }
 }
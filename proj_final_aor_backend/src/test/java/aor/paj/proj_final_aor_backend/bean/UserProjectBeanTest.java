@@ -0,0 +1,100 @@
+package aor.paj.proj_final_aor_backend.bean;
+
+import aor.paj.proj_final_aor_backend.dao.UserProjectDao;
+import aor.paj.proj_final_aor_backend.entity.UserEntity;
+import aor.paj.proj_final_aor_backend.entity.UserProjectEntity;
+import aor.paj.proj_final_aor_backend.util.enums.UserTypeInProject;
+import aor.paj.proj_final_aor_backend.websocket.PresenceMonitor;
+import aor.paj.proj_final_aor_backend.websocket.SessionRegistry;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class UserProjectBeanTest {
+
+    @InjectMocks
+    private UserProjectBean userProjectBean = new UserProjectBean();
+
+    @Mock
+    private UserProjectDao userProjectDao;
+
+    @Mock
+    private SessionRegistry sessionRegistry;
+
+    @Mock
+    private PresenceMonitor presenceMonitor;
+
+    @Mock
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionRegistry.getTransactionStatus()).thenReturn(Status.STATUS_ACTIVE);
+    }
+
+    private UserProjectEntity member(long userId, boolean approved) {
+        UserEntity user = new UserEntity();
+        user.setId(userId);
+        UserProjectEntity userProject = new UserProjectEntity();
+        userProject.setUser(user);
+        userProject.setApproved(approved);
+        userProject.setUserType(UserTypeInProject.COLLABORATOR);
+        return userProject;
+    }
+
+    @Test
+    public void approveUserInProject_joinsTheProject_onlyAfterTheCommit() {
+        when(userProjectDao.findUserInProject(5L, 7L)).thenReturn(member(7L, false));
+
+        assertTrue(userProjectBean.approveUserInProject(7L, 5L, UserTypeInProject.COLLABORATOR));
+
+        verify(sessionRegistry, never()).joinProject(anyLong(), anyLong());
+        ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+        verify(transactionRegistry).registerInterposedSynchronization(synchronization.capture());
+        synchronization.getValue().afterCompletion(Status.STATUS_COMMITTED);
+        verify(sessionRegistry).joinProject(7L, 5L);
+    }
+
+    @Test
+    public void approveUserInProject_leavesTheRegistry_whenTheTransactionRollsBack() {
+        when(userProjectDao.findUserInProject(5L, 7L)).thenReturn(member(7L, false));
+
+        userProjectBean.approveUserInProject(7L, 5L, UserTypeInProject.COLLABORATOR);
+
+        ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+        verify(transactionRegistry).registerInterposedSynchronization(synchronization.capture());
+        synchronization.getValue().afterCompletion(Status.STATUS_ROLLEDBACK);
+        verify(sessionRegistry, never()).joinProject(anyLong(), anyLong());
+    }
+
+    @Test
+    public void getOnlineMembersOfAProject_addsTheMembersOnlineInOtherNodes() {
+        when(sessionRegistry.getProjectUsers(5L)).thenReturn(Set.of(7L));
+        when(presenceMonitor.getUsersOnlineInOtherNodes()).thenReturn(Set.of(8L, 9L));
+        when(userProjectDao.findActiveUsersByProjectId(5L)).thenReturn(List.of(member(7L, true), member(8L, true), member(10L, true)));
+
+        assertEquals(Set.of(7L, 8L), Set.copyOf(userProjectBean.getOnlineMembersOfAProject(5L)));
+    }
+
+    @Test
+    public void getOnlineMembersOfAProject_doesNotReadTheMembers_withASingleNode() {
+        when(sessionRegistry.getProjectUsers(5L)).thenReturn(Set.of(7L));
+        when(presenceMonitor.getUsersOnlineInOtherNodes()).thenReturn(Set.of());
+
+        assertEquals(List.of(7L), userProjectBean.getOnlineMembersOfAProject(5L));
+        verifyNoInteractions(userProjectDao);
+    }
+}
@@ -0,0 +1,72 @@
+package aor.paj.proj_final_aor_backend.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChatAppendLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void readPending_returnsTheEntriesAfterTheCheckpoint_afterReopening() throws Exception {
+        Path file = directory.resolve("chat.log");
+        try (ChatAppendLog log = new ChatAppendLog(file, 1024 * 1024)) {
+            log.append(5L, 1L, "first");
+            ChatLogEntry second = log.append(5L, 2L, "second");
+            log.append(6L, 1L, "third");
+            log.checkpoint(second.getSeq() - 1);
+        }
+
+        try (ChatAppendLog log = new ChatAppendLog(file, 1024 * 1024)) {
+            List<ChatLogEntry> pending = log.readPending();
+
+            assertEquals(2, pending.size());
+            assertEquals("second", pending.get(0).getContent());
+            assertEquals("third", pending.get(1).getContent());
+            assertEquals(4L, log.append(5L, 1L, "fourth").getSeq());
+        }
+    }
+
+    @Test
+    public void checkpoint_emptiesTheLog_whenEveryEntryIsSaved() throws Exception {
+        Path file = directory.resolve("chat.log");
+        try (ChatAppendLog log = new ChatAppendLog(file, 0)) {
+            log.append(5L, 1L, "first");
+            ChatLogEntry last = log.append(5L, 1L, "second");
+            log.checkpoint(last.getSeq());
+
+            assertEquals(0L, Files.size(file));
+            assertTrue(log.readPending().isEmpty());
+        }
+
+        try (ChatAppendLog log = new ChatAppendLog(file, 0)) {
+            assertEquals(3L, log.append(5L, 1L, "third").getSeq());
+        }
+    }
+
+    @Test
+    public void constructor_removesAnIncompleteLastLine() throws Exception {
+        Path file = directory.resolve("chat.log");
+        try (ChatAppendLog log = new ChatAppendLog(file, 1024 * 1024)) {
+            log.append(5L, 1L, "first");
+        }
+        Files.write(file, "{\"seq\":2,\"key\":\"a".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (ChatAppendLog log = new ChatAppendLog(file, 1024 * 1024)) {
+            log.append(5L, 1L, "second");
+
+            List<ChatLogEntry> pending = log.readPending();
+            assertEquals(2, pending.size());
+            assertEquals("second", pending.get(1).getContent());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package aor.paj.proj_final_aor_backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageTermsTest {
+
+    @Test
+    public void of_returnsLowerCaseTermsWithoutAccents() {
+        Set<String> terms = MessageTerms.of("Reunião amanhã, às 10h: Sala B!");
+
+        assertEquals(List.of("reuniao", "amanha", "as", "10h", "sala"), List.copyOf(terms));
+    }
+
+    @Test
+    public void of_keepsRepeatedTermsOnce() {
+        assertEquals(Set.of("ok"), MessageTerms.of("ok OK Ok"));
+    }
+
+    @Test
+    public void of_cutsLongTerms() {
+        String word = "a".repeat(MessageTerms.MAX_LENGTH + 10);
+
+        assertEquals(MessageTerms.MAX_LENGTH, MessageTerms.of(word).iterator().next().length());
+        assertTrue(MessageTerms.of(null).isEmpty());
+    }
+}
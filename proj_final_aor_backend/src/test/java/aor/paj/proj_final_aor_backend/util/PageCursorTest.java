@@ -0,0 +1,31 @@
+package aor.paj.proj_final_aor_backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PageCursorTest {
+
+    @Test
+    public void decode_returnsTheEncodedPosition() {
+        PageCursor cursor = new PageCursor(LocalDateTime.of(2024, 5, 1, 10, 30, 15, 123000000), 42L);
+
+        PageCursor decoded = PageCursor.decode(cursor.encode());
+
+        assertEquals(cursor.getTimestamp(), decoded.getTimestamp());
+        assertEquals(42L, decoded.getId());
+    }
+
+    @Test
+    public void decode_returnsFirst_whenCursorIsEmpty() {
+        assertSame(PageCursor.FIRST, PageCursor.decode(""));
+        assertSame(PageCursor.FIRST, PageCursor.decode(null));
+    }
+
+    @Test
+    public void decode_throwsIllegalArgumentException_whenCursorIsInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("not a cursor"));
+    }
+}
@@ -0,0 +1,30 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChannelsTest {
+
+    @Test
+    public void projectIdOf_returnsId_whenChannelIsProjectChannel() {
+        assertEquals(12L, Channels.projectIdOf(Channels.projectChat(12)));
+        assertEquals(7L, Channels.projectIdOf(Channels.projectTasks(7)));
+    }
+
+    @Test
+    public void projectIdOf_returnsNull_whenChannelIsNotProjectChannel() {
+        assertNull(Channels.projectIdOf(Channels.NOTIFICATIONS));
+        assertNull(Channels.projectIdOf("project:abc:chat"));
+        assertNull(Channels.projectIdOf("project:1:files"));
+        assertNull(Channels.projectIdOf(null));
+    }
+
+    @Test
+    public void isValid_acceptsKnownChannels_only() {
+        assertTrue(Channels.isValid(Channels.NOTIFICATIONS));
+        assertTrue(Channels.isValid(Channels.DM));
+        assertTrue(Channels.isValid("project:3:chat"));
+        assertFalse(Channels.isValid("everything"));
+    }
+}
@@ -0,0 +1,81 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import aor.paj.proj_final_aor_backend.util.enums.EventTarget;
+import aor.paj.proj_final_aor_backend.util.enums.SocketType;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventBrokerTest {
+
+    private static final int EVENTS = 200;
+
+    @Test
+    public void localBroker_deliversEventsOfAChannelInOrder() throws Exception {
+        LocalEventBroker broker = new LocalEventBroker(new OrderedDispatcher(4, Executors.defaultThreadFactory()));
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(EVENTS);
+        broker.subscribe(event -> {
+            received.add(event.getPayload());
+            latch.countDown();
+        });
+
+        for (int i = 0; i < EVENTS; i++) {
+            broker.publish(event("project:1:chat", i));
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(expected(), received);
+        broker.close();
+    }
+
+    @Test
+    public void socketBroker_deliversEventsToOtherNodeInOrder() throws Exception {
+        SocketEventBroker nodeB = new SocketEventBroker(0, List.of(), new OrderedDispatcher(4, Executors.defaultThreadFactory()), Executors.defaultThreadFactory());
+        SocketEventBroker nodeA = new SocketEventBroker(0, List.of(new InetSocketAddress(InetAddress.getLoopbackAddress(), nodeB.getPort())),
+                new OrderedDispatcher(4, Executors.defaultThreadFactory()), Executors.defaultThreadFactory());
+
+        List<String> receivedByA = Collections.synchronizedList(new ArrayList<>());
+        List<String> receivedByB = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(2 * EVENTS);
+        nodeA.subscribe(event -> {
+            receivedByA.add(event.getPayload());
+            latch.countDown();
+        });
+        nodeB.subscribe(event -> {
+            receivedByB.add(event.getPayload());
+            latch.countDown();
+        });
+
+        for (int i = 0; i < EVENTS; i++) {
+            nodeA.publish(event("project:1:tasks", i));
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(expected(), receivedByA);
+        assertEquals(expected(), receivedByB);
+        nodeA.close();
+        nodeB.close();
+    }
+
+    private static BrokerEvent event(String channel, int i) {
+        return new BrokerEvent(EventTarget.PROJECT, 1, SocketType.TASK, channel, "task", null, String.valueOf(i));
+    }
+
+    private static List<String> expected() {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < EVENTS; i++) {
+            expected.add(String.valueOf(i));
+        }
+        return expected;
+    }
+}
@@ -0,0 +1,126 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import aor.paj.proj_final_aor_backend.util.enums.SocketType;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class PresenceMonitorTest {
+
+    @InjectMocks
+    private PresenceMonitor presenceMonitor;
+
+    @Mock
+    private SessionRegistry sessionRegistry;
+
+    @Mock
+    private WebsocketHub websocketHub;
+
+    @Mock
+    private EventBus eventBus;
+
+    @Mock
+    private Session session;
+
+    @Mock
+    private RemoteEndpoint.Async async;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        when(sessionRegistry.getAllSessions(any())).thenReturn(Collections.emptyList());
+        when(sessionRegistry.getHeartbeatTimeoutMillis()).thenReturn(45000L);
+        when(session.getAsyncRemote()).thenReturn(async);
+    }
+
+    @Test
+    public void heartbeat_pingsLiveSessions() throws IOException {
+        when(sessionRegistry.getAllSessions(SocketType.NOTIFIER)).thenReturn(List.of(session));
+        when(sessionRegistry.getLastSeen(session)).thenReturn(System.currentTimeMillis());
+
+        presenceMonitor.heartbeat();
+
+        verify(async).sendPing(any(ByteBuffer.class));
+        verify(sessionRegistry, never()).unregister(any(), any());
+        verify(session, never()).close(any(CloseReason.class));
+    }
+
+    @Test
+    public void heartbeat_evictsSessionsWithoutPong() throws IOException {
+        when(sessionRegistry.getAllSessions(SocketType.NOTIFIER)).thenReturn(List.of(session));
+        when(sessionRegistry.getLastSeen(session)).thenReturn(System.currentTimeMillis() - 60000);
+
+        presenceMonitor.heartbeat();
+
+        verify(async, never()).sendPing(any(ByteBuffer.class));
+        verify(sessionRegistry).unregister(SocketType.NOTIFIER, session);
+        verify(session).close(any(CloseReason.class));
+    }
+
+    @Test
+    public void heartbeat_evictsHubSessionsThroughTheHub() throws IOException {
+        when(sessionRegistry.getAllSessions(SocketType.HUB)).thenReturn(List.of(session));
+        when(sessionRegistry.getLastSeen(session)).thenReturn(0L);
+
+        presenceMonitor.heartbeat();
+
+        verify(websocketHub).onClose(eq(session), any(CloseReason.class));
+        verify(sessionRegistry, never()).unregister(any(), any());
+        verify(session).close(any(CloseReason.class));
+    }
+
+    @Test
+    public void heartbeat_evictsSessionsThatCanNotBePinged() throws IOException {
+        when(sessionRegistry.getAllSessions(SocketType.TASK)).thenReturn(List.of(session));
+        when(sessionRegistry.getLastSeen(session)).thenReturn(System.currentTimeMillis());
+        doThrow(new IOException("Broken pipe")).when(async).sendPing(any(ByteBuffer.class));
+
+        presenceMonitor.heartbeat();
+
+        verify(sessionRegistry).unregister(SocketType.TASK, session);
+        verify(session).close(any(CloseReason.class));
+    }
+
+    @Test
+    public void heartbeat_sendsTheOnlineUsersToTheOtherNodes() {
+        when(eventBus.isDistributed()).thenReturn(true);
+        when(eventBus.getNodeId()).thenReturn("a");
+        when(sessionRegistry.getOnlineUserIds()).thenReturn(Set.of(7L));
+
+        presenceMonitor.heartbeat();
+
+        verify(eventBus).publishToOtherNodes(eq(PresenceMonitor.CHANNEL), argThat(payload ->
+                payload instanceof PresenceMonitor.NodePresence && ((PresenceMonitor.NodePresence) payload).getUsers().equals(Set.of(7L))));
+    }
+
+    @Test
+    public void getUsersOnlineInOtherNodes_keepsTheLastUsersOfEachNode() {
+        presenceMonitor.receive(FrameEncoder.toJson(new PresenceMonitor.NodePresence("b", Set.of(7L, 8L), 0)));
+        presenceMonitor.receive(FrameEncoder.toJson(new PresenceMonitor.NodePresence("c", Set.of(9L), 0)));
+        presenceMonitor.receive(FrameEncoder.toJson(new PresenceMonitor.NodePresence("b", Set.of(8L), 0)));
+
+        assertEquals(Set.of(8L, 9L), presenceMonitor.getUsersOnlineInOtherNodes());
+    }
+
+    @Test
+    public void getUsersOnlineInOtherNodes_leavesOutTheNodesWithoutHeartbeat() {
+        when(sessionRegistry.getHeartbeatTimeoutMillis()).thenReturn(-1L);
+        presenceMonitor.receive(FrameEncoder.toJson(new PresenceMonitor.NodePresence("b", Set.of(7L), 0)));
+
+        assertTrue(presenceMonitor.getUsersOnlineInOtherNodes().isEmpty());
+    }
+}
@@ -0,0 +1,117 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import aor.paj.proj_final_aor_backend.util.enums.OutboundPolicy;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.SendHandler;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SessionOutboxTest {
+
+    @Mock
+    private Session session;
+
+    @Mock
+    private RemoteEndpoint.Async async;
+
+    private OutboundStats stats;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        when(session.getAsyncRemote()).thenReturn(async);
+        when(session.getId()).thenReturn("1");
+        stats = new OutboundStats();
+    }
+
+    @Test
+    public void offer_sendsOneMessageAtATime() {
+        SessionOutbox outbox = new SessionOutbox(session, 10, OutboundPolicy.DROP_OLDEST, 10000, stats);
+
+        outbox.offer(OutboundFrame.text("a"), null);
+        outbox.offer(OutboundFrame.text("b"), null);
+
+        verify(async, times(1)).sendText(eq("a"), any(SendHandler.class));
+        verify(async, never()).sendText(eq("b"), any(SendHandler.class));
+        assertEquals(1, outbox.getDepth());
+    }
+
+    @Test
+    public void offer_sendsNextMessage_whenPreviousSendCompletes() {
+        SessionOutbox outbox = new SessionOutbox(session, 10, OutboundPolicy.DROP_OLDEST, 10000, stats);
+        ArgumentCaptor<SendHandler> handler = ArgumentCaptor.forClass(SendHandler.class);
+
+        outbox.offer(OutboundFrame.text("a"), null);
+        outbox.offer(OutboundFrame.text("b"), null);
+        verify(async).sendText(eq("a"), handler.capture());
+        handler.getValue().onResult(new SendResult());
+
+        verify(async, times(1)).sendText(eq("b"), any(SendHandler.class));
+        assertEquals(1, stats.getSent());
+        assertEquals(0, outbox.getDepth());
+    }
+
+    @Test
+    public void offer_sendsBinary_whenFrameIsBinary() {
+        SessionOutbox outbox = new SessionOutbox(session, 10, OutboundPolicy.DROP_OLDEST, 10000, stats);
+
+        outbox.offer(OutboundFrame.binary(new byte[]{1, 2, 3}), null);
+
+        verify(async, times(1)).sendBinary(eq(ByteBuffer.wrap(new byte[]{1, 2, 3})), any(SendHandler.class));
+        verify(async, never()).sendText(anyString(), any(SendHandler.class));
+    }
+
+    @Test
+    public void offer_dropsOldest_whenQueueIsFull() {
+        SessionOutbox outbox = new SessionOutbox(session, 2, OutboundPolicy.DROP_OLDEST, 10000, stats);
+
+        outbox.offer(OutboundFrame.text("in-flight"), null);
+        outbox.offer(OutboundFrame.text("a"), null);
+        outbox.offer(OutboundFrame.text("b"), null);
+        outbox.offer(OutboundFrame.text("c"), null);
+
+        assertEquals(2, outbox.getDepth());
+        assertEquals(1, stats.getDropped());
+    }
+
+    @Test
+    public void offer_replacesPendingMessage_whenKeyMatchesAndPolicyIsCoalesce() {
+        SessionOutbox outbox = new SessionOutbox(session, 10, OutboundPolicy.COALESCE, 10000, stats);
+        ArgumentCaptor<SendHandler> handler = ArgumentCaptor.forClass(SendHandler.class);
+
+        outbox.offer(OutboundFrame.text("in-flight"), null);
+        outbox.offer(OutboundFrame.text("task 1 v1"), "task:1");
+        outbox.offer(OutboundFrame.text("task 1 v2"), "task:1");
+        verify(async).sendText(eq("in-flight"), handler.capture());
+        handler.getValue().onResult(new SendResult());
+
+        assertEquals(1, stats.getCoalesced());
+        verify(async, times(1)).sendText(eq("task 1 v2"), any(SendHandler.class));
+        verify(async, never()).sendText(eq("task 1 v1"), any(SendHandler.class));
+    }
+
+    @Test
+    public void offer_closesSession_whenQueueStaysFull() throws Exception {
+        SessionOutbox outbox = new SessionOutbox(session, 1, OutboundPolicy.DROP_OLDEST, -1, stats);
+
+        outbox.offer(OutboundFrame.text("in-flight"), null);
+        outbox.offer(OutboundFrame.text("a"), null);
+        outbox.offer(OutboundFrame.text("b"), null);
+        outbox.offer(OutboundFrame.text("c"), null);
+
+        verify(session, times(1)).close(any(CloseReason.class));
+        assertEquals(1, stats.getEvicted());
+        assertEquals(0, outbox.getDepth());
+    }
+}
@@ -0,0 +1,101 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import aor.paj.proj_final_aor_backend.util.enums.SocketType;
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SessionRegistryTest {
+
+    private SessionRegistry sessionRegistry;
+
+    @BeforeEach
+    public void setup() {
+        sessionRegistry = new SessionRegistry();
+    }
+
+    private Session session(String id) {
+        Session session = mock(Session.class);
+        Map<String, Object> properties = new ConcurrentHashMap<>();
+        when(session.getUserProperties()).thenReturn(properties);
+        when(session.getId()).thenReturn(id);
+        return session;
+    }
+
+    @Test
+    public void unregister_dropsTheProjects_whenTheLastSessionCloses() {
+        Session session = session("a");
+        sessionRegistry.register(SocketType.NOTIFIER, session, 7L, List.of(1L, 2L));
+
+        sessionRegistry.unregister(SocketType.NOTIFIER, session);
+
+        assertFalse(sessionRegistry.isOnline(7L));
+        assertTrue(sessionRegistry.getProjectUsers(1L).isEmpty());
+        assertTrue(sessionRegistry.getProjectUsers(2L).isEmpty());
+    }
+
+    @Test
+    public void unregister_keepsTheProjects_whileAnotherSessionIsOpen() {
+        Session first = session("a");
+        Session second = session("b");
+        sessionRegistry.register(SocketType.NOTIFIER, first, 7L, List.of(1L));
+        sessionRegistry.register(SocketType.HUB, second, 7L, List.of(1L));
+
+        sessionRegistry.unregister(SocketType.NOTIFIER, first);
+
+        assertEquals(Set.of(7L), sessionRegistry.getProjectUsers(1L));
+    }
+
+    @Test
+    public void joinProject_ignoresOfflineUsers() {
+        sessionRegistry.joinProject(7L, 1L);
+
+        assertTrue(sessionRegistry.getProjectUsers(1L).isEmpty());
+    }
+
+    @Test
+    public void register_keepsTheProjects_whenReconnectingWhileTheOldSessionCloses() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 500; i++) {
+                Session old = session("old" + i);
+                Session reconnect = session("new" + i);
+                sessionRegistry.register(SocketType.NOTIFIER, old, 7L, List.of(1L));
+
+                CountDownLatch start = new CountDownLatch(1);
+                Future<?> closing = executor.submit(() -> {
+                    start.await();
+                    return sessionRegistry.unregister(SocketType.NOTIFIER, old);
+                });
+                Future<?> opening = executor.submit(() -> {
+                    start.await();
+                    sessionRegistry.register(SocketType.HUB, reconnect, 7L, List.of(1L));
+                    return null;
+                });
+                start.countDown();
+                closing.get();
+                opening.get();
+
+                assertTrue(sessionRegistry.isOnline(7L));
+                assertEquals(Set.of(7L), sessionRegistry.getProjectUsers(1L), "lost the projects on round " + i);
+
+                sessionRegistry.unregister(SocketType.HUB, reconnect);
+                assertTrue(sessionRegistry.getProjectUsers(1L).isEmpty());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SseConnectionTest {
+
+    @Mock
+    private SseEventSink sink;
+
+    @Mock
+    private Sse sse;
+
+    @Mock
+    private OutboundSseEvent event;
+
+    private OutboundSseEvent.Builder builder;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        builder = mock(OutboundSseEvent.Builder.class, RETURNS_SELF);
+        when(builder.build()).thenReturn(event);
+        when(sse.newEventBuilder()).thenReturn(builder);
+    }
+
+    @Test
+    public void send_usesSequenceNumberAsEventId() {
+        when(sink.send(event)).thenReturn(CompletableFuture.completedFuture(null));
+        SseConnection connection = new SseConnection(1L, sink, sse);
+        AtomicReference<Throwable> result = new AtomicReference<>(new Throwable());
+
+        connection.send(FrameEncoder.withSeq("{\"type\":\"message\"}", 42), result::set);
+
+        verify(builder).data("{\"seq\":42,\"type\":\"message\"}");
+        verify(builder).id("42");
+        assertNull(result.get());
+    }
+
+    @Test
+    public void send_withoutSequenceNumber_hasNoEventId() {
+        when(sink.send(event)).thenReturn(CompletableFuture.completedFuture(null));
+        SseConnection connection = new SseConnection(1L, sink, sse);
+
+        connection.send(OutboundFrame.text("{}"), error -> { });
+
+        verify(builder).data("{}");
+        verify(builder, never()).id(anyString());
+    }
+
+    @Test
+    public void send_reportsFailedWrite() {
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("closed"));
+        doReturn(failed).when(sink).send(event);
+        SseConnection connection = new SseConnection(1L, sink, sse);
+        AtomicReference<Throwable> result = new AtomicReference<>();
+
+        connection.send(OutboundFrame.text("{}"), result::set);
+
+        assertNotNull(result.get());
+    }
+}
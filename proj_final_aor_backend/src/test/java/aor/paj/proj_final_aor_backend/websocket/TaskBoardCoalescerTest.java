@@ -0,0 +1,162 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import aor.paj.proj_final_aor_backend.dto.Task;
+import aor.paj.proj_final_aor_backend.dto.TaskBatch;
+import aor.paj.proj_final_aor_backend.util.enums.SocketType;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TaskBoardCoalescerTest {
+
+    @InjectMocks
+    private TaskBoardCoalescer taskBoardCoalescer;
+
+    @Mock
+    private ManagedScheduledExecutorService scheduler;
+
+    @Mock
+    private WebsocketHub websocketHub;
+
+    @Mock
+    private SessionRegistry sessionRegistry;
+
+    @Mock
+    private EventBus eventBus;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        when(sessionRegistry.getProjectUsers(1L)).thenReturn(Set.of(7L));
+    }
+
+    @Test
+    public void submit_schedulesOneFlush_forABurstOfUpdates() {
+        taskBoardCoalescer.submit(1, task(10L, "a"));
+        taskBoardCoalescer.submit(1, task(10L, "b"));
+        taskBoardCoalescer.submit(1, task(11L, "c"));
+
+        verify(scheduler, times(1)).schedule(any(Runnable.class), anyLong(), eq(TimeUnit.MILLISECONDS));
+        verifyNoInteractions(websocketHub);
+    }
+
+    @Test
+    public void flush_sendsOneBatch_withLastVersionOfEachTask() {
+        taskBoardCoalescer.submit(1, task(10L, "a"));
+        taskBoardCoalescer.submit(1, task(10L, "b"));
+        taskBoardCoalescer.submit(1, task(11L, "c"));
+
+        taskBoardCoalescer.flush(1);
+
+        TaskBatch batch = captureBatch(1);
+        assertEquals(2, batch.getTasks().size());
+        assertEquals("b", batch.getTasks().get(0).get("title"));
+        verify(websocketHub, times(2)).sendToProject(eq(SocketType.TASK), isNull(), anyString(), eq(1L), any(Task.class), anyString());
+    }
+
+    @Test
+    public void flush_sendsOnlyChangedFields_afterFirstBatch() {
+        taskBoardCoalescer.submit(1, task(10L, "a"));
+        taskBoardCoalescer.flush(1);
+        taskBoardCoalescer.submit(1, task(10L, "b"));
+        taskBoardCoalescer.flush(1);
+
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(websocketHub, times(2)).sendToProject(isNull(), eq("project:1:tasks"), eq(TaskBoardCoalescer.TASKS), eq(1L), payload.capture(), isNull());
+        Map<String, Object> change = ((TaskBatch) payload.getAllValues().get(1)).getTasks().get(0);
+        assertEquals(Set.of("id", "title"), change.keySet());
+        assertEquals(10L, ((Number) change.get("id")).longValue());
+        assertEquals("b", change.get("title"));
+    }
+
+    @Test
+    public void flush_sendsNothing_whenTaskDidNotChange() {
+        taskBoardCoalescer.submit(1, task(10L, "a"));
+        taskBoardCoalescer.flush(1);
+        taskBoardCoalescer.submit(1, task(10L, "a"));
+        taskBoardCoalescer.flush(1);
+
+        verify(websocketHub, times(1)).sendToProject(isNull(), anyString(), anyString(), eq(1L), any(), isNull());
+    }
+
+    @Test
+    public void flush_forgetsErasedTask_andDropsTheEmptyBuffer() {
+        taskBoardCoalescer.submit(1, task(10L, "a"));
+        taskBoardCoalescer.flush(1);
+        Task erased = task(10L, "a");
+        erased.setErased(true);
+        taskBoardCoalescer.submit(1, erased);
+        taskBoardCoalescer.flush(1);
+
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(websocketHub, times(2)).sendToProject(isNull(), anyString(), anyString(), eq(1L), payload.capture(), isNull());
+        assertEquals(true, ((TaskBatch) payload.getAllValues().get(1)).getTasks().get(0).get("erased"));
+        assertEquals(0, taskBoardCoalescer.getBufferedProjects());
+    }
+
+    @Test
+    public void flush_dropsTheBuffer_whenNoMemberIsOnline() {
+        when(sessionRegistry.getProjectUsers(2L)).thenReturn(Set.of());
+        taskBoardCoalescer.submit(2, task(10L, "a"));
+        taskBoardCoalescer.flush(2);
+        taskBoardCoalescer.submit(2, task(10L, "a"));
+        taskBoardCoalescer.flush(2);
+
+        // Nothing to compare with, so the same task is sent whole again
+        verify(websocketHub, times(2)).sendToProject(isNull(), anyString(), anyString(), eq(2L), any(), isNull());
+        assertEquals(0, taskBoardCoalescer.getBufferedProjects());
+    }
+
+    @Test
+    public void flush_keepsTheBuffer_whileMembersAreOnline() {
+        taskBoardCoalescer.submit(1, task(10L, "a"));
+        taskBoardCoalescer.flush(1);
+
+        assertEquals(1, taskBoardCoalescer.getBufferedProjects());
+    }
+
+    @Test
+    public void flush_sendsWholeTasks_whenOtherNodesSendChangesToo() {
+        when(eventBus.isDistributed()).thenReturn(true);
+        Task first = task(10L, "a");
+        first.setDescription("d");
+        taskBoardCoalescer.submit(1, first);
+        taskBoardCoalescer.flush(1);
+        Task second = task(10L, "b");
+        second.setDescription("d");
+        taskBoardCoalescer.submit(1, second);
+        taskBoardCoalescer.flush(1);
+
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(websocketHub, times(2)).sendToProject(isNull(), anyString(), anyString(), eq(1L), payload.capture(), isNull());
+        TaskBatch batch = (TaskBatch) payload.getAllValues().get(1);
+        assertTrue(batch.isWhole());
+        assertEquals("d", batch.getTasks().get(0).get("description"));
+        assertEquals("b", batch.getTasks().get(0).get("title"));
+        assertEquals(0, taskBoardCoalescer.getBufferedProjects());
+    }
+
+    private TaskBatch captureBatch(long projectId) {
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(websocketHub).sendToProject(isNull(), eq(Channels.projectTasks(projectId)), eq(TaskBoardCoalescer.TASKS), eq(projectId), payload.capture(), isNull());
+        return (TaskBatch) payload.getValue();
+    }
+
+    private static Task task(Long id, String title) {
+        Task task = new Task();
+        task.setId(id);
+        task.setTitle(title);
+        return task;
+    }
+}
@@ -0,0 +1,64 @@
+package aor.paj.proj_final_aor_backend.websocket;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserStreamTest {
+
+    @Test
+    public void append_returnsIncreasingSequenceNumbers() {
+        UserStream stream = new UserStream(1, 10, 5, false);
+
+        assertEquals(6, stream.append("dm", "{}"));
+        assertEquals(7, stream.append("dm", "{}"));
+        assertEquals(7, stream.getLastSeq());
+    }
+
+    @Test
+    public void since_returnsOnlyMissedEvents_whenTheyAreInMemory() {
+        UserStream stream = new UserStream(1, 10, 0, false);
+        for (int i = 0; i < 5; i++) {
+            stream.append("dm", "{\"i\":" + i + "}");
+        }
+
+        List<UserStream.Entry> missed = stream.since(3);
+
+        assertEquals(2, missed.size());
+        assertEquals(4, missed.get(0).getSeq());
+        assertEquals(5, missed.get(1).getSeq());
+        assertTrue(stream.since(5).isEmpty());
+    }
+
+    @Test
+    public void since_returnsNull_whenMissedEventsWereEvicted() {
+        UserStream stream = new UserStream(1, 3, 0, true);
+        for (int i = 0; i < 6; i++) {
+            stream.append("dm", "{}");
+        }
+
+        assertNull(stream.since(1));
+        assertNotNull(stream.since(3));
+        assertEquals(3, stream.drainEvicted().size());
+        assertTrue(stream.drainEvicted().isEmpty());
+    }
+
+    @Test
+    public void since_returnsNull_whenClientIsAheadOfTheStream() {
+        UserStream stream = new UserStream(1, 3, 0, false);
+        stream.append("dm", "{}");
+
+        assertNull(stream.since(10));
+    }
+
+    @Test
+    public void withSeq_addsSequenceNumberToEnvelope() {
+        String envelope = FrameEncoder.envelopeJson("dm", "message", "{\"id\":1}");
+
+        OutboundFrame frame = FrameEncoder.withSeq(envelope, 42);
+
+        assertEquals("{\"seq\":42,\"channel\":\"dm\",\"type\":\"message\",\"payload\":{\"id\":1}}", frame.getText());
+    }
+}
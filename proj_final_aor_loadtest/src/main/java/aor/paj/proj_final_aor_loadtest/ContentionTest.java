@@ -0,0 +1,167 @@
+package aor.paj.proj_final_aor_loadtest;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Benchmark of the contention between the notification fan-outs and the requests that write user rows.
+ *
+ * <p>Some users log in and edit their biography in a loop, first alone and then while other threads keep
+ * creating projects (a notification to every user) and sending project chat messages (a notification to every
+ * member). It reports the latency percentiles of the logins and the edits in both phases, so the cost the
+ * fan-outs add to the user rows can be compared between versions of the server.</p>
+ *
+ * <p>It uses the users created by LoadTestBean, see {@link LoadTest} for how to start the server:</p>
+ * <pre>
+ * cd proj_final_aor_loadtest &amp;&amp; mvn compile exec:java -Dloadtest.main=aor.paj.proj_final_aor_loadtest.ContentionTest
+ * </pre>
+ *
+ * <p>Options, as system properties: loadtest.baseUrl, loadtest.projectId, loadtest.writers, loadtest.fanouts and
+ * loadtest.phaseSeconds.</p>
+ */
+public class ContentionTest {
+
+    private final String baseUrl = System.getProperty("loadtest.baseUrl", "http://localhost:8080/project_backend");
+    private final long projectId = Long.getLong("loadtest.projectId", 1L);
+    private final int writers = Integer.getInteger("loadtest.writers", 20);
+    private final int fanouts = Integer.getInteger("loadtest.fanouts", 4);
+    private final long phaseSeconds = Long.getLong("loadtest.phaseSeconds", 30L);
+
+    /**
+     * Prefix of the emails and tokens of the users created by LoadTestBean.
+     */
+    private static final String PREFIX = "loadtest-";
+    private static final String PASSWORD = "Password1234%";
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .executor(Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2)))
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+    private final ServerApi api = new ServerApi(httpClient, baseUrl);
+
+    public static void main(String[] args) throws Exception {
+        new ContentionTest().run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        // User 1 sends the fan-outs, the writers are the next users
+        List<Writer> writerList = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            String email = PREFIX + (i + 2) + "@example.com";
+            String token = api.login(email, PASSWORD);
+            writerList.add(new Writer(email, token, api.currentUserId(token)));
+        }
+
+        Phase alone = runPhase("Without fan-out", writerList, false);
+        Phase loaded = runPhase("With fan-out", writerList, true);
+
+        System.out.println();
+        alone.print();
+        loaded.print();
+    }
+
+    /**
+     * Runs the writers for phaseSeconds, with or without fan-outs at the same time.
+     */
+    private Phase runPhase(String name, List<Writer> writerList, boolean withFanout) throws InterruptedException {
+        Phase phase = new Phase(name);
+        AtomicBoolean stop = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(writers + (withFanout ? fanouts : 0));
+
+        for (Writer writer : writerList) {
+            executor.submit(() -> {
+                int edit = 0;
+                while (!stop.get()) {
+                    try {
+                        long start = System.nanoTime();
+                        api.login(writer.email, PASSWORD);
+                        phase.logins.record(System.nanoTime() - start);
+
+                        start = System.nanoTime();
+                        api.updateBiography(writer.token, writer.userId, "Contention test edit " + edit++);
+                        phase.edits.record(System.nanoTime() - start);
+                    } catch (Exception e) {
+                        phase.errors.incrementAndGet();
+                    }
+                }
+            });
+        }
+        if (withFanout) {
+            for (int i = 0; i < fanouts; i++) {
+                boolean projects = i % 2 == 0;
+                executor.submit(() -> {
+                    int n = 0;
+                    while (!stop.get()) {
+                        try {
+                            if (projects) {
+                                api.registerProject(PREFIX + 1, "Contention test " + Thread.currentThread().getId() + " " + n++);
+                            } else {
+                                api.sendChatMessage(PREFIX + 1, projectId, "contention test " + n++);
+                            }
+                            phase.fanouts.incrementAndGet();
+                        } catch (Exception e) {
+                            phase.errors.incrementAndGet();
+                        }
+                    }
+                });
+            }
+        }
+
+        System.out.printf("%s: running for %d s%n", name, phaseSeconds);
+        Thread.sleep(TimeUnit.SECONDS.toMillis(phaseSeconds));
+        stop.set(true);
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.MINUTES);
+        return phase;
+    }
+
+    /**
+     * A user that logs in and edits the profile.
+     */
+    private static class Writer {
+        private final String email;
+        private final String token;
+        private final long userId;
+
+        private Writer(String email, String token, long userId) {
+            this.email = email;
+            this.token = token;
+            this.userId = userId;
+        }
+    }
+
+    /**
+     * The latencies measured in one phase.
+     */
+    private class Phase {
+        private final String name;
+        private final LatencyRecorder logins = new LatencyRecorder();
+        private final LatencyRecorder edits = new LatencyRecorder();
+        private final AtomicInteger fanouts = new AtomicInteger();
+        private final AtomicInteger errors = new AtomicInteger();
+
+        private Phase(String name) {
+            this.name = name;
+        }
+
+        private void print() {
+            System.out.printf("%s: %d fan-outs, %d errors%n", name, fanouts.get(), errors.get());
+            printLatencies("  Logins", logins);
+            printLatencies("  Profile edits", edits);
+        }
+
+        private void printLatencies(String label, LatencyRecorder recorder) {
+            System.out.printf("%s: %d, %.0f/s, p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                    label, recorder.count(), recorder.count() / (double) phaseSeconds,
+                    recorder.percentile(50), recorder.percentile(90), recorder.percentile(99), recorder.percentile(100));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package aor.paj.proj_final_aor_loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Collects delivery latencies and computes their percentiles.
+ */
+public class LatencyRecorder {
+
+    private long[] values = new long[1024];
+    private int size;
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos The latency in nanoseconds.
+     */
+    public synchronized void record(long nanos) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = nanos;
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     *
+     * @return The number of latencies.
+     */
+    public synchronized int count() {
+        return size;
+    }
+
+    /**
+     * Returns a percentile of the recorded latencies.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The latency in milliseconds, or 0 if nothing was recorded.
+     */
+    public synchronized double percentile(double percentile) {
+        if (size == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(values, size);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * size) - 1;
+        return sorted[Math.max(0, Math.min(size - 1, index))] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,193 @@
+package aor.paj.proj_final_aor_loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Load driver for the websocket endpoints of the backend.
+ *
+ * <p>Opens a session per user on each endpoint, then repeatedly triggers the two biggest fan-outs of the server,
+ * creating a project (NotificationBean.sendNotificationToAllUsers) and sending a project chat message
+ * (MessageBean.sendMessageToChatGroup), and reports the delivery latency percentiles, the throughput and the
+ * server heap used per session.</p>
+ *
+ * <p>The server must be running with the users created by LoadTestBean, on an in-memory database:</p>
+ * <pre>
+ * cd proj_final_aor_backend &amp;&amp; mvn package -Ploadtest
+ * # deploy the war and start WildFly with -Dloadtest.users=5000 -Dloadtest.projectMembers=500
+ * cd proj_final_aor_loadtest &amp;&amp; mvn compile exec:java -Dloadtest.users=5000
+ * </pre>
+ *
+ * <p>Options, as system properties: loadtest.baseUrl, loadtest.users, loadtest.endpoints, loadtest.projectId,
+ * loadtest.rounds, loadtest.connectConcurrency, loadtest.quietMillis, loadtest.roundTimeoutSeconds,
+ * loadtest.adminEmail and loadtest.adminPassword.</p>
+ */
+public class LoadTest {
+
+    private final String baseUrl = System.getProperty("loadtest.baseUrl", "http://localhost:8080/project_backend");
+    private final int users = Integer.getInteger("loadtest.users", 1000);
+    private final String[] endpoints = System.getProperty("loadtest.endpoints", "notifier,message,task").split(",");
+    private final long projectId = Long.getLong("loadtest.projectId", 1L);
+    private final int rounds = Integer.getInteger("loadtest.rounds", 10);
+    private final int connectConcurrency = Integer.getInteger("loadtest.connectConcurrency", 200);
+    private final long quietMillis = Long.getLong("loadtest.quietMillis", 2000L);
+    private final long roundTimeoutSeconds = Long.getLong("loadtest.roundTimeoutSeconds", 120L);
+    private final String adminEmail = System.getProperty("loadtest.adminEmail", "admin@example.com");
+    private final String adminPassword = System.getProperty("loadtest.adminPassword", "Password1234%");
+
+    /**
+     * Prefix of the tokens of the users created by LoadTestBean.
+     */
+    private static final String TOKEN_PREFIX = "loadtest-";
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .executor(Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2)))
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+    private final ServerApi api = new ServerApi(httpClient, baseUrl);
+    private final AtomicReference<Round> currentRound = new AtomicReference<>();
+    private final LatencyRecorder notificationLatencies = new LatencyRecorder();
+    private final LatencyRecorder messageLatencies = new LatencyRecorder();
+    private final List<SimulatedClient> clients = new ArrayList<>();
+
+    private long notificationNanos;
+    private long messageNanos;
+
+    public static void main(String[] args) throws Exception {
+        new LoadTest().run();
+        System.exit(0);
+    }
+
+    /**
+     * The text of the chat message of a round, the clients look for it in the frames they receive.
+     *
+     * @param round The round.
+     * @return The content of the message.
+     */
+    static String messageContent(Round round) {
+        return "load test round " + round.getId();
+    }
+
+    private void run() throws Exception {
+        String adminToken = api.login(adminEmail, adminPassword);
+        JsonNode before = api.websocketStats(adminToken);
+
+        connect();
+        // Lets the server finish the registration of the last sessions
+        Thread.sleep(quietMillis);
+        JsonNode after = api.websocketStats(adminToken);
+
+        for (int i = 1; i <= rounds; i++) {
+            notificationNanos += runRound(new Round(i, Round.Kind.NOTIFICATION));
+            messageNanos += runRound(new Round(i, Round.Kind.MESSAGE));
+        }
+        JsonNode end = api.websocketStats(adminToken);
+
+        report(before, after, end);
+        for (SimulatedClient client : clients) {
+            client.close();
+        }
+    }
+
+    /**
+     * Opens the sessions of all the users, with at most connectConcurrency handshakes at a time.
+     */
+    private void connect() throws InterruptedException {
+        String wsUrl = baseUrl.replaceFirst("^http", "ws") + "/websocket/";
+        Semaphore handshakes = new Semaphore(connectConcurrency);
+        AtomicInteger failed = new AtomicInteger();
+        List<CompletableFuture<?>> pending = new ArrayList<>();
+        long start = System.nanoTime();
+
+        for (int user = 1; user <= users; user++) {
+            for (String endpoint : endpoints) {
+                SimulatedClient client = new SimulatedClient(endpoint, currentRound, notificationLatencies, messageLatencies);
+                clients.add(client);
+                handshakes.acquire();
+                pending.add(httpClient.newWebSocketBuilder()
+                        .connectTimeout(Duration.ofSeconds(30))
+                        .buildAsync(URI.create(wsUrl + endpoint + "/" + TOKEN_PREFIX + user), client)
+                        .whenComplete((webSocket, error) -> {
+                            handshakes.release();
+                            if (error != null) {
+                                failed.incrementAndGet();
+                            }
+                        }));
+            }
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).exceptionally(error -> null).join();
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.printf("Opened %d sessions in %d ms, %d failed%n", clients.size() - failed.get(), millis, failed.get());
+    }
+
+    /**
+     * Triggers a fan-out and waits until the clients stop receiving it.
+     *
+     * @return How long the round took, from the request to the last delivery.
+     */
+    private long runRound(Round round) throws Exception {
+        currentRound.set(round);
+        if (round.getKind() == Round.Kind.NOTIFICATION) {
+            api.registerProject(TOKEN_PREFIX + 1, "Load test round " + round.getId() + " " + System.currentTimeMillis());
+        } else {
+            api.sendChatMessage(TOKEN_PREFIX + 1, projectId, messageContent(round));
+        }
+        long requestMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - round.getStartNanos());
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(roundTimeoutSeconds);
+        long quietNanos = TimeUnit.MILLISECONDS.toNanos(quietMillis);
+        while (System.nanoTime() < deadline) {
+            Thread.sleep(100);
+            long last = Math.max(round.getLastDeliveryNanos(), round.getStartNanos());
+            if (System.nanoTime() - last > quietNanos) {
+                break;
+            }
+        }
+        currentRound.set(null);
+
+        long duration = Math.max(round.getLastDeliveryNanos() - round.getStartNanos(), 0);
+        System.out.printf("Round %d %s: request %d ms, %d delivered in %d ms%n", round.getId(), round.getKind(),
+                requestMillis, round.getDelivered(), TimeUnit.NANOSECONDS.toMillis(duration));
+        return duration;
+    }
+
+    private void report(JsonNode before, JsonNode after, JsonNode end) {
+        int open = 0;
+        for (SimulatedClient client : clients) {
+            if (client.isOpen()) {
+                open++;
+            }
+        }
+        int sessions = after.path("openSessions").asInt() - before.path("openSessions").asInt();
+        long heap = after.path("heapUsedBytes").asLong() - before.path("heapUsedBytes").asLong();
+
+        System.out.println();
+        System.out.printf("Sessions: %d open on the client, %d registered on the server%n", open, sessions);
+        System.out.printf("Server heap per session: %.1f KB (heap is sampled without a GC, run several times)%n",
+                sessions > 0 ? heap / 1024.0 / sessions : 0);
+        printLatencies("Notifications", notificationLatencies, notificationNanos);
+        printLatencies("Chat messages", messageLatencies, messageNanos);
+        System.out.printf("Server queues: %d dropped, %d coalesced, %d failed, %d evicted%n",
+                end.path("dropped").asLong(), end.path("coalesced").asLong(),
+                end.path("failed").asLong(), end.path("evicted").asLong());
+    }
+
+    private void printLatencies(String name, LatencyRecorder recorder, long nanos) {
+        double seconds = nanos / 1_000_000_000.0;
+        System.out.printf("%s: %d delivered, %.0f/s, p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                name, recorder.count(), seconds > 0 ? recorder.count() / seconds : 0,
+                recorder.percentile(50), recorder.percentile(90), recorder.percentile(99), recorder.percentile(100));
+    }
+}
@@ -0,0 +1,67 @@
+package aor.paj.proj_final_aor_loadtest;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One fan-out triggered by the driver, the clients attribute the frames they receive to the current round.
+ */
+public class Round {
+
+    /**
+     * What triggers the fan-out of a round.
+     */
+    public enum Kind {
+        /**
+         * A project is created, every other user receives a NEW_PROJECT notification.
+         */
+        NOTIFICATION,
+
+        /**
+         * A message is sent to the chat of the load test project, every member receives it.
+         */
+        MESSAGE
+    }
+
+    private final int id;
+    private final Kind kind;
+    private final long startNanos = System.nanoTime();
+    private final AtomicInteger delivered = new AtomicInteger();
+    private volatile long lastDeliveryNanos;
+
+    public Round(int id, Kind kind) {
+        this.id = id;
+        this.kind = kind;
+    }
+
+    /**
+     * Counts a frame received by a client.
+     *
+     * @param recorder The recorder of the latencies of this kind of round.
+     */
+    public void delivered(LatencyRecorder recorder) {
+        long now = System.nanoTime();
+        recorder.record(now - startNanos);
+        lastDeliveryNanos = now;
+        delivered.incrementAndGet();
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public int getDelivered() {
+        return delivered.get();
+    }
+
+    public long getLastDeliveryNanos() {
+        return lastDeliveryNanos;
+    }
+}
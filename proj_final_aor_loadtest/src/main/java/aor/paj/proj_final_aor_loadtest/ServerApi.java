@@ -0,0 +1,119 @@
+package aor.paj.proj_final_aor_loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * The REST calls made by the load tests: login, the requests that trigger the fan-out, profile edits and the websocket statistics.
+ */
+public class ServerApi {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient;
+    private final String restUrl;
+
+    /**
+     * Creates the client.
+     *
+     * @param httpClient The HTTP client.
+     * @param baseUrl    The URL of the application, e.g. http://localhost:8080/project_backend.
+     */
+    public ServerApi(HttpClient httpClient, String baseUrl) {
+        this.httpClient = httpClient;
+        this.restUrl = baseUrl + "/rest";
+    }
+
+    /**
+     * Logs in a user.
+     *
+     * @return The token of the session.
+     */
+    public String login(String email, String password) throws IOException, InterruptedException {
+        HttpResponse<String> response = post("/users/login", null, Map.of("email", email, "password", password));
+        return response.body().trim();
+    }
+
+    /**
+     * Creates a project, which sends a notification to every other user.
+     */
+    public void registerProject(String token, String name) throws IOException, InterruptedException {
+        post("/projects/register", token, Map.of(
+                "name", name,
+                "description", "Created by the load test",
+                "keywords", "loadtest",
+                "maxMembers", 5,
+                "lab", Map.of("name", "LISBOA")));
+    }
+
+    /**
+     * Sends a message to the chat of a project, which is sent to the members of the project.
+     */
+    public void sendChatMessage(String token, long projectId, String content) throws IOException, InterruptedException {
+        post("/messages/send/" + projectId, token, Map.of("content", content));
+    }
+
+    /**
+     * Returns the id of the user of a session.
+     */
+    public long currentUserId(String token) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(restUrl + "/users/user"))
+                .header("token", token)
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+        return objectMapper.readTree(send(request).body()).path("id").asLong();
+    }
+
+    /**
+     * Changes the biography of a user, which updates the row of the user.
+     */
+    public void updateBiography(String token, long userId, String biography) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(restUrl + "/users/" + userId + "/biography"))
+                .header("Content-Type", "application/json")
+                .header("token", token)
+                .timeout(Duration.ofMinutes(5))
+                .PUT(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(Map.of("biography", biography))))
+                .build();
+        send(request);
+    }
+
+    /**
+     * Returns the websocket statistics, the token must be of an administrator.
+     */
+    public JsonNode websocketStats(String token) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(restUrl + "/statistics/websocket"))
+                .header("token", token)
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+        HttpResponse<String> response = send(request);
+        return objectMapper.readTree(response.body());
+    }
+
+    private HttpResponse<String> post(String path, String token, Object body) throws IOException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(restUrl + path))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofMinutes(5))
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)));
+        if (token != null) {
+            builder.header("token", token);
+        }
+        return send(builder.build());
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IOException(request.method() + " " + request.uri() + " returned " + response.statusCode() + ": " + response.body());
+        }
+        return response;
+    }
+}
@@ -0,0 +1,94 @@
+package aor.paj.proj_final_aor_loadtest;
+
+import java.net.http.WebSocket;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A websocket session of a load test user on one of the endpoints of the server.
+ * Frames are matched with plain string searches, parsing thousands of them per second would make the driver the bottleneck.
+ */
+public class SimulatedClient implements WebSocket.Listener {
+
+    private final String endpoint;
+    private final AtomicReference<Round> currentRound;
+    private final LatencyRecorder notificationLatencies;
+    private final LatencyRecorder messageLatencies;
+    private final StringBuilder partial = new StringBuilder();
+    private volatile WebSocket webSocket;
+    private volatile boolean closed;
+
+    /**
+     * Creates the client.
+     *
+     * @param endpoint              The endpoint, notifier, message or task.
+     * @param currentRound          The round in progress, shared by all the clients.
+     * @param notificationLatencies Where the latencies of the notifications are recorded.
+     * @param messageLatencies      Where the latencies of the chat messages are recorded.
+     */
+    public SimulatedClient(String endpoint, AtomicReference<Round> currentRound,
+                           LatencyRecorder notificationLatencies, LatencyRecorder messageLatencies) {
+        this.endpoint = endpoint;
+        this.currentRound = currentRound;
+        this.notificationLatencies = notificationLatencies;
+        this.messageLatencies = messageLatencies;
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket) {
+        this.webSocket = webSocket;
+        webSocket.request(1);
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+        partial.append(data);
+        if (last) {
+            onFrame(partial.toString());
+            partial.setLength(0);
+        }
+        webSocket.request(1);
+        return null;
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+        closed = true;
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+        closed = true;
+    }
+
+    /**
+     * Closes the session.
+     */
+    public void close() {
+        WebSocket current = webSocket;
+        if (current != null && !closed) {
+            current.sendClose(WebSocket.NORMAL_CLOSURE, "Load test finished");
+        }
+    }
+
+    public boolean isOpen() {
+        return webSocket != null && !closed;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    private void onFrame(String frame) {
+        Round round = currentRound.get();
+        if (round == null) {
+            return;
+        }
+        if (round.getKind() == Round.Kind.NOTIFICATION && endpoint.equals("notifier") && frame.contains("\"NEW_PROJECT\"")) {
+            round.delivered(notificationLatencies);
+        } else if (round.getKind() == Round.Kind.MESSAGE && endpoint.equals("message") && frame.contains(LoadTest.messageContent(round))) {
+            round.delivered(messageLatencies);
+        }
+    }
+}